@@ -0,0 +1,167 @@
+package flight_system;
+
+import graph.FlightGraphCache;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import parsers.AirplaneParser;
+import parsers.AirportParser;
+
+/**
+ * A booking service that many users can use at the same time from one program,
+ * without a user interface.
+ * <p>
+ * Each user gets a {@link BookingSession}, which keeps only their own trip and
+ * search results. The airports and airplanes are parsed once and shared, and so
+ * are the flight graphs, which come from the {@link FlightGraphCache}. Purchases
+ * from all the sessions take turns holding the lock on the database.
+ * <p>
+ * This class uses the Singleton Pattern, thus, only one instance of it is allowed.
+ *
+ * @see FlightSystem
+ */
+public class BookingService {
+
+	/* Default time a session can go unused before it is closed, in milliseconds */
+	public static final long DEFAULT_MAX_IDLE = 30 * 60 * 1000;
+
+	private static BookingService firstInstance = null;
+
+	private ConcurrentHashMap<String, BookingSession> sessions;
+
+	private volatile long maxIdle;
+
+	/* The private constructor */
+	private BookingService() {
+		this.sessions = new ConcurrentHashMap<String, BookingSession>();
+		this.maxIdle = DEFAULT_MAX_IDLE;
+	}
+
+	/**
+	 * Gets the only instance of the class.
+	 * @return the only instance of the booking service.
+	 */
+	public static synchronized BookingService getInstance(){
+		if(firstInstance == null){
+			firstInstance = new BookingService();
+		}
+
+		return firstInstance;
+	}
+
+	/**
+	 * Opens a new session, getting the airports and airplanes first if nobody has yet.
+	 * Sessions that were unused for too long are closed.
+	 * @return the new session.
+	 */
+	public BookingSession openSession() {
+
+		AirportParser.getInstance().loadAirportList();
+		AirplaneParser.getInstance().loadAirplaneList();
+
+		closeIdleSessions();
+
+		BookingSession session = new BookingSession(UUID.randomUUID().toString());
+		sessions.put(session.getId(), session);
+
+		return session;
+	}
+
+	/**
+	 * Gets an open session.
+	 * @param id the id of the session.
+	 * @return the session, or null if there's no open session with that id.
+	 */
+	public BookingSession getSession(String id) {
+		return (id == null) ? null : sessions.get(id);
+	}
+
+	/**
+	 * Closes a session.
+	 * @param id the id of the session.
+	 * @return true if the session was open.
+	 */
+	public boolean closeSession(String id) {
+		return (id != null) && (sessions.remove(id) != null);
+	}
+
+	/**
+	 * Gets the number of open sessions.
+	 * @return the number of sessions.
+	 */
+	public int getNumOfSessions() {
+		return sessions.size();
+	}
+
+	/**
+	 * Sets how long a session can go unused before it is closed.
+	 * @param maxIdle the time in milliseconds, 0 never closes them.
+	 */
+	public void setMaxIdle(long maxIdle) {
+		this.maxIdle = Math.max(0, maxIdle);
+	}
+
+	/**
+	 * Closes the sessions that were unused for too long.
+	 * @return the number of sessions that were closed.
+	 */
+	public int closeIdleSessions() {
+
+		int closed = 0;
+		long idle = maxIdle;
+
+		if (idle == 0){
+			return closed;
+		}
+
+		long now = System.currentTimeMillis();
+		Iterator<BookingSession> iterator = sessions.values().iterator();
+
+		while (iterator.hasNext()){
+			if (now - iterator.next().getLastUsed() > idle){
+				iterator.remove();
+				closed++;
+			}
+		}
+
+		return closed;
+	}
+
+	/**
+	 * Gets the airports, shared by all the sessions.
+	 * @return the airports, in a list that can't be changed.
+	 */
+	public List<Airport> getAirports() {
+		AirportParser.getInstance().loadAirportList();
+		return Collections.unmodifiableList(AirportParser.getInstance().getAirportList());
+	}
+
+	/**
+	 * Gets an airport by its code.
+	 * @param code the 3 letter code of the airport.
+	 * @return the airport, or null if there's no airport with that code.
+	 */
+	public Airport getAirport(String code) {
+		AirportParser.getInstance().loadAirportList();
+		return AirportParser.getInstance().getAirport(code);
+	}
+
+	/**
+	 * Gets the airplanes, shared by all the sessions.
+	 * @return the airplanes, in a list that can't be changed.
+	 */
+	public List<Airplane> getAirplanes() {
+		AirplaneParser.getInstance().loadAirplaneList();
+		return Collections.unmodifiableList(AirplaneParser.getInstance().getAirplaneList());
+	}
+
+	@Override
+	public String toString() {
+		return "BookingService with " + sessions.size() + " open session(s)";
+	}
+
+}
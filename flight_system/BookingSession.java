@@ -0,0 +1,375 @@
+package flight_system;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * One user's booking, made by the {@link BookingService}.
+ * <p>
+ * A session does the same things as the {@link FlightSystem}, without a user
+ * interface: set a trip, search for its flights, filter and sort them, and buy
+ * one. It only keeps the user's trip and the flights that were found for it,
+ * the flight graphs, airports and airplanes are shared by all the sessions.
+ * <p>
+ * The origin flights are the ones from the departure airport to the destination,
+ * the return flights are the ones back for a round trip. Each direction has the
+ * flights found by the last search, and the results, which are those flights
+ * after any filtering and sorting.
+ * <p>
+ * The methods of a session can be called from many threads, but they run one at a time.
+ */
+public class BookingSession {
+
+	/**
+	 * The ways the results can be sorted, the same as the options of the {@link FlightSystem}.
+	 */
+	public enum SortBy {
+		DEPARTURE_TIME, ARRIVAL_TIME, TOTAL_TIME, CONNECTIONS, LAYOVER, PRICE
+	};
+
+	private String id;
+	private UserInfo userInfo;
+
+	/* The flights found by the last search, and what's left of them after filtering and sorting */
+	private ArrayList<Flight> originFlightList, returnFlightList, originResults, returnResults;
+
+	/* The progress of the last search, read without the lock */
+	private volatile SearchProgress progress;
+
+	/* When the session was last used, in milliseconds */
+	private volatile long lastUsed;
+
+	/* Made by the booking service */
+	BookingSession(String id) {
+		this.id = id;
+		this.userInfo = new UserInfo(null, null, null, null, false, false);
+		this.originFlightList = new ArrayList<Flight>();
+		this.returnFlightList = new ArrayList<Flight>();
+		this.originResults = new ArrayList<Flight>();
+		this.returnResults = new ArrayList<Flight>();
+		this.lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * Gets the id of the session.
+	 * @return the id used to find the session in the booking service.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Gets the time the session was last used.
+	 * @return the time in milliseconds.
+	 */
+	public long getLastUsed() {
+		return lastUsed;
+	}
+
+	/**
+	 * Sets the trip that will be searched for, and forgets the flights that
+	 * were found for the last trip.
+	 * @param depPort the airport the user wants to leave from.
+	 * @param arrPort the airport of the user's final destination.
+	 * @param depDate the date of departure.
+	 * @param returnDate the date the user wants to return on, null for a one-way trip.
+	 * @param isFirstClass true if the user wants First Class seats.
+	 */
+	public synchronized void setTrip(Airport depPort, Airport arrPort, Date depDate, Date returnDate, boolean isFirstClass) {
+
+		if (depPort == null || arrPort == null || depDate == null){
+			throw new IllegalArgumentException("A trip needs a departure airport, an arrival airport and a departure date");
+		}
+
+		touch();
+
+		userInfo.setDepartureAirport(depPort);
+		userInfo.setArrivalAirport(arrPort);
+		userInfo.setDepartureDate(depDate);
+		userInfo.setReturnDate(returnDate);
+		userInfo.setIsFirstClass(isFirstClass);
+		userInfo.setIsRoundTrip(returnDate != null);
+
+		originFlightList.clear();
+		returnFlightList.clear();
+		originResults.clear();
+		returnResults.clear();
+	}
+
+	/**
+	 * Gets a copy of the trip of the session, changing it doesn't change the session.
+	 * @return the user's trip information.
+	 */
+	public synchronized UserInfo getUserInfo() {
+		return new UserInfo(userInfo.getDepartureAirport(), userInfo.getArrivalAirport(),
+				userInfo.getDepartureDate(), userInfo.getReturnDate(),
+				userInfo.getIsFirstClass(), userInfo.getIsRoundTrip());
+	}
+
+	/**
+	 * Searches for the flights of the trip, with up to 2 connections, and
+	 * makes them the results. The origin and return flights are searched at
+	 * the same time.
+	 * @return the number of origin and return flights that were found.
+	 * @see #getProgress()
+	 */
+	public synchronized int search() {
+
+		if (userInfo.getDepartureAirport() == null){
+			throw new IllegalStateException("The trip has to be set before searching");
+		}
+
+		touch();
+
+		TripSearch search = new TripSearch(userInfo.getIsFirstClass());
+		search.addLeg(userInfo.getDepartureDate(), userInfo.getDepartureAirport(),
+				userInfo.getArrivalAirport(), userInfo.getDepartureDate());
+
+		/* The return flights are also only kept if they don't leave before the departure date */
+		if (userInfo.getIsRoundTrip()){
+			search.addLeg(userInfo.getReturnDate(), userInfo.getArrivalAirport(),
+					userInfo.getDepartureAirport(), userInfo.getDepartureDate());
+		}
+
+		progress = new SearchProgress();
+		ArrayList<ArrayList<Flight>> flights = search.search(progress);
+
+		originFlightList = flights.get(0);
+		returnFlightList = userInfo.getIsRoundTrip() ? flights.get(1) : new ArrayList<Flight>();
+
+		resetResults();
+
+		return originFlightList.size() + returnFlightList.size();
+	}
+
+	/**
+	 * Gets the progress of the last search. This doesn't wait for the search,
+	 * so it can be read while another thread is searching.
+	 * @return the progress, or null if the session hasn't searched yet.
+	 */
+	public SearchProgress getProgress() {
+		return progress;
+	}
+
+	/**
+	 * Undoes the filtering and sorting, the results are all the flights that were found again.
+	 */
+	public synchronized void resetResults() {
+		touch();
+		originResults = new ArrayList<Flight>(originFlightList);
+		returnResults = new ArrayList<Flight>(returnFlightList);
+	}
+
+	/**
+	 * Keeps only the results that leave before or after a local time (inclusive).
+	 * @param origin true to filter the origin flights, false for the return flights.
+	 * @param depTime the local departure time.
+	 * @param after true to keep the flights that leave after the time.
+	 * @return the results that are left.
+	 */
+	public synchronized ArrayList<Flight> filterDepTime(boolean origin, Time depTime, boolean after) {
+
+		touch();
+
+		FlightFilter filter = new FlightFilter(getResults(origin));
+		setResults(origin, filter.filterLocalDepTime(depTime, after, getDepartureAirport(origin)));
+
+		return getResults(origin);
+	}
+
+	/**
+	 * Keeps only the results that arrive before or after a local time (inclusive).
+	 * @param origin true to filter the origin flights, false for the return flights.
+	 * @param arrTime the local arrival time.
+	 * @param after true to keep the flights that arrive after the time.
+	 * @return the results that are left.
+	 */
+	public synchronized ArrayList<Flight> filterArrTime(boolean origin, Time arrTime, boolean after) {
+
+		touch();
+
+		FlightFilter filter = new FlightFilter(getResults(origin));
+		setResults(origin, filter.filterLocalArrTime(arrTime, after, getDepartureAirport(origin)));
+
+		return getResults(origin);
+	}
+
+	/**
+	 * Keeps only the results that match all the criteria, checked in one pass.
+	 * @param origin true to filter the origin flights, false for the return flights.
+	 * @param criteria what the flights have to match.
+	 * @return the results that are left.
+	 * @see FlightFilter#filter(FlightCriteria)
+	 */
+	public synchronized ArrayList<Flight> filter(boolean origin, FlightCriteria criteria) {
+
+		touch();
+
+		setResults(origin, new FlightFilter(getResults(origin)).filter(criteria));
+
+		return getResults(origin);
+	}
+
+	/**
+	 * Sorts the results.
+	 * @param origin true to sort the origin flights, false for the return flights.
+	 * @param sortBy what to sort by.
+	 * @param ascending true for ascending order.
+	 * @return the sorted results.
+	 */
+	public synchronized ArrayList<Flight> sort(boolean origin, SortBy sortBy, boolean ascending) {
+
+		touch();
+
+		FlightFilter filter = new FlightFilter(getResults(origin));
+		ArrayList<Flight> sorted;
+
+		switch (sortBy){
+		case DEPARTURE_TIME:
+			sorted = filter.sortDepartTime(ascending);
+			break;
+		case ARRIVAL_TIME:
+			sorted = filter.sortArriveTime(ascending);
+			break;
+		case TOTAL_TIME:
+			sorted = filter.sortTime(ascending);
+			break;
+		case CONNECTIONS:
+			sorted = filter.sortConnect(ascending);
+			break;
+		case LAYOVER:
+			sorted = filter.sortLayover(ascending);
+			break;
+		default:
+			sorted = filter.sortPrice(ascending, userInfo.getIsFirstClass());
+			break;
+		}
+
+		setResults(origin, sorted);
+
+		return getResults(origin);
+	}
+
+	/**
+	 * Gets the best results by many things, without sorting all of them or changing the results.
+	 * @param origin true for the origin flights, false for the return flights.
+	 * @param numOfFlights the number of flights wanted.
+	 * @param ascending true for ascending order.
+	 * @param sortBy what to sort by, the most important first.
+	 * @return the first flights, in order.
+	 * @see FlightFilter#top(int, Comparator)
+	 */
+	public synchronized ArrayList<Flight> top(boolean origin, int numOfFlights, boolean ascending, SortBy... sortBy) {
+		
+		touch();
+		
+		return new FlightFilter(origin ? originResults : returnResults).top(numOfFlights, getComparator(ascending, sortBy));
+	}
+	
+	/**
+	 * Pages through the results sorted by many things, sorting only the pages that are
+	 * read. The results of the session aren't changed, and the pager keeps the results
+	 * it was made with even if they are filtered or sorted later.
+	 * @param origin true for the origin flights, false for the return flights.
+	 * @param pageSize the number of flights on a page.
+	 * @param ascending true for ascending order.
+	 * @param sortBy what to sort by, the most important first.
+	 * @return the pager.
+	 * @see FlightFilter.Pager
+	 */
+	public synchronized FlightFilter.Pager pages(boolean origin, int pageSize, boolean ascending, SortBy... sortBy) {
+		
+		touch();
+		
+		/* The results are replaced, never changed, so the pager can keep them */
+		return new FlightFilter(origin ? originResults : returnResults).pages(pageSize, getComparator(ascending, sortBy));
+	}
+	
+	/* A comparator for the ways to sort, in the class of the trip */
+	private Comparator<Flight> getComparator(boolean ascending, SortBy... sortBy) {
+		
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		Comparator<Flight>[] comparators = new Comparator[sortBy.length];
+		
+		for (int i = 0; i < sortBy.length; i++){
+			switch (sortBy[i]){
+			case DEPARTURE_TIME:
+				comparators[i] = Flight.DepartureTimeComparator;
+				break;
+			case ARRIVAL_TIME:
+				comparators[i] = Flight.ArrivalTimeComparator;
+				break;
+			case TOTAL_TIME:
+				comparators[i] = Flight.TotalTimeComparator;
+				break;
+			case CONNECTIONS:
+				comparators[i] = Flight.ConnectionComparator;
+				break;
+			case LAYOVER:
+				comparators[i] = Flight.TotalLayoverComparator;
+				break;
+			default:
+				comparators[i] = userInfo.getIsFirstClass() ? Flight.FirstClassPriceComparator : Flight.CoachClassPriceComparator;
+				break;
+			}
+		}
+		
+		Comparator<Flight> comparator = FlightFilter.compose(comparators);
+		
+		return ascending ? comparator : Collections.reverseOrder(comparator);
+	}
+	
+	/**
+	 * Gets a copy of the results.
+	 * @param origin true for the origin flights, false for the return flights.
+	 * @return the flights, after any filtering and sorting.
+	 */
+	public synchronized ArrayList<Flight> getResults(boolean origin) {
+		return new ArrayList<Flight>(origin ? originResults : returnResults);
+	}
+
+	/**
+	 * Buys a seat, in the class of the trip, on every leg of a flight.
+	 * @param flight the flight to buy, usually one of the results.
+	 * @return the response code from the database, 200 if the seats were bought,
+	 * 		   {@link parsers.XMLPutter#UNKNOWN_RESULT} if it isn't known whether they were.
+	 */
+	public int buy(Flight flight) {
+
+		boolean isFirstClass;
+
+		synchronized (this){
+			touch();
+			isFirstClass = userInfo.getIsFirstClass();
+		}
+
+		/* Other calls on this session don't have to wait for the purchase */
+		return FlightSystem.buyFlight(flight, isFirstClass);
+	}
+
+	private void setResults(boolean origin, ArrayList<Flight> results) {
+		if (origin){
+			originResults = results;
+		}
+		else{
+			returnResults = results;
+		}
+	}
+
+	/* The origin flights leave from the departure airport, the return flights from the arrival airport */
+	private Airport getDepartureAirport(boolean origin) {
+		return origin ? userInfo.getDepartureAirport() : userInfo.getArrivalAirport();
+	}
+
+	private void touch() {
+		lastUsed = System.currentTimeMillis();
+	}
+
+	@Override
+	public String toString() {
+		return "BookingSession " + id + " with " + originResults.size() + " origin and "
+				+ returnResults.size() + " return flight(s)";
+	}
+
+}
@@ -4,15 +4,34 @@ package flight_system;
 /**
  * Class used to a date based on the information provided 
  * by the XML files in the flight database system.
+ * <p>
+ * A date can't be changed once it is made, so the dates made with
+ * {@link #valueOf(Month, int, int)} are shared. Only the last dates that
+ * were asked for are kept, so the shared dates take a bounded amount of memory.
  * 
  * @see parsers.XMLGetter#getFlightsXML() 
  */
 public class Date implements Comparable<Date> {
 	
+	/* Number of shared dates, a power of 2 */
+	private static final int CACHE_SIZE = 1024;
+	
+	/* The shared dates, a date can only be in the slot of its hash code */
+	private static final Date[] CACHE = new Date[CACHE_SIZE];
+	
+	/* Days from year 0 (March based) to January 1, 1970 */
+	private static final int DAYS_TO_1970 = 719468;
+	
+	/* Days in 400 years */
+	private static final int DAYS_PER_ERA = 146097;
+	
 	// The fields 
-	private Month month;
-	private int day;
-	private int year;
+	private final Month month;
+	private final int day;
+	private final int year;
+	
+	/* Days since January 1, 1970 */
+	private final int epochDay;
 	
 	/**
 	 * Makes an object that represents a date.
@@ -27,6 +46,32 @@ public class Date implements Comparable<Date> {
 		this.month = month;
 		this.day = day;
 		this.year = year;
+		this.epochDay = toEpochDay(month, day, year);
+	}
+	
+	/**
+	 * Gets a date, without making a new one if it is shared.
+	 * 
+	 * @param month the month of the date
+	 * @param day	the day of the date
+	 * @param year	the year of the date
+	 * @return the shared date, or a new one which is then shared instead of the
+	 * 		   date that was in its place.
+	 */
+	public static Date valueOf(Month month, int day, int year)
+	{
+		int slot = ((year * 12 + month.ordinal()) * 31 + day) & (CACHE_SIZE - 1);
+		
+		/* A date can't change, so it can be shared between threads without a lock */
+		Date date = CACHE[slot];
+		
+		if (date == null || date.day != day || date.month != month || date.year != year)
+		{
+			date = new Date(month, day, year);
+			CACHE[slot] = date;
+		}
+		
+		return date;
 	}
 	
 	// Getter Methods
@@ -61,6 +106,91 @@ public class Date implements Comparable<Date> {
 	}
 	
 	
+	/**
+	 * Gets the number of days from January 1, 1970 to this date.
+	 * <p>
+	 * A day that is past the end of its month, or 0, is counted into the next
+	 * or previous month, so May 0 is the same day as April 30.
+	 * 
+	 * @return the epoch day, negative before 1970.
+	 */
+	public int toEpochDay()
+	{
+		return epochDay;
+	}
+	
+	/**
+	 * Gets the number of minutes from midnight GMT on January 1, 1970 to a time on this date.
+	 * 
+	 * @param time the GMT time on this date.
+	 * @return the epoch minute.
+	 */
+	public int toEpochMinute(Time time)
+	{
+		return epochDay * Time.MINS_PER_DAY + time.getTimeInMinutes();
+	}
+	
+	/**
+	 * Gets the date that is a number of days after January 1, 1970.
+	 * 
+	 * @param epochDay the number of days, negative before 1970.
+	 * @return the shared date.
+	 */
+	public static Date fromEpochDay(int epochDay)
+	{
+		/* Count the years from March, so the leap day is the last day of a year */
+		int days = epochDay + DAYS_TO_1970;
+		int era = floorDiv(days, DAYS_PER_ERA);
+		int dayOfEra = days - era * DAYS_PER_ERA;
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int marchMonth = (5 * dayOfYear + 2) / 153;
+		
+		int day = dayOfYear - (153 * marchMonth + 2) / 5 + 1;
+		int month = (marchMonth < 10) ? marchMonth + 2 : marchMonth - 10;
+		int year = yearOfEra + era * 400 + ((month <= 1) ? 1 : 0);
+		
+		return valueOf(Month.values()[month], day, year);
+	}
+	
+	/**
+	 * Gets the date of the day that a minute falls on.
+	 * 
+	 * @param epochMinute the number of minutes from midnight on January 1, 1970.
+	 * @return the shared date.
+	 */
+	public static Date fromEpochMinute(int epochMinute)
+	{
+		return fromEpochDay(floorDiv(epochMinute, Time.MINS_PER_DAY));
+	}
+	
+	/* Counts the days of a date from January 1, 1970 */
+	private static int toEpochDay(Month month, int day, int year)
+	{
+		/* Count the years from March, so the leap day is the last day of a year */
+		int marchYear = (month.ordinal() < 2) ? year - 1 : year;
+		int era = floorDiv(marchYear, 400);
+		int yearOfEra = marchYear - era * 400;
+		int marchMonth = (month.ordinal() + 10) % 12;
+		int dayOfYear = (153 * marchMonth + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		
+		return era * DAYS_PER_ERA + dayOfEra - DAYS_TO_1970;
+	}
+	
+	/* Division that rounds down for negative numbers too */
+	private static int floorDiv(int dividend, int divisor)
+	{
+		int quotient = dividend / divisor;
+		
+		if ((dividend % divisor != 0) && ((dividend < 0) != (divisor < 0)))
+		{
+			quotient--;
+		}
+		
+		return quotient;
+	}
+	
 	/**
 	 * Compares a given date object to this date object. 
 	 * <p>
@@ -74,50 +204,35 @@ public class Date implements Comparable<Date> {
 	@Override
 	public int compareTo(Date compareDate) 
 	{
-		/* If this year is after the compared year */
-		if( year > compareDate.getYear() )
-		{
-			return 1;
-		}
-		else if (year <  compareDate.getYear() )
+		return Integer.compare(epochDay, compareDate.epochDay);
+	}
+
+	/**
+	 * Tells if a given object is a date on the same day as this date.
+	 * <p>
+	 * @param compareObject the object to be compared to this date.
+	 * @return true if the object is a date on the same day.
+	 */
+	@Override
+	public boolean equals(Object compareObject)
+	{
+		if (this == compareObject)
 		{
-			return -1;
+			return true;
 		}
-		/* It's the same year, let's compare the months */
-		else
+		
+		if (!(compareObject instanceof Date))
 		{
-			/* If this month is after the compared month */
-			if (month.ordinal() > compareDate.getMonth().ordinal())
-			{
-				return 1;
-			}
-			else if (month.ordinal() < compareDate.getMonth().ordinal())
-			{
-				return -1;
-			}
-			/* It's the same month, let's compare the days */
-			else
-			{
-				
-				/* If this day is after the compared day */
-				if (day > compareDate.getDay())
-				{
-					return 1;
-				}
-				else if (day < compareDate.getDay())
-				{
-					return -1;
-				}
-				/* It's the same year, month, and day. 
-				 * therefore it has to be the same date. */
-				else{
-					return 0;
-				}
-				
-			}
-			
+			return false;
 		}
-
+		
+		return compareTo((Date) compareObject) == 0;
+	}
+	
+	@Override
+	public int hashCode()
+	{
+		return epochDay;
 	}
 
 	@Override
@@ -2,7 +2,9 @@ package flight_system;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
 
 /** 
  * Class used to represent a flight. Contains information about the 
@@ -10,12 +12,27 @@ import java.util.Comparator;
  * durations, and flight durations. 
  * <p>
  * A flight is a list of flight legs.
+ * <p>
+ * The prices and times used to sort flights are worked out as each leg is
+ * added, so sorting a list of flights only has to compare numbers. The legs
+ * can only be added with {@link #addFlightLeg(FlightLeg)}, the list returned
+ * by {@link #getFlightList()} can't be changed.
  * @see FlightLeg
  */
 public class Flight implements Comparable<Flight>
 {
 	private ArrayList<FlightLeg> flightList;
 	
+	/* Worked out as the legs are added */
+	private double totalFirstClassCost;
+	private double totalCoachClassCost;
+	private int totalFlightMinutes;
+	private int totalLayoverMinutes;
+	
+	/* The GMT times of day of the 1st departure and the final arrival */
+	private int departureMinutes;
+	private int arrivalMinutes;
+	
 	/**
 	 * Makes a Flight object without any Flight Legs
 	 * @see FlightLeg 
@@ -31,7 +48,7 @@ public class Flight implements Comparable<Flight>
 	public Flight(FlightLeg flight1)
 	{
 		this.flightList = new ArrayList<FlightLeg>();
-		this.flightList.add(flight1);
+		addFlightLeg(flight1);
 	}
 	
 	/**
@@ -42,8 +59,8 @@ public class Flight implements Comparable<Flight>
 	public Flight(FlightLeg flight1, FlightLeg flight2)
 	{
 		this.flightList = new ArrayList<FlightLeg>();
-		this.flightList.add(flight1);
-		this.flightList.add(flight2);
+		addFlightLeg(flight1);
+		addFlightLeg(flight2);
 	}
 	
 	/**
@@ -55,17 +72,17 @@ public class Flight implements Comparable<Flight>
 	public Flight(FlightLeg flight1, FlightLeg flight2, FlightLeg flight3)
 	{
 		this.flightList = new ArrayList<FlightLeg>();
-		this.flightList.add(flight1);
-		this.flightList.add(flight2);
-		this.flightList.add(flight3);
+		addFlightLeg(flight1);
+		addFlightLeg(flight2);
+		addFlightLeg(flight3);
 	}
 	
 	/**
 	 * Gets the list of flights.
-	 * @return the flight leg list.
+	 * @return the flight leg list, which can't be changed.
 	 */
-	public ArrayList<FlightLeg> getFlightList() {
-		return flightList;
+	public List<FlightLeg> getFlightList() {
+		return Collections.unmodifiableList(flightList);
 	}
 
 	/**
@@ -74,7 +91,20 @@ public class Flight implements Comparable<Flight>
 	 */
 	public void addFlightLeg(FlightLeg flightLeg)
 	{
+		if (flightList.isEmpty()){
+			departureMinutes = flightLeg.getDepartureTime().getTimeInMinutes();
+		}
+		else{
+			FlightLeg lastLeg = flightList.get(flightList.size() - 1);
+			totalLayoverMinutes += flightLeg.getDepartureEpochMinute() - lastLeg.getArrivalEpochMinute();
+		}
+		
 		this.flightList.add(flightLeg);
+		
+		totalFirstClassCost += flightLeg.getFirstClassPrice();
+		totalCoachClassCost += flightLeg.getCoachClassPrice();
+		totalFlightMinutes = flightLeg.getArrivalEpochMinute() - flightList.get(0).getDepartureEpochMinute();
+		arrivalMinutes = flightLeg.getArrivalTime().getTimeInMinutes();
 	}
 	
 	/**
@@ -144,7 +174,7 @@ public class Flight implements Comparable<Flight>
 	{	
 		/* If they ask for a non-existent leg, then return 00:00 GMT */
 		if (indexOfLeg >= flightList.size()){
-			return new Time(0,0);
+			return Time.valueOf(0,0);
 		}
 		else {
 			return flightList.get(indexOfLeg).getDepartureTime();
@@ -185,7 +215,7 @@ public class Flight implements Comparable<Flight>
 		
 		/* If they ask for a non-existent leg, then return 00:00 GMT */
 		if (indexOfLeg >= flightList.size()){
-			return new Time(0,0);
+			return Time.valueOf(0,0);
 		}
 		else {
 			return flightList.get(indexOfLeg).getArrivalTime();
@@ -200,23 +230,9 @@ public class Flight implements Comparable<Flight>
 	 */
 	public Time getDurationTime(int LegIndex)
 	{
-			Date DepartureDate = flightList.get(LegIndex).getDepartureDate();
-			Time DepartureTime = flightList.get(LegIndex).getDepartureTime();
-			Date ArrivalDate = flightList.get(LegIndex).getArrivalDate();
-			Time ArrivalTime = flightList.get(LegIndex).getArrivalTime();
-
-		
-			int flightDays = ArrivalDate.getDay() - DepartureDate.getDay();
-			int flightHours = ArrivalTime.getHours() - DepartureTime.getHours();
-		
-			int Hours = flightDays * 24 + flightHours;
-			int minutes = ArrivalTime.getMinutes() - DepartureTime.getMinutes();
-			if (minutes < 0)
-			{
-				Hours = Hours - 1;
-				minutes = 60 + minutes;
-			}
-			return new Time(Hours, minutes);	
+			FlightLeg flightLeg = flightList.get(LegIndex);
+			
+			return toTime(flightLeg.getArrivalEpochMinute() - flightLeg.getDepartureEpochMinute());
 	}
 	
 	
@@ -225,31 +241,18 @@ public class Flight implements Comparable<Flight>
 	 * @return the total time of the flight
 	 */
 	public Time getTotalFlightTime()
-	{	//get the days between the beginning and the end of travel
-		int dday = flightList.get(0).getDepartureDate().getDay();
-		int aday = flightList.get(flightList.size() - 1).getArrivalDate().getDay();
-		int days = aday - dday;
-		
-		//get the hours between the beginning and the end of travel
-		Time beginTime = flightList.get(0).getDepartureTime();
-		Time endTime = flightList.get(flightList.size() - 1).getArrivalTime();
-		int beginHour = beginTime.getHours();
-		int endHour = endTime.getHours();
-		int Hours = endHour - beginHour + days * 24;
-		
-		//get the minutes between the beginning and the end of travel	
-		int beginMinute = beginTime.getMinutes();
-		int endMinute = endTime.getMinutes();
-		int minutes = endMinute - beginMinute;
-		if(minutes < 0)
-		{
-			Hours = Hours - 1;
-			minutes = 60 + minutes;
-		}
-		
-		
-		Time totalTime = new Time(Hours, minutes);	
-		return totalTime;
+	{	
+		/* From the beginning to the end of travel */
+		return toTime(getTotalFlightMinutes());
+	}
+	
+	/**
+	 * get the total time of this flight object in minutes
+	 * @return the minutes from the 1st departure to the final arrival
+	 */
+	public int getTotalFlightMinutes()
+	{
+		return totalFlightMinutes;
 	}
 
 	/**
@@ -260,19 +263,8 @@ public class Flight implements Comparable<Flight>
 	 */
 	public double getTotalCost(boolean isFirstClass)
 	{	
-		double totalCost = 0;
-		int i;
-		for(i = 0; i < this.flightList.size(); i++)
-		{	//judge if the ticket is first class or coach lass
-			if(isFirstClass)
-			{
-				totalCost = totalCost + this.flightList.get(i).getFirstClassPrice();
-			}
-			else{
-				totalCost = totalCost + this.flightList.get(i).getCoachClassPrice();
-			}
-		}
-		return totalCost;
+		//judge if the ticket is first class or coach lass
+		return isFirstClass ? totalFirstClassCost : totalCoachClassCost;
 	}
 		
 	/**
@@ -291,29 +283,16 @@ public class Flight implements Comparable<Flight>
 	 */
 	public Time getTotalLayoverTime()
 	{
-		// Lay over time is 0 by default 
-		int totalLayoverMinutes = 0;
-		
-		if(flightList.isEmpty()){
-			return new Time(0,0);
-		}
-		else if (flightList.size() == 1){
-			return new Time(0,0);
-		}
-		else{
-			
-			for(int i = 0; i < flightList.size(); i++){
-				totalLayoverMinutes = totalLayoverMinutes + this.getLayoverTime(i).getTimeInMinutes();
-			}
-			
-		}
-		
-		//get the hours and minutes of the total lay over time
-		int hours = totalLayoverMinutes / 60;
-		int minutes = totalLayoverMinutes % 60;
-		Time totalLayoverTime = new Time(hours, minutes);
-		
-		return totalLayoverTime;
+		return toTime(getTotalLayoverMinutes());
+	}
+	
+	/**
+	 * get the total lay over time of this flight object in minutes
+	 * @return the total lay over time of the flight, 0 for a direct flight
+	 */
+	public int getTotalLayoverMinutes()
+	{
+		return totalLayoverMinutes;
 	}
 
 	/**
@@ -322,34 +301,32 @@ public class Flight implements Comparable<Flight>
 	 * @return the total time of the connection
 	 */
 	public Time getLayoverTime(int layoverIndex)
+	{
+		return toTime(getLayoverMinutes(layoverIndex));
+	}
+	
+	/**
+	 * get the lay over time of a connection in minutes
+	 * @param layoverIndex the index of the connection
+	 * @return the minutes between landing and the next departure, 0 if there's no such connection
+	 */
+	public int getLayoverMinutes(int layoverIndex)
 	{
 		/* If you ask for a lay over time 
 		 * that's more than the size of the list,
 		 * return 0 minutes */
 		if(layoverIndex >= (flightList.size()-1))
 		{
-			return new Time(0, 0);
+			return 0;
 		}
-		/* Calculate the lay over time */
-		else 
-		{
-			Date transferADate = flightList.get(layoverIndex).getArrivalDate();
-			Date transferDDate = flightList.get(layoverIndex + 1).getDepartureDate();
-			Time AtransferTime = flightList.get(layoverIndex).getArrivalTime();
-			Time transferTimeD = flightList.get(layoverIndex + 1).getDepartureTime();
 		
-			int transferDays = transferDDate.getDay() - transferADate.getDay();
-			int transferHours = transferTimeD.getHours() - AtransferTime.getHours();
-		
-			int Hours = transferDays * 24 + transferHours;
-			int minutes = transferTimeD.getMinutes() - AtransferTime.getMinutes();
-			if (minutes < 0)
-			{
-				Hours = Hours - 1;
-				minutes = 60 + minutes;
-			}
-			return new Time(Hours, minutes);
-		}	
+		return flightList.get(layoverIndex + 1).getDepartureEpochMinute() - flightList.get(layoverIndex).getArrivalEpochMinute();
+	}
+	
+	/* Hours and minutes of a number of minutes */
+	private static Time toTime(int minutes)
+	{
+		return Time.valueOf(minutes / 60, minutes % 60);
 	}
 	
 	/**
@@ -488,8 +465,7 @@ public class Flight implements Comparable<Flight>
 	 */
 	public int compareTo(Flight compareFlight)
 	{
-		int compareTotalTimeInMins = compareFlight.getTotalFlightTime().getTimeInMinutes();
-		return getTotalFlightTime().getTimeInMinutes() - compareTotalTimeInMins;
+		return Integer.compare(totalFlightMinutes, compareFlight.totalFlightMinutes);
 	}
 	
 	
@@ -498,9 +474,9 @@ public class Flight implements Comparable<Flight>
 	{
 		public int compare(Flight flight1, Flight flight2)
 		{
-			Integer layoverTime1 = flight1.getDepartureTime(0).getTimeInMinutes();
-			Integer layoverTime2 = flight2.getDepartureTime(0).getTimeInMinutes();
-			return layoverTime1.compareTo(layoverTime2);
+			int layoverTime1 = flight1.departureMinutes;
+			int layoverTime2 = flight2.departureMinutes;
+			return Integer.compare(layoverTime1, layoverTime2);
 		}
 	};
 
@@ -509,9 +485,9 @@ public class Flight implements Comparable<Flight>
 	{
 		public int compare(Flight flight1, Flight flight2)
 		{
-			Integer layoverTime1 = flight1.getArrivalTime().getTimeInMinutes();
-			Integer layoverTime2 = flight2.getArrivalTime().getTimeInMinutes();
-			return layoverTime1.compareTo(layoverTime2);
+			int layoverTime1 = flight1.arrivalMinutes;
+			int layoverTime2 = flight2.arrivalMinutes;
+			return Integer.compare(layoverTime1, layoverTime2);
 		}
 	};
 	
@@ -521,9 +497,9 @@ public class Flight implements Comparable<Flight>
 	{
 		public int compare(Flight flight1, Flight flight2)
 		{
-			Integer layoverTime1 = flight1.getTotalLayoverTime().getTimeInMinutes();
-			Integer layoverTime2 = flight2.getTotalLayoverTime().getTimeInMinutes();
-			return layoverTime1.compareTo(layoverTime2);
+			int layoverTime1 = flight1.totalLayoverMinutes;
+			int layoverTime2 = flight2.totalLayoverMinutes;
+			return Integer.compare(layoverTime1, layoverTime2);
 		}
 	};
 	
@@ -532,9 +508,9 @@ public class Flight implements Comparable<Flight>
 	{
 		public int compare(Flight flight1, Flight flight2)
 		{
-			Double price1 = flight1.getTotalCost(true);
-			Double price2 = flight2.getTotalCost(true);
-			return price1.compareTo(price2);
+			double price1 = flight1.totalFirstClassCost;
+			double price2 = flight2.totalFirstClassCost;
+			return Double.compare(price1, price2);
 		}
 	};
 	
@@ -543,9 +519,18 @@ public class Flight implements Comparable<Flight>
 	{
 		public int compare(Flight flight1, Flight flight2)
 		{
-			Double price1 = flight1.getTotalCost(false);
-			Double price2 = flight2.getTotalCost(false);
-			return price1.compareTo(price2);
+			double price1 = flight1.totalCoachClassCost;
+			double price2 = flight2.totalCoachClassCost;
+			return Double.compare(price1, price2);
+		}
+	};
+	
+	/* This compares the flight total time, the same as compareTo */
+	public static Comparator<Flight> TotalTimeComparator = new Comparator<Flight> ()
+	{
+		public int compare(Flight flight1, Flight flight2)
+		{
+			return flight1.compareTo(flight2);
 		}
 	};
 	
@@ -554,9 +539,9 @@ public class Flight implements Comparable<Flight>
 	{
 		public int compare(Flight flight1, Flight flight2)
 		{
-			Integer connection1 = flight1.getNumOfConnection();
-			Integer connection2 = flight2.getNumOfConnection();
-			return connection1.compareTo(connection2);
+			int connection1 = flight1.getNumOfConnection();
+			int connection2 = flight2.getNumOfConnection();
+			return Integer.compare(connection1, connection2);
 		}
 	};
 	
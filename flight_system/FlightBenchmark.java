@@ -0,0 +1,294 @@
+package flight_system;
+
+import graph.BenchmarkHarness;
+import graph.CompactFlightGraph;
+import graph.SyntheticNetwork;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the sorting and filtering of the {@link FlightFilter} on the flights
+ * found in a made up flight network.
+ * <p>
+ * Every operation is run on the same list of flights: first a few rounds to warm
+ * up the JIT, then the measured rounds. For each one it prints the mean time per
+ * call, the bytes allocated per call and per flight, and the time spent in garbage
+ * collection. The list a sort or a filter returns is allocated on every call, so a
+ * call that makes no other garbage allocates a few bytes per flight.
+ * <p>
+ * The sorts by price, total time and layover are also run with comparators that
+ * add up the legs of every flight on each comparison, which is what sorting cost
+ * before the flights kept those numbers. A sort by many things is run in full,
+ * for the top 20 flights only, and for the 1st page of 20 flights. Three filters
+ * are run one after the other, then all at once with {@link FlightCriteria}.
+ * The operations are run by a {@link BenchmarkHarness}.
+ * <p>
+ * Usage: <code>java flight_system.FlightBenchmark [hub|mesh] [airports] [flights] [found flights] [rounds]</code>
+ *
+ * @see SyntheticNetwork
+ */
+public class FlightBenchmark {
+
+	/* Rounds before measuring */
+	private static final int WARMUP_ROUNDS = 20;
+
+	private ArrayList<Flight> flights;
+	private int rounds;
+	private BenchmarkHarness harness;
+
+	/**
+	 * Makes a benchmark on the flights found with up to 3 legs between random
+	 * airports of a network.
+	 * @param network the network to search.
+	 * @param numOfFlights the number of flights to sort and filter.
+	 * @param rounds the number of measured rounds.
+	 */
+	public FlightBenchmark(SyntheticNetwork network, int numOfFlights, int rounds) {
+
+		this.flights = new ArrayList<Flight>(numOfFlights);
+		this.rounds = Math.max(1, rounds);
+		this.harness = new BenchmarkHarness(WARMUP_ROUNDS, this.rounds, 1, Long.MAX_VALUE);
+
+		CompactFlightGraph graph = network.makeCompactGraph();
+
+		/* Keep asking for more pairs until there are enough flights, or no more can be found */
+		for (int numOfQueries = 100; flights.size() < numOfFlights && numOfQueries <= 100000; numOfQueries *= 10){
+
+			flights.clear();
+
+			for (Airport[] query : network.makeQueries(numOfQueries)){
+				for (LinkedList<FlightLeg> route : graph.getRoutes(query[0], query[1], 3, false)){
+
+					Flight flight = new Flight();
+					for (FlightLeg leg : route){
+						flight.addFlightLeg(leg);
+					}
+					flights.add(flight);
+
+					if (flights.size() == numOfFlights){
+						return;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs every operation and prints the results.
+	 */
+	public void run() {
+
+		final FlightFilter filter = new FlightFilter(flights);
+		final Time noon = Time.valueOf(12, 0);
+		@SuppressWarnings("unchecked")
+		final Comparator<Flight> composite = FlightFilter.compose(Flight.CoachClassPriceComparator,
+				Flight.ConnectionComparator, Flight.DepartureTimeComparator);
+		final Date date = flights.isEmpty() ? Date.valueOf(Month.May, 10, 2015) : flights.get(0).getDepartureDate();
+		final Time morning = Time.valueOf(6, 0);
+		final Time night = Time.valueOf(22, 0);
+		final FlightCriteria criteria = new FlightCriteria().localDepTime(morning, true)
+				.localArrTime(night, false).localDepDate(date, true);
+
+		System.out.println(flights.size() + " flights, " + rounds + " rounds");
+		System.out.println(String.format(Locale.US, "%-30s %10s %12s %12s %8s",
+				"operation", "mean us", "bytes/op", "bytes/flight", "gc ms"));
+
+		measure(new Operation("sortDepartTime") {
+			long run() {
+				return filter.sortDepartTime(true).size();
+			}
+		});
+		measure(new Operation("sortArriveTime") {
+			long run() {
+				return filter.sortArriveTime(true).size();
+			}
+		});
+		measure(new Operation("sortTime") {
+			long run() {
+				return filter.sortTime(true).size();
+			}
+		});
+		measure(new Operation("sortLayover") {
+			long run() {
+				return filter.sortLayover(true).size();
+			}
+		});
+		measure(new Operation("sortPrice") {
+			long run() {
+				return filter.sortPrice(true, false).size();
+			}
+		});
+		measure(new Operation("sortPrice first class") {
+			long run() {
+				return filter.sortPrice(true, true).size();
+			}
+		});
+		measure(new Operation("sortPrice from legs") {
+			long run() {
+				return sort(LEGS_PRICE_COMPARATOR);
+			}
+		});
+		measure(new Operation("sortTime from legs") {
+			long run() {
+				return sort(LEGS_TIME_COMPARATOR);
+			}
+		});
+		measure(new Operation("sortLayover from legs") {
+			long run() {
+				return sort(LEGS_LAYOVER_COMPARATOR);
+			}
+		});
+		measure(new Operation("sort price,connect,depart") {
+			long run() {
+				return filter.sort(composite).size();
+			}
+		});
+		measure(new Operation("top 20 price,connect,depart") {
+			long run() {
+				return filter.top(20, composite).size();
+			}
+		});
+		measure(new Operation("1st page price,connect,depart") {
+			long run() {
+				return filter.pages(20, composite).getPage(0).size();
+			}
+		});
+		measure(new Operation("sortConnect") {
+			long run() {
+				return filter.sortConnect(true).size();
+			}
+		});
+		measure(new Operation("filterLocalDepTime") {
+			long run() {
+				return filter.filterLocalDepTime(noon, true, null).size();
+			}
+		});
+		measure(new Operation("filterLocalArrTime") {
+			long run() {
+				return filter.filterLocalArrTime(noon, false, null).size();
+			}
+		});
+		measure(new Operation("filterDepLocalDate") {
+			long run() {
+				return filter.filterDepLocalDate(date, true).size();
+			}
+		});
+		measure(new Operation("chained dep,arr,date filters") {
+			long run() {
+				FlightFilter depFilter = new FlightFilter(filter.filterLocalDepTime(morning, true, null));
+				FlightFilter arrFilter = new FlightFilter(depFilter.filterLocalArrTime(night, false, null));
+				return arrFilter.filterDepLocalDate(date, true).size();
+			}
+		});
+		measure(new Operation("fused dep,arr,date filter") {
+			long run() {
+				return filter.filter(criteria).size();
+			}
+		});
+
+		System.out.println();
+	}
+
+	/* Sorts a copy of the flights, like the flight filter does */
+	private long sort(Comparator<Flight> comparator) {
+
+		ArrayList<Flight> sortedFlights = new ArrayList<Flight>(flights);
+		Collections.sort(sortedFlights, comparator);
+
+		return sortedFlights.size();
+	}
+
+	/* Adds up the coach prices of the legs */
+	private static final Comparator<Flight> LEGS_PRICE_COMPARATOR = new Comparator<Flight>() {
+		public int compare(Flight flight1, Flight flight2) {
+			return Double.compare(getCoachCost(flight1), getCoachCost(flight2));
+		}
+
+		double getCoachCost(Flight flight) {
+			double totalCost = 0;
+			for (FlightLeg leg : flight.getFlightList()){
+				totalCost += leg.getCoachClassPrice();
+			}
+			return totalCost;
+		}
+	};
+
+	/* Works out the time from the 1st departure to the final arrival */
+	private static final Comparator<Flight> LEGS_TIME_COMPARATOR = new Comparator<Flight>() {
+		public int compare(Flight flight1, Flight flight2) {
+			return Integer.compare(getTotalMinutes(flight1), getTotalMinutes(flight2));
+		}
+
+		int getTotalMinutes(Flight flight) {
+			List<FlightLeg> legs = flight.getFlightList();
+			return legs.get(legs.size() - 1).getArrivalEpochMinute() - legs.get(0).getDepartureEpochMinute();
+		}
+	};
+
+	/* Adds up the layovers between the legs */
+	private static final Comparator<Flight> LEGS_LAYOVER_COMPARATOR = new Comparator<Flight>() {
+		public int compare(Flight flight1, Flight flight2) {
+			return Integer.compare(getLayoverMinutes(flight1), getLayoverMinutes(flight2));
+		}
+
+		int getLayoverMinutes(Flight flight) {
+			List<FlightLeg> legs = flight.getFlightList();
+			int minutes = 0;
+			for (int i = 0; i < legs.size() - 1; i++){
+				minutes += legs.get(i + 1).getDepartureEpochMinute() - legs.get(i).getArrivalEpochMinute();
+			}
+			return minutes;
+		}
+	};
+
+	/* Measures an operation and prints its results */
+	private void measure(Operation operation) {
+
+		BenchmarkHarness.Result result = harness.measure(operation);
+
+		System.out.println(String.format(Locale.US, "%-30s %10.1f %12s %12s %8d",
+				result.getName(),
+				result.getMeanMicros(),
+				(result.getBytesPerCall() < 0) ? "n/a" : Long.toString(result.getBytesPerCall()),
+				(result.getBytesPerCall() < 0 || flights.isEmpty()) ? "n/a" : String.format(Locale.US, "%.1f", (double) result.getBytesPerCall() / flights.size()),
+				result.getGcMillis()));
+	}
+
+	/* One sort or filter of all the flights */
+	private static abstract class Operation extends BenchmarkHarness.Operation {
+
+		Operation(String name) {
+			super(name);
+		}
+
+		public long run(int call) {
+			return run();
+		}
+
+		/* Returns something made from the result, so it isn't thrown away */
+		abstract long run();
+	}
+
+	public static void main(String[] args) {
+
+		SyntheticNetwork.Shape shape = (args.length > 0 && args[0].equalsIgnoreCase("mesh"))
+				? SyntheticNetwork.Shape.MESH : SyntheticNetwork.Shape.HUB_AND_SPOKE;
+		int numOfAirports = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+		int numOfFlights = (args.length > 2) ? Integer.parseInt(args[2]) : 5000;
+		int numOfFound = (args.length > 3) ? Integer.parseInt(args[3]) : 10000;
+		int rounds = (args.length > 4) ? Integer.parseInt(args[4]) : 50;
+
+		SyntheticNetwork network = new SyntheticNetwork(shape, numOfAirports, numOfFlights, 509);
+		System.out.println(network);
+
+		new FlightBenchmark(network, numOfFound, rounds).run();
+
+		System.out.println("(" + BenchmarkHarness.getSink() % 2 + ")");
+	}
+
+}
@@ -0,0 +1,233 @@
+package flight_system;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The things a flight has to match to be kept by a {@link FlightFilter}, checked
+ * all together in one pass over the flights.
+ * <p>
+ * Each criterion is the same as one of the filters of the flight filter, e.g.
+ * {@link #localDepTime(Time, boolean)} keeps the same flights as
+ * {@link FlightFilter#filterLocalDepTime(Time, boolean, Airport)}, so applying
+ * many of them at once keeps the same flights as chaining those filters. The
+ * criteria that should keep the fewest flights are checked first, so most
+ * flights are thrown out after one check.
+ * <p>
+ * The times are compared as numbers of minutes, worked out from the minutes and
+ * time zones the flight legs already have, so checking a flight makes no objects.
+ * <p>
+ * E.g. <code>filter.filter(new FlightCriteria().localDepTime(morning, true).localArrTime(night, false))</code>
+ *
+ * @see FlightFilter#filter(FlightCriteria)
+ */
+public class FlightCriteria {
+
+	/* What a criterion compares */
+	private static final int DEP_TIME = 0;
+	private static final int LOCAL_DEP_TIME = 1;
+	private static final int ARR_TIME = 2;
+	private static final int LOCAL_ARR_TIME = 3;
+	private static final int LOCAL_DEP_DATE = 4;
+
+	private ArrayList<Criterion> criteria = new ArrayList<Criterion>();
+
+	/**
+	 * Keeps the flights that leave before or after a GMT time (inclusive).
+	 * @param depTime the GMT departure time.
+	 * @param after true to keep the flights that leave after the time.
+	 * @return these criteria.
+	 */
+	public FlightCriteria depTime(Time depTime, boolean after) {
+		return add(DEP_TIME, depTime.getTimeInMinutes(), after);
+	}
+
+	/**
+	 * Keeps the flights that leave before or after a local time (inclusive).
+	 * @param depLocalTime the local departure time.
+	 * @param after true to keep the flights that leave after the time.
+	 * @return these criteria.
+	 */
+	public FlightCriteria localDepTime(Time depLocalTime, boolean after) {
+		return add(LOCAL_DEP_TIME, depLocalTime.getTimeInMinutes(), after);
+	}
+
+	/**
+	 * Keeps the flights that arrive before or after a GMT time (inclusive).
+	 * @param arrTime the GMT arrival time.
+	 * @param after true to keep the flights that arrive after the time.
+	 * @return these criteria.
+	 */
+	public FlightCriteria arrTime(Time arrTime, boolean after) {
+		return add(ARR_TIME, arrTime.getTimeInMinutes(), after);
+	}
+
+	/**
+	 * Keeps the flights that arrive before or after a local time (inclusive).
+	 * @param arrLocalTime the local arrival time.
+	 * @param after true to keep the flights that arrive after the time.
+	 * @return these criteria.
+	 */
+	public FlightCriteria localArrTime(Time arrLocalTime, boolean after) {
+		return add(LOCAL_ARR_TIME, arrLocalTime.getTimeInMinutes(), after);
+	}
+
+	/**
+	 * Keeps the flights that leave on or before, or on or after, a local date.
+	 * @param depDate the local departure date.
+	 * @param after true to keep the flights that leave on or after the date.
+	 * @return these criteria.
+	 */
+	public FlightCriteria localDepDate(Date depDate, boolean after) {
+		return add(LOCAL_DEP_DATE, depDate.toEpochDay(), after);
+	}
+
+	/**
+	 * Tells if there are no criteria, so every flight is kept.
+	 * @return true if no criteria were added.
+	 */
+	public boolean isEmpty() {
+		return criteria.isEmpty();
+	}
+
+	/**
+	 * Gets the number of criteria.
+	 * @return the number of criteria.
+	 */
+	public int size() {
+		return criteria.size();
+	}
+
+	/**
+	 * Tells if a flight matches all the criteria.
+	 * @param flight the flight to check.
+	 * @return true if the flight would be kept.
+	 */
+	public boolean matches(Flight flight) {
+		return matches(flight, criteria.toArray(new Criterion[criteria.size()]));
+	}
+
+	/* Keeps the flights of a list that match, checking the most selective criteria first */
+	ArrayList<Flight> filter(ArrayList<Flight> flightList) {
+
+		Criterion[] ordered = criteria.toArray(new Criterion[criteria.size()]);
+
+		Arrays.sort(ordered, new Comparator<Criterion>() {
+			public int compare(Criterion criterion1, Criterion criterion2) {
+				return Double.compare(criterion1.getPassRate(), criterion2.getPassRate());
+			}
+		});
+
+		ArrayList<Flight> filteredFlights = new ArrayList<Flight>(flightList.size());
+
+		for (Flight flight : flightList){
+			if (matches(flight, ordered)){
+				filteredFlights.add(flight);
+			}
+		}
+
+		return filteredFlights;
+	}
+
+	private static boolean matches(Flight flight, Criterion[] ordered) {
+
+		for (Criterion criterion : ordered){
+			if (!criterion.matches(flight)){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private FlightCriteria add(int type, int bound, boolean after) {
+		criteria.add(new Criterion(type, bound, after));
+		return this;
+	}
+
+	/* The local time of day, in minutes, the way Time.getNegativeLocalTime works it out:
+	 * the hours are moved by the time zone and may be negative on the previous day */
+	private static int toLocalMinutes(Time time, int offset) {
+		return ((time.getHours() + offset / 60) % 24) * 60 + time.getMinutes();
+	}
+
+	/* The day a minute falls on, rounding down before 1970 too */
+	private static int toDay(int epochMinute) {
+
+		int day = epochMinute / Time.MINS_PER_DAY;
+
+		if (epochMinute % Time.MINS_PER_DAY < 0){
+			day--;
+		}
+
+		return day;
+	}
+
+	/* One thing to compare */
+	private static class Criterion {
+
+		int type;
+		int bound;
+		boolean after;
+
+		Criterion(int type, int bound, boolean after) {
+			this.type = type;
+			this.bound = bound;
+			this.after = after;
+		}
+
+		boolean matches(Flight flight) {
+
+			int value = getValue(flight);
+
+			return after ? (value >= bound) : (value <= bound);
+		}
+
+		int getValue(Flight flight) {
+
+			switch (type){
+			case DEP_TIME:
+				return flight.getDepartureTime().getTimeInMinutes();
+			case LOCAL_DEP_TIME:
+				return toLocalMinutes(flight.getDepartureTime(), getFirstLeg(flight).getDepartureOffset());
+			case ARR_TIME:
+				return flight.getArrivalTime().getTimeInMinutes();
+			case LOCAL_ARR_TIME:
+				return toLocalMinutes(flight.getArrivalTime(), getLastLeg(flight).getArrivalOffset());
+			default:
+				FlightLeg firstLeg = getFirstLeg(flight);
+				return toDay(firstLeg.getDepartureEpochMinute() + firstLeg.getDepartureOffset());
+			}
+		}
+
+		/* About how many flights are kept, if the times are spread over the day */
+		double getPassRate() {
+
+			if (type == LOCAL_DEP_DATE){
+				return 0.5;
+			}
+
+			double rate = after ? (Time.MINS_PER_DAY - bound) / (double) Time.MINS_PER_DAY
+					: (bound + 1) / (double) Time.MINS_PER_DAY;
+
+			return Math.max(0, Math.min(1, rate));
+		}
+
+		private static FlightLeg getFirstLeg(Flight flight) {
+			return flight.getFlightList().get(0);
+		}
+
+		private static FlightLeg getLastLeg(Flight flight) {
+			List<FlightLeg> legs = flight.getFlightList();
+			return legs.get(legs.size() - 1);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FlightCriteria with " + criteria.size() + " criteria";
+	}
+
+}
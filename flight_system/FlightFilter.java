@@ -1,10 +1,22 @@
 package flight_system;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Class used to represent a flight filter based on flights.
+ * <p>
+ * Besides the sorts by one thing, the flights can be sorted by many things
+ * with a comparator made by {@link #compose(Comparator...)}. When only the
+ * best few flights are needed, {@link #top(int, Comparator)} picks them
+ * without sorting the whole list, and a {@link Pager} sorts only as many
+ * flights as the pages that were asked for.
+ * <p>
+ * The filters keep the flights that match some {@link FlightCriteria}, which
+ * can check many things about each flight in one pass.
  **/
 
 public class FlightFilter {
@@ -78,7 +90,7 @@ public class FlightFilter {
 	public Flight shortestFlightTime(){
 		Flight shortestFlight = flightList.get(0);
 		for(Flight flight : flightList){
-			if(flight.getTotalFlightTime().getTimeInMinutes()<shortestFlight.getTotalFlightTime().getTimeInMinutes())
+			if(flight.getTotalFlightMinutes()<shortestFlight.getTotalFlightMinutes())
 				shortestFlight=flight;
 		}
 		return shortestFlight;
@@ -91,12 +103,23 @@ public class FlightFilter {
 	public Flight minLayover(){
 		Flight minLayover = flightList.get(0);
 		for(Flight flight : flightList){
-			if(flight.getTotalLayoverTime().getTimeInMinutes()<minLayover.getTotalLayoverTime().getTimeInMinutes())
+			if(flight.getTotalLayoverMinutes()<minLayover.getTotalLayoverMinutes())
 				minLayover=flight;
 		}
 		return minLayover;
 	}
 	
+	/**
+	 * This method returns a flight list that has only the flights
+	 * that match all the given criteria, checked in one pass.
+	 * @param criteria the criteria the flights have to match.
+	 * @return the filtered flight list.
+	 * @see FlightCriteria
+	 */
+	public ArrayList<Flight> filter(FlightCriteria criteria){
+		return criteria.filter(flightList);
+	}
+	
 	/** 
 	 * This method returns a flight list that has only flights
 	 * that leave after or before a given time (inclusive). 
@@ -105,39 +128,7 @@ public class FlightFilter {
 	 * @return the filtered flight list.
 	 */
 	public ArrayList<Flight> filterDepTime(Time depTime, boolean after, Airport airport){
-		
-
-		/* Make a new list to add the filtered flights to */
-		ArrayList<Flight> filteredFlights = new ArrayList<Flight>();
-		
-		/* Check every flight in the list to see if it matches the 
-		 * criteria */
-		for (Flight flight : flightList){
-
-			/* Check flights that leave after specified time */
-			if(after){
-
-				/* Leaves after */
-				if( flight.getDepartureTime().compareTo(depTime) >= 0 ){
-					filteredFlights.add(flight);
-				}
-
-			}
-			/* Check flights that leave before specified time */
-			else{
-
-				/* Leaves before */
-				if( flight.getDepartureTime().compareTo(depTime) <= 0 ){
-					filteredFlights.add(flight);
-				}
-
-
-			}
-
-		}
-		
-		return filteredFlights;
-		
+		return filter(new FlightCriteria().depTime(depTime, after));
 	}
 	
 	/** 
@@ -148,39 +139,7 @@ public class FlightFilter {
 	 * @return the filtered flight list.
 	 */
 	public ArrayList<Flight> filterLocalDepTime(Time depLocalTime, boolean after, Airport airport){
-		
-
-		/* Make a new list to add the filtered flights to */
-		ArrayList<Flight> filteredFlights = new ArrayList<Flight>();
-		
-		/* Check every flight in the list to see if it matches the 
-		 * criteria */
-		for (Flight flight : flightList){
-
-			/* Check flights that leave after specified time */
-			if(after){
-				
-				/* Leaves after */
-				if( flight.getLocalDepartureTime().compareTo(depLocalTime) >= 0 ){
-					filteredFlights.add(flight);
-				}
-
-			}
-			/* Check flights that leave before specified time */
-			else{
-
-				/* Leaves before */
-				if( flight.getLocalDepartureTime().compareTo(depLocalTime) <= 0 ){
-					filteredFlights.add(flight);
-				}
-
-
-			}
-
-		}
-		
-		return filteredFlights;
-		
+		return filter(new FlightCriteria().localDepTime(depLocalTime, after));
 	}
 	
 	
@@ -192,38 +151,7 @@ public class FlightFilter {
 	 * @return the filtered flight list.
 	 */
 	public ArrayList<Flight> filterDepLocalDate(Date depDate, boolean after){
-		
-		/* Make a new list to add the filtered flights to */
-		ArrayList<Flight> filteredFlights = new ArrayList<Flight>();
-		
-		/* Check every flight in the list to see if it matches the 
-		 * criteria */
-		for (Flight flight : flightList){
-
-			/* Check flights that leave after specified time */
-			if(after){
-
-				/* Leaves after */
-				if( flight.getLocalDepartureDate().compareTo(depDate) >= 0 ){
-					filteredFlights.add(flight);
-				}
-
-			}
-			/* Check flights that leave before specified time */
-			else{
-
-				/* Leaves before */
-				if( flight.getLocalDepartureDate().compareTo(depDate) <= 0 ){
-					filteredFlights.add(flight);
-				}
-
-
-			}
-
-		}
-		
-		return filteredFlights;
-		
+		return filter(new FlightCriteria().localDepDate(depDate, after));
 	}
 	
 	
@@ -235,41 +163,7 @@ public class FlightFilter {
 	 * @return the filtered flight list.
 	 */
 	public ArrayList<Flight> filterArrTime(Time arrTime, boolean after, Airport airport){
-		
-//		/* Convert from Local time to GMT time */
-//		Time arrTime = Time.getGMTTime(arrLocalTime, airport.getLocation());
-
-		/* Make a new list to add the filtered flights to */
-		ArrayList<Flight> filteredFlights = new ArrayList<Flight>();
-		
-		/* Check every flight in the list to see if it matches the 
-		 * criteria */
-		for (Flight flight : flightList){
-
-			/* Check flights that leave after specified time */
-			if(after){
-
-				/* Leaves after */
-				if( flight.getArrivalTime().compareTo(arrTime) >= 0 ){
-					filteredFlights.add(flight);
-				}
-
-			}
-			/* Check flights that leave before specified time */
-			else{
-
-				/* Leaves after */
-				if( flight.getArrivalTime().compareTo(arrTime) <= 0 ){
-					filteredFlights.add(flight);
-				}
-
-
-			}
-
-		}
-		
-		return filteredFlights;
-		
+		return filter(new FlightCriteria().arrTime(arrTime, after));
 	}
 	
 	/** 
@@ -280,41 +174,7 @@ public class FlightFilter {
 	 * @return the filtered flight list.
 	 */
 	public ArrayList<Flight> filterLocalArrTime(Time arrLocalTime, boolean after, Airport airport){
-		
-//		/* Convert from Local time to GMT time */
-//		Time arrTime = Time.getGMTTime(arrLocalTime, airport.getLocation());
-
-		/* Make a new list to add the filtered flights to */
-		ArrayList<Flight> filteredFlights = new ArrayList<Flight>();
-		
-		/* Check every flight in the list to see if it matches the 
-		 * criteria */
-		for (Flight flight : flightList){
-
-			/* Check flights that leave after specified time */
-			if(after){
-
-				/* Leaves after */
-				if( flight.getLocalArrivalTime().compareTo(arrLocalTime) >= 0 ){
-					filteredFlights.add(flight);
-				}
-
-			}
-			/* Check flights that leave before specified time */
-			else{
-
-				/* Leaves after */
-				if( flight.getLocalArrivalTime().compareTo(arrLocalTime) <= 0 ){
-					filteredFlights.add(flight);
-				}
-
-
-			}
-
-		}
-		
-		return filteredFlights;
-		
+		return filter(new FlightCriteria().localArrTime(arrLocalTime, after));
 	}
 	
 	
@@ -454,6 +314,330 @@ public class FlightFilter {
 		}
 	}
 	
+	/**
+	 * Makes a comparator that compares flights by many things. The flights are
+	 * compared by the 1st comparator, if they're the same, by the 2nd one, and so on.
+	 * <p>
+	 * E.g. <code>compose(Flight.CoachClassPriceComparator, Flight.ConnectionComparator,
+	 * Flight.DepartureTimeComparator)</code> sorts by the price, then the number of
+	 * connections, then the departure time. Use {@link Collections#reverseOrder(Comparator)}
+	 * for descending order.
+	 * @param comparators the comparators, the most important first.
+	 * @return the comparator.
+	 */
+	@SafeVarargs
+	public static Comparator<Flight> compose(final Comparator<Flight>... comparators){
+		
+		return new Comparator<Flight>() {
+			public int compare(Flight flight1, Flight flight2) {
+				for (Comparator<Flight> comparator : comparators){
+					int result = comparator.compare(flight1, flight2);
+					if (result != 0){
+						return result;
+					}
+				}
+				return 0;
+			}
+		};
+	}
+	
+	/**
+	 * This method sorts the flight list with a comparator. Flights that are the same
+	 * stay in the order they were in.
+	 * @param comparator how to compare the flights, e.g. one made by {@link #compose(Comparator...)}.
+	 * @return the sorted flights.
+	 */
+	public ArrayList<Flight> sort(Comparator<Flight> comparator){
+		
+		ArrayList<Flight> sortedFlights = new ArrayList<Flight>(this.flightList);
+		Collections.sort(sortedFlights, comparator);
+		
+		return sortedFlights;
+	}
+	
+	/**
+	 * This method returns the first flights of the list if it was sorted, without
+	 * sorting all of it. The flights are the same, and in the same order, as the
+	 * first ones returned by {@link #sort(Comparator)}.
+	 * <p>
+	 * Only a heap of the best flights seen so far is kept, so picking K out of N
+	 * flights takes about N log K comparisons instead of N log N.
+	 * @param numOfFlights the number of flights wanted.
+	 * @param comparator how to compare the flights.
+	 * @return the first flights, in order, or all of them if there aren't that many.
+	 */
+	public ArrayList<Flight> top(int numOfFlights, Comparator<Flight> comparator){
+		
+		int size = flightList.size();
+		int k = Math.max(0, Math.min(numOfFlights, size));
+		
+		/* Picking most of the list costs as much as sorting it */
+		if (k > size / 2){
+			ArrayList<Flight> sortedFlights = sort(comparator);
+			sortedFlights.subList(k, size).clear();
+			return sortedFlights;
+		}
+		
+		ArrayList<Flight> topFlights = new ArrayList<Flight>(k);
+		
+		if (k == 0){
+			return topFlights;
+		}
+		
+		/* A heap with the worst of the best flights at the top */
+		IndexHeap heap = new IndexHeap(flightList, Collections.reverseOrder(comparator), k, true);
+		
+		for (int i = 0; i < size; i++){
+			if (heap.size() < k){
+				heap.add(i);
+			}
+			/* Better than the worst one kept, a flight that is the same comes later so it isn't */
+			else if (heap.isBefore(heap.peek(), i)){
+				heap.replaceTop(i);
+			}
+		}
+		
+		/* Take them out worst first, then turn the list around */
+		while (heap.size() > 0){
+			topFlights.add(flightList.get(heap.poll()));
+		}
+		Collections.reverse(topFlights);
+		
+		return topFlights;
+	}
+	
+	/**
+	 * Makes a pager that sorts the flights a page at a time.
+	 * @param pageSize the number of flights on a page.
+	 * @param comparator how to compare the flights.
+	 * @return the pager.
+	 */
+	public Pager pages(int pageSize, Comparator<Flight> comparator){
+		return new Pager(flightList, pageSize, comparator);
+	}
+	
+	/**
+	 * The flights of a list in sorted order, a page at a time.
+	 * <p>
+	 * The whole list is turned into a heap once, in linear time, then every page
+	 * takes the next flights off the heap. Asking for the 1st page of N flights
+	 * costs about N + P log N comparisons for a page of P flights, and only the
+	 * pages up to the one asked for are ever sorted. The order is the same as
+	 * {@link FlightFilter#sort(Comparator)}.
+	 * <p>
+	 * The list of flights must not change while it is being paged.
+	 */
+	public static class Pager {
+		
+		private ArrayList<Flight> flightList;
+		private int pageSize;
+		private IndexHeap heap;
+		
+		/* The positions of the flights taken off the heap so far, in order */
+		private int[] sorted;
+		private int numSorted;
+		
+		Pager(ArrayList<Flight> flightList, int pageSize, Comparator<Flight> comparator) {
+			
+			if (pageSize < 1){
+				throw new IllegalArgumentException("A page needs at least 1 flight");
+			}
+			
+			this.flightList = flightList;
+			this.pageSize = pageSize;
+			this.sorted = new int[flightList.size()];
+			this.heap = new IndexHeap(flightList, comparator, flightList.size(), false);
+			this.heap.heapify();
+		}
+		
+		/**
+		 * Gets the number of flights on a full page.
+		 * @return the page size.
+		 */
+		public int getPageSize() {
+			return pageSize;
+		}
+		
+		/**
+		 * Gets the number of flights being paged.
+		 * @return the number of flights.
+		 */
+		public int getNumOfFlights() {
+			return flightList.size();
+		}
+		
+		/**
+		 * Gets the number of pages, the last one may not be full.
+		 * @return the number of pages.
+		 */
+		public int getNumOfPages() {
+			return (flightList.size() + pageSize - 1) / pageSize;
+		}
+		
+		/**
+		 * Gets a page of flights, sorting only as far as that page.
+		 * @param pageNum the page, starting at 0.
+		 * @return the flights on the page, empty if it is past the last page.
+		 */
+		public synchronized ArrayList<Flight> getPage(int pageNum) {
+			
+			int start = Math.max(0, pageNum) * pageSize;
+			int end = Math.min(flightList.size(), start + pageSize);
+			
+			ArrayList<Flight> page = new ArrayList<Flight>(Math.max(0, end - start));
+			
+			if (start >= end){
+				return page;
+			}
+			
+			sortUpTo(end);
+			
+			for (int i = start; i < end; i++){
+				page.add(flightList.get(sorted[i]));
+			}
+			
+			return page;
+		}
+		
+		/**
+		 * Gets all the flights in order, as a list that is only sorted as far as it is read.
+		 * @return the flights, the list can't be changed.
+		 */
+		public List<Flight> asList() {
+			
+			return new AbstractList<Flight>() {
+				public Flight get(int index) {
+					if (index < 0 || index >= flightList.size()){
+						throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + flightList.size());
+					}
+					synchronized (Pager.this){
+						sortUpTo(index + 1);
+						return flightList.get(sorted[index]);
+					}
+				}
+				
+				public int size() {
+					return flightList.size();
+				}
+			};
+		}
+		
+		/* Takes flights off the heap until the 1st count of them are in order */
+		private void sortUpTo(int count) {
+			while (numSorted < count){
+				sorted[numSorted++] = heap.poll();
+			}
+		}
+	}
+	
+	/* A binary heap of positions in a list of flights, the one that sorts
+	 * first is at the top. Flights that are the same are ordered by their
+	 * position, like in a stable sort. */
+	private static class IndexHeap {
+		
+		private ArrayList<Flight> flightList;
+		private Comparator<Flight> comparator;
+		private boolean laterFirst;
+		private int[] heap;
+		private int size;
+		
+		/* If laterFirst is true, of 2 flights that are the same the later one sorts first */
+		IndexHeap(ArrayList<Flight> flightList, Comparator<Flight> comparator, int capacity, boolean laterFirst) {
+			this.flightList = flightList;
+			this.comparator = comparator;
+			this.laterFirst = laterFirst;
+			this.heap = new int[capacity];
+		}
+		
+		int size() {
+			return size;
+		}
+		
+		int peek() {
+			return heap[0];
+		}
+		
+		/* Fills the heap with every position of the list */
+		void heapify() {
+			
+			for (int i = 0; i < heap.length; i++){
+				heap[i] = i;
+			}
+			size = heap.length;
+			
+			for (int i = size / 2 - 1; i >= 0; i--){
+				siftDown(i);
+			}
+		}
+		
+		void add(int index) {
+			heap[size] = index;
+			siftUp(size++);
+		}
+		
+		int poll() {
+			int top = heap[0];
+			heap[0] = heap[--size];
+			siftDown(0);
+			return top;
+		}
+		
+		void replaceTop(int index) {
+			heap[0] = index;
+			siftDown(0);
+		}
+		
+		/* Does the flight at index1 sort before the one at index2? */
+		boolean isBefore(int index1, int index2) {
+			
+			int result = comparator.compare(flightList.get(index1), flightList.get(index2));
+			
+			if (result != 0){
+				return result < 0;
+			}
+			
+			return laterFirst ? (index1 > index2) : (index1 < index2);
+		}
+		
+		private void siftUp(int pos) {
+			
+			int index = heap[pos];
+			
+			while (pos > 0){
+				int parent = (pos - 1) / 2;
+				if (!isBefore(index, heap[parent])){
+					break;
+				}
+				heap[pos] = heap[parent];
+				pos = parent;
+			}
+			
+			heap[pos] = index;
+		}
+		
+		private void siftDown(int pos) {
+			
+			int index = heap[pos];
+			
+			while (true){
+				int child = 2 * pos + 1;
+				if (child >= size){
+					break;
+				}
+				if (child + 1 < size && isBefore(heap[child + 1], heap[child])){
+					child++;
+				}
+				if (!isBefore(heap[child], index)){
+					break;
+				}
+				heap[pos] = heap[child];
+				pos = child;
+			}
+			
+			heap[pos] = index;
+		}
+	}
+	
 	@Override
 	public String toString() {
 		return "the cheapest flight is: "+cheapestFlight(true)+".\n"+
@@ -2,6 +2,7 @@ package flight_system;
 
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /** 
  * Class used to represent a flight leg based on the 
@@ -28,11 +29,23 @@ public class FlightLeg {
 	private Date arrivalDate;
 	private Airport arrivalAirport;
 	
-	/* Seating Info */
+	/* Minutes from 1970 in GMT, and the hours of the time zones in minutes */
+	private final int departureEpochMinute;
+	private final int arrivalEpochMinute;
+	private final int departureOffset;
+	private final int arrivalOffset;
+	
+	/* Seating Info, the seats taken can change while the leg is searched */
 	private double firstClassPrice;
-	private int firstClassSeatsOcc; // Number of seats occupied
+	private volatile int firstClassSeatsOcc; // Number of seats occupied
 	private double coachClassPrice;
-	private int coachClassSeatsOcc; // Number of seats occupied
+	private volatile int coachClassSeatsOcc; // Number of seats occupied
+	
+	/* Add to the seats taken without a lock */
+	private static final AtomicIntegerFieldUpdater<FlightLeg> FIRST_CLASS_SEATS_OCC =
+			AtomicIntegerFieldUpdater.newUpdater(FlightLeg.class, "firstClassSeatsOcc");
+	private static final AtomicIntegerFieldUpdater<FlightLeg> COACH_CLASS_SEATS_OCC =
+			AtomicIntegerFieldUpdater.newUpdater(FlightLeg.class, "coachClassSeatsOcc");
 	
 	/**
 	 * Makes an object that represents a flight leg.
@@ -73,6 +86,22 @@ public class FlightLeg {
 		this.firstClassSeatsOcc = firstClassSeatsOcc;
 		this.coachClassPrice = coachClassPrice;
 		this.coachClassSeatsOcc = coachClassSeatsOcc;
+		
+		/* Worked out once, so comparing times is only a subtraction */
+		this.departureEpochMinute = departureDate.toEpochMinute(departureTime);
+		this.arrivalEpochMinute = arrivalDate.toEpochMinute(arrivalTime);
+		this.departureOffset = getOffset(departureAirport);
+		this.arrivalOffset = getOffset(arrivalAirport);
+	}
+	
+	/* The local time is a whole number of hours from GMT, like in Time.getLocalTime */
+	private static int getOffset(Airport airport) {
+		
+		if (airport == null || airport.getLocation() == null){
+			return 0;
+		}
+		
+		return (int) airport.getLocation().getTimeZoneOffset() / 3600 * 60;
 	}
 
 	/* The getter methods */
@@ -140,19 +169,31 @@ public class FlightLeg {
 	 */
 	public Date getLocalDepartureDate() {
 		
-		/* 12:00 AM, Midnight */
-		Time zeroHours = new Time(0,0);
-		
-		/* If this departure time is before 12:00 AM */
-		if(getLocalDepartureTime().compareTo(zeroHours) < 0){
-			
-			return new Date(departureDate.getMonth(), departureDate.getDay() - 1, departureDate.getYear());
-			
-		}
-		else{
+		/* Same date as in GMT unless the time zone moves it to another day */
+		if (departureOffset == 0){
 			return departureDate;
 		}
 		
+		return Date.fromEpochMinute(departureEpochMinute + departureOffset);
+		
+	}
+	
+	/**
+	 * Gets the number of minutes from midnight GMT on January 1, 1970 to the departure.
+	 * <p>
+	 * @return the departure epoch minute.
+	 */
+	public int getDepartureEpochMinute() {
+		return departureEpochMinute;
+	}
+	
+	/**
+	 * Gets how far the local time at the departure airport is from GMT.
+	 * <p>
+	 * @return the offset in minutes, a whole number of hours.
+	 */
+	public int getDepartureOffset() {
+		return departureOffset;
 	}
 
 	/**
@@ -201,19 +242,41 @@ public class FlightLeg {
 	 */
 	public Date getLocalArrivalDate() {
 		
-		/* 12:00 AM, Midnight */
-		Time zeroHours = new Time(0,0);
-		
-		/* If this departure time is before 12:00 AM */
-		if(getLocalArrivalTime().compareTo(zeroHours) < 0){
-			
-			return new Date(arrivalDate.getMonth(), arrivalDate.getDay() - 1, arrivalDate.getYear());
-			
-		}
-		else{
+		/* Same date as in GMT unless the time zone moves it to another day */
+		if (arrivalOffset == 0){
 			return arrivalDate;
 		}
 		
+		return Date.fromEpochMinute(arrivalEpochMinute + arrivalOffset);
+		
+	}
+	
+	/**
+	 * Gets the number of minutes from midnight GMT on January 1, 1970 to the arrival.
+	 * <p>
+	 * @return the arrival epoch minute.
+	 */
+	public int getArrivalEpochMinute() {
+		return arrivalEpochMinute;
+	}
+	
+	/**
+	 * Gets how far the local time at the arrival airport is from GMT.
+	 * <p>
+	 * @return the offset in minutes, a whole number of hours.
+	 */
+	public int getArrivalOffset() {
+		return arrivalOffset;
+	}
+	
+	/**
+	 * Tells if a flight leg leaves after this one lands, so it can be the next leg of a flight.
+	 * <p>
+	 * @param nextLeg the flight leg that would be taken after this one.
+	 * @return true if the next leg leaves strictly after this one lands.
+	 */
+	public boolean connectsTo(FlightLeg nextLeg) {
+		return nextLeg.departureEpochMinute > arrivalEpochMinute;
 	}
 	
 	/**
@@ -307,6 +370,41 @@ public class FlightLeg {
 		return (getCoachClassSeatsAvail() > 0);
 	}
 	
+	/**
+	 * Sets the number of seats that are occupied, e.g. to the numbers the
+	 * database has now.
+	 * <p>
+	 * The leg can be read by other threads while the seats are set.
+	 * @param firstClassSeatsOcc the number of occupied first class seats.
+	 * @param coachClassSeatsOcc the number of occupied coach class seats.
+	 * @return true if either number changed.
+	 * @see graph.GraphMaker#refreshSeats(Flight)
+	 */
+	public boolean setOccupiedSeats(int firstClassSeatsOcc, int coachClassSeatsOcc){
+		
+		int oldFirst = FIRST_CLASS_SEATS_OCC.getAndSet(this, firstClassSeatsOcc);
+		int oldCoach = COACH_CLASS_SEATS_OCC.getAndSet(this, coachClassSeatsOcc);
+		
+		return (oldFirst != firstClassSeatsOcc) || (oldCoach != coachClassSeatsOcc);
+	}
+	
+	/**
+	 * Adds to the number of seats that are occupied, e.g. after a ticket was bought.
+	 * <p>
+	 * Seats added from many threads at the same time are all counted.
+	 * @param isFirstClass true to add first class seats, false for coach.
+	 * @param seats the number of seats to add, negative to free seats.
+	 * @return the number of occupied seats in that class afterwards.
+	 */
+	public int addOccupiedSeats(boolean isFirstClass, int seats){
+		
+		if (isFirstClass){
+			return FIRST_CLASS_SEATS_OCC.addAndGet(this, seats);
+		}
+		
+		return COACH_CLASS_SEATS_OCC.addAndGet(this, seats);
+	}
+	
 	/**
 	 * Gets the information about the flight in a format thats
 	 * more useful for the user.
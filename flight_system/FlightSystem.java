@@ -35,6 +35,12 @@ public class FlightSystem {
 	private IUserInterface iFace;
 	private boolean hasBeenFiltered, hasBeenSorted; 
 
+	/* Split each search over the processors, only when the "flight.parallelSearch" 
+	 * system property is true and there is more than 1 processor. The legs of a 
+	 * trip are already searched at the same time by the TripSearch */
+	private static boolean parallelSearch = Boolean.getBoolean("flight.parallelSearch") 
+			&& Runtime.getRuntime().availableProcessors() > 1;
+
 	/* The constructor */
 	public FlightSystem(IUserInterface iFace) {
 		this.airportList = new ArrayList<Airport>();
@@ -720,22 +726,94 @@ public class FlightSystem {
 		originFlightList.clear();
 		returnFlightList.clear();
 		
-		/* Make the departure flight graph */
-		GraphMaker gMakerDep = new GraphMaker(userInfo.getDepartureDate());
-		
-		/* Use the graph engine to find the departure flights */ 
-		GraphEngine engineDep = new GraphEngine(gMakerDep.getGraph());
-	
-		
 		/* Search for the departure flights that meet the user's 
 		 * requirements. Note, that it will return flights
 		 * that have up to maximum 2 connections. */
-		ArrayList<LinkedList<Edge>> availDepFlights = engineDep.getRoutesDir(userInfo.getDepartureAirport(), userInfo.getArrivalAirport(), 3, userInfo.getIsFirstClass());
+		TripSearch search = new TripSearch(userInfo.getIsFirstClass());
+		search.addLeg(userInfo.getDepartureDate(), userInfo.getDepartureAirport(), 
+				userInfo.getArrivalAirport(), userInfo.getDepartureDate());
+		
+		/* If round trip, then search the return date too, at the same time.
+		 * The return flights are also only kept if they don't 
+		 * leave before the departure date */
+		if(userInfo.getIsRoundTrip()){
+			search.addLeg(userInfo.getReturnDate(), userInfo.getArrivalAirport(), 
+					userInfo.getDepartureAirport(), userInfo.getDepartureDate());
+		}
+		
+		/* Tell the user about each step, they come from the threads searching the legs */
+		ArrayList<ArrayList<Flight>> flights = search.search(new SearchProgress() {
+			
+			@Override
+			public void graphReady(int leg, Date date) {
+				super.graphReady(leg, date);
+				iFace.searchProgress(getStepsDone(), getNumOfSteps(), getLegName(leg) + " flights for " + date + " are ready");
+			}
+			
+			@Override
+			public void legSearched(int leg, int numOfFlights) {
+				super.legSearched(leg, numOfFlights);
+				iFace.searchProgress(getStepsDone(), getNumOfSteps(), getLegName(leg) + " search found " + numOfFlights + " flight(s)");
+			}
+		});
+		
+		originFlightList.addAll(flights.get(0));
+		
+		if(userInfo.getIsRoundTrip()){
+			returnFlightList.addAll(flights.get(1));
+		}
+		
+	}
+	
+	/* The name of a leg of the user's trip */
+	private static String getLegName(int leg) {
+		return (leg == 0) ? "Departure" : "Return";
+	}
+	
+	/**
+	 * Finds the flights between two airports on a date, with up to 2 connections.
+	 * <p>
+	 * The graphs come from the {@link FlightGraphCache}, so they are shared by
+	 * everyone searching the same date. The flights are new for every search.
+	 * @param date the date of the graph to search.
+	 * @param depPort the departure airport.
+	 * @param arrPort the arrival airport.
+	 * @param isFirstClass true if looking for First Class seats.
+	 * @param notBefore flights that leave before this local date are left out.
+	 * @return the flights that were found.
+	 */
+	static ArrayList<Flight> findFlights(Date date, Airport depPort, Airport arrPort, boolean isFirstClass, Date notBefore) {
+		
+		/* Graphs that were made for earlier searches are reused */
+		return searchGraph(FlightGraphCache.getInstance().getGraph(date), depPort, arrPort, isFirstClass, notBefore);
+	}
+	
+	/**
+	 * Finds the flights between two airports in a graph that was already made, with up to 2 connections.
+	 * @param gMaker the graph maker that holds the graph of the date.
+	 * @param depPort the departure airport.
+	 * @param arrPort the arrival airport.
+	 * @param isFirstClass true if looking for First Class seats.
+	 * @param notBefore flights that leave before this local date are left out.
+	 * @return the flights that were found.
+	 * @see TripSearch
+	 */
+	static ArrayList<Flight> searchGraph(GraphMaker gMaker, Airport depPort, Airport arrPort, boolean isFirstClass, Date notBefore) {
+		
+		ArrayList<Flight> flights = new ArrayList<Flight>();
 		
+		/* Use the graph engine to find the flights, the index of 
+		 * the cached graph is only made once */ 
+		GraphEngine engine = new GraphEngine(gMaker.getGraph(), gMaker.getReachabilityIndex());
+		
+		/* The flights from the origin can be searched on all the processors */
+		engine.setParallel(parallelSearch);
+		
+		ArrayList<LinkedList<Edge>> availFlights = engine.getRoutesDirPruned(depPort, arrPort, 3, isFirstClass);
 		
 		/* Converts the graph edges, which are flights, into Flight objects
 		 * that can be used throughout the rest of the program */
-		for(LinkedList<Edge> flight : availDepFlights){
+		for(LinkedList<Edge> flight : availFlights){
 			
 			/* Make a new flight */
 			Flight addedFlight = new Flight();
@@ -750,60 +828,14 @@ public class FlightSystem {
 			}
 				
 			/* If the local departure date is not before the date the user want
-			 * their flight for, then add it to the origin flight list */
-			if(!(addedFlight.getLocalDepartureDate().compareTo(userInfo.getDepartureDate()) < 0)){
-				
-				/* Add the flight to the flight list */
-				originFlightList.add(addedFlight);
-				
+			 * their flight for, then add it to the flight list */
+			if(!(addedFlight.getLocalDepartureDate().compareTo(notBefore) < 0)){
+				flights.add(addedFlight);
 			}
 			
-			
-		}
-		
-		/* If round trip, then make the graph */
-		if(userInfo.getIsRoundTrip()){
-			
-			/* Make the return flight graph */
-			GraphMaker gMakerRet = new GraphMaker(userInfo.getReturnDate());
-			
-			/* Use the graph engine to find the return flights */ 
-			GraphEngine engineRet = new GraphEngine(gMakerRet.getGraph());
-			
-			/* Search for the arrival flights that meet the user's 
-			 * requirements. Note, that it will return flights
-			 * that have up to maximum 2 connections. */
-			ArrayList<LinkedList<Edge>> availRetFlights = engineRet.getRoutesDir(userInfo.getArrivalAirport(), userInfo.getDepartureAirport(), 3, userInfo.getIsFirstClass());
-			
-			/* Converts the graph edges, which are flights, into Flight objects
-			 * that can be used throughout the rest of the program */
-			for(LinkedList<Edge> flight : availRetFlights){
-				
-				/* Make a new flight */
-				Flight addedFlight = new Flight();
-				
-				for (Edge edge : flight){
-					
-					/* Get the flight object from the edge */
-					FlightLeg fLeg = edge.getAttribute("fltInfo");
-					
-					/* Add the Flight Leg to the flight */
-					addedFlight.addFlightLeg(fLeg);
-				}
-				
-				
-				/* If the local departure date is not before the date the user want
-				 * their flight for, then add it to the origin flight list */
-				if(!(addedFlight.getLocalDepartureDate().compareTo(userInfo.getDepartureDate()) < 0)){
-					
-					/* Add the flight to the flight list */
-					returnFlightList.add(addedFlight);
-					
-				}
-				
-			}
 		}
 		
+		return flights;
 	}
 
 	private boolean showFlights(boolean hasBeenFiltered) {
@@ -1009,6 +1041,9 @@ public class FlightSystem {
 		
 
 		boolean didFilter = false; // the return value
+
+		/* What the flights have to match, they are filtered after both questions */
+		FlightCriteria criteria = new FlightCriteria();
 		
 		
 		/* ---------- DEPARTURE TIME FILTER ------------ */
@@ -1056,38 +1091,8 @@ public class FlightSystem {
 	
 			} while (!validUserAns(b4OrAfter, "B", "A"));
 	
-			/* Add all the departure flights to the departure filter */
-			FlightFilter depFilter = new FlightFilter(); // depart time filter
-			depFilter.addFlightList(flightList);
-	
-			/* Filter by Departure flights by Before Departure time */
-			if (b4OrAfter.startsWith("B")){
-				
-				if(origin){
-					originFilter.clear(); // clean the list 1st.
-					originFilter.addAll(depFilter.filterLocalDepTime(depTime, false, airport));
-				}
-				else{
-					returnFilter.clear();
-					returnFilter.addAll(depFilter.filterLocalDepTime(depTime, false, airport));
-				}
-				
-	
-			}
-			/* Filter by Departure flights by After Departure time */
-			else {
-	
-				if(origin){
-					originFilter.clear(); // clean the list 1st.
-					originFilter.addAll(depFilter.filterLocalDepTime(depTime, true, airport));
-				}
-				else{
-					returnFilter.clear(); // clean the list 1st.
-					returnFilter.addAll(depFilter.filterLocalDepTime(depTime, true, airport));
-				}
-				
-			}
-	
+			/* Only the departure time is kept for now, the flights are filtered once both are known */
+			criteria.localDepTime(depTime, b4OrAfter.startsWith("A"));
 	
 		} 
 		else{
@@ -1145,46 +1150,27 @@ public class FlightSystem {
 	
 			} while (!validUserAns(b4OrAfter, "B", "A"));
 	
-			/* Add all the departure flights to the departure filter */
-			ArrayList<Flight> oFilterList = new ArrayList<Flight>();
-			oFilterList.addAll(originFilter);
-			
-			ArrayList<Flight> rFilterList = new ArrayList<Flight>();
-			rFilterList.addAll(returnFilter);
+			/* Keep the flights that arrive before or after the time too */
+			criteria.localArrTime(arrTime, b4OrAfter.startsWith("A"));
+	
+		} // End asking user if they want to filter by arrival time
+		
+		/* Filter the flights once by both times */
+		if (!criteria.isEmpty()){
 			
-			FlightFilter originFilter2nd = new FlightFilter(oFilterList);
-			FlightFilter returnFilter2nd = new FlightFilter(rFilterList);
+			FlightFilter depArrFilter = new FlightFilter(flightList);
 			
-			/* Filter by Departure flights by Before Departure time */
-			if (b4OrAfter.startsWith("B")){
-				
-				if(origin){
-					originFilter.clear();
-					originFilter.addAll(originFilter2nd.filterLocalArrTime(arrTime, false, airport));
-					oFilterList.clear();
-				}
-				else{
-					returnFilter.clear();
-					returnFilter.addAll(returnFilter2nd.filterLocalArrTime(arrTime, false, airport));
-					rFilterList.clear();
-				}
-				
+			if(origin){
+				originFilter.clear(); // clean the list 1st.
+				originFilter.addAll(depArrFilter.filter(criteria));
 			}
-			/* Filter by Departure flights by After Departure time */
-			else {
-				
-				if(origin){
-					originFilter.clear(); // clean the list 1st.
-					originFilter.addAll(originFilter2nd.filterLocalArrTime(arrTime, true, airport));
-				}
-				else{
-					returnFilter.clear(); // clean the list 1st.
-					returnFilter.addAll(returnFilter2nd.filterLocalArrTime(arrTime, true, airport));
-				}
-				
+			else{
+				returnFilter.clear(); // clean the list 1st.
+				returnFilter.addAll(depArrFilter.filter(criteria));
 			}
-	
-		} // End asking user if they want to filter by arrival time
+			
+		}
+		
 		return didFilter;
 	}
 
@@ -1556,22 +1542,43 @@ public class FlightSystem {
 	}
 
 	private int buyFlt(Flight flight) {
+		return buyFlight(flight, userInfo.getIsFirstClass());
+	}
+	
+	/**
+	 * Buys a seat on every leg of a flight.
+	 * <p>
+	 * The ticket is bought by the {@link PurchaseBatcher}, with any other tickets
+	 * bought at the same time, and the seats of the flight are fetched again
+	 * in the cached graphs that have it.
+	 * @param flight the flight that will be purchased.
+	 * @param isFirstClass true to buy First Class seats.
+	 * @return the response code from the database, 200 if the seats were bought,
+	 * 		   {@link XMLPutter#UNKNOWN_RESULT} if it isn't known whether they were.
+	 */
+	static int buyFlight(Flight flight, boolean isFirstClass) {
 		
 		/* Get the XML Putter Instance */
 		XMLPutter dbPutter = XMLPutter.getInstance();
 
 		/* Make the ticket */
-		String ticket = dbPutter.makeTicket(flight, userInfo.getIsFirstClass());
-		
-		/* Lock the database */
-		dbPutter.lockDB();
+		String ticket = dbPutter.makeTicket(flight, isFirstClass);
 		
 		/* Result from buy ticket, will be using this to
-		 * determine what happened */
-		int resCode = dbPutter.buyTicket(ticket);
-		
-		/* Unlock the database */
-		dbPutter.unlockDB();
+		 * determine what happened. Tickets bought from other
+		 * sessions at the same time share one lock of the database. */
+		int resCode = dbPutter.getBatcher().buy(ticket);
+		
+		/* The seats on the cached graphs changed, so only
+		 * the departures of the legs are fetched again */
+		if ((resCode >= 200) && (resCode <= 299)){
+			FlightGraphCache.getInstance().refreshSeats(flight);
+		}
+		/* The seats may or may not have been bought, so the
+		 * graphs with the flight are made again when needed */
+		else if (resCode == XMLPutter.UNKNOWN_RESULT){
+			FlightGraphCache.getInstance().invalidate(flight);
+		}
 		
 		return resCode;
 
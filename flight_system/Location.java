@@ -10,20 +10,7 @@
 
 package flight_system;
 
-import java.io.IOException;
-import java.io.StringReader;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-
-import parsers.XMLGetter;
+import parsers.TimeZoneCache;
 
 /** 
  * Class used to represent location in latitude and longitude.
@@ -35,10 +22,11 @@ import parsers.XMLGetter;
  */
 public class Location {
 	
-	/* Fields */
-	private double latitude;
-	private double longitude;
+	/* Fields, only the time zone is set after the location is made */
+	private final double latitude;
+	private final double longitude;
 	private double timeZoneOffset;
+	private boolean hasTimeZone;
 	
 	/**
 	 * Makes an object that represent location
@@ -48,16 +36,8 @@ public class Location {
 	public Location(double latitude, double longitude) {
 		this.latitude = latitude;
 		this.longitude = longitude;
-
-		/* Have to sleep in order to avoid the Google API Limit */
-		try {
-			Thread.sleep(200);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
 		
-		determineTimeZone(); // Get the Time Zone from Google
+		determineTimeZone(); // Get the Time Zone from the cache or Google
 	}
 	
 	/**
@@ -70,27 +50,31 @@ public class Location {
 	/* Constructor for making a Location w/o getting the TimeZone info */
 	public Location(double latitude, double longitude, boolean getZone) {
 
-		if(getZone){
-			this.latitude = latitude;
-			this.longitude = longitude;
-
-			/* Have to sleep in order to avoid the Google API Limit */
-			try {
-				Thread.sleep(200);
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
+		this.latitude = latitude;
+		this.longitude = longitude;
 
-			determineTimeZone(); // Get the Time Zone from Google
-		}
-		else{
-			this.latitude = latitude;
-			this.longitude = longitude;	
+		if(getZone){
+			determineTimeZone(); // Get the Time Zone from the cache or Google
 		}
 		
 	}
 	
+	/**
+	 * Makes an object that represent location, with a time zone that was already looked up,
+	 * e.g. from a graph snapshot or preloaded by the airport parser. Google and
+	 * the time zone cache are not asked.
+	 * @param latitude the latitude of the location
+	 * @param longitude the longitude of the location
+	 * @param timeZoneOffset the raw offset of the time zone, in seconds, or NaN if it could not be looked up
+	 * @see graph.GraphSnapshot
+	 */
+	public Location(double latitude, double longitude, double timeZoneOffset) {
+		this.latitude = latitude;
+		this.longitude = longitude;
+		
+		setTimeZone(timeZoneOffset);
+	}
+	
 	/**
 	 * Get the latitude of the location
 	 * @return the latitude of the location
@@ -111,7 +95,8 @@ public class Location {
 	
 	/**
 	 * get the parameter called 'time zone offset' of the location
-	 * @return the time zone offset of the location
+	 * @return the time zone offset of the location, 0 if it isn't known
+	 * @see #hasTimeZone()
 	 */
 	
 	public double getTimeZoneOffset() {
@@ -120,45 +105,35 @@ public class Location {
 	}
 	
 	/**
-	 * Make a method to get the time zone information of selected location
+	 * Tells if the time zone of the location is known. If it could not be looked up,
+	 * or wasn't asked for, the offset is 0, the same as GMT.
+	 * @return true if the time zone offset was looked up.
+	 */
+	public boolean hasTimeZone() {
+		return hasTimeZone;
+	}
+	
+	/**
+	 * Make a method to get the time zone information of selected location.
+	 * <p>
+	 * The time zone cache is checked first, Google is only asked
+	 * when the location has never been looked up before.
+	 * @see parsers.TimeZoneCache
 	 * @see parsers.XMLGetter#getTimeZoneXML(Location)
 	 */
 	
 	private void determineTimeZone(){
-		//Getting information
-		XMLGetter getter = XMLGetter.getInstance();
-		String xmlSource = getter.getTimeZoneXML(this);
 		
-		//Parsing info
-		DocumentBuilderFactory dom_fac = DocumentBuilderFactory.newInstance();
-
-		try {
-			/* Builds the doc object that contains the 
-			 * tree structure of the XML file */
-			DocumentBuilder builder = dom_fac.newDocumentBuilder();
-			Document doc = builder.parse(new InputSource(new StringReader(xmlSource))); // This is the root node
-			
-			/* Contains a list of all the airplanes from the Airplanes XML */
-			NodeList childNodes = doc.getElementsByTagName("raw_offset");
-			Node rawOffsetNode =  childNodes.item(0);
-			
-            double rawOffset = Double.parseDouble(rawOffsetNode.getTextContent());
-		    this.timeZoneOffset = rawOffset;
-		    
-		    
-		/* Exceptions required by the Parser */	
-
-		} catch (ParserConfigurationException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (SAXException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-
+		/* Check the time zones that we already know about, then ask Google */
+		setTimeZone(TimeZoneCache.getInstance().resolveOffset(latitude, longitude));
+		
+	}
+	
+	/* NaN means the time zone could not be looked up, the offset stays 0 */
+	private void setTimeZone(double timeZoneOffset){
+		
+		this.hasTimeZone = !Double.isNaN(timeZoneOffset);
+		this.timeZoneOffset = hasTimeZone ? timeZoneOffset : 0;
 	}
 		
 	/**
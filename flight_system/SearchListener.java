@@ -0,0 +1,35 @@
+package flight_system;
+
+/**
+ * Listens to the progress of a {@link TripSearch}.
+ * <p>
+ * The legs of a trip are searched at the same time, so except for
+ * {@link #searchStarted(int)} the methods are called from the threads that
+ * search the legs, and may be called at the same time for different legs.
+ * Each leg first gets its flight graph, then searches it.
+ *
+ * @see SearchProgress
+ */
+public interface SearchListener {
+
+	/**
+	 * Called once, before any leg is searched.
+	 * @param numOfLegs the number of legs of the trip.
+	 */
+	public void searchStarted(int numOfLegs);
+
+	/**
+	 * Called when the flight graph of a leg was downloaded and made, or found in the cache.
+	 * @param leg the index of the leg, in the order it was added to the trip.
+	 * @param date the date of the graph.
+	 */
+	public void graphReady(int leg, Date date);
+
+	/**
+	 * Called when the flights of a leg were found.
+	 * @param leg the index of the leg, in the order it was added to the trip.
+	 * @param numOfFlights the number of flights that were found.
+	 */
+	public void legSearched(int leg, int numOfFlights);
+
+}
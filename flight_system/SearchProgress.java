@@ -0,0 +1,71 @@
+package flight_system;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link SearchListener} that only counts what was done, so the progress of
+ * a search can be read from another thread, e.g. by a program without a user interface.
+ * <p>
+ * Each leg of a trip has 2 steps: getting its graph, and searching it.
+ *
+ * @see BookingSession#getProgress()
+ */
+public class SearchProgress implements SearchListener {
+
+	private volatile int numOfLegs;
+	private AtomicInteger graphsReady = new AtomicInteger();
+	private AtomicInteger legsSearched = new AtomicInteger();
+	private AtomicInteger numOfFlights = new AtomicInteger();
+
+	public void searchStarted(int numOfLegs) {
+		this.numOfLegs = numOfLegs;
+	}
+
+	public void graphReady(int leg, Date date) {
+		graphsReady.incrementAndGet();
+	}
+
+	public void legSearched(int leg, int numOfFlights) {
+		this.numOfFlights.addAndGet(numOfFlights);
+		legsSearched.incrementAndGet();
+	}
+
+	/**
+	 * Gets the number of steps that are done.
+	 * @return the number of graphs that are ready plus the number of legs that were searched.
+	 */
+	public int getStepsDone() {
+		return graphsReady.get() + legsSearched.get();
+	}
+
+	/**
+	 * Gets the number of steps of the whole search.
+	 * @return 2 steps for each leg, 0 if the search hasn't started.
+	 */
+	public int getNumOfSteps() {
+		return 2 * numOfLegs;
+	}
+
+	/**
+	 * Gets the number of flights found so far, for all the legs.
+	 * @return the number of flights.
+	 */
+	public int getNumOfFlights() {
+		return numOfFlights.get();
+	}
+
+	/**
+	 * Tells if every leg was searched.
+	 * @return true if the search is done.
+	 */
+	public boolean isDone() {
+		return numOfLegs > 0 && legsSearched.get() == numOfLegs;
+	}
+
+	@Override
+	public String toString() {
+		return "SearchProgress " + getStepsDone() + "/" + getNumOfSteps() + " steps, "
+				+ getNumOfFlights() + " flight(s) found";
+	}
+
+}
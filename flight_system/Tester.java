@@ -5,6 +5,8 @@ import graph.GraphTester;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
 
 import parsers.*;
 import user_interface.IUserInterface;
@@ -152,6 +154,93 @@ public class Tester {
 		
 	}
 	
+	/* Checks top() and every page of the pager against a full sort, with lots of 
+	 * flights that are the same, in ascending and descending order */
+	@SuppressWarnings("unused")
+	private static void flightFilterTopTester(){
+		
+		System.out.println("Testing Flight Filter top and pages\n");
+		
+		Random random = new Random(509);
+		
+		Airplane airplane = new Airplane("774", "Airbus", 20, 50);
+		Date date = new Date(Month.March, 18, 2015);
+		Location loc = new Location(33.641045, -84.427764, false);
+		Airport bosPort = new Airport("BOS", "Boston Logan", loc);
+		Airport jfkPort = new Airport("JFK", "John F. Kennedy International", loc);
+		
+		/* Few prices and times, so many of the flights are the same */
+		double[] prices = {25.00, 50.00, 75.00};
+		
+		ArrayList<Comparator<Flight>> comparators = new ArrayList<Comparator<Flight>>();
+		comparators.add(Flight.CoachClassPriceComparator);
+		comparators.add(Collections.reverseOrder(Flight.CoachClassPriceComparator));
+		comparators.add(FlightFilter.compose(Flight.CoachClassPriceComparator, Flight.ConnectionComparator, Flight.DepartureTimeComparator));
+		comparators.add(Collections.reverseOrder(FlightFilter.compose(Flight.CoachClassPriceComparator, Flight.ConnectionComparator)));
+		
+		int checks = 0;
+		int different = 0;
+		
+		for (int numOfFlights : new int[] {0, 1, 2, 5, 40, 200}){
+			
+			/* Make the flights, with 1 to 3 legs each */
+			ArrayList<Flight> fList = new ArrayList<Flight>();
+			
+			for (int i = 0; i < numOfFlights; i++){
+				
+				Flight flight = new Flight();
+				int numOfLegs = 1 + random.nextInt(3);
+				
+				for (int leg = 0; leg < numOfLegs; leg++){
+					Time dTime = new Time(8 + random.nextInt(3), 0);
+					Time aTime = new Time(dTime.getHours() + 1, 0);
+					flight.addFlightLeg(new FlightLeg(airplane, 1000 + i * 3 + leg, 60, dTime, date, bosPort, aTime, date, jfkPort,
+							prices[random.nextInt(prices.length)], 15, prices[random.nextInt(prices.length)], 25));
+				}
+				
+				fList.add(flight);
+			}
+			
+			FlightFilter filter = new FlightFilter(fList);
+			
+			for (Comparator<Flight> comparator : comparators){
+				
+				ArrayList<Flight> sorted = filter.sort(comparator);
+				
+				/* The first k flights, for every k */
+				for (int k = 0; k <= numOfFlights + 1; k++){
+					checks++;
+					if (!filter.top(k, comparator).equals(sorted.subList(0, Math.min(k, numOfFlights)))){
+						different++;
+					}
+				}
+				
+				/* Every page, read from the last one back so later pages are sorted first */
+				for (int pageSize = 1; pageSize <= 7; pageSize++){
+					
+					FlightFilter.Pager pager = filter.pages(pageSize, comparator);
+					
+					for (int page = pager.getNumOfPages(); page >= 0; page--){
+						int start = Math.min(numOfFlights, page * pageSize);
+						int end = Math.min(numOfFlights, start + pageSize);
+						checks++;
+						if (!pager.getPage(page).equals(sorted.subList(start, end))){
+							different++;
+						}
+					}
+					
+					checks++;
+					if (!filter.pages(pageSize, comparator).asList().equals(sorted)){
+						different++;
+					}
+				}
+			}
+		}
+		
+		System.out.println("top() and the pages are the same as sort(): " + (different == 0)
+				+ " (" + checks + " checks, " + different + " different)");
+	}
+	
 	@SuppressWarnings("unused")
 	private static void graphExampleTester(){
 		GraphTester test = new GraphTester();
@@ -164,6 +253,25 @@ public class Tester {
 		test.testGraphEngine();
 	}
 	
+	@SuppressWarnings("unused")
+	private static void compactGraphTester(){
+		GraphTester test = new GraphTester();
+		test.testCompactGraph();
+	}
+	
+	@SuppressWarnings("unused")
+	private static void connectionScanTester(){
+		GraphTester test = new GraphTester();
+		test.testConnectionScan();
+		test.testConnectionScanRoutes();
+	}
+	
+	@SuppressWarnings("unused")
+	private static void meetInMiddleTester(){
+		GraphTester test = new GraphTester();
+		test.testMeetInMiddle();
+	}
+	
 	@SuppressWarnings("unused")
 	private static void testLocationClass() {
 
@@ -235,7 +343,7 @@ public class Tester {
 
 		/* Make an Flight Parser */
 		FlightParser fParse = new FlightParser("placeHolder", "placeHolder");
-		fParse.parseFlightXML(null); // Parses the XML
+		fParse.parseFlightXML((String) null); // Parses the XML
 
 		/* Print the number of Airplanes */
 		System.out.println("There are " + fParse.getNumOfFlights()
@@ -4,14 +4,38 @@ package flight_system;
  * Class used to represent time in hours and minutes.
  * <p>
  * The class can either represent the time as GMT time or Local Time.
+ * <p>
+ * A time can't be changed once it is made, so the times made with {@link #valueOf(int, int)}
+ * are shared: every minute of the day, the negative local times of the previous day and
+ * durations of up to 2 days are made once, and the conversions below never make new ones
+ * for those.
  * 
  * @author Kun Huang
  *  
  */
 
 public class Time implements Comparable<Time>{
-	private int hours;
-	private int minutes;
+	
+	/**
+	 * Minutes in a day
+	 */
+	public static final int MINS_PER_DAY = 24 * 60;
+	
+	/* The range of hours of the shared times */
+	private static final int MIN_CACHED_HOURS = -23;
+	private static final int MAX_CACHED_HOURS = 47;
+	
+	/* The shared times, from -23:00 up to 47:59 */
+	private static final Time[] CACHE = new Time[(MAX_CACHED_HOURS - MIN_CACHED_HOURS + 1) * 60];
+	
+	static {
+		for (int i = 0; i < CACHE.length; i++){
+			CACHE[i] = new Time(MIN_CACHED_HOURS + i / 60, i % 60);
+		}
+	}
+	
+	private final int hours;
+	private final int minutes;
 	
 	/**
 	 * Makes an object that represent time
@@ -23,6 +47,21 @@ public class Time implements Comparable<Time>{
 		this.minutes = minutes;
 	}
 	
+	/**
+	 * Gets a time, without making a new one if it is shared.
+	 * @param hours the hour part in the time
+	 * @param minutes the minute part in the time
+	 * @return the shared time for any minute from -23:00 up to 47:59, or else a new time.
+	 */
+	public static Time valueOf(int hours, int minutes) {
+		
+		if (hours >= MIN_CACHED_HOURS && hours <= MAX_CACHED_HOURS && minutes >= 0 && minutes < 60){
+			return CACHE[(hours - MIN_CACHED_HOURS) * 60 + minutes];
+		}
+		
+		return new Time(hours, minutes);
+	}
+	
 	/**
 	 * Makes an object that represent local time
 	 * @param time the time in GMT format
@@ -40,7 +79,7 @@ public class Time implements Comparable<Time>{
 		{
 			localHours += 24;
 		}
-		return new Time(localHours, time.getMinutes());
+		return valueOf(localHours, time.getMinutes());
 	}
 	
 	/**
@@ -55,7 +94,7 @@ public class Time implements Comparable<Time>{
 	public static Time getNegativeLocalTime(Time time, Location location){
 
 		int localHours = (time.getHours() + (int) location.getTimeZoneOffset() / 3600) % 24;
-		return new Time(localHours, time.getMinutes());
+		return valueOf(localHours, time.getMinutes());
 
 	}
 	
@@ -75,7 +114,7 @@ public class Time implements Comparable<Time>{
 		{
 			gmtHours += 24;
 		}
-		return new Time(gmtHours, time.getMinutes());
+		return valueOf(gmtHours, time.getMinutes());
 	}
 	
 	/**
@@ -91,7 +130,7 @@ public class Time implements Comparable<Time>{
 	 */
 	public static Time get12HourTime(Time time){
 		
-		return new Time(time.getHoursIn12(), time.getMinutes());
+		return valueOf(time.getHoursIn12(), time.getMinutes());
 		
 	}
 	
@@ -101,7 +140,7 @@ public class Time implements Comparable<Time>{
 	 */
 	public static Time convertMinsToHours(int mins){
 		
-		return new Time(mins / 60, mins % 60);
+		return valueOf(mins / 60, mins % 60);
 		
 	}
 	
@@ -180,6 +219,32 @@ public class Time implements Comparable<Time>{
  
 	}
 	
+	/**
+	 * Tells if a given object is a time with the same hours and minutes as this time.
+	 * <p>
+	 * @param compareObject the object to be compared to this time.
+	 * @return true if the object is the same time.
+	 */
+	@Override
+	public boolean equals(Object compareObject) {
+		
+		if (this == compareObject){
+			return true;
+		}
+		
+		if (!(compareObject instanceof Time)){
+			return false;
+		}
+		
+		Time compareTime = (Time) compareObject;
+		return hours == compareTime.hours && minutes == compareTime.minutes;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hours * 60 + minutes;
+	}
+	
 	/**
 	 * String representation of the Time object.
 	 * <p>
@@ -0,0 +1,186 @@
+package flight_system;
+
+import graph.FlightGraphCache;
+import graph.GraphMaker;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Searches the flights of all the legs of a trip at the same time, e.g. the
+ * departure and return flights of a round trip, or each flight of a multi-city trip.
+ * <p>
+ * Each leg gets the graph of its date from the {@link FlightGraphCache} and
+ * searches it on its own thread, so the graphs of different dates are downloaded,
+ * made and searched at the same time. Legs on the same date share one graph.
+ * The flights are returned once every leg is done, in the order the legs were added.
+ * <p>
+ * E.g. <code>new TripSearch(false).addLeg(depDate, depPort, arrPort, depDate).addLeg(returnDate, arrPort, depPort, depDate).search(listener)</code>
+ *
+ * @see SearchListener
+ */
+public class TripSearch {
+
+	/* Runs the legs after the first one, the first leg is searched by the calling thread */
+	private static ExecutorService legPool = null;
+
+	private ArrayList<Leg> legs;
+	private boolean isFirstClass;
+
+	/**
+	 * Makes a search for a trip with no legs yet.
+	 * @param isFirstClass true if looking for First Class seats.
+	 */
+	public TripSearch(boolean isFirstClass) {
+		this.legs = new ArrayList<Leg>();
+		this.isFirstClass = isFirstClass;
+	}
+
+	/**
+	 * Adds a leg to the trip.
+	 * @param date the date of the flights.
+	 * @param depPort the departure airport.
+	 * @param arrPort the arrival airport.
+	 * @param notBefore flights that leave before this local date are left out.
+	 * @return this search.
+	 */
+	public TripSearch addLeg(Date date, Airport depPort, Airport arrPort, Date notBefore) {
+		legs.add(new Leg(date, depPort, arrPort, notBefore));
+		return this;
+	}
+
+	/**
+	 * Gets the number of legs of the trip.
+	 * @return the number of legs.
+	 */
+	public int getNumOfLegs() {
+		return legs.size();
+	}
+
+	/**
+	 * Searches the flights of every leg, with up to 2 connections.
+	 * @param listener told about the progress of the search, or null.
+	 * @return the flights of each leg, in the order the legs were added.
+	 */
+	public ArrayList<ArrayList<Flight>> search(SearchListener listener) {
+
+		final SearchListener progress = (listener == null) ? new SearchProgress() : listener;
+		ArrayList<ArrayList<Flight>> flights = new ArrayList<ArrayList<Flight>>(legs.size());
+
+		progress.searchStarted(legs.size());
+
+		if (legs.isEmpty()){
+			return flights;
+		}
+
+		/* The other legs are started first, so they run while this thread searches the first one */
+		ArrayList<Future<ArrayList<Flight>>> otherLegs = new ArrayList<Future<ArrayList<Flight>>>();
+
+		for (int i = 1; i < legs.size(); i++){
+
+			final int index = i;
+
+			otherLegs.add(getLegPool().submit(new Callable<ArrayList<Flight>>() {
+				public ArrayList<Flight> call() {
+					return searchLeg(index, progress);
+				}
+			}));
+		}
+
+		try {
+
+			flights.add(searchLeg(0, progress));
+
+			for (Future<ArrayList<Flight>> otherLeg : otherLegs){
+				flights.add(otherLeg.get());
+			}
+
+		}
+		catch (ExecutionException e) {
+
+			if (e.getCause() instanceof RuntimeException){
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw new RuntimeException("Could not search the flights of the trip", e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while searching the flights of the trip", e);
+		}
+		finally {
+
+			/* Don't start the other legs that are still waiting if one of them failed. A leg
+			 * that is running is not interrupted, it may be making a graph that other
+			 * searches are waiting for too, so it finishes and its flights are thrown away */
+			for (Future<ArrayList<Flight>> otherLeg : otherLegs){
+				otherLeg.cancel(false);
+			}
+
+		}
+
+		return flights;
+	}
+
+	/* Gets the graph of a leg, then searches it */
+	private ArrayList<Flight> searchLeg(int index, SearchListener progress) {
+
+		Leg leg = legs.get(index);
+
+		GraphMaker gMaker = FlightGraphCache.getInstance().getGraph(leg.date);
+		progress.graphReady(index, leg.date);
+
+		ArrayList<Flight> flights = FlightSystem.searchGraph(gMaker, leg.depPort, leg.arrPort, isFirstClass, leg.notBefore);
+		progress.legSearched(index, flights.size());
+
+		return flights;
+	}
+
+	private static synchronized ExecutorService getLegPool() {
+		if (legPool == null){
+			legPool = Executors.newCachedThreadPool(new LegThreadFactory());
+		}
+
+		return legPool;
+	}
+
+	/* One flight of the trip */
+	private static class Leg {
+
+		Date date;
+		Airport depPort;
+		Airport arrPort;
+		Date notBefore;
+
+		Leg(Date date, Airport depPort, Airport arrPort, Date notBefore) {
+			this.date = date;
+			this.depPort = depPort;
+			this.arrPort = arrPort;
+			this.notBefore = notBefore;
+		}
+	}
+
+	/* Makes the daemon threads that search the legs, so they don't keep the program running */
+	private static class LegThreadFactory implements ThreadFactory {
+
+		private static final AtomicInteger threadCount = new AtomicInteger();
+
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "trip-search-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "TripSearch with " + legs.size() + " leg(s)";
+	}
+
+}
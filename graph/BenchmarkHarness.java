@@ -0,0 +1,246 @@
+package graph;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+/**
+ * Runs and measures the operations of a benchmark, for the {@link GraphBenchmark}
+ * and the <code>flight_system.FlightBenchmark</code>.
+ * <p>
+ * An operation is first run for the warm up rounds, so the JIT compiles it, then
+ * every call of the measured rounds is timed on its own. The bytes the calling
+ * thread allocated and the time spent in garbage collection are read before and
+ * after the measured rounds. Each benchmark prints the {@link Result} its own way.
+ * <p>
+ * The value every call returns is added to a sink, so the JIT can't throw the
+ * work away. Print {@link #getSink()} once at the end.
+ */
+public class BenchmarkHarness {
+
+	/* Keeps the JIT from throwing the results away */
+	private static long sink;
+
+	private int warmupRounds;
+	private int rounds;
+	private int callsPerRound;
+	private long maxNanos;
+
+	/**
+	 * Makes a harness.
+	 * @param warmupRounds the number of rounds before measuring.
+	 * @param rounds the number of measured rounds.
+	 * @param callsPerRound the number of calls of an operation in one round, e.g. one per query.
+	 * @param maxNanos an operation stops after this many measured nanoseconds, so the slow ones end.
+	 */
+	public BenchmarkHarness(int warmupRounds, int rounds, int callsPerRound, long maxNanos) {
+		this.warmupRounds = Math.max(0, warmupRounds);
+		this.rounds = Math.max(1, rounds);
+		this.callsPerRound = Math.max(1, callsPerRound);
+		this.maxNanos = maxNanos;
+	}
+
+	/**
+	 * Warms up an operation, then times every call of the measured rounds.
+	 * @param operation the operation.
+	 * @return the times, bytes and garbage collection of the measured calls.
+	 */
+	public Result measure(Operation operation) {
+
+		for (int round = 0; round < warmupRounds; round++){
+			for (int call = 0; call < callsPerRound; call++){
+				sink += operation.run(call);
+			}
+		}
+
+		long[] latencies = new long[rounds * callsPerRound];
+		int calls = 0;
+		long total = 0;
+
+		long gcBefore = getGcMillis();
+		long allocBefore = getAllocatedBytes();
+
+		for (int round = 0; round < rounds && total < maxNanos; round++){
+			for (int call = 0; call < callsPerRound; call++){
+
+				long start = System.nanoTime();
+				sink += operation.run(call);
+				long time = System.nanoTime() - start;
+
+				latencies[calls++] = time;
+				total += time;
+			}
+		}
+
+		long allocated = (allocBefore < 0) ? -1 : getAllocatedBytes() - allocBefore;
+		long gcMillis = getGcMillis() - gcBefore;
+
+		Arrays.sort(latencies, 0, calls);
+
+		return new Result(operation.getName(), Arrays.copyOf(latencies, calls), total, allocated, gcMillis);
+	}
+
+	/**
+	 * Adds a value to the sink, for work done outside of {@link #measure(Operation)}.
+	 * @param value something made from the result of the work.
+	 */
+	public static void consume(long value) {
+		sink += value;
+	}
+
+	/**
+	 * Gets the sum of everything the operations returned.
+	 * @return the sink.
+	 */
+	public static long getSink() {
+		return sink;
+	}
+
+	/**
+	 * Gets the bytes the calling thread has allocated so far.
+	 * @return the bytes, -1 if the JVM can't tell.
+	 */
+	public static long getAllocatedBytes() {
+
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+		if (threads instanceof com.sun.management.ThreadMXBean){
+			com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+			if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()){
+				return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Gets the time spent in garbage collection so far, by every collector.
+	 * @return the time in milliseconds.
+	 */
+	public static long getGcMillis() {
+
+		long millis = 0;
+
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()){
+			millis += Math.max(0, collector.getCollectionTime());
+		}
+
+		return millis;
+	}
+
+	/**
+	 * One thing a benchmark measures.
+	 */
+	public static abstract class Operation {
+
+		private String name;
+
+		/**
+		 * Makes an operation.
+		 * @param name the name printed with its results.
+		 */
+		public Operation(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Gets the name of the operation.
+		 * @return the name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Runs the operation once.
+		 * @param call the number of the call in its round, from 0 to the calls per round.
+		 * @return something made from the result, so it isn't thrown away.
+		 */
+		public abstract long run(int call);
+	}
+
+	/**
+	 * The measured calls of an operation.
+	 */
+	public static class Result {
+
+		private String name;
+		private long[] latencies;
+		private long totalNanos;
+		private long allocatedBytes;
+		private long gcMillis;
+
+		Result(String name, long[] latencies, long totalNanos, long allocatedBytes, long gcMillis) {
+			this.name = name;
+			this.latencies = latencies;
+			this.totalNanos = totalNanos;
+			this.allocatedBytes = allocatedBytes;
+			this.gcMillis = gcMillis;
+		}
+
+		/**
+		 * Gets the name of the operation.
+		 * @return the name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the number of measured calls.
+		 * @return the number of calls.
+		 */
+		public int getCalls() {
+			return latencies.length;
+		}
+
+		/**
+		 * Gets the number of calls per second.
+		 * @return the throughput.
+		 */
+		public double getOpsPerSecond() {
+			return latencies.length / (totalNanos / 1e9);
+		}
+
+		/**
+		 * Gets the mean time of a call.
+		 * @return the time in microseconds.
+		 */
+		public double getMeanMicros() {
+			return totalNanos / 1e3 / latencies.length;
+		}
+
+		/**
+		 * Gets the time a share of the calls were faster than, e.g. 0.5 for the median.
+		 * @param percentile the share of the calls, from 0 to 1.
+		 * @return the time in microseconds.
+		 */
+		public double getPercentileMicros(double percentile) {
+			return latencies[Math.min(latencies.length - 1, (int) (latencies.length * percentile))] / 1e3;
+		}
+
+		/**
+		 * Gets the bytes allocated by a call.
+		 * @return the mean bytes per call, -1 if the JVM can't tell.
+		 */
+		public long getBytesPerCall() {
+			return (allocatedBytes < 0) ? -1 : allocatedBytes / latencies.length;
+		}
+
+		/**
+		 * Gets the time spent in garbage collection during the measured calls.
+		 * @return the time in milliseconds.
+		 */
+		public long getGcMillis() {
+			return gcMillis;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "BenchmarkHarness with " + warmupRounds + " warm up and " + rounds + " measured round(s) of " + callsPerRound + " call(s)";
+	}
+
+}
@@ -0,0 +1,535 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+import flight_system.Airport;
+import flight_system.FlightLeg;
+
+/**
+ * Flight graph that keeps all of its flights in plain arrays, for fast route searches.
+ * <p>
+ * Each airport is given a number, and the flights leaving an airport are stored
+ * next to each other (a compressed adjacency list), sorted by departure time.
+ * The departure and arrival times, flight numbers, available seats and prices of
+ * the flights are kept in arrays that are indexed by the flight's position,
+ * so a search never has to look at the FlightLeg objects or allocate anything
+ * besides the routes it returns.
+ * <p>
+ * The routes that are found follow the same rules as the {@link GraphEngine}:
+ * every flight must leave after the one before it lands, and an airport
+ * can't be visited twice.
+ * <p>
+ * The GraphEngine marks an airport as visited for the rest of a search once a
+ * route has gone through it, so it skips some routes that a later first flight
+ * could still take. This graph forgets an airport again when it backs out of it,
+ * so it finds every route the GraphEngine finds and sometimes more. Because of
+ * that the FlightSystem still searches with the GraphEngine, so its results don't
+ * change, and this graph is only used by the other search engines in this package
+ * and the benchmarks. {@link GraphTester#testCompactGraph()} checks that every
+ * route of the GraphEngine is also found here.
+ *
+ * @see GraphMaker#getCompactGraph()
+ */
+public class CompactFlightGraph implements IFlightGraph<FlightLeg> {
+
+	/* The arrays are read directly by the other search engines in this package */
+
+	/* Airport info, indexed by the airport number */
+	Airport[] airports;
+	double[] latitudes;
+	double[] longitudes;
+	HashMap<String, Integer> airportNums;
+
+	/* The flights leaving airport n are from firstFlight[n] to firstFlight[n+1] - 1 */
+	int[] firstFlight;
+
+	/* Flight info, indexed by the flight's position */
+	int[] depPorts;
+	int[] arrPorts;
+	int[] depMinutes;
+	int[] arrMinutes;
+	int[] flightNums;
+	int[] firstSeatsAvail;
+	int[] coachSeatsAvail;
+	double[] firstPrices;
+	double[] coachPrices;
+	FlightLeg[] flightLegs;
+
+	/* The position of each flight, by its flight number */
+	private HashMap<Integer, Integer> flightPositions;
+
+	/* Each thread searches with its own visited flags and route */
+	private ThreadLocal<SearchState> searchStates;
+
+	/**
+	 * Makes a compact flight graph from a list of airports and
+	 * the flight legs that leave them.
+	 * <p>
+	 * Flights that leave from or land at an airport that isn't in the list are left out.
+	 *
+	 * @param airports the airports in the graph.
+	 * @param flights the flights between the airports, e.g. from the flight parser.
+	 * @see parsers.FlightParser#getFlightList()
+	 */
+	public CompactFlightGraph(ArrayList<Airport> airports, ArrayList<FlightLeg> flights) {
+
+		addAirports(airports);
+		addFlights(flights);
+
+		final int numOfAirports = this.airports.length;
+
+		this.searchStates = new ThreadLocal<SearchState>() {
+			@Override
+			protected SearchState initialValue() {
+				return new SearchState(numOfAirports);
+			}
+		};
+
+	}
+
+	/**
+	 * Gets the number of airports in the graph.
+	 * @return the number of airports.
+	 */
+	public int getNumOfAirports() {
+		return airports.length;
+	}
+
+	/**
+	 * Gets the number of flights in the graph.
+	 * @return the number of flights.
+	 */
+	public int getNumOfFlights() {
+		return flightLegs.length;
+	}
+
+	/**
+	 * Copies the seats that are available on a flight leg into the graph,
+	 * after the seats taken on the leg changed.
+	 * <p>
+	 * Each count is one write to an int, so a search that runs at the same
+	 * time sees either the old or the new number of seats.
+	 *
+	 * @param flight the flight leg, found by its flight number.
+	 * @return true if the flight is in the graph.
+	 * @see FlightLeg#setOccupiedSeats(int, int)
+	 */
+	public boolean updateSeats(FlightLeg flight) {
+
+		Integer pos = flightPositions.get(flight.getFlightNum());
+
+		if (pos == null){
+			return false;
+		}
+
+		firstSeatsAvail[pos] = flight.getFirstClassSeatsAvail();
+		coachSeatsAvail[pos] = flight.getCoachClassSeatsAvail();
+
+		return true;
+	}
+
+	/**
+	 * Tells you if there is a direct route between two airports.
+	 * <p>
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @return true if there is a direct flight
+	 */
+	public boolean hasDirectFlight(Airport depPort, Airport arrPort) {
+
+		int dep = getAirportNum(depPort);
+		int arr = getAirportNum(arrPort);
+
+		if (dep < 0 || arr < 0){
+			return false;
+		}
+
+		for (int flight = firstFlight[dep]; flight < firstFlight[dep + 1]; flight++){
+			if (arrPorts[flight] == arr){
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Tells you if there is a route between two airports.
+	 * <p>
+	 * Note: This method assumes a maximum of 3 flights (2 connections).
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param isFirstClass true if it's a first class flight
+	 * @return true if there is a route
+	 */
+	public boolean hasRoute(Airport depPort, Airport arrPort, boolean isFirstClass) {
+		return search(depPort, arrPort, 3, false, isFirstClass, null);
+	}
+
+	/**
+	 * Tells you if there is a route in a general direction between two airports,
+	 * with seats available in the given class.
+	 * <p>
+	 * Note: This method assumes a maximum of 3 flights (2 connections).
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param isFirstClass true if it's a first class flight
+	 * @return true if there is a route in a general direction
+	 */
+	public boolean hasRouteDirection(Airport depPort, Airport arrPort, boolean isFirstClass) {
+		return search(depPort, arrPort, 3, true, isFirstClass, null);
+	}
+
+	/**
+	 * Gets all the routes between two airports,
+	 * with a provided number of flights.
+	 * <p>
+	 * Like {@link GraphEngine#getRoutes(Airport, Airport, int, boolean)},
+	 * the seats are not checked.
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param maxFlights the maximum number of flights the route can have
+	 * @param isFirstClass true if looking for First Class flights
+	 * @return a list of all the possible routes
+	 */
+	public ArrayList<LinkedList<FlightLeg>> getRoutes(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass) {
+
+		ArrayList<LinkedList<FlightLeg>> routes = new ArrayList<LinkedList<FlightLeg>>();
+		search(depPort, arrPort, maxFlights, false, isFirstClass, routes);
+
+		return routes;
+	}
+
+	/**
+	 * Gets all the routes in a general direction between two airports,
+	 * with a provided number of flights, that have seats available.
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param maxFlights the maximum number of flights the route can have
+	 * @param isFirstClass true if you are searching for First Class flights
+	 * @return a list of all the possible routes in that general direction.
+	 * @see GraphEngine#getRoutesDir(Airport, Airport, int, boolean)
+	 */
+	public ArrayList<LinkedList<FlightLeg>> getRoutesDir(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass) {
+
+		ArrayList<LinkedList<FlightLeg>> routes = new ArrayList<LinkedList<FlightLeg>>();
+		search(depPort, arrPort, maxFlights, true, isFirstClass, routes);
+
+		return routes;
+	}
+
+	/**
+	 * Gets the number that the graph uses for an airport.
+	 * @param airport the airport.
+	 * @return the airport's number, or -1 if it's not in the graph.
+	 */
+	public int getAirportNum(Airport airport) {
+
+		Integer num = airportNums.get(airport.getCode().toUpperCase());
+
+		return (num == null) ? -1 : num;
+	}
+
+	/* Starts a search, if the routes list is null it stops at the 1st route found */
+	private boolean search(Airport depPort, Airport arrPort, int maxFlights, boolean filterDir,
+			boolean isFirstClass, ArrayList<LinkedList<FlightLeg>> routes) {
+
+		int dep = getAirportNum(depPort);
+		int arr = getAirportNum(arrPort);
+
+		/* Not in the graph, or going nowhere */
+		if (dep < 0 || arr < 0 || dep == arr){
+			return false;
+		}
+
+		/* A direct flight is always allowed */
+		int maxLegs = Math.max(1, maxFlights);
+
+		SearchState state = searchStates.get();
+		state.ensureRouteLength(maxLegs);
+
+		state.visited[dep] = true;
+
+		try {
+			return searchFrom(dep, arr, dep, 0, maxLegs, filterDir, isFirstClass, state, routes);
+		}
+		finally {
+			state.visited[dep] = false;
+		}
+
+	}
+
+	/* Extends the route that has numOfLegs flights and ends at airport,
+	 * returns true if the search should stop */
+	private boolean searchFrom(int airport, int dest, int origin, int numOfLegs, int maxLegs, boolean filterDir,
+			boolean isFirstClass, SearchState state, ArrayList<LinkedList<FlightLeg>> routes) {
+
+		int flight = firstFlight[airport];
+		int lastFlight = firstFlight[airport + 1];
+		int prevFlight = -1;
+
+		/* Only the flights that leave after the last one lands can be taken */
+		if (numOfLegs > 0){
+			prevFlight = state.route[numOfLegs - 1];
+			flight = firstDepartureAfter(airport, arrMinutes[prevFlight]);
+		}
+
+		for (; flight < lastFlight; flight++){
+
+			int nextPort = arrPorts[flight];
+
+			/* Don't go back to an airport we went through */
+			if (state.visited[nextPort]){
+				continue;
+			}
+
+			if (filterDir){
+
+				/* The flight has to have seats */
+				if ((isFirstClass ? firstSeatsAvail[flight] : coachSeatsAvail[flight]) <= 0){
+					continue;
+				}
+
+				/* The connection has to head towards the final destination */
+				if (prevFlight >= 0 && !isRightDir(origin, dest, depPorts[prevFlight], airport)){
+					continue;
+				}
+
+			}
+
+			state.route[numOfLegs] = flight;
+
+			/* Found the final destination */
+			if (nextPort == dest){
+
+				if (routes == null){
+					return true;
+				}
+
+				routes.add(makeRoute(state.route, numOfLegs + 1));
+
+			}
+			/* Look for connections from where this flight lands */
+			else if (numOfLegs + 1 < maxLegs){
+
+				state.visited[nextPort] = true;
+				boolean stop = searchFrom(nextPort, dest, origin, numOfLegs + 1, maxLegs, filterDir, isFirstClass, state, routes);
+				state.visited[nextPort] = false;
+
+				if (stop){
+					return true;
+				}
+
+			}
+
+		}
+
+		return false;
+	}
+
+	/* The position of the 1st flight leaving an airport strictly after a minute */
+	int firstDepartureAfter(int airport, int minute) {
+
+		int low = firstFlight[airport];
+		int high = firstFlight[airport + 1];
+
+		while (low < high){
+
+			int mid = (low + high) >>> 1;
+
+			if (depMinutes[mid] <= minute){
+				low = mid + 1;
+			}
+			else{
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/* Is going from one airport to the next heading from the origin to the destination?
+	 * Same rules as GraphEngine's latitude and longitude checks. */
+	boolean isRightDir(int origin, int dest, int fromPort, int toPort) {
+
+		boolean latOk;
+		boolean longOk;
+
+		/* Heading south, or heading north */
+		if (latitudes[dest] <= latitudes[origin]){
+			latOk = !(latitudes[toPort] > latitudes[fromPort]);
+		}
+		else{
+			latOk = !(latitudes[toPort] < latitudes[fromPort]);
+		}
+
+		/* Heading west, or heading east */
+		if (longitudes[dest] <= longitudes[origin]){
+			longOk = !(longitudes[toPort] > longitudes[fromPort]);
+		}
+		else{
+			longOk = !(longitudes[toPort] < longitudes[fromPort]);
+		}
+
+		return latOk && longOk;
+	}
+
+	/* Turns the flight positions of a route into a list of flight legs */
+	private LinkedList<FlightLeg> makeRoute(int[] route, int numOfLegs) {
+
+		LinkedList<FlightLeg> legs = new LinkedList<FlightLeg>();
+
+		for (int i = 0; i < numOfLegs; i++){
+			legs.add(flightLegs[route[i]]);
+		}
+
+		return legs;
+	}
+
+	/* Numbers the airports */
+	private void addAirports(ArrayList<Airport> airportList) {
+
+		int numOfAirports = airportList.size();
+
+		this.airports = new Airport[numOfAirports];
+		this.latitudes = new double[numOfAirports];
+		this.longitudes = new double[numOfAirports];
+		this.airportNums = new HashMap<String, Integer>();
+
+		int num = 0;
+
+		for (Airport airport : airportList){
+
+			/* Skip any airport that's listed twice */
+			if (airportNums.containsKey(airport.getCode().toUpperCase())){
+				continue;
+			}
+
+			airports[num] = airport;
+			latitudes[num] = airport.getLocation().getLatitude();
+			longitudes[num] = airport.getLocation().getLongitude();
+			airportNums.put(airport.getCode().toUpperCase(), num);
+			num++;
+		}
+
+		/* Trim the arrays if there were repeats */
+		if (num < numOfAirports){
+			airports = Arrays.copyOf(airports, num);
+			latitudes = Arrays.copyOf(latitudes, num);
+			longitudes = Arrays.copyOf(longitudes, num);
+		}
+
+	}
+
+	/* Puts the flights in the arrays, grouped by departure airport and sorted by departure time */
+	private void addFlights(ArrayList<FlightLeg> flights) {
+
+		/* Only keep the flights between airports in the graph */
+		ArrayList<FlightLeg> kept = new ArrayList<FlightLeg>(flights.size());
+
+		for (FlightLeg flight : flights){
+			if (airportNums.containsKey(flight.getDepartureAirport().getCode().toUpperCase())
+					&& airportNums.containsKey(flight.getArrivalAirport().getCode().toUpperCase())){
+				kept.add(flight);
+			}
+		}
+
+		final int numOfFlights = kept.size();
+		final int[] depPortOf = new int[numOfFlights];
+		final int[] depMinuteOf = new int[numOfFlights];
+		Integer[] order = new Integer[numOfFlights];
+
+		for (int i = 0; i < numOfFlights; i++){
+			FlightLeg flight = kept.get(i);
+			depPortOf[i] = getAirportNum(flight.getDepartureAirport());
+			depMinuteOf[i] = flight.getDepartureEpochMinute();
+			order[i] = i;
+		}
+
+		/* Group by the departure airport, then by departure time */
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer flight1, Integer flight2) {
+				if (depPortOf[flight1] != depPortOf[flight2]){
+					return depPortOf[flight1] < depPortOf[flight2] ? -1 : 1;
+				}
+				if (depMinuteOf[flight1] != depMinuteOf[flight2]){
+					return depMinuteOf[flight1] < depMinuteOf[flight2] ? -1 : 1;
+				}
+				return flight1.compareTo(flight2);
+			}
+		});
+
+		this.firstFlight = new int[airports.length + 1];
+		this.depPorts = new int[numOfFlights];
+		this.arrPorts = new int[numOfFlights];
+		this.depMinutes = new int[numOfFlights];
+		this.arrMinutes = new int[numOfFlights];
+		this.flightNums = new int[numOfFlights];
+		this.firstSeatsAvail = new int[numOfFlights];
+		this.coachSeatsAvail = new int[numOfFlights];
+		this.firstPrices = new double[numOfFlights];
+		this.coachPrices = new double[numOfFlights];
+		this.flightLegs = new FlightLeg[numOfFlights];
+		this.flightPositions = new HashMap<Integer, Integer>(numOfFlights * 2);
+
+		for (int pos = 0; pos < numOfFlights; pos++){
+
+			int i = order[pos];
+			FlightLeg flight = kept.get(i);
+
+			depPorts[pos] = depPortOf[i];
+			arrPorts[pos] = getAirportNum(flight.getArrivalAirport());
+			depMinutes[pos] = depMinuteOf[i];
+			arrMinutes[pos] = flight.getArrivalEpochMinute();
+			flightNums[pos] = flight.getFlightNum();
+			firstSeatsAvail[pos] = flight.getFirstClassSeatsAvail();
+			coachSeatsAvail[pos] = flight.getCoachClassSeatsAvail();
+			firstPrices[pos] = flight.getFirstClassPrice();
+			coachPrices[pos] = flight.getCoachClassPrice();
+			flightLegs[pos] = flight;
+			flightPositions.put(flight.getFlightNum(), pos);
+
+			/* Count the flights leaving each airport */
+			firstFlight[depPortOf[i] + 1]++;
+		}
+
+		/* Turn the counts into starting positions */
+		for (int n = 0; n < airports.length; n++){
+			firstFlight[n + 1] += firstFlight[n];
+		}
+
+	}
+
+	/* The visited airports and the current route of one thread's searches */
+	private static class SearchState {
+
+		boolean[] visited;
+		int[] route;
+
+		SearchState(int numOfAirports) {
+			this.visited = new boolean[numOfAirports];
+			this.route = new int[3];
+		}
+
+		void ensureRouteLength(int length) {
+			if (route.length < length){
+				route = new int[length];
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "CompactFlightGraph has " + getNumOfAirports() + " airports and " + getNumOfFlights() + " flights";
+	}
+
+}
@@ -0,0 +1,390 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+
+import flight_system.Airport;
+import flight_system.FlightLeg;
+
+/**
+ * Search engine that only ever builds routes that can actually be flown.
+ * <p>
+ * The {@link GraphEngine} finds every path first and then throws out the ones
+ * where a flight leaves before the one before it lands. This engine works on a
+ * {@link CompactFlightGraph}, where the departures of each airport are sorted by time,
+ * so a connection is only ever made to a flight that leaves at least the minimum
+ * connection time after the last one lands, and only to a flight that has a seat.
+ * <p>
+ * It answers two kinds of questions:
+ * <ul>
+ * <li>{@link #getEarliestArrival(Airport, Airport, int, boolean)} - the route that
+ * lands first, found with a connection scan (one pass over all the flights,
+ * sorted by departure time, for each number of flights allowed).</li>
+ * <li>{@link #getParetoRoutes(Airport, Airport, int, boolean)} - every route that
+ * no other route beats on arrival time, number of flights and price at once.</li>
+ * </ul>
+ *
+ * @see GraphMaker#getCompactGraph()
+ */
+public class ConnectionScanEngine {
+
+	/* Default minimum time between landing and the next flight leaving, in minutes */
+	public static final int DEFAULT_MIN_CONNECTION = 30;
+
+	/* Marks an airport that can't be reached */
+	private static final int UNREACHED = Integer.MAX_VALUE;
+
+	private CompactFlightGraph graph;
+
+	/* Minimum time between landing and the next flight leaving, in minutes */
+	private int minConnection;
+
+	/* All the flight positions, sorted by departure time */
+	private int[] byDeparture;
+
+	/**
+	 * Makes a search engine for a compact flight graph,
+	 * with the default minimum connection time.
+	 *
+	 * @param graph the flight graph to search.
+	 */
+	public ConnectionScanEngine(CompactFlightGraph graph) {
+		this(graph, DEFAULT_MIN_CONNECTION);
+	}
+
+	/**
+	 * Makes a search engine for a compact flight graph.
+	 *
+	 * @param graph the flight graph to search.
+	 * @param minConnection the minimum minutes between landing and the next flight leaving,
+	 * 		  0 allows any flight that leaves after the last one lands.
+	 */
+	public ConnectionScanEngine(CompactFlightGraph graph, int minConnection) {
+
+		this.graph = graph;
+		this.minConnection = Math.max(0, minConnection);
+
+		sortByDeparture();
+	}
+
+	/**
+	 * Gets the minimum connection time.
+	 * @return the minimum minutes between landing and the next flight leaving.
+	 */
+	public int getMinConnection() {
+		return minConnection;
+	}
+
+	/**
+	 * Gets the route between two airports that lands first,
+	 * with seats available in the given class.
+	 * <p>
+	 * If several routes land at the same time, the one with fewer flights is returned.
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param maxFlights the maximum number of flights the route can have
+	 * @param isFirstClass true if looking for First Class flights
+	 * @return the flights of the route, or an empty list if there is no route.
+	 */
+	public LinkedList<FlightLeg> getEarliestArrival(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass) {
+
+		LinkedList<FlightLeg> route = new LinkedList<FlightLeg>();
+
+		int origin = graph.getAirportNum(depPort);
+		int dest = graph.getAirportNum(arrPort);
+
+		if (origin < 0 || dest < 0 || origin == dest){
+			return route;
+		}
+
+		int maxLegs = Math.max(1, maxFlights);
+		int numOfAirports = graph.getNumOfAirports();
+
+		/* arrival[k][n] is the earliest landing at airport n with at most k flights,
+		 * lastFlight[k][n] is the flight that lands there */
+		int[][] arrival = new int[maxLegs + 1][numOfAirports];
+		int[][] lastFlight = new int[maxLegs + 1][numOfAirports];
+
+		Arrays.fill(arrival[0], UNREACHED);
+		Arrays.fill(lastFlight[0], -1);
+
+		int[] seats = isFirstClass ? graph.firstSeatsAvail : graph.coachSeatsAvail;
+
+		for (int k = 1; k <= maxLegs; k++){
+
+			int[] prevArrival = arrival[k - 1];
+			int[] curArrival = arrival[k];
+			int[] curFlight = lastFlight[k];
+
+			System.arraycopy(prevArrival, 0, curArrival, 0, numOfAirports);
+			System.arraycopy(lastFlight[k - 1], 0, curFlight, 0, numOfAirports);
+
+			int bestAtDest = prevArrival[dest];
+			boolean improved = false;
+
+			for (int flight : byDeparture){
+
+				/* Every flight after this one leaves too late to beat the best route */
+				if (graph.depMinutes[flight] >= bestAtDest){
+					break;
+				}
+
+				int from = graph.depPorts[flight];
+				int to = graph.arrPorts[flight];
+
+				if (to == origin || seats[flight] <= 0){
+					continue;
+				}
+
+				/* The 1st flight can leave the origin at any time, the others
+				 * have to be reached with fewer flights and leave in time */
+				if (from != origin){
+					if (prevArrival[from] == UNREACHED
+							|| graph.depMinutes[flight] < prevArrival[from] + Math.max(1, minConnection)){
+						continue;
+					}
+				}
+
+				if (graph.arrMinutes[flight] < curArrival[to]){
+					curArrival[to] = graph.arrMinutes[flight];
+					curFlight[to] = flight;
+					improved = true;
+
+					if (to == dest){
+						bestAtDest = curArrival[to];
+					}
+				}
+
+			}
+
+			/* Nothing new was reached, more flights won't help */
+			if (!improved){
+				maxLegs = k;
+				break;
+			}
+
+		}
+
+		if (arrival[maxLegs][dest] == UNREACHED){
+			return route;
+		}
+
+		/* Walk back from the destination, using the fewest flights that give each landing */
+		int airport = dest;
+		int k = maxLegs;
+
+		while (airport != origin){
+
+			while (k > 1 && arrival[k - 1][airport] == arrival[k][airport]){
+				k--;
+			}
+
+			int flight = lastFlight[k][airport];
+			route.addFirst(graph.flightLegs[flight]);
+
+			airport = graph.depPorts[flight];
+			k--;
+		}
+
+		return route;
+	}
+
+	/**
+	 * Gets every route between two airports that isn't beaten by another route
+	 * on arrival time, number of flights and price all at once, with seats
+	 * available in the given class.
+	 * <p>
+	 * A connection is only ever made to a flight that can be caught, so no route
+	 * that is thrown out afterwards is ever built.
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param maxFlights the maximum number of flights the route can have
+	 * @param isFirstClass true if looking for First Class flights
+	 * @return the routes, sorted by arrival time.
+	 */
+	public ArrayList<LinkedList<FlightLeg>> getParetoRoutes(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass) {
+
+		ParetoSearch search = new ParetoSearch(graph.getNumOfAirports(), Math.max(1, maxFlights), isFirstClass);
+
+		int origin = graph.getAirportNum(depPort);
+		int dest = graph.getAirportNum(arrPort);
+
+		if (origin >= 0 && dest >= 0 && origin != dest){
+			search.visited[origin] = true;
+			search.expand(origin, dest, 0, -1, 0.0);
+		}
+
+		return search.getRoutes();
+	}
+
+	/* Sorts all the flights by departure time, for the connection scan */
+	private void sortByDeparture() {
+
+		int numOfFlights = graph.getNumOfFlights();
+		final int[] depMinutes = graph.depMinutes;
+		Integer[] order = new Integer[numOfFlights];
+
+		for (int i = 0; i < numOfFlights; i++){
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer flight1, Integer flight2) {
+				if (depMinutes[flight1] != depMinutes[flight2]){
+					return depMinutes[flight1] < depMinutes[flight2] ? -1 : 1;
+				}
+				return flight1.compareTo(flight2);
+			}
+		});
+
+		this.byDeparture = new int[numOfFlights];
+
+		for (int i = 0; i < numOfFlights; i++){
+			byDeparture[i] = order[i];
+		}
+
+	}
+
+	/* One Pareto search, holds the route being built and the best routes found */
+	private class ParetoSearch {
+
+		boolean[] visited;
+		int[] route;
+		int maxLegs;
+		int[] seats;
+		double[] prices;
+
+		/* The routes found so far, with their arrival, number of flights and price */
+		ArrayList<LinkedList<FlightLeg>> found = new ArrayList<LinkedList<FlightLeg>>();
+		ArrayList<int[]> foundArrLegs = new ArrayList<int[]>();
+		ArrayList<Double> foundPrices = new ArrayList<Double>();
+
+		ParetoSearch(int numOfAirports, int maxLegs, boolean isFirstClass) {
+			this.visited = new boolean[numOfAirports];
+			this.route = new int[maxLegs];
+			this.maxLegs = maxLegs;
+			this.seats = isFirstClass ? graph.firstSeatsAvail : graph.coachSeatsAvail;
+			this.prices = isFirstClass ? graph.firstPrices : graph.coachPrices;
+		}
+
+		/* Tries every flight that can be caught from an airport */
+		void expand(int airport, int dest, int numOfLegs, int prevFlight, double price) {
+
+			int flight = graph.firstFlight[airport];
+			int lastFlight = graph.firstFlight[airport + 1];
+
+			/* Skip straight to the 1st flight that can be caught */
+			if (prevFlight >= 0){
+				flight = graph.firstDepartureAfter(airport, graph.arrMinutes[prevFlight] + Math.max(1, minConnection) - 1);
+			}
+
+			for (; flight < lastFlight; flight++){
+
+				int nextPort = graph.arrPorts[flight];
+
+				if (visited[nextPort] || seats[flight] <= 0){
+					continue;
+				}
+
+				int arrival = graph.arrMinutes[flight];
+				double newPrice = price + prices[flight];
+
+				/* Every route through this flight is beaten by one already found */
+				if (isBeaten(arrival, numOfLegs + 1, newPrice)){
+					continue;
+				}
+
+				route[numOfLegs] = flight;
+
+				if (nextPort == dest){
+					addRoute(arrival, numOfLegs + 1, newPrice);
+				}
+				else if (numOfLegs + 1 < maxLegs){
+					visited[nextPort] = true;
+					expand(nextPort, dest, numOfLegs + 1, flight, newPrice);
+					visited[nextPort] = false;
+				}
+
+			}
+
+		}
+
+		/* Is there a found route that is at least as good on all three */
+		boolean isBeaten(int arrival, int numOfLegs, double price) {
+
+			for (int i = 0; i < found.size(); i++){
+				int[] arrLegs = foundArrLegs.get(i);
+				if (arrLegs[0] <= arrival && arrLegs[1] <= numOfLegs && foundPrices.get(i) <= price){
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/* Adds the current route, dropping the found routes it beats */
+		void addRoute(int arrival, int numOfLegs, double price) {
+
+			for (int i = found.size() - 1; i >= 0; i--){
+				int[] arrLegs = foundArrLegs.get(i);
+				if (arrival <= arrLegs[0] && numOfLegs <= arrLegs[1] && price <= foundPrices.get(i)){
+					found.remove(i);
+					foundArrLegs.remove(i);
+					foundPrices.remove(i);
+				}
+			}
+
+			LinkedList<FlightLeg> legs = new LinkedList<FlightLeg>();
+
+			for (int i = 0; i < numOfLegs; i++){
+				legs.add(graph.flightLegs[route[i]]);
+			}
+
+			found.add(legs);
+			foundArrLegs.add(new int[] {arrival, numOfLegs});
+			foundPrices.add(price);
+		}
+
+		/* The routes found, sorted by arrival time */
+		ArrayList<LinkedList<FlightLeg>> getRoutes() {
+
+			Integer[] order = new Integer[found.size()];
+
+			for (int i = 0; i < order.length; i++){
+				order[i] = i;
+			}
+
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer route1, Integer route2) {
+					int[] arrLegs1 = foundArrLegs.get(route1);
+					int[] arrLegs2 = foundArrLegs.get(route2);
+					if (arrLegs1[0] != arrLegs2[0]){
+						return arrLegs1[0] < arrLegs2[0] ? -1 : 1;
+					}
+					if (arrLegs1[1] != arrLegs2[1]){
+						return arrLegs1[1] < arrLegs2[1] ? -1 : 1;
+					}
+					return foundPrices.get(route1).compareTo(foundPrices.get(route2));
+				}
+			});
+
+			ArrayList<LinkedList<FlightLeg>> routes = new ArrayList<LinkedList<FlightLeg>>(order.length);
+
+			for (Integer i : order){
+				routes.add(found.get(i));
+			}
+
+			return routes;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ConnectionScanEngine over " + graph + ", minimum connection " + minConnection + " minutes";
+	}
+
+}
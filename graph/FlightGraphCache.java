@@ -0,0 +1,479 @@
+package graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import flight_system.Date;
+import flight_system.Flight;
+import flight_system.FlightLeg;
+
+/**
+ * Class used to keep the flight graphs that were already made, so that a search
+ * for a day that was searched before doesn't have to download the whole day again.
+ * <p>
+ * This class uses the Singleton Pattern, thus, only one instance of it is allowed
+ * as any point in time. The graphs are kept by their date. A graph is dropped
+ * when it gets older than the maximum age, when more than the maximum number of
+ * graphs are held (the least recently used one goes first), or when it is
+ * invalidated. When seats are bought, the seats of the flights that were bought
+ * are refreshed in the cached graphs instead of making them again.
+ * <p>
+ * If several searches ask for the same day at the same time, only one of
+ * them makes the graph and the others wait for it.
+ * <p>
+ * If a folder for snapshots is set, e.g. with the <code>flight.snapshots</code>
+ * system property, every graph that is made is also written there as a
+ * {@link GraphSnapshot}. A graph that isn't cached is then loaded from its
+ * snapshot instead of being downloaded, as long as the snapshot isn't older
+ * than the maximum snapshot age. So a program that is started again gets
+ * the days that were searched recently without downloading them.
+ * <p>
+ * A graph that is missing the departures of some airports, because they timed
+ * out or could not be fetched, is given to the searches that asked for it but
+ * is neither kept nor written as a snapshot, so the next search makes it again.
+ *
+ * @see GraphMaker
+ */
+public class FlightGraphCache {
+
+	/* Default maximum number of graphs that are kept */
+	public static final int DEFAULT_MAX_GRAPHS = 4;
+
+	/* Default time a graph is kept, in milliseconds (10 minutes) */
+	public static final long DEFAULT_MAX_AGE = 10 * 60 * 1000;
+
+	/* Default time a snapshot can be loaded after it was written, in milliseconds (10 minutes) */
+	public static final long DEFAULT_MAX_SNAPSHOT_AGE = 10 * 60 * 1000;
+
+	/* Default number of airports fetched at the same time when making a graph */
+	public static final int DEFAULT_FETCH_THREADS = 8;
+
+	/* The graphs, in least recently used order */
+	private LinkedHashMap<Date, CachedGraph> graphs;
+
+	private int maxGraphs;
+	private long maxAge;
+	private int fetchThreads;
+	private long fetchTimeout;
+
+	/* Where the snapshots are kept, null to not use them */
+	private File snapshotDir;
+	private long maxSnapshotAge;
+
+	private static FlightGraphCache firstInstance = null;
+
+	/* The private constructor */
+	private FlightGraphCache(){
+		this.graphs = new LinkedHashMap<Date, CachedGraph>(16, 0.75f, true);
+		this.maxGraphs = DEFAULT_MAX_GRAPHS;
+		this.maxAge = DEFAULT_MAX_AGE;
+		this.fetchThreads = DEFAULT_FETCH_THREADS;
+		this.fetchTimeout = GraphMaker.DEFAULT_FETCH_TIMEOUT;
+		this.maxSnapshotAge = DEFAULT_MAX_SNAPSHOT_AGE;
+
+		String dir = System.getProperty("flight.snapshots");
+		this.snapshotDir = (dir == null) ? null : new File(dir);
+	};
+
+	/**
+	 * Gets the only instance of the class.
+	 * @return the only instance of the Flight Graph Cache.
+	 */
+	/* Method to get the only instance of the class */
+	public static synchronized FlightGraphCache getInstance(){
+		if(firstInstance == null){
+			firstInstance = new FlightGraphCache();
+		}
+
+		return firstInstance;
+	}
+
+	/**
+	 * Gets the flight graph for a date, making it if it isn't cached yet.
+	 * <p>
+	 * If another thread is already making the graph for this date, this
+	 * waits for that graph instead of making a second one.
+	 *
+	 * @param date the date of the graph.
+	 * @return the graph maker that holds the graph for that date.
+	 */
+	public GraphMaker getGraph(final Date date){
+
+		CachedGraph cached;
+		boolean mustMake = false;
+
+		synchronized (this){
+
+			cached = graphs.get(date);
+
+			/* Drop the graph if it is too old */
+			if (cached != null && cached.isExpired(maxAge)){
+				graphs.remove(date);
+				cached = null;
+			}
+
+			/* Nobody has made this graph yet, so this thread will */
+			if (cached == null){
+
+				final int threads = fetchThreads;
+				final long timeout = fetchTimeout;
+				final File dir = snapshotDir;
+				final long snapshotAge = maxSnapshotAge;
+
+				cached = new CachedGraph(new Callable<GraphMaker>() {
+					public GraphMaker call() {
+						return makeGraph(date, threads, timeout, dir, snapshotAge);
+					}
+				});
+
+				graphs.put(date, cached);
+				mustMake = true;
+
+				evictExtraGraphs();
+			}
+
+		}
+
+		/* Make the graph outside of the lock, so other dates can still be used */
+		if (mustMake){
+			cached.make();
+
+			/* If it was dropped while it was made, e.g. because a ticket was bought,
+			 * the snapshot it wrote may have the seats from before */
+			synchronized (this){
+				if (graphs.get(date) != cached){
+					deleteSnapshot(date);
+				}
+			}
+		}
+
+		try {
+
+			GraphMaker gMaker = cached.get();
+
+			/* Don't keep a graph that is missing flights */
+			if (!gMaker.isComplete()){
+				synchronized (this){
+					if (graphs.get(date) == cached){
+						graphs.remove(date);
+					}
+				}
+			}
+
+			return gMaker;
+		}
+		catch (ExecutionException e) {
+
+			/* Don't keep a graph that failed */
+			synchronized (this){
+				if (graphs.get(date) == cached){
+					graphs.remove(date);
+				}
+			}
+
+			throw new RuntimeException("Could not make the flight graph for " + date, e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while waiting for the flight graph for " + date, e);
+		}
+
+	}
+
+	/**
+	 * Tells if the graph for a date is cached.
+	 * @param date the date of the graph.
+	 * @return true if there's a graph for the date that hasn't expired.
+	 */
+	public synchronized boolean hasGraph(Date date){
+		CachedGraph cached = graphs.get(date);
+		return (cached != null && !cached.isExpired(maxAge));
+	}
+
+	/**
+	 * Drops the graph for a date, and its snapshot, the next search for that date will make a new one.
+	 * @param date the date of the graph.
+	 */
+	public synchronized void invalidate(Date date){
+		graphs.remove(date);
+		deleteSnapshot(date);
+	}
+
+	/**
+	 * Drops the graphs that hold any of the legs of a flight, and their snapshots.
+	 * <p>
+	 * Used after a ticket is bought, since the seat counts of those graphs are
+	 * not right anymore.
+	 * @param flight the flight that was bought.
+	 * @see parsers.XMLPutter#buyTicket(String)
+	 */
+	public synchronized void invalidate(Flight flight){
+		for (FlightLeg leg : flight.getFlightList()){
+			graphs.remove(leg.getDepartureDate());
+			deleteSnapshot(leg.getDepartureDate());
+		}
+	}
+
+	/**
+	 * Gets the seats of the legs of a flight from the database again, in every
+	 * cached graph that holds them.
+	 * <p>
+	 * Used after a ticket is bought. Only the departures of the airports the legs
+	 * leave from are fetched again, and the snapshot of the graph is written again.
+	 * A graph that is still being made, or whose legs couldn't be refreshed, is
+	 * dropped like {@link #invalidate(Flight)} does.
+	 * @param flight the flight that was bought.
+	 * @see GraphMaker#refreshSeats(Flight)
+	 */
+	public void refreshSeats(Flight flight){
+
+		ArrayList<CachedGraph> madeGraphs = new ArrayList<CachedGraph>();
+
+		synchronized (this){
+			for (FlightLeg leg : flight.getFlightList()){
+
+				CachedGraph cached = graphs.get(leg.getDepartureDate());
+
+				if (cached == null || madeGraphs.contains(cached)){
+					continue;
+				}
+
+				/* It may have fetched the seats before they were bought */
+				if (!cached.isDone()){
+					graphs.remove(leg.getDepartureDate());
+					deleteSnapshot(leg.getDepartureDate());
+				}
+				else {
+					madeGraphs.add(cached);
+				}
+			}
+		}
+
+		File dir;
+
+		synchronized (this){
+			dir = snapshotDir;
+		}
+
+		/* Fetch the seats outside of the lock, so other dates can still be used */
+		for (CachedGraph cached : madeGraphs){
+
+			boolean refreshed;
+
+			try {
+				GraphMaker gMaker = cached.get();
+				refreshed = gMaker.refreshSeats(flight);
+
+				/* The snapshot keeps the time the flights were downloaded, so it doesn't live longer */
+				if (refreshed && dir != null && gMaker.isComplete()){
+					GraphSnapshot.write(gMaker, GraphSnapshot.getFile(dir, gMaker.getDate()));
+				}
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+				refreshed = false;
+			}
+			catch (ExecutionException e) {
+				/* The graph failed, so getGraph drops it anyway */
+				refreshed = false;
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				refreshed = false;
+			}
+
+			if (!refreshed){
+				synchronized (this){
+					dropGraph(cached);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops all the graphs, and their snapshots.
+	 */
+	public synchronized void invalidateAll(){
+		for (Date date : graphs.keySet()){
+			deleteSnapshot(date);
+		}
+		graphs.clear();
+	}
+
+	/**
+	 * Gets the number of graphs that are cached.
+	 * @return the number of cached graphs.
+	 */
+	public synchronized int size(){
+		return graphs.size();
+	}
+
+	/**
+	 * Sets the maximum number of graphs that are kept.
+	 * @param maxGraphs the maximum number of graphs, at least 1.
+	 */
+	public synchronized void setMaxGraphs(int maxGraphs){
+		this.maxGraphs = Math.max(1, maxGraphs);
+		evictExtraGraphs();
+	}
+
+	/**
+	 * Sets how long a graph is kept after it was made.
+	 * @param maxAge the maximum age in milliseconds.
+	 */
+	public synchronized void setMaxAge(long maxAge){
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Sets how the graphs are downloaded.
+	 * @param fetchThreads the number of airports fetched at the same time.
+	 * @param fetchTimeout the milliseconds to wait for one airport's departures.
+	 * @see GraphMaker#GraphMaker(Date, int, long)
+	 */
+	public synchronized void setFetchOptions(int fetchThreads, long fetchTimeout){
+		this.fetchThreads = fetchThreads;
+		this.fetchTimeout = fetchTimeout;
+	}
+
+	/**
+	 * Sets where the snapshots of the graphs are kept.
+	 * @param snapshotDir the folder of the snapshots, null to not use snapshots.
+	 * @param maxSnapshotAge the oldest a snapshot can be to be loaded, in milliseconds.
+	 * @see GraphSnapshot
+	 */
+	public synchronized void setSnapshotOptions(File snapshotDir, long maxSnapshotAge){
+		this.snapshotDir = snapshotDir;
+		this.maxSnapshotAge = maxSnapshotAge;
+	}
+
+	/* Loads the graph from its snapshot if there's a fresh one, otherwise makes it 
+	 * and writes its snapshot if it is complete. A snapshot that can't be read or written is skipped */
+	private static GraphMaker makeGraph(Date date, int threads, long timeout, File dir, long snapshotAge){
+
+		if (dir == null){
+			return new GraphMaker(date, threads, timeout);
+		}
+
+		File file = GraphSnapshot.getFile(dir, date);
+
+		if (GraphSnapshot.isFresh(file, date, snapshotAge)){
+			try {
+				return GraphSnapshot.read(file).makeGraph();
+			}
+			catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		GraphMaker gMaker = new GraphMaker(date, threads, timeout);
+
+		if (!gMaker.isComplete()){
+			return gMaker;
+		}
+
+		try {
+			GraphSnapshot.write(gMaker, file);
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+		}
+
+		return gMaker;
+	}
+
+	/* Drops a graph and its snapshot, wherever it is kept */
+	private void dropGraph(CachedGraph cached){
+
+		Iterator<Map.Entry<Date, CachedGraph>> cachedGraphs = graphs.entrySet().iterator();
+
+		while (cachedGraphs.hasNext()){
+
+			Map.Entry<Date, CachedGraph> entry = cachedGraphs.next();
+
+			if (entry.getValue() == cached){
+				deleteSnapshot(entry.getKey());
+				cachedGraphs.remove();
+			}
+		}
+	}
+
+	/* Deletes the snapshot of a date, so its seats aren't loaded again */
+	private void deleteSnapshot(Date date){
+
+		if (snapshotDir == null){
+			return;
+		}
+
+		File file = GraphSnapshot.getFile(snapshotDir, date);
+
+		if (file.exists() && !file.delete()){
+			new IOException("Could not delete the snapshot " + file).printStackTrace();
+		}
+	}
+
+	/* Drops the least recently used graphs until there are not too many */
+	private void evictExtraGraphs(){
+
+		Iterator<Map.Entry<Date, CachedGraph>> eldest = graphs.entrySet().iterator();
+
+		while (graphs.size() > maxGraphs && eldest.hasNext()){
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	/* A graph that is made once, and remembers when it was made */
+	private static class CachedGraph {
+
+		private FutureTask<GraphMaker> task;
+		private volatile long madeAt;
+
+		CachedGraph(Callable<GraphMaker> maker){
+			this.task = new FutureTask<GraphMaker>(maker);
+		}
+
+		/* Makes the graph in the calling thread, it is as old as its flights,
+		 * which were downloaded earlier if it was loaded from a snapshot */
+		void make(){
+			task.run();
+
+			try {
+				madeAt = task.get().getMadeAt();
+			}
+			catch (ExecutionException e) {
+				madeAt = System.currentTimeMillis();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				madeAt = System.currentTimeMillis();
+			}
+		}
+
+		GraphMaker get() throws InterruptedException, ExecutionException {
+			return task.get();
+		}
+
+		boolean isDone(){
+			return task.isDone();
+		}
+
+		/* Only a graph that is done can be too old */
+		boolean isExpired(long maxAge){
+			return madeAt != 0 && (System.currentTimeMillis() - madeAt) > maxAge;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "FlightGraphCache has " + size() + " graph(s), keeping at most " + maxGraphs + " for " + maxAge + " ms";
+	}
+
+}
@@ -0,0 +1,208 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+import flight_system.Airport;
+
+/**
+ * Measures the route searches of the {@link GraphEngine}, and of the
+ * {@link CompactFlightGraph} and {@link MeetInMiddleEngine} next to it,
+ * on made up flight networks.
+ * <p>
+ * Every operation is run over the same list of airport pairs: first a few rounds
+ * to warm up the JIT, then the measured rounds. For each one it prints the
+ * throughput, the mean, median and 99th percentile time per call, the bytes
+ * allocated per call and the time spent in garbage collection, so a change to
+ * an engine can be compared against the numbers from before it. The time the
+ * {@link ReachabilityIndex} of the engine takes to make is printed first.
+ * The operations are run by a {@link BenchmarkHarness}.
+ * <p>
+ * Usage: <code>java graph.GraphBenchmark [hub|mesh] [airports] [flights] [max flights] [queries] [rounds]</code>
+ * <br>
+ * or <code>java graph.GraphBenchmark sweep</code> to run both shapes from 50 airports
+ * and 1,000 flights up to 2,000 airports and 100,000 flights.
+ *
+ * @see SyntheticNetwork
+ */
+public class GraphBenchmark {
+
+	/* Rounds over all the queries before measuring */
+	private static final int WARMUP_ROUNDS = 3;
+
+	/* An operation stops after this many measured nanoseconds, so the slow ones on big networks end */
+	private static final long MAX_NANOS_PER_OP = 20L * 1000 * 1000 * 1000;
+
+	/* The sizes run by the sweep, airports and flights */
+	private static final int[][] SWEEP = {{50, 1000}, {200, 5000}, {1000, 25000}, {2000, 100000}};
+
+	private SyntheticNetwork network;
+	private ArrayList<Airport[]> queries;
+	private int maxFlights;
+	private BenchmarkHarness harness;
+
+	/**
+	 * Makes a benchmark over a network.
+	 * @param network the network to search.
+	 * @param numOfQueries the number of airport pairs each operation is run on.
+	 * @param maxFlights the maximum number of flights a route can have.
+	 * @param rounds the number of measured rounds over all the pairs.
+	 */
+	public GraphBenchmark(SyntheticNetwork network, int numOfQueries, int maxFlights, int rounds) {
+		this.network = network;
+		this.queries = network.makeQueries(numOfQueries);
+		this.maxFlights = maxFlights;
+		this.harness = new BenchmarkHarness(WARMUP_ROUNDS, rounds, queries.size(), MAX_NANOS_PER_OP);
+	}
+
+	/**
+	 * Runs every operation and prints the results.
+	 */
+	public void run() {
+
+		final GraphEngine engine = new GraphEngine(network.makeGraph());
+		final CompactFlightGraph compact = network.makeCompactGraph();
+		final MeetInMiddleEngine meet = new MeetInMiddleEngine(compact);
+
+		System.out.println(network + ", " + queries.size() + " queries, at most " + maxFlights + " flights per route");
+		System.out.println(String.format(Locale.US, "%-32s %12s %10s %10s %10s %12s %8s",
+				"operation", "ops/s", "mean us", "p50 us", "p99 us", "bytes/op", "gc ms"));
+
+		/* The engine makes its index once, before its first search */
+		long indexStart = System.nanoTime();
+		ReachabilityIndex index = engine.getReachability();
+		System.out.println(String.format(Locale.US, "%-32s %.1f ms", "ReachabilityIndex made in",
+				(System.nanoTime() - indexStart) / 1e6));
+		BenchmarkHarness.consume(index.getNumOfAirports());
+
+		/* Same graph and index, the flights from the origin are searched on the fork/join pool */
+		final GraphEngine parallelEngine = new GraphEngine(engine.flightGraph, index);
+		parallelEngine.setParallel(true);
+
+		measure(new Operation("GraphEngine.hasDirectFlight") {
+			long run(Airport depPort, Airport arrPort) {
+				return engine.hasDirectFlight(depPort, arrPort) ? 1 : 0;
+			}
+		});
+		measure(new Operation("GraphEngine.hasRoute") {
+			long run(Airport depPort, Airport arrPort) {
+				return engine.hasRoute(depPort, arrPort, false) ? 1 : 0;
+			}
+		});
+		measure(new Operation("GraphEngine.getRoutes") {
+			long run(Airport depPort, Airport arrPort) {
+				return engine.getRoutes(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+		measure(new Operation("GraphEngine.getRoutesDir") {
+			long run(Airport depPort, Airport arrPort) {
+				return engine.getRoutesDir(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+		measure(new Operation("GraphEngine.getRoutesPruned") {
+			long run(Airport depPort, Airport arrPort) {
+				return engine.getRoutesPruned(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+		measure(new Operation("GraphEngine.getRoutesDirPruned") {
+			long run(Airport depPort, Airport arrPort) {
+				return engine.getRoutesDirPruned(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+		measure(new Operation("GraphEngine parallel DirPruned") {
+			long run(Airport depPort, Airport arrPort) {
+				return parallelEngine.getRoutesDirPruned(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+		measure(new Operation("CompactFlightGraph.hasDirectFlight") {
+			long run(Airport depPort, Airport arrPort) {
+				return compact.hasDirectFlight(depPort, arrPort) ? 1 : 0;
+			}
+		});
+		measure(new Operation("CompactFlightGraph.hasRoute") {
+			long run(Airport depPort, Airport arrPort) {
+				return compact.hasRoute(depPort, arrPort, false) ? 1 : 0;
+			}
+		});
+		measure(new Operation("CompactFlightGraph.getRoutes") {
+			long run(Airport depPort, Airport arrPort) {
+				return compact.getRoutes(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+		measure(new Operation("CompactFlightGraph.getRoutesDir") {
+			long run(Airport depPort, Airport arrPort) {
+				return compact.getRoutesDir(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+		measure(new Operation("MeetInMiddleEngine.getRoutes") {
+			long run(Airport depPort, Airport arrPort) {
+				return meet.getRoutes(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+		measure(new Operation("MeetInMiddleEngine.getRoutesDir") {
+			long run(Airport depPort, Airport arrPort) {
+				return meet.getRoutesDir(depPort, arrPort, maxFlights, false).size();
+			}
+		});
+
+		System.out.println();
+	}
+
+	/* Measures an operation and prints its results */
+	private void measure(Operation operation) {
+
+		BenchmarkHarness.Result result = harness.measure(operation);
+
+		System.out.println(String.format(Locale.US, "%-32s %12.0f %10.1f %10.1f %10.1f %12s %8d",
+				result.getName(),
+				result.getOpsPerSecond(),
+				result.getMeanMicros(),
+				result.getPercentileMicros(0.5),
+				result.getPercentileMicros(0.99),
+				(result.getBytesPerCall() < 0) ? "n/a" : Long.toString(result.getBytesPerCall()),
+				result.getGcMillis()));
+	}
+
+	/* One search, run on the pair of airports of each query */
+	private abstract class Operation extends BenchmarkHarness.Operation {
+
+		Operation(String name) {
+			super(name);
+		}
+
+		public long run(int call) {
+			Airport[] query = queries.get(call);
+			return run(query[0], query[1]);
+		}
+
+		/* Returns something made from the result, so it isn't thrown away */
+		abstract long run(Airport depPort, Airport arrPort);
+	}
+
+	public static void main(String[] args) {
+
+		if (args.length > 0 && args[0].equalsIgnoreCase("sweep")){
+
+			for (SyntheticNetwork.Shape shape : SyntheticNetwork.Shape.values()){
+				for (int[] size : SWEEP){
+					new GraphBenchmark(new SyntheticNetwork(shape, size[0], size[1], 509), 100, 3, 3).run();
+				}
+			}
+		}
+		else{
+
+			SyntheticNetwork.Shape shape = (args.length > 0 && args[0].equalsIgnoreCase("mesh"))
+					? SyntheticNetwork.Shape.MESH : SyntheticNetwork.Shape.HUB_AND_SPOKE;
+			int numOfAirports = (args.length > 1) ? Integer.parseInt(args[1]) : 200;
+			int numOfFlights = (args.length > 2) ? Integer.parseInt(args[2]) : 5000;
+			int maxFlights = (args.length > 3) ? Integer.parseInt(args[3]) : 3;
+			int numOfQueries = (args.length > 4) ? Integer.parseInt(args[4]) : 200;
+			int rounds = (args.length > 5) ? Integer.parseInt(args[5]) : 5;
+
+			new GraphBenchmark(new SyntheticNetwork(shape, numOfAirports, numOfFlights, 509), numOfQueries, maxFlights, rounds).run();
+		}
+
+		System.out.println("(" + BenchmarkHarness.getSink() % 2 + ")");
+	}
+
+}
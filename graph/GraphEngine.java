@@ -1,29 +1,49 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.graphstream.graph.*;
 
 import flight_system.Airport;
-import flight_system.Date;
 import flight_system.FlightLeg;
 import flight_system.Location;
-import flight_system.Time;
 
 /** 
  * Class used to get flight and routes information from the flight graph.
  * <p>
  * Provides methods for finding direct fights, finding out if there is
  * a route between airports, and getting all the routes from an airport. 
+ * <p>
+ * Whether there can be a route is looked up in a {@link ReachabilityIndex},
+ * so a search between airports that aren't connected ends right away.
+ * <p>
+ * The routes that start with different flights from the origin are found 
+ * separately, so a search can be split over many threads with 
+ * {@link #setParallel(boolean)}. The routes are the same, in the same order.
  * 
  * @author Kun Huang
  */
-public class GraphEngine implements IFlightGraph{
+public class GraphEngine implements IFlightGraph<Edge>{
 	
 	Graph flightGraph;
 	
+	/* Made from the graph the first time it's needed, if it wasn't given */
+	private volatile ReachabilityIndex reachability;
+	
+	/* Search the flights from the origin on the fork/join pool */
+	private volatile boolean parallel;
+	
+	/* Shared by all the engines, made the first time a search is split */
+	private static ForkJoinPool searchPool = null;
+	
 	/**
 	 * Makes an engine that will operate on a specific graph.
 	 * <p>
@@ -35,7 +55,72 @@ public class GraphEngine implements IFlightGraph{
 	public GraphEngine(Graph flightGraph) {
 		this.flightGraph = flightGraph;
 	} 
+	
+	/**
+	 * Makes an engine that will operate on a specific graph, with the 
+	 * reachability index that was already made for it.
+	 * <p>
+	 *
+	 * @param flightGraph the graph that will be analyzed.
+	 * @param reachability the index of the same graph.
+	 * @see GraphMaker#getReachabilityIndex()
+	 */
+	public GraphEngine(Graph flightGraph, ReachabilityIndex reachability) {
+		this.flightGraph = flightGraph;
+		this.reachability = reachability;
+	}
+	
+	/**
+	 * Gets the index of the airports that can be reached in the graph. 
+	 * <p>
+	 * If it wasn't given to the engine, it is made from the flights of 
+	 * the graph the first time it's asked for.
+	 * @return the reachability index.
+	 */
+	public ReachabilityIndex getReachability() {
 		
+		ReachabilityIndex index = reachability;
+		
+		if (index == null){
+			
+			ArrayList<FlightLeg> flights = new ArrayList<FlightLeg>();
+			
+			for (Edge flight : flightGraph.getEachEdge()){
+				flights.add(flight.<FlightLeg>getAttribute("fltInfo"));
+			}
+			
+			/* Two threads may both make it, they make the same index */
+			index = new ReachabilityIndex(flights);
+			reachability = index;
+		}
+		
+		return index;
+	}
+		
+	/**
+	 * Tells if the searches are split over many threads.
+	 * @return true if the searches are run in parallel.
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	/**
+	 * Sets if the searches are split over many threads, one for each 
+	 * flight leaving the origin.
+	 * <p>
+	 * A parallel search finds the same routes, in the same order, as 
+	 * {@link #getRoutesPruned(Airport, Airport, int, boolean)} and 
+	 * {@link #getRoutesDirPruned(Airport, Airport, int, boolean)}. Once it is set,
+	 * {@link #getRoutes(Airport, Airport, int, boolean)} and 
+	 * {@link #getRoutesDir(Airport, Airport, int, boolean)} run the pruned search too,
+	 * which gives the same routes.
+	 * @param parallel true to run the searches in parallel.
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
 	/**
 	 * Tells you if there is a direct route between two airports.
 	 * <p>
@@ -60,12 +145,20 @@ public class GraphEngine implements IFlightGraph{
 	 * Tells you if there is a route between two airports.
 	 * <p>
 	 * Note: This method assumes a maximum of 3 flights (2 connections).
+	 * Every flight has to leave after the one before it lands, the seats
+	 * are not checked. It is looked up in the reachability index.
+	 * <p>
+	 * The index knows every route, so this can be true for two airports
+	 * where {@link #getRoutes(Airport, Airport, int, boolean)} finds none:
+	 * its search doesn't go through an airport a second time, even on
+	 * another branch, and can miss a route that way.
 	 * 
 	 * @param depPort the departure airport
 	 * @param arrPort the arrival airport
 	 * @param isFirstClass true if it's a first class flight
 	 * @return true if there is a route
 	 * @see flight_system.Airport
+	 * @see ReachabilityIndex#canReach(Airport, Airport, int)
 	 */
 	/* The interface for the engine to tell if there's a route between two airport */
 	public boolean hasRoute(Airport depPort, Airport arrPort, boolean isFirstClass){
@@ -73,11 +166,7 @@ public class GraphEngine implements IFlightGraph{
 		/* Assume a maximum of 3 flights */
 		int maxFlights = 3;
 		
-		/* Get all the routes */
-		ArrayList<LinkedList<Edge>> routes = getRoutes(depPort, arrPort, maxFlights, isFirstClass);
-		
-		/* If the route list is not empty, then there are flights */
-		return (!routes.isEmpty());
+		return getReachability().canReach(depPort, arrPort, maxFlights);
 		
 	}
 	
@@ -98,8 +187,13 @@ public class GraphEngine implements IFlightGraph{
 		/* Assume a maximum of 3 flights */
 		int maxFlights = 3;
 		
+		/* There can't be any routes, don't search */
+		if (!getReachability().canReach(depPort, arrPort, maxFlights)){
+			return false;
+		}
+		
 		/* Get all the routes */
-		ArrayList<LinkedList<Edge>> routes = getRoutesDir(depPort, arrPort, maxFlights, isFirstClass);
+		ArrayList<LinkedList<Edge>> routes = getRoutesDirPruned(depPort, arrPort, maxFlights, isFirstClass);
 		
 		/* If the route list is not empty, then there are flights */
 		return (!routes.isEmpty());
@@ -120,13 +214,23 @@ public class GraphEngine implements IFlightGraph{
 	 */
 	public ArrayList<LinkedList<Edge>> getRoutes(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass){
 		
-		/* Convert Airports to Nodes */
-		Node depNode = getNode(depPort);
-		Node arrNode = getNode(arrPort);
+		/* The pruned search finds the same routes, and can be split */
+		if (parallel){
+			return searchRoutes(depPort, arrPort, maxFlights, false, isFirstClass);
+		}
 		
 		/* The list of routes to be returned */
 		ArrayList<LinkedList<Edge>> routes = new ArrayList<LinkedList<Edge>>();
 		
+		/* There can't be any routes, don't search */
+		if (!getReachability().canReach(depPort, arrPort, maxFlights)){
+			return routes;
+		}
+		
+		/* Convert Airports to Nodes */
+		Node depNode = getNode(depPort);
+		Node arrNode = getNode(arrPort);
+		
 		/* Call the private method */
 		routes = getRoutes(depNode, arrNode, new ArrayList<Node>(), depNode, 0);
 		
@@ -156,13 +260,23 @@ public class GraphEngine implements IFlightGraph{
 	/* Gets all the routes in a general direction */
 	public ArrayList<LinkedList<Edge>> getRoutesDir(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass){
 		
-		/* Convert Airports to Nodes */
-		Node depNode = getNode(depPort);
-		Node arrNode = getNode(arrPort);
+		/* The pruned search finds the same routes, and can be split */
+		if (parallel){
+			return searchRoutes(depPort, arrPort, maxFlights, true, isFirstClass);
+		}
 		
 		/* The list of routes to be returned */
 		ArrayList<LinkedList<Edge>> routes = new ArrayList<LinkedList<Edge>>();
 		
+		/* There can't be any routes, don't search */
+		if (!getReachability().canReach(depPort, arrPort, maxFlights)){
+			return routes;
+		}
+		
+		/* Convert Airports to Nodes */
+		Node depNode = getNode(depPort);
+		Node arrNode = getNode(arrPort);
+		
 		/* Call the private method */
 		routes = getRoutes(depNode, arrNode, new ArrayList<Node>(), depNode, 0);
 		
@@ -172,6 +286,45 @@ public class GraphEngine implements IFlightGraph{
 		return routes;
 		
 	}
+	/**
+	 * Gets all the routes between two airports, with a provided number of flights,
+	 * checking each flight as soon as it is added to a route.
+	 * <p>
+	 * Returns the same routes, in the same order, as 
+	 * {@link #getRoutes(Airport, Airport, int, boolean)}. A route stops being 
+	 * built as soon as it has too many flights or a flight leaves before 
+	 * the one before it lands, instead of being thrown out at the end.
+	 * 
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param maxFlights the maximum number of flights the route can have
+	 * @param isFirstClass true if looking for First Class flights
+	 * @return a list of all the possible routes
+	 */
+	public ArrayList<LinkedList<Edge>> getRoutesPruned(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass){
+		return searchRoutes(depPort, arrPort, maxFlights, false, isFirstClass);
+	}
+	
+	/**
+	 * Gets all the routes in a general direction between two airports, with a 
+	 * provided number of flights, checking each flight as soon as it is added to a route.
+	 * <p>
+	 * Returns the same routes, in the same order, as 
+	 * {@link #getRoutesDir(Airport, Airport, int, boolean)}. A route stops being 
+	 * built as soon as it has too many flights, a flight leaves before the one before 
+	 * it lands, a flight has no seats left in the class, or a connection heads 
+	 * away from the final destination.
+	 * 
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param maxFlights the maximum number of flights the route can have
+	 * @param isFirstClass true if you are searching for First Class flights
+	 * @return a list of all the possible routes in that general direction.
+	 */
+	public ArrayList<LinkedList<Edge>> getRoutesDirPruned(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass){
+		return searchRoutes(depPort, arrPort, maxFlights, true, isFirstClass);
+	}
+	
 	/**
 	 * Used to get the node on the graph that is represented by the airport.
 	 * <p>
@@ -244,7 +397,7 @@ public class GraphEngine implements IFlightGraph{
 						 * Does this flight leave after the previous one
 						 * arrives, and it doesn't land where we have passed through already
 						 */
-						if (nxtFltInfo.getDepartureTime().getTimeInMinutes() > conEdgeInfo.getArrivalTime().getTimeInMinutes() && !beenHere){
+						if (conEdgeInfo.connectsTo(nxtFltInfo) && !beenHere){
 							found = true;
 							break;
 						}
@@ -290,7 +443,7 @@ public class GraphEngine implements IFlightGraph{
 							 * edges arrives then it is possible that the edge will
 							 * get us to our final destination
 							 */
-							if (conFlt2ndInfo.getDepartureTime().getTimeInMinutes() > depFltsInfo.getArrivalTime().getTimeInMinutes()) {
+							if (depFltsInfo.connectsTo(conFlt2ndInfo)) {
 		
 								con++; // add one to the connections
 								
@@ -453,6 +606,402 @@ public class GraphEngine implements IFlightGraph{
 		
 	}
 	
+	/* Runs a pruned route search */
+	private ArrayList<LinkedList<Edge>> searchRoutes(Airport depPort, Airport arrPort, int maxFlights, boolean filterDir, boolean isFirstClass){
+		
+		/* There can't be any routes, don't search */
+		if (!getReachability().canReach(depPort, arrPort, maxFlights)){
+			return new ArrayList<LinkedList<Edge>>();
+		}
+		
+		/* Convert Airports to Nodes */
+		Node depNode = getNode(depPort);
+		Node arrNode = getNode(arrPort);
+		
+		if (parallel){
+			return searchRoutesParallel(depNode, arrNode, arrPort.getLocation(), maxFlights, filterDir, isFirstClass);
+		}
+		
+		RouteSearch search = new RouteSearch(depNode, arrNode, arrPort.getLocation(), maxFlights, filterDir, isFirstClass);
+		search.searchFrom(depNode, 0);
+		
+		return search.routes;
+	}
+	
+	/* Runs a pruned route search for each flight from the origin on the pool, 
+	 * and puts their routes together in the order of the flights */
+	private ArrayList<LinkedList<Edge>> searchRoutesParallel(Node depNode, Node arrNode, Location arrLocation, 
+			int maxFlights, boolean filterDir, boolean isFirstClass){
+		
+		/* The flights from the origin, in the order the sequential search takes them */
+		ArrayList<Edge> firstFlights = new ArrayList<Edge>();
+		
+		for (Edge flight : depNode.getEachLeavingEdge()){
+			firstFlights.add(flight);
+		}
+		
+		/* Each search puts its routes in the slot of its flight, so no lock is needed */
+		AtomicReferenceArray<ArrayList<LinkedList<Edge>>> results = 
+				new AtomicReferenceArray<ArrayList<LinkedList<Edge>>>(firstFlights.size());
+		
+		if (!firstFlights.isEmpty()){
+			getSearchPool().invoke(new FirstFlightSearch(firstFlights, 0, firstFlights.size(), results,
+					depNode, arrNode, arrLocation, maxFlights, filterDir, isFirstClass));
+		}
+		
+		ArrayList<LinkedList<Edge>> routes = new ArrayList<LinkedList<Edge>>();
+		
+		for (int i = 0; i < results.length(); i++){
+			routes.addAll(results.get(i));
+		}
+		
+		return routes;
+	}
+	
+	/* The pool the searches are split on */
+	private static synchronized ForkJoinPool getSearchPool(){
+		if (searchPool == null){
+			searchPool = new ForkJoinPool();
+		}
+		
+		return searchPool;
+	}
+	
+	/* Searches the routes that start with some of the flights from the origin, 
+	 * splitting them in half until there's one flight left */
+	private class FirstFlightSearch extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		ArrayList<Edge> firstFlights;
+		int start;
+		int end;
+		AtomicReferenceArray<ArrayList<LinkedList<Edge>>> results;
+		
+		Node originNode;
+		Node arrNode;
+		Location arrLocation;
+		int maxFlights;
+		boolean filterDir;
+		boolean isFirstClass;
+		
+		FirstFlightSearch(ArrayList<Edge> firstFlights, int start, int end, AtomicReferenceArray<ArrayList<LinkedList<Edge>>> results,
+				Node originNode, Node arrNode, Location arrLocation, int maxFlights, boolean filterDir, boolean isFirstClass){
+			this.firstFlights = firstFlights;
+			this.start = start;
+			this.end = end;
+			this.results = results;
+			this.originNode = originNode;
+			this.arrNode = arrNode;
+			this.arrLocation = arrLocation;
+			this.maxFlights = maxFlights;
+			this.filterDir = filterDir;
+			this.isFirstClass = isFirstClass;
+		}
+		
+		@Override
+		protected void compute(){
+			
+			if (end - start == 1){
+				
+				/* Its own visited airports and route */
+				RouteSearch search = new RouteSearch(originNode, arrNode, arrLocation, maxFlights, filterDir, isFirstClass);
+				search.searchFirstFlight(firstFlights.get(start));
+				
+				results.set(start, search.routes);
+				return;
+			}
+			
+			int middle = (start + end) >>> 1;
+			
+			invokeAll(split(start, middle), split(middle, end));
+		}
+		
+		FirstFlightSearch split(int start, int end){
+			return new FirstFlightSearch(firstFlights, start, end, results, 
+					originNode, arrNode, arrLocation, maxFlights, filterDir, isFirstClass);
+		}
+	}
+	
+	/* One pruned route search. 
+	 * 
+	 * It goes through the graph the way getRoutes(Node, ...) does, marking the 
+	 * same airports as visited, so it finds the same routes in the same order. 
+	 * The flights are checked as they are added to the route though, and once a 
+	 * route can't be valid anymore the search of that branch stops. The airports
+	 * the branch would have marked as visited still change which routes are found
+	 * later, so they are marked by markFrom, which only follows the airports and
+	 * skips the walks it knows can't mark anything. */
+	private class RouteSearch {
+		
+		Node originNode;
+		Node arrNode;
+		Location arrLocation;
+		int maxFlights;
+		boolean filterDir;
+		boolean isFirstClass;
+		
+		HashSet<Node> visited = new HashSet<Node>();
+		
+		/* Goes up every time the visited airports change */
+		int marks;
+		
+		/* For each airport, the marks when a walk from it at each depth last marked nothing */
+		HashMap<Node, int[]> markedNothing = new HashMap<Node, int[]>();
+		
+		/* The flights of the route being built */
+		ArrayList<Edge> route = new ArrayList<Edge>();
+		ArrayList<FlightLeg> routeInfo = new ArrayList<FlightLeg>();
+		
+		ArrayList<LinkedList<Edge>> routes = new ArrayList<LinkedList<Edge>>();
+		
+		RouteSearch(Node originNode, Node arrNode, Location arrLocation, int maxFlights, boolean filterDir, boolean isFirstClass){
+			this.originNode = originNode;
+			this.arrNode = arrNode;
+			this.arrLocation = arrLocation;
+			this.maxFlights = maxFlights;
+			this.filterDir = filterDir;
+			this.isFirstClass = isFirstClass;
+		}
+		
+		/* The part of searchFrom(originNode, 0) that starts with one flight 
+		 * from the origin. Every flight from the origin starts again with only the 
+		 * origin visited, so the flights can be searched separately. */
+		void searchFirstFlight(Edge flight){
+			
+			clearVisited();
+			
+			Node target = flight.getTargetNode();
+			
+			if (visited.contains(target)) {
+				return;
+			}
+			
+			/* Found the final destination */
+			if (target.equals(arrNode)) {
+				
+				if (canFinish(flight)){
+					addRoute(flight);
+				}
+				
+				return;
+			}
+			
+			/* Look for connections */
+			if (canExtend(flight)){
+				route.add(flight);
+				routeInfo.add(flight.<FlightLeg>getAttribute("fltInfo"));
+				searchFrom(target, 1);
+			}
+			else {
+				markFrom(target, 1);
+			}
+		}
+		
+		/* Same walk as getRoutes(Node, ...), for a route that can still be valid */
+		void searchFrom(Node depNode, int depth){
+			
+			/* If > 3, then too many connections */
+			if (depth > 3){
+				return;
+			}
+			
+			Iterator<Edge> depNodeFlights = depNode.getEachLeavingEdge().iterator();
+			
+			while (depNodeFlights.hasNext()) {
+				
+				Edge flight = depNodeFlights.next();
+				Node target = flight.getTargetNode();
+				
+				/* Making sure that original departure not the starting node */
+				if (originNode.equals(flight.getSourceNode())) {
+					clearVisited();
+				}
+				
+				if (!visited.contains(target)) {
+					
+					/* Found the final destination */
+					if (target.equals(arrNode)) {
+						
+						if (canFinish(flight)){
+							addRoute(flight);
+						}
+						
+					}
+					/* Look for connections */
+					else {
+						
+						depth++;
+						visit(depNode);
+						
+						if (canExtend(flight)){
+							route.add(flight);
+							routeInfo.add(flight.<FlightLeg>getAttribute("fltInfo"));
+							
+							searchFrom(target, depth);
+							
+							route.remove(route.size() - 1);
+							routeInfo.remove(routeInfo.size() - 1);
+						}
+						/* The branch is dead, only its visited airports are left */
+						else {
+							markFrom(target, depth);
+						}
+						
+					}
+					
+					depth = 0;
+				}
+				
+			}
+			
+		}
+		
+		/* Marks the airports the walk of a dead branch would mark as visited, without 
+		 * looking at the flights. The walk only depends on the airport, the depth and the 
+		 * visited airports, so if it marked nothing last time and nothing changed since,
+		 * it would mark nothing again. The origin is always visited, so the walk never
+		 * gets back to it. */
+		void markFrom(Node depNode, int depth){
+			
+			/* If > 3, then too many connections */
+			if (depth > 3){
+				return;
+			}
+			
+			int[] nothing = markedNothing.get(depNode);
+			
+			if (nothing != null && nothing[depth] == marks){
+				return;
+			}
+			
+			int startDepth = depth;
+			int startMarks = marks;
+			
+			Iterator<Edge> depNodeFlights = depNode.getEachLeavingEdge().iterator();
+			
+			while (depNodeFlights.hasNext()) {
+				
+				Node target = depNodeFlights.next().getTargetNode();
+				
+				if (!visited.contains(target)) {
+					
+					if (!target.equals(arrNode)) {
+						depth++;
+						visit(depNode);
+						markFrom(target, depth);
+					}
+					
+					depth = 0;
+				}
+				
+			}
+			
+			if (marks == startMarks){
+				
+				if (nothing == null){
+					nothing = new int[4];
+					Arrays.fill(nothing, -1);
+					markedNothing.put(depNode, nothing);
+				}
+				
+				nothing[startDepth] = marks;
+			}
+			
+		}
+		
+		/* Marks an airport as visited */
+		void visit(Node node){
+			if (visited.add(node)){
+				marks++;
+			}
+		}
+		
+		/* Starts again with only the origin visited */
+		void clearVisited(){
+			visited.clear();
+			visited.add(originNode);
+			marks++;
+		}
+		
+		/* Would the route be valid if it ended with this flight? */
+		boolean canFinish(Edge flight){
+			
+			FlightLeg fltInfo = flight.getAttribute("fltInfo");
+			
+			/* A direct flight only needs seats */
+			if (route.isEmpty()){
+				return !filterDir || hasSeats(fltInfo);
+			}
+			
+			return (route.size() + 1 <= maxFlights) && isNextFlightValid(fltInfo);
+		}
+		
+		/* Could a route that goes through this flight still be valid? */
+		boolean canExtend(Edge flight){
+			
+			FlightLeg fltInfo = flight.getAttribute("fltInfo");
+			
+			/* The route will have at least one more flight after this one */
+			if (route.size() + 2 > maxFlights){
+				return false;
+			}
+			
+			if (route.isEmpty()){
+				return !filterDir || hasSeats(fltInfo);
+			}
+			
+			return isNextFlightValid(fltInfo);
+		}
+		
+		/* Can the route go on with this flight? Same checks as routeFilter, one flight at a time */
+		boolean isNextFlightValid(FlightLeg fltNxtInfo){
+			
+			FlightLeg fltInfo = routeInfo.get(routeInfo.size() - 1);
+			
+			if (!isConnectionTimeValid(fltInfo, fltNxtInfo)){
+				return false;
+			}
+			
+			if (filterDir){
+				
+				if (!hasSeats(fltNxtInfo)){
+					return false;
+				}
+				
+				Location depLocation = routeInfo.get(0).getDepartureAirport().getLocation();
+				Location depPortLoc = fltInfo.getDepartureAirport().getLocation();
+				Location arrPortLoc = fltNxtInfo.getDepartureAirport().getLocation();
+				
+				if (!isRightLatDir(depLocation, arrLocation, depPortLoc, arrPortLoc) 
+						|| !isRightLongDir(depLocation, arrLocation, depPortLoc, arrPortLoc)){
+					return false;
+				}
+				
+			}
+			
+			return true;
+		}
+		
+		boolean hasSeats(FlightLeg fltInfo){
+			return isFirstClass ? fltInfo.areFirstSeatsAvail() : fltInfo.areCoachSeatsAvail();
+		}
+		
+		/* Copies the route with its last flight into the results */
+		void addRoute(Edge flight){
+			LinkedList<Edge> newRoute = new LinkedList<Edge>(route);
+			newRoute.add(flight);
+			routes.add(newRoute);
+		}
+		
+	}
+	
+	/* Does the next flight leave after this one lands? Same check as isRouteTimeValid */
+	private boolean isConnectionTimeValid(FlightLeg fltInfo, FlightLeg fltNxtInfo){
+		
+		return fltInfo.connectsTo(fltNxtInfo);
+	}
+	
 	/* Returns a new list routes, that contain only routes that are 
 	 * chronologically possible and have available seats */
 	private ArrayList<LinkedList<Edge>> routeFilter(ArrayList<LinkedList<Edge>> routes, int maxFlights, boolean filterDir, boolean isFirstClass){
@@ -514,44 +1063,21 @@ public class GraphEngine implements IFlightGraph{
 		else{
 			
 			/* Go through the linked list */
-			for (int i = 0; i < (route.size() - 1); i++) {
-				
-				/* Get the flights' info */
-				Edge flightLeg = route.get(i);
-				FlightLeg fltInfo = flightLeg.getAttribute("fltInfo");
-				Date fltInfoDate = fltInfo.getArrivalDate();
-				Time fltInfoTime = fltInfo.getArrivalTime();
-				
-				Edge flightLegNxt = route.get(i+1);
-				FlightLeg fltNxtInfo = flightLegNxt.getAttribute("fltInfo");
-				Date fltNxtInfoDate = fltNxtInfo.getDepartureDate();
-				Time fltNxtInfoTime = fltNxtInfo.getDepartureTime();
+			FlightLeg fltInfo = null;
+			
+			for (Edge flightLeg : route) {
 				
-				/* If both flights land on the same day, 
-				 * then check if the next flight leaves after
-				 * the current flight lands. */
-				if (fltInfoDate.compareTo(fltNxtInfoDate) == 0){
-					
-					/* If this flight arrives after the next flight leaves */
-					if(fltInfoTime.compareTo(fltNxtInfoTime) >= 0){
-						return false;
-					}
+				FlightLeg fltNxtInfo = flightLeg.getAttribute("fltInfo");
 				
+				/* If the next flight leaves before this flight lands, 
+				 * or at the same minute, the route is impossible. 
+				 * The times are minutes from 1970, so a flight that 
+				 * leaves on a later day (even in the next month) is fine. */
+				if (fltInfo != null && !fltInfo.connectsTo(fltNxtInfo)){
+					return false;
 				}
-				/* If the next flight lands on the day after 
-				 * (crosses 23:59 GMT), then it's still valid,
-				 * so don't do anything and check the next flight in the chain */
-				else if (fltInfoDate.compareTo(fltNxtInfoDate) < 0){
-					
-					// lands on the next day, so it's valid
-					
-				}
-				/* If the next flight lands on a date that is after the arrival
-				 * date, which is impossible */
-				else{
-					return false; 
-				}
-		
+				
+				fltInfo = fltNxtInfo;
 			}
 			
 			/* The flights are in chronological order */
@@ -1,12 +1,30 @@
 package graph;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.graphstream.graph.Edge;
 import org.graphstream.graph.Graph;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.MultiGraph;
 
+import parsers.AirplaneParser;
 import parsers.AirportParser;
 import parsers.FlightParser;
 import parsers.XMLGetter;
@@ -15,27 +33,78 @@ import flight_system.*;
 /** 
  * Class used to make flight graph based on flight data from the database.
  * <p>
- * @see parsers.XMLGetter#getAirportsXML()
- * @see parsers.XMLGetter#getFlightsXML(boolean, Airport, Date)
+ * @see parsers.XMLGetter#openAirportsStream()
+ * @see parsers.XMLGetter#openFlightsStream(boolean, Airport, Date)
  * 
  * @author Kun Huang
  */
 public class GraphMaker {
 	
+	/* Default time to wait for one airport's departures when fetching concurrently */
+	public static final long DEFAULT_FETCH_TIMEOUT = 30000;
+	
 	private Date date;
 	private Graph graph;
 	
+	/* Number of airports whose departures are fetched at the same time */
+	private int maxConcurrent;
+	
+	/* Milliseconds to wait for one airport's departures, once its fetch has started */
+	private long fetchTimeout;
+	
+	/* Every flight that was added to the graph */
+	private ArrayList<FlightLeg> flightLegs;
+	
+	/* Number of airports whose departures could not be fetched */
+	private int missingAirports;
+	
+	/* When the flights were downloaded, in milliseconds */
+	private long madeAt;
+	
+	/* The same flights, by their flight number */
+	private HashMap<Integer, FlightLeg> legsByNumber;
+	
+	/* Array version of the graph, made the first time it's asked for */
+	private CompactFlightGraph compactGraph;
+	
+	/* Airports reachable from each airport, made the first time it's asked for */
+	private ReachabilityIndex reachabilityIndex;
+	
 	/**
 	 * Makes a flight graph for a specific date. 
 	 * <p>
 	 * The graph will be populated with all the departing flights from all the airports
-	 * in the database.
+	 * in the database. The airports are fetched one after another.
 	 * 
 	 * @param date the date for which the graph should be made.
 	 * @see flight_system.Date
 	 */
 	public GraphMaker(Date date) {
+		this(date, 1, DEFAULT_FETCH_TIMEOUT);
+	}
+	
+	/**
+	 * Makes a flight graph for a specific date, fetching the departing flights 
+	 * of several airports at the same time. 
+	 * <p>
+	 * The departures are downloaded and parsed on a pool of at most 
+	 * <code>maxConcurrent</code> threads, but only the calling thread adds
+	 * them to the graph, in the same order as a sequential build would.
+	 * An airport whose departures take longer than <code>fetchTimeout</code> 
+	 * is left without departing flights, and the graph is not complete.
+	 * 
+	 * @param date the date for which the graph should be made.
+	 * @param maxConcurrent the maximum number of airports fetched at the same time,
+	 * 		  1 fetches them one after another.
+	 * @param fetchTimeout the milliseconds to wait for the departures of one airport.
+	 * @see flight_system.Date
+	 */
+	public GraphMaker(Date date, int maxConcurrent, long fetchTimeout) {
 		this.date = date;
+		this.maxConcurrent = Math.max(1, maxConcurrent);
+		this.fetchTimeout = fetchTimeout;
+		this.flightLegs = new ArrayList<FlightLeg>();
+		this.legsByNumber = new HashMap<Integer, FlightLeg>();
 		
 		/* Graph Identifier */
 		String graphName = "" +date.getMonth() + "_" + date.getDay() + "_" + date.getYear();
@@ -46,10 +115,52 @@ public class GraphMaker {
 		/* Allow easy creation of edges */
 		graph.setAutoCreate(true);
 		
+		/* The seats are the ones from when the download started */
+		this.madeAt = System.currentTimeMillis();
+		
 		makeGraph();
 		
 	}
 	
+	/**
+	 * Makes a flight graph for a specific date from flights that were already 
+	 * loaded, e.g. from a {@link GraphSnapshot}. Nothing is downloaded.
+	 * <p>
+	 * The flights are added in the order they are given, so a graph made from
+	 * the flights of another graph is searched the same way.
+	 * 
+	 * @param date the date for which the graph should be made.
+	 * @param airports the airports of the graph.
+	 * @param flights the flights of the graph, their airports have to be in the graph.
+	 * @see GraphSnapshot#makeGraph()
+	 */
+	public GraphMaker(Date date, Collection<Airport> airports, Collection<FlightLeg> flights) {
+		this.date = date;
+		this.maxConcurrent = 1;
+		this.fetchTimeout = DEFAULT_FETCH_TIMEOUT;
+		this.flightLegs = new ArrayList<FlightLeg>(flights.size());
+		this.legsByNumber = new HashMap<Integer, FlightLeg>();
+		this.madeAt = System.currentTimeMillis();
+		
+		/* Graph Identifier */
+		String graphName = "" +date.getMonth() + "_" + date.getDay() + "_" + date.getYear();
+		
+		/* Create Graph */
+		this.graph = new MultiGraph(graphName);
+
+		/* Allow easy creation of edges */
+		graph.setAutoCreate(true);
+		
+		for (Airport airport : airports){
+			this.graph.addNode(airport.getCode());
+		}
+		
+		for (FlightLeg flight : flights){
+			addFlight(flight.getDepartureAirport().getCode(), flight);
+		}
+		
+	}
+	
 	/**
 	 * Get the date for which the graph was made. 
 	 * <p>
@@ -61,6 +172,32 @@ public class GraphMaker {
 		return date;
 	}
 	
+	/**
+	 * Gets the time the flights of the graph were downloaded. For a graph made from
+	 * a {@link GraphSnapshot} it is the time the snapshot's flights were downloaded.
+	 * @return the time in milliseconds.
+	 */
+	public long getMadeAt() {
+		return madeAt;
+	}
+	
+	/* Sets the time the flights were downloaded, for a graph made from a snapshot */
+	void setMadeAt(long madeAt) {
+		this.madeAt = madeAt;
+	}
+	
+	/**
+	 * Tells if the departures of every airport were added to the graph.
+	 * <p>
+	 * An incomplete graph is missing the flights of the airports that timed out
+	 * or could not be fetched, so it shouldn't be kept for later searches.
+	 * @return false if any airport's departures are missing.
+	 * @see FlightGraphCache
+	 */
+	public boolean isComplete() {
+		return missingAirports == 0;
+	}
+	
 	/**
 	 * Get the the flight graph that was made. 
 	 * <p>
@@ -70,6 +207,142 @@ public class GraphMaker {
 		return graph;
 	}
 	
+	/**
+	 * Get all the flights that were added to the graph. 
+	 * <p>
+	 * @return the flights in the graph. 
+	 */
+	public ArrayList<FlightLeg> getFlightLegs() {
+		return flightLegs;
+	}
+	
+	/**
+	 * Get the flight graph as a compact, array-backed graph that is faster to search. 
+	 * <p>
+	 * It is made from the same airports and flights the first time it's asked for.
+	 * @return the compact flight graph. 
+	 * @see CompactFlightGraph
+	 */
+	public synchronized CompactFlightGraph getCompactGraph() {
+		
+		if (compactGraph == null){
+			compactGraph = new CompactFlightGraph(AirportParser.getInstance().getAirportList(), flightLegs);
+		}
+		
+		return compactGraph;
+	}
+	
+	/**
+	 * Get the airports that can be reached from each airport of the graph 
+	 * with up to 3 flights. 
+	 * <p>
+	 * It is made from the same flights the first time it's asked for. The seats
+	 * aren't part of it, so it doesn't change when they are refreshed.
+	 * @return the reachability index. 
+	 * @see ReachabilityIndex
+	 */
+	public synchronized ReachabilityIndex getReachabilityIndex() {
+		
+		if (reachabilityIndex == null){
+			reachabilityIndex = new ReachabilityIndex(flightLegs);
+		}
+		
+		return reachabilityIndex;
+	}
+	
+	/**
+	 * Gets the seats taken on the flights leaving some airports from the 
+	 * database again, without making the whole graph again.
+	 * <p>
+	 * The seats of the flights in this graph, and in its compact graph, are 
+	 * changed in place, so searches can keep running while they are refreshed.
+	 * Flights that weren't in the graph when it was made are not added.
+	 * 
+	 * @param airports the airports whose departing flights are refreshed.
+	 * @return the number of flights in the graph that were refreshed.
+	 */
+	public int refreshSeats(Collection<Airport> airports) {
+		return refreshSeats(airports, new HashSet<Integer>());
+	}
+	
+	/**
+	 * Gets the seats taken on the legs of a flight from the database again,
+	 * e.g. after the flight was bought.
+	 * <p>
+	 * Only the departures of the airports the legs leave from are fetched.
+	 * The legs of the flight that are not in this graph are skipped.
+	 * 
+	 * @param flight the flight whose legs are refreshed.
+	 * @return true if every leg of the flight that is in this graph was refreshed,
+	 * 		   false if some of them couldn't be found in the database.
+	 * @see FlightGraphCache#refreshSeats(Flight)
+	 */
+	public boolean refreshSeats(Flight flight) {
+		
+		/* The airports the legs in this graph leave from, and the legs */
+		LinkedHashMap<String, Airport> airports = new LinkedHashMap<String, Airport>();
+		HashSet<Integer> legNums = new HashSet<Integer>();
+		
+		for (FlightLeg leg : flight.getFlightList()){
+			
+			FlightLeg graphLeg = legsByNumber.get(leg.getFlightNum());
+			
+			if (graphLeg != null && graphLeg.getDepartureEpochMinute() == leg.getDepartureEpochMinute()){
+				airports.put(graphLeg.getDepartureAirport().getCode(), graphLeg.getDepartureAirport());
+				legNums.add(leg.getFlightNum());
+			}
+			
+		}
+		
+		if (legNums.isEmpty()){
+			return true;
+		}
+		
+		HashSet<Integer> refreshed = new HashSet<Integer>();
+		refreshSeats(airports.values(), refreshed);
+		
+		return refreshed.containsAll(legNums);
+	}
+	
+	/* Refreshes the departures of the airports, and remembers the flights that were refreshed */
+	private int refreshSeats(Collection<Airport> airports, HashSet<Integer> refreshed) {
+		
+		/* Each refresh has its own parser, like the fetch threads */
+		FlightParser fParser = new FlightParser();
+		
+		for (Airport airport : airports){
+			
+			fParser.parseFlightXML(XMLGetter.getInstance().openFlightsStream(true, airport, this.date));
+			
+			for (FlightLeg fresh : fParser.getFlightList()){
+				
+				FlightLeg graphLeg = legsByNumber.get(fresh.getFlightNum());
+				
+				if (graphLeg != null){
+					graphLeg.setOccupiedSeats(fresh.getOccFirstClassSeats(), fresh.getOccCoachClassSeats());
+					refreshed.add(graphLeg.getFlightNum());
+				}
+				
+			}
+			
+			fParser.clearFlightList();
+		}
+		
+		/* A compact graph made after the legs changed already has the new seats */
+		CompactFlightGraph compact;
+		synchronized (this){
+			compact = compactGraph;
+		}
+		
+		if (compact != null){
+			for (Integer flightNum : refreshed){
+				compact.updateSeats(legsByNumber.get(flightNum));
+			}
+		}
+		
+		return refreshed.size();
+	}
+	
 	/**
 	 * Used to display the the flight graph that was made. 
 	 * <p> 
@@ -91,15 +364,25 @@ public class GraphMaker {
 		/* Adds the nodes to the graph */
 		addNodes(portParser, getter);
 		
+		/* Make sure the airplanes are parsed before any flights are */
+		AirplaneParser planeParser = AirplaneParser.getInstance();
+		
+		planeParser.loadAirplaneList();
+		
 		/* Adds the edges to the graph */
-		addEdges(getter, portParser);
+		if (maxConcurrent > 1){
+			addEdgesConcurrent(getter, portParser);
+		}
+		else{
+			addEdges(getter, portParser);
+		}
 			
 	}
 
 	/* Adds Edges to the graph */
 	private void addEdges(XMLGetter getter, AirportParser portParser) {
 		/* Flight Parser object used to store the departing flights */
-		FlightParser fParser = new FlightParser(getter.getAirplaneXML(), getter.getAirportsXML());
+		FlightParser fParser = new FlightParser();
 		
 		/* Iterator for nodes */
 		Iterator<Node> nodeIterator = this.graph.iterator();
@@ -112,35 +395,161 @@ public class GraphMaker {
 			Airport airport = portParser.getAirport(airportCode);
 			
 			/* Get the flights */
-			fParser.parseFlightXML(getter.getFlightsXML(true, airport, this.date));
+			InputStream departures = getter.openFlightsStream(true, airport, this.date);
+			
+			if (departures == null){
+				missingAirports++;
+				continue;
+			}
+			
+			fParser.parseFlightXML(departures);
 			
 			/* Add all the edges (departing flights) */
-			for (FlightLeg flight : fParser.getFlightList()){
+			addFlights(airportCode, fParser.getFlightList());
+			
+			/* Clean the list */
+			fParser.clearFlightList();
+			
+		}
+	}
+
+	/* Adds Edges to the graph, fetching and parsing the departures 
+	 * of several airports at once */
+	private void addEdgesConcurrent(final XMLGetter getter, AirportParser portParser) {
+		
+		/* The airports, in the order their departures are added to the graph */
+		ArrayList<String> airportCodes = new ArrayList<String>();
+		ArrayList<Future<ArrayList<FlightLeg>>> departures = new ArrayList<Future<ArrayList<FlightLeg>>>();
+		
+		for (Node node : this.graph){
+			airportCodes.add(node.getId());
+		}
+		
+		/* When each airport's fetch started, 0 if it is still waiting for a thread */
+		final AtomicLongArray startTimes = new AtomicLongArray(airportCodes.size());
+		
+		ExecutorService pool = Executors.newFixedThreadPool(maxConcurrent, new FetchThreadFactory());
+		
+		try {
+			
+			/* Fetch and parse the departures of every airport on the pool */
+			for (int i = 0; i < airportCodes.size(); i++){
 				
-				/* Add the flight as an edge to the graph */
-				graph.addEdge(Integer.toString(flight.getFlightNum()), airportCode, flight.getArrivalAirport().getCode(), true);
+				final int index = i;
+				final Airport airport = portParser.getAirport(airportCodes.get(i));
 				
-				/* Get the edge that was just added */
-				Edge edge = graph.getEdge(Integer.toString(flight.getFlightNum()));
+				departures.add(pool.submit(new Callable<ArrayList<FlightLeg>>() {
+					public ArrayList<FlightLeg> call() throws IOException {
+						
+						startTimes.set(index, System.nanoTime());
+						
+						InputStream departures = getter.openFlightsStream(true, airport, date);
+						
+						if (departures == null){
+							throw new IOException("Could not get the departures from " + airport.getCode());
+						}
+						
+						/* Each thread has its own parser, they share the airplanes and airports */
+						FlightParser fParser = new FlightParser();
+						fParser.parseFlightXML(departures);
+						
+						return fParser.getFlightList();
+					}
+				}));
 				
-				/* Add the attribute to the edge */
-				edge.addAttribute("fltInfo", flight);
+			}
 			
+			/* This thread is the only one that writes to the graph */
+			for (int i = 0; i < airportCodes.size(); i++){
+				
+				ArrayList<FlightLeg> flights = awaitDepartures(departures.get(i), startTimes, i, airportCodes.get(i));
+				
+				if (flights != null){
+					addFlights(airportCodes.get(i), flights);
+				}
+				else {
+					missingAirports++;
+				}
+				
 			}
 			
-			/* Clean the list */
-			fParser.clearFlightList();
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		
+	}
+	
+	/* Waits for the departures of one airport, returns null if they 
+	 * took too long or could not be fetched */
+	private ArrayList<FlightLeg> awaitDepartures(Future<ArrayList<FlightLeg>> departure, 
+			AtomicLongArray startTimes, int index, String airportCode) {
+		
+		long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(fetchTimeout);
+		
+		while (true){
 			
+			/* The timeout only counts once the fetch has started */
+			long started = startTimes.get(index);
+			long waitNanos = (started == 0) ? timeoutNanos : (started + timeoutNanos - System.nanoTime());
+			
+			try {
+				return departure.get(Math.max(waitNanos, 0), TimeUnit.NANOSECONDS);
+			} 
+			catch (TimeoutException e) {
+				
+				/* It has been running for too long, give up on this airport */
+				if (startTimes.get(index) != 0 && waitNanos <= 0){
+					departure.cancel(true);
+					new TimeoutException("Timed out getting the departures from " + airportCode).printStackTrace();
+					return null;
+				}
+				
+			} 
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				departure.cancel(true);
+				return null;
+			} 
+			catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+				return null;
+			}
 		}
+		
+	}
+	
+	/* Adds the departing flights of an airport as edges */
+	private void addFlights(String airportCode, ArrayList<FlightLeg> flights) {
+		
+		for (FlightLeg flight : flights){
+			addFlight(airportCode, flight);
+		}
+		
+	}
+	
+	/* Adds a departing flight of an airport as an edge */
+	private void addFlight(String airportCode, FlightLeg flight) {
+		
+		/* Add the flight as an edge to the graph */
+		graph.addEdge(Integer.toString(flight.getFlightNum()), airportCode, flight.getArrivalAirport().getCode(), true);
+		
+		/* Get the edge that was just added */
+		Edge edge = graph.getEdge(Integer.toString(flight.getFlightNum()));
+		
+		/* Add the attribute to the edge */
+		edge.addAttribute("fltInfo", flight);
+		
+		flightLegs.add(flight);
+		legsByNumber.put(flight.getFlightNum(), flight);
+		
 	}
 
 	/* Adds the Airport Nodes to the graph */
 	private void addNodes(AirportParser portParser, XMLGetter getter) {
 		
 		/* If it doesn't have the airport list already, get the data from the server */
-		if (!portParser.hasAirportList()){
-			portParser.parseAirportXML(getter.getAirportsXML());
-		}
+		portParser.loadAirportList();
 		
 		/* Add all the airport nodes to the graph */
 		for(Airport airport : portParser.getAirportList() ){
@@ -152,4 +561,16 @@ public class GraphMaker {
 		
 	}
 	
+	/* Makes the daemon threads that fetch the departures */
+	private static class FetchThreadFactory implements ThreadFactory {
+		
+		private static final AtomicInteger threadCount = new AtomicInteger();
+		
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "graph-fetch-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+	
 }
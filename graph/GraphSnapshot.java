@@ -0,0 +1,578 @@
+package graph;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import parsers.AirplaneParser;
+import parsers.AirportParser;
+import flight_system.Airplane;
+import flight_system.Airport;
+import flight_system.Date;
+import flight_system.FlightLeg;
+import flight_system.Location;
+import flight_system.Time;
+
+/**
+ * A day's flight network saved to a binary file, so it can be loaded again
+ * without downloading and parsing the airports, airplanes and flights.
+ * <p>
+ * The file has a header (a magic number, the version of the format, the date,
+ * when its flights were downloaded, and the checksum and length of the rest),
+ * the table of airports with their time zones, the table of airplanes, and then the flights as columns: all the flight numbers,
+ * then all the airplanes, and so on. The airports and airplanes of a flight
+ * are numbers in their tables. A column is read in one go from the file,
+ * which is mapped into memory. A file whose checksum doesn't match, or whose
+ * tables don't fit in it, is not read.
+ * <p>
+ * The seats in a snapshot are the ones from when its flights were downloaded, except
+ * for the seats that were refreshed after a purchase, so a snapshot should only
+ * be used while it is young enough, see {@link #isFresh(File, Date, long)}.
+ *
+ * @see FlightGraphCache#setSnapshotOptions(File, long)
+ */
+public class GraphSnapshot {
+
+	/* "FSNP" */
+	public static final int MAGIC = 0x46534E50;
+
+	/* Changed every time the format changes, older files are not read */
+	public static final int VERSION = 2;
+
+	/* Magic number, version, epoch day, time downloaded, checksum and length of the rest */
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 4 + 8;
+
+	/* The fewest bytes an airport, an airplane and a flight take in the file */
+	private static final int AIRPORT_SIZE = 4 + 4 + 3 * 8;
+	private static final int AIRPLANE_SIZE = 4 + 4 + 4 + 4;
+	private static final int FLIGHT_SIZE = 9 * 4 + 2 * 8;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private Date date;
+	private long writtenAt;
+	private ArrayList<Airport> airports;
+	private ArrayList<Airplane> airplanes;
+	private ArrayList<FlightLeg> flightLegs;
+
+	private GraphSnapshot(Date date, long writtenAt, ArrayList<Airport> airports,
+			ArrayList<Airplane> airplanes, ArrayList<FlightLeg> flightLegs) {
+		this.date = date;
+		this.writtenAt = writtenAt;
+		this.airports = airports;
+		this.airplanes = airplanes;
+		this.flightLegs = flightLegs;
+	}
+
+	/**
+	 * Gets the file the snapshot of a date is kept in.
+	 * @param dir the folder of the snapshots.
+	 * @param date the date of the graph.
+	 * @return the snapshot file, which may not exist.
+	 */
+	public static File getFile(File dir, Date date) {
+		return new File(dir, "flights_" + date.getYear() + "_" + (date.getMonth().ordinal() + 1)
+				+ "_" + date.getDay() + ".snapshot");
+	}
+
+	/**
+	 * Writes the airports, airplanes and flights of a graph to a file.
+	 * <p>
+	 * The snapshot is written to a temporary file first and then moved,
+	 * so a process loading the file never sees half of it.
+	 * @param gMaker the graph maker that holds the graph.
+	 * @param file the snapshot file.
+	 * @throws IOException if the file could not be written.
+	 */
+	public static void write(GraphMaker gMaker, File file) throws IOException {
+
+		ArrayList<FlightLeg> legs = gMaker.getFlightLegs();
+
+		/* Number the airports and airplanes, the flights may have some the parsers don't */
+		ArrayList<Airport> airports = new ArrayList<Airport>();
+		HashMap<String, Integer> airportNums = new HashMap<String, Integer>();
+		ArrayList<Airplane> airplanes = new ArrayList<Airplane>();
+		HashMap<String, Integer> airplaneNums = new HashMap<String, Integer>();
+
+		for (Airport airport : AirportParser.getInstance().getAirportList()){
+			addAirport(airports, airportNums, airport);
+		}
+
+		for (Airplane airplane : AirplaneParser.getInstance().getAirplaneList()){
+			addAirplane(airplanes, airplaneNums, airplane);
+		}
+
+		for (FlightLeg leg : legs){
+			addAirport(airports, airportNums, leg.getDepartureAirport());
+			addAirport(airports, airportNums, leg.getArrivalAirport());
+			if (leg.getAirplane() != null){
+				addAirplane(airplanes, airplaneNums, leg.getAirplane());
+			}
+		}
+
+		File dir = file.getAbsoluteFile().getParentFile();
+		if (dir != null && !dir.isDirectory() && !dir.mkdirs()){
+			throw new IOException("Could not make the folder " + dir);
+		}
+
+		File tempFile = File.createTempFile(file.getName(), ".tmp", dir);
+
+		try {
+
+			FileOutputStream fileOut = new FileOutputStream(tempFile);
+			CRC32 checksum = new CRC32();
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(fileOut, checksum), 1 << 16));
+
+			try {
+
+				/* The header is written last, once the checksum is known */
+				FileChannel channel = fileOut.getChannel();
+				channel.position(HEADER_SIZE);
+
+				/* The airports */
+				out.writeInt(airports.size());
+				for (Airport airport : airports){
+					writeString(out, airport.getCode());
+					writeString(out, airport.getName());
+					Location location = airport.getLocation();
+					out.writeDouble((location == null) ? 0 : location.getLatitude());
+					out.writeDouble((location == null) ? 0 : location.getLongitude());
+					/* An unknown time zone stays unknown */
+					out.writeDouble((location == null) ? 0 : (location.hasTimeZone() ? location.getTimeZoneOffset() : Double.NaN));
+				}
+
+				/* The airplanes */
+				out.writeInt(airplanes.size());
+				for (Airplane airplane : airplanes){
+					writeString(out, airplane.getModel());
+					writeString(out, airplane.getManufactor());
+					out.writeInt(airplane.getFirstClassSeats());
+					out.writeInt(airplane.getCoachSeats());
+				}
+
+				/* The flights, one column at a time */
+				out.writeInt(legs.size());
+				for (FlightLeg leg : legs){
+					out.writeInt(leg.getFlightNum());
+				}
+				for (FlightLeg leg : legs){
+					out.writeInt((leg.getAirplane() == null) ? -1 : airplaneNums.get(getKey(leg.getAirplane())));
+				}
+				for (FlightLeg leg : legs){
+					out.writeInt(leg.getFlightDuration());
+				}
+				for (FlightLeg leg : legs){
+					out.writeInt(leg.getDepartureEpochMinute());
+				}
+				for (FlightLeg leg : legs){
+					out.writeInt(airportNums.get(getKey(leg.getDepartureAirport())));
+				}
+				for (FlightLeg leg : legs){
+					out.writeInt(leg.getArrivalEpochMinute());
+				}
+				for (FlightLeg leg : legs){
+					out.writeInt(airportNums.get(getKey(leg.getArrivalAirport())));
+				}
+				for (FlightLeg leg : legs){
+					out.writeDouble(leg.getFirstClassPrice());
+				}
+				for (FlightLeg leg : legs){
+					out.writeInt(leg.getOccFirstClassSeats());
+				}
+				for (FlightLeg leg : legs){
+					out.writeDouble(leg.getCoachClassPrice());
+				}
+				for (FlightLeg leg : legs){
+					out.writeInt(leg.getOccCoachClassSeats());
+				}
+
+				out.flush();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.putInt(gMaker.getDate().toEpochDay());
+				header.putLong(gMaker.getMadeAt());
+				header.putInt((int) checksum.getValue());
+				header.putLong(channel.size() - HEADER_SIZE);
+				header.flip();
+
+				while (header.hasRemaining()){
+					channel.write(header, header.position());
+				}
+
+			}
+			finally {
+				out.close();
+			}
+
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+		}
+		finally {
+			tempFile.delete();
+		}
+
+	}
+
+	/**
+	 * Tells if a snapshot file is for a date and young enough to be used, only reading its header.
+	 * @param file the snapshot file.
+	 * @param date the date of the graph that is wanted.
+	 * @param maxAge the oldest a snapshot can be, in milliseconds.
+	 * @return false if there's no file, it isn't a snapshot of this version, it's
+	 * 		   for another date, or it's too old.
+	 */
+	public static boolean isFresh(File file, Date date, long maxAge) {
+
+		if (!file.isFile() || file.length() < HEADER_SIZE){
+			return false;
+		}
+
+		try {
+
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+			try {
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+				while (header.hasRemaining() && channel.read(header) >= 0){
+					/* Read the whole header */
+				}
+				header.flip();
+
+				return header.remaining() == HEADER_SIZE
+						&& header.getInt() == MAGIC
+						&& header.getInt() == VERSION
+						&& header.getInt() == date.toEpochDay()
+						&& System.currentTimeMillis() - header.getLong() <= maxAge;
+
+			}
+			finally {
+				channel.close();
+			}
+
+		}
+		catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+
+	}
+
+	/**
+	 * Loads a snapshot from a file, which is mapped into memory.
+	 * <p>
+	 * The airports and airplanes that the parsers already have are used for the
+	 * flights. The others are made from the snapshot, with the time zones it has,
+	 * and given to the parsers so they don't download them.
+	 * @param file the snapshot file.
+	 * @return the snapshot.
+	 * @throws IOException if the file could not be read, or isn't a snapshot of this version.
+	 */
+	public static GraphSnapshot read(File file) throws IOException {
+
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		ByteBuffer buffer;
+
+		try {
+			/* The mapping stays valid after the channel is closed */
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		finally {
+			channel.close();
+		}
+
+		try {
+
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC){
+				throw new IOException(file + " is not a flight snapshot");
+			}
+
+			int version = buffer.getInt();
+			if (version != VERSION){
+				throw new IOException(file + " is a version " + version + " snapshot, only version " + VERSION + " can be read");
+			}
+
+			Date date = Date.fromEpochDay(buffer.getInt());
+			long writtenAt = buffer.getLong();
+			int checksum = buffer.getInt();
+			long length = buffer.getLong();
+
+			if (length != buffer.remaining()){
+				throw new IOException(file + " should have " + length + " bytes after its header, but has " + buffer.remaining());
+			}
+
+			if (checksum != getChecksum(buffer)){
+				throw new IOException(file + " is corrupt, its checksum doesn't match");
+			}
+
+			/* The airports, the ones the parser knows are used */
+			AirportParser portParser = AirportParser.getInstance();
+			int numOfAirports = buffer.getInt();
+			checkSize(buffer, numOfAirports, AIRPORT_SIZE, file, "airports");
+			Airport[] airportOf = new Airport[numOfAirports];
+			ArrayList<Airport> newAirports = new ArrayList<Airport>();
+
+			for (int i = 0; i < airportOf.length; i++){
+
+				String code = readString(buffer, file);
+				String name = readString(buffer, file);
+				Location location = new Location(buffer.getDouble(), buffer.getDouble(), buffer.getDouble());
+
+				airportOf[i] = portParser.getAirport(code);
+
+				if (airportOf[i] == null){
+					airportOf[i] = new Airport(code, name, location);
+					newAirports.add(airportOf[i]);
+				}
+			}
+
+			/* The airplanes, the same way */
+			AirplaneParser planeParser = AirplaneParser.getInstance();
+			int numOfAirplanes = buffer.getInt();
+			checkSize(buffer, numOfAirplanes, AIRPLANE_SIZE, file, "airplanes");
+			Airplane[] airplaneOf = new Airplane[numOfAirplanes];
+			ArrayList<Airplane> newAirplanes = new ArrayList<Airplane>();
+
+			for (int i = 0; i < airplaneOf.length; i++){
+
+				String model = readString(buffer, file);
+				String manufacturer = readString(buffer, file);
+				int firstClassSeats = buffer.getInt();
+				int coachSeats = buffer.getInt();
+
+				airplaneOf[i] = planeParser.getAirplane(model);
+
+				if (airplaneOf[i] == null){
+					airplaneOf[i] = new Airplane(model, manufacturer, firstClassSeats, coachSeats);
+					newAirplanes.add(airplaneOf[i]);
+				}
+			}
+
+			/* The flights */
+			int numOfFlights = buffer.getInt();
+			checkSize(buffer, numOfFlights, FLIGHT_SIZE, file, "flights");
+
+			int[] flightNums = readInts(buffer, numOfFlights);
+			int[] airplaneNums = readInts(buffer, numOfFlights);
+			int[] durations = readInts(buffer, numOfFlights);
+			int[] depMinutes = readInts(buffer, numOfFlights);
+			int[] depPorts = readInts(buffer, numOfFlights);
+			int[] arrMinutes = readInts(buffer, numOfFlights);
+			int[] arrPorts = readInts(buffer, numOfFlights);
+			double[] firstClassPrices = readDoubles(buffer, numOfFlights);
+			int[] firstClassSeatsOcc = readInts(buffer, numOfFlights);
+			double[] coachClassPrices = readDoubles(buffer, numOfFlights);
+			int[] coachClassSeatsOcc = readInts(buffer, numOfFlights);
+
+			ArrayList<FlightLeg> legs = new ArrayList<FlightLeg>(numOfFlights);
+
+			for (int i = 0; i < numOfFlights; i++){
+				legs.add(new FlightLeg((airplaneNums[i] < 0) ? null : airplaneOf[airplaneNums[i]],
+						flightNums[i], durations[i],
+						toTime(depMinutes[i]), Date.fromEpochMinute(depMinutes[i]), airportOf[depPorts[i]],
+						toTime(arrMinutes[i]), Date.fromEpochMinute(arrMinutes[i]), airportOf[arrPorts[i]],
+						firstClassPrices[i], firstClassSeatsOcc[i], coachClassPrices[i], coachClassSeatsOcc[i]));
+			}
+
+			/* Only once the whole file was read, so a bad file doesn't leave half of it in the parsers */
+			portParser.addAirports(newAirports);
+			planeParser.addAirplanes(newAirplanes);
+
+			ArrayList<Airport> airports = new ArrayList<Airport>(airportOf.length);
+			for (Airport airport : airportOf){
+				airports.add(airport);
+			}
+
+			ArrayList<Airplane> airplanes = new ArrayList<Airplane>(airplaneOf.length);
+			for (Airplane airplane : airplaneOf){
+				airplanes.add(airplane);
+			}
+
+			return new GraphSnapshot(date, writtenAt, airports, airplanes, legs);
+
+		}
+		catch (BufferUnderflowException e) {
+			throw new IOException(file + " is cut short", e);
+		}
+		catch (IndexOutOfBoundsException e) {
+			throw new IOException(file + " has a flight with an unknown airport or airplane", e);
+		}
+		catch (NegativeArraySizeException e) {
+			throw new IOException(file + " has a table with a negative size", e);
+		}
+
+	}
+
+	/**
+	 * Makes the flight graph of the snapshot.
+	 * @return the graph maker that holds the graph.
+	 */
+	public GraphMaker makeGraph() {
+		GraphMaker gMaker = new GraphMaker(date, airports, flightLegs);
+		gMaker.setMadeAt(writtenAt);
+		return gMaker;
+	}
+
+	/**
+	 * Gets the date of the graph.
+	 * @return the date.
+	 */
+	public Date getDate() {
+		return date;
+	}
+
+	/**
+	 * Gets the time the flights of the snapshot were downloaded, a snapshot
+	 * written again after its seats were refreshed keeps the same time.
+	 * @return the time in milliseconds.
+	 */
+	public long getWrittenAt() {
+		return writtenAt;
+	}
+
+	/**
+	 * Gets the airports of the snapshot.
+	 * @return the airports.
+	 */
+	public ArrayList<Airport> getAirports() {
+		return airports;
+	}
+
+	/**
+	 * Gets the airplanes of the snapshot.
+	 * @return the airplanes.
+	 */
+	public ArrayList<Airplane> getAirplanes() {
+		return airplanes;
+	}
+
+	/**
+	 * Gets the flights of the snapshot, in the order they were in the graph.
+	 * @return the flights.
+	 */
+	public ArrayList<FlightLeg> getFlightLegs() {
+		return flightLegs;
+	}
+
+	private static void addAirport(ArrayList<Airport> airports, HashMap<String, Integer> airportNums, Airport airport) {
+		if (!airportNums.containsKey(getKey(airport))){
+			airportNums.put(getKey(airport), airports.size());
+			airports.add(airport);
+		}
+	}
+
+	private static void addAirplane(ArrayList<Airplane> airplanes, HashMap<String, Integer> airplaneNums, Airplane airplane) {
+		if (!airplaneNums.containsKey(getKey(airplane))){
+			airplaneNums.put(getKey(airplane), airplanes.size());
+			airplanes.add(airplane);
+		}
+	}
+
+	private static String getKey(Airport airport) {
+		return airport.getCode().toUpperCase(Locale.ENGLISH);
+	}
+
+	private static String getKey(Airplane airplane) {
+		return airplane.getModel().toUpperCase(Locale.ENGLISH);
+	}
+
+	/* The GMT time of day of a minute */
+	private static Time toTime(int epochMinute) {
+		int minuteOfDay = epochMinute - Date.fromEpochMinute(epochMinute).toEpochDay() * Time.MINS_PER_DAY;
+		return Time.valueOf(minuteOfDay / 60, minuteOfDay % 60);
+	}
+
+	/* A string is its length in bytes, -1 for null, and then its UTF-8 bytes */
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		if (string == null){
+			out.writeInt(-1);
+		}
+		else {
+			byte[] bytes = string.getBytes(UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+
+	private static String readString(ByteBuffer buffer, File file) throws IOException {
+
+		int length = buffer.getInt();
+
+		if (length < 0){
+			return null;
+		}
+
+		checkSize(buffer, length, 1, file, "bytes of text");
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		return new String(bytes, UTF_8);
+	}
+
+	/* Checks that a table read from the file fits in the rest of it, before the arrays for it are made */
+	private static void checkSize(ByteBuffer buffer, int count, int width, File file, String what) throws IOException {
+		if (count < 0 || (long) count * width > buffer.remaining()){
+			throw new IOException(file + " has " + count + " " + what + ", which don't fit in the " + buffer.remaining() + " bytes left");
+		}
+	}
+
+	/* The CRC-32 of the rest of the buffer, which isn't moved */
+	private static int getChecksum(ByteBuffer buffer) {
+
+		CRC32 checksum = new CRC32();
+		ByteBuffer rest = buffer.duplicate();
+		byte[] chunk = new byte[1 << 16];
+
+		while (rest.hasRemaining()){
+			int length = Math.min(chunk.length, rest.remaining());
+			rest.get(chunk, 0, length);
+			checksum.update(chunk, 0, length);
+		}
+
+		return (int) checksum.getValue();
+	}
+
+	/* Reads a column of ints in one go */
+	private static int[] readInts(ByteBuffer buffer, int length) {
+		int[] column = new int[length];
+		buffer.asIntBuffer().get(column);
+		buffer.position(buffer.position() + 4 * length);
+		return column;
+	}
+
+	private static double[] readDoubles(ByteBuffer buffer, int length) {
+		double[] column = new double[length];
+		buffer.asDoubleBuffer().get(column);
+		buffer.position(buffer.position() + 8 * length);
+		return column;
+	}
+
+	@Override
+	public String toString() {
+		return "GraphSnapshot of " + date + " with " + airports.size() + " airports, "
+				+ airplanes.size() + " airplanes and " + flightLegs.size() + " flights";
+	}
+
+}
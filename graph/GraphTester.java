@@ -1,6 +1,7 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 
 import org.graphstream.graph.Edge;
@@ -9,6 +10,9 @@ import flight_system.*;
 
 public class GraphTester {
 	
+	/* Airport pairs searched on each made up network */
+	private static final int NUM_OF_QUERIES = 100;
+	
 	/* Constructor */
 	public GraphTester(){
 		
@@ -66,6 +70,301 @@ public class GraphTester {
 			System.out.println(flight); 
 		}
 		
+		/* The pruned search has to find exactly the same flights */
+		ArrayList<LinkedList<Edge>> flightsPruned = engine.getRoutesDirPruned(airports.get(0), airports.get(3), 3, false);
+		
+		System.out.println("\nThe pruned search found the same flights: " + flightsPruned.toString().equals(flightsDir.toString()));
+		
+	}
+	
+	/* Test the Compact Flight Graph with actual data, it has to find every route the Graph Engine finds.
+	 * It can find more, since the Graph Engine doesn't visit an airport again once any route went through it */
+	public void testCompactGraph(){
+		
+		ArrayList<Airport> airports = ExampleGraph.makeTestAiports(); 
+		
+		GraphMaker maker = new GraphMaker(new Date(Month.May, 10, 2015));
+		CompactFlightGraph compact = maker.getCompactGraph();
+		GraphEngine engine = new GraphEngine(maker.getGraph());
+		
+		System.out.println(compact);
+		
+		/* Flight from BOS -> SFO */
+		System.out.println("There is a flight from BOS to SFO: " + compact.hasDirectFlight(airports.get(0), airports.get(4))); 
+		
+		/* Coach Flight from BOS -> ATL */
+		System.out.println("There is a flight between BOS to ATL: " + compact.hasRoute(airports.get(0), airports.get(2), false) );
+		
+		/* Coach Flight from BOS -> MIA */
+		System.out.println("There is a flight between BOS to MIA: " + compact.hasRoute(airports.get(0), airports.get(3), false) );
+		
+		/* Time both searches for the coach flights from BOS to MIA in a general direction */
+		long start = System.nanoTime();
+		ArrayList<LinkedList<Edge>> engineFlights = engine.getRoutesDir(airports.get(0), airports.get(3), 3, false);
+		long engineTime = System.nanoTime() - start;
+		
+		start = System.nanoTime();
+		ArrayList<LinkedList<FlightLeg>> compactFlights = compact.getRoutesDir(airports.get(0), airports.get(3), 3, false);
+		long compactTime = System.nanoTime() - start;
+		
+		System.out.println("\nGraph Engine found " + engineFlights.size() + " flights in " + (engineTime / 1000) + " us.");
+		System.out.println("Compact Graph found " + compactFlights.size() + " flights in " + (compactTime / 1000) + " us.");
+		
+		/* Every route of the Graph Engine, by its flight numbers, has to be in the compact graph's routes */
+		HashSet<String> compactRoutes = new HashSet<String>();
+		for (LinkedList<FlightLeg> flight : compactFlights){
+			StringBuilder route = new StringBuilder();
+			for (FlightLeg leg : flight){
+				route.append(leg.getFlightNum()).append(' ');
+			}
+			compactRoutes.add(route.toString());
+		}
+		
+		int missing = 0;
+		for (LinkedList<Edge> flight : engineFlights){
+			StringBuilder route = new StringBuilder();
+			for (Edge leg : flight){
+				route.append(leg.getId()).append(' ');
+			}
+			if (!compactRoutes.contains(route.toString())){
+				missing++;
+			}
+		}
+		
+		System.out.println("The compact graph found every route of the Graph Engine: " + (missing == 0)
+				+ " (" + (compactFlights.size() - engineFlights.size()) + " more)");
+		
+		System.out.println("\n--- Here are the flights with a general direction: --- ");
+		/* Print the flights */
+		for (LinkedList<FlightLeg> flight : compactFlights){
+			System.out.println(flight); 
+		}
+		
+	}
+	
+	/* Test the Connection Scan Engine with actual data */
+	public void testConnectionScan(){
+		
+		ArrayList<Airport> airports = ExampleGraph.makeTestAiports(); 
+		
+		GraphMaker maker = new GraphMaker(new Date(Month.May, 10, 2015));
+		ConnectionScanEngine engine = new ConnectionScanEngine(maker.getCompactGraph());
+		
+		System.out.println(engine);
+		
+		/* Coach Flight from BOS -> MIA that lands first */
+		System.out.println("\nThe earliest flight from BOS to MIA is: " + engine.getEarliestArrival(airports.get(0), airports.get(3), 3, false));
+		
+		/* The best coach flights from BOS to MIA by arrival, connections and price */
+		ArrayList<LinkedList<FlightLeg>> flights = engine.getParetoRoutes(airports.get(0), airports.get(3), 3, false);
+		
+		System.out.println("\nThere are " + flights.size() + " best flights.");
+		
+		System.out.println("\n--- Here are the best flights: --- ");
+		/* Print the flights */
+		for (LinkedList<FlightLeg> flight : flights){
+			System.out.println(flight); 
+		}
+		
+	}
+	
+	/* Check the Meet In Middle Engine against the Compact Flight Graph on made up networks,
+	 * it has to find the same routes in the same order */
+	public void testMeetInMiddle(){
+		
+		int queries = 0;
+		int different = 0;
+		
+		for (SyntheticNetwork network : makeTestNetworks()){
+			
+			CompactFlightGraph compact = network.makeCompactGraph();
+			MeetInMiddleEngine engine = new MeetInMiddleEngine(compact);
+			
+			for (Airport[] query : network.makeQueries(NUM_OF_QUERIES)){
+				for (int maxFlights = 1; maxFlights <= MeetInMiddleEngine.MAX_FLIGHTS; maxFlights++){
+					for (boolean isFirstClass : new boolean[] {false, true}){
+						
+						queries++;
+						
+						/* All the routes */
+						if (!engine.getRoutes(query[0], query[1], maxFlights, isFirstClass).toString().equals(
+								compact.getRoutes(query[0], query[1], maxFlights, isFirstClass).toString())){
+							different++;
+						}
+						
+						/* The routes in a general direction */
+						if (!engine.getRoutesDir(query[0], query[1], maxFlights, isFirstClass).toString().equals(
+								compact.getRoutesDir(query[0], query[1], maxFlights, isFirstClass).toString())){
+							different++;
+						}
+					}
+				}
+			}
+		}
+		
+		System.out.println("The Meet In Middle Engine found the same routes as the Compact Graph: " + (different == 0)
+				+ " (" + queries + " queries, " + different + " different)");
+	}
+	
+	/* Check the Connection Scan Engine against every route of the Compact Flight Graph
+	 * that has seats and the minimum connection time, on made up networks */
+	public void testConnectionScanRoutes(){
+		
+		int queries = 0;
+		int different = 0;
+		
+		for (SyntheticNetwork network : makeTestNetworks()){
+			
+			CompactFlightGraph compact = network.makeCompactGraph();
+			ConnectionScanEngine engine = new ConnectionScanEngine(compact);
+			
+			for (Airport[] query : network.makeQueries(NUM_OF_QUERIES)){
+				for (int maxFlights = 1; maxFlights <= 3; maxFlights++){
+					for (boolean isFirstClass : new boolean[] {false, true}){
+						
+						queries++;
+						
+						/* Every route the engine could have picked from */
+						ArrayList<LinkedList<FlightLeg>> routes = new ArrayList<LinkedList<FlightLeg>>();
+						for (LinkedList<FlightLeg> route : compact.getRoutes(query[0], query[1], maxFlights, isFirstClass)){
+							if (canFly(route, isFirstClass, engine.getMinConnection())){
+								routes.add(route);
+							}
+						}
+						
+						if (!isEarliestArrival(engine.getEarliestArrival(query[0], query[1], maxFlights, isFirstClass), routes, isFirstClass, engine.getMinConnection())){
+							different++;
+						}
+						
+						if (!isPareto(engine.getParetoRoutes(query[0], query[1], maxFlights, isFirstClass), routes, isFirstClass, engine.getMinConnection())){
+							different++;
+						}
+					}
+				}
+			}
+		}
+		
+		System.out.println("The Connection Scan Engine found the best routes: " + (different == 0)
+				+ " (" + queries + " queries, " + different + " different)");
+	}
+	
+	/* The made up networks the engines are checked on */
+	private ArrayList<SyntheticNetwork> makeTestNetworks(){
+		
+		ArrayList<SyntheticNetwork> networks = new ArrayList<SyntheticNetwork>();
+		
+		for (long seed = 1; seed <= 3; seed++){
+			networks.add(new SyntheticNetwork(SyntheticNetwork.Shape.HUB_AND_SPOKE, 100, 2500, seed));
+			networks.add(new SyntheticNetwork(SyntheticNetwork.Shape.MESH, 100, 2500, seed));
+		}
+		
+		return networks;
+	}
+	
+	/* Does every flight have a seat, and leave at least the minimum connection time after the one before it lands? */
+	private boolean canFly(LinkedList<FlightLeg> route, boolean isFirstClass, int minConnection){
+		
+		FlightLeg prevLeg = null;
+		
+		for (FlightLeg leg : route){
+			
+			if (isFirstClass ? !leg.areFirstSeatsAvail() : !leg.areCoachSeatsAvail()){
+				return false;
+			}
+			
+			if (prevLeg != null && leg.getDepartureEpochMinute() < prevLeg.getArrivalEpochMinute() + Math.max(1, minConnection)){
+				return false;
+			}
+			
+			prevLeg = leg;
+		}
+		
+		return true;
+	}
+	
+	/* Is the route one that can be flown, that lands first, with the fewest flights of those? */
+	private boolean isEarliestArrival(LinkedList<FlightLeg> found, ArrayList<LinkedList<FlightLeg>> routes, boolean isFirstClass, int minConnection){
+		
+		if (routes.isEmpty() || found.isEmpty()){
+			return routes.isEmpty() && found.isEmpty();
+		}
+		
+		if (!canFly(found, isFirstClass, minConnection)){
+			return false;
+		}
+		
+		for (LinkedList<FlightLeg> route : routes){
+			
+			long arrival = route.getLast().getArrivalEpochMinute();
+			long foundArrival = found.getLast().getArrivalEpochMinute();
+			
+			if (arrival < foundArrival || (arrival == foundArrival && route.size() < found.size())){
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/* Are the routes exactly the ones no other route beats on arrival, flights and price at once? */
+	private boolean isPareto(ArrayList<LinkedList<FlightLeg>> found, ArrayList<LinkedList<FlightLeg>> routes, boolean isFirstClass, int minConnection){
+		
+		/* The arrival, flights and price in cents of the best routes, routes that tie are the same */
+		HashSet<String> best = new HashSet<String>();
+		
+		for (LinkedList<FlightLeg> route : routes){
+			
+			boolean beaten = false;
+			
+			for (LinkedList<FlightLeg> other : routes){
+				if (other != route && beats(other, route, isFirstClass)){
+					beaten = true;
+					break;
+				}
+			}
+			
+			if (!beaten){
+				best.add(getScore(route, isFirstClass));
+			}
+		}
+		
+		HashSet<String> foundBest = new HashSet<String>();
+		
+		for (LinkedList<FlightLeg> route : found){
+			
+			if (!canFly(route, isFirstClass, minConnection) || !foundBest.add(getScore(route, isFirstClass))){
+				return false;
+			}
+		}
+		
+		return foundBest.equals(best);
+	}
+	
+	/* Is a route at least as good as another on all three, and better on one? */
+	private boolean beats(LinkedList<FlightLeg> route, LinkedList<FlightLeg> other, boolean isFirstClass){
+		
+		long arrival = route.getLast().getArrivalEpochMinute();
+		long otherArrival = other.getLast().getArrivalEpochMinute();
+		long price = getCents(route, isFirstClass);
+		long otherPrice = getCents(other, isFirstClass);
+		
+		return arrival <= otherArrival && route.size() <= other.size() && price <= otherPrice
+				&& (arrival < otherArrival || route.size() < other.size() || price < otherPrice);
+	}
+	
+	private String getScore(LinkedList<FlightLeg> route, boolean isFirstClass){
+		return route.getLast().getArrivalEpochMinute() + " " + route.size() + " " + getCents(route, isFirstClass);
+	}
+	
+	private long getCents(LinkedList<FlightLeg> route, boolean isFirstClass){
+		
+		double price = 0.0;
+		
+		for (FlightLeg leg : route){
+			price += isFirstClass ? leg.getFirstClassPrice() : leg.getCoachClassPrice();
+		}
+		
+		return Math.round(price * 100);
 	}
 	
 	/* Test the small example graph */
@@ -3,8 +3,6 @@ package graph;
 import java.util.ArrayList;
 import java.util.LinkedList;
 
-import org.graphstream.graph.Edge;
-
 import flight_system.Airport;
 
 /** 
@@ -15,10 +13,11 @@ import flight_system.Airport;
  * The engine should provides methods for finding direct fights, finding out if there is
  * a route between airports, and getting all the routes from an airport. 
  * 
+ * @param <E> the type used for each flight of a route, e.g. a graph edge or a flight leg.
  * @author Kun Huang
  */
 
-public interface IFlightGraph {
+public interface IFlightGraph<E> {
 	
 	/**
 	 * Tells you if there is a direct route between two airports.
@@ -59,6 +58,6 @@ public interface IFlightGraph {
 	 * @return a list of all the possible routes
 	 */
 	/* Gets all the routes between two airports */
-	public ArrayList<LinkedList<Edge>> getRoutes(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass);
+	public ArrayList<LinkedList<E>> getRoutes(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass);
 	
 }
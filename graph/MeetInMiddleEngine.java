@@ -0,0 +1,528 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+
+import flight_system.Airport;
+import flight_system.FlightLeg;
+
+/**
+ * Search engine that finds the routes of up to 3 flights from both ends at once.
+ * <p>
+ * A search from the origin alone looks at every flight leaving every airport it
+ * lands at, and at a hub that is hundreds of flights for each flight that gets
+ * there. This engine takes one flight forward from the origin and one flight
+ * backward from the destination, using the flights landing at each airport,
+ * so only the middle flight of a 3 flight route is ever looked for. The two
+ * ends are joined at the airports in between by their times: the flights
+ * that land at an airport are sorted by arrival and the flights that leave it
+ * by departure, so the flights that can be caught are found with one merge or
+ * one binary search instead of being checked one by one.
+ * <p>
+ * The routes are the same ones, in the same order, as
+ * {@link CompactFlightGraph#getRoutes(Airport, Airport, int, boolean)} and
+ * {@link CompactFlightGraph#getRoutesDir(Airport, Airport, int, boolean)}.
+ *
+ * @see GraphMaker#getCompactGraph()
+ */
+public class MeetInMiddleEngine {
+
+	/* The most flights a route found from both ends can have */
+	public static final int MAX_FLIGHTS = 3;
+
+	private CompactFlightGraph graph;
+
+	/* The flights landing at airport n are inFlights[firstInFlight[n]] to
+	 * inFlights[firstInFlight[n+1] - 1], sorted by arrival time */
+	private int[] firstInFlight;
+	private int[] inFlights;
+
+	/* Each thread searches with its own arrays */
+	private ThreadLocal<SearchState> searchStates;
+
+	/**
+	 * Makes a search engine for a compact flight graph.
+	 * <p>
+	 * The flights landing at each airport are indexed once, here.
+	 *
+	 * @param graph the flight graph to search.
+	 */
+	public MeetInMiddleEngine(CompactFlightGraph graph) {
+
+		this.graph = graph;
+
+		indexArrivals();
+
+		int maxOut = 0;
+		int maxIn = 0;
+
+		for (int n = 0; n < graph.getNumOfAirports(); n++){
+			maxOut = Math.max(maxOut, graph.firstFlight[n + 1] - graph.firstFlight[n]);
+			maxIn = Math.max(maxIn, firstInFlight[n + 1] - firstInFlight[n]);
+		}
+
+		final int numOfAirports = graph.getNumOfAirports();
+		final int maxDepartures = maxOut;
+		final int maxArrivals = maxIn;
+
+		this.searchStates = new ThreadLocal<SearchState>() {
+			@Override
+			protected SearchState initialValue() {
+				return new SearchState(numOfAirports, maxDepartures, maxArrivals);
+			}
+		};
+	}
+
+	/**
+	 * Gets all the routes between two airports,
+	 * with a provided number of flights.
+	 * <p>
+	 * The seats are not checked. Routes of more than {@link #MAX_FLIGHTS} flights
+	 * are searched for by the compact graph.
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param maxFlights the maximum number of flights the route can have
+	 * @param isFirstClass true if looking for First Class flights
+	 * @return a list of all the possible routes
+	 * @see CompactFlightGraph#getRoutes(Airport, Airport, int, boolean)
+	 */
+	public ArrayList<LinkedList<FlightLeg>> getRoutes(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass) {
+
+		if (maxFlights > MAX_FLIGHTS){
+			return graph.getRoutes(depPort, arrPort, maxFlights, isFirstClass);
+		}
+
+		return search(depPort, arrPort, maxFlights, false, isFirstClass);
+	}
+
+	/**
+	 * Gets all the routes in a general direction between two airports,
+	 * with a provided number of flights, that have seats available.
+	 * <p>
+	 * Routes of more than {@link #MAX_FLIGHTS} flights are searched for by the compact graph.
+	 *
+	 * @param depPort the departure airport
+	 * @param arrPort the arrival airport
+	 * @param maxFlights the maximum number of flights the route can have
+	 * @param isFirstClass true if you are searching for First Class flights
+	 * @return a list of all the possible routes in that general direction.
+	 * @see CompactFlightGraph#getRoutesDir(Airport, Airport, int, boolean)
+	 */
+	public ArrayList<LinkedList<FlightLeg>> getRoutesDir(Airport depPort, Airport arrPort, int maxFlights, boolean isFirstClass) {
+
+		if (maxFlights > MAX_FLIGHTS){
+			return graph.getRoutesDir(depPort, arrPort, maxFlights, isFirstClass);
+		}
+
+		return search(depPort, arrPort, maxFlights, true, isFirstClass);
+	}
+
+	/* Finds the routes from both ends and joins them */
+	private ArrayList<LinkedList<FlightLeg>> search(Airport depPort, Airport arrPort, int maxFlights,
+			boolean filterDir, boolean isFirstClass) {
+
+		ArrayList<int[]> found = new ArrayList<int[]>();
+
+		int origin = graph.getAirportNum(depPort);
+		int dest = graph.getAirportNum(arrPort);
+
+		/* Not in the graph, or going nowhere */
+		if (origin < 0 || dest < 0 || origin == dest){
+			return new ArrayList<LinkedList<FlightLeg>>();
+		}
+
+		/* A direct flight is always allowed */
+		int maxLegs = Math.max(1, maxFlights);
+		int[] seats = isFirstClass ? graph.firstSeatsAvail : graph.coachSeatsAvail;
+
+		SearchState state = searchStates.get();
+
+		try {
+
+			state.addFirstFlights(origin, dest, filterDir, seats, found);
+
+			if (maxLegs >= 2){
+				state.addLastFlights(origin, dest, filterDir, seats);
+				state.joinTwoFlights(found);
+			}
+
+			if (maxLegs >= 3){
+				state.joinThreeFlights(origin, dest, filterDir, seats, found);
+			}
+
+		}
+		finally {
+			state.clear();
+		}
+
+		return makeRoutes(found);
+	}
+
+	/* Sorts the routes the way a search from the origin finds them, and turns them into flight legs */
+	private ArrayList<LinkedList<FlightLeg>> makeRoutes(ArrayList<int[]> found) {
+
+		/* Flights leaving the same airport are in departure order, so this is the order they are tried in */
+		Collections.sort(found, new Comparator<int[]>() {
+			public int compare(int[] route1, int[] route2) {
+				for (int i = 0; i < route1.length && i < route2.length; i++){
+					if (route1[i] != route2[i]){
+						return route1[i] < route2[i] ? -1 : 1;
+					}
+				}
+				return route1.length - route2.length;
+			}
+		});
+
+		ArrayList<LinkedList<FlightLeg>> routes = new ArrayList<LinkedList<FlightLeg>>(found.size());
+
+		for (int[] route : found){
+
+			LinkedList<FlightLeg> legs = new LinkedList<FlightLeg>();
+
+			for (int flight : route){
+				legs.add(graph.flightLegs[flight]);
+			}
+
+			routes.add(legs);
+		}
+
+		return routes;
+	}
+
+	/* Groups the flights by the airport they land at, sorted by arrival time */
+	private void indexArrivals() {
+
+		int numOfAirports = graph.getNumOfAirports();
+		int numOfFlights = graph.getNumOfFlights();
+		final int[] arrPorts = graph.arrPorts;
+		final int[] arrMinutes = graph.arrMinutes;
+
+		Integer[] order = new Integer[numOfFlights];
+
+		for (int i = 0; i < numOfFlights; i++){
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer flight1, Integer flight2) {
+				if (arrPorts[flight1] != arrPorts[flight2]){
+					return arrPorts[flight1] < arrPorts[flight2] ? -1 : 1;
+				}
+				if (arrMinutes[flight1] != arrMinutes[flight2]){
+					return arrMinutes[flight1] < arrMinutes[flight2] ? -1 : 1;
+				}
+				return flight1.compareTo(flight2);
+			}
+		});
+
+		this.firstInFlight = new int[numOfAirports + 1];
+		this.inFlights = new int[numOfFlights];
+
+		for (int pos = 0; pos < numOfFlights; pos++){
+			inFlights[pos] = order[pos];
+			firstInFlight[arrPorts[order[pos]] + 1]++;
+		}
+
+		/* Turn the counts into starting positions */
+		for (int n = 0; n < numOfAirports; n++){
+			firstInFlight[n + 1] += firstInFlight[n];
+		}
+
+	}
+
+	/* The flights from the origin and to the destination of one search,
+	 * grouped by the airport in between */
+	private class SearchState {
+
+		/* The 1st flights landing at airport n are firstFlights[firstStart[n]] on, firstCount[n] of them.
+		 * Each is the arrival time in the high half and the flight in the low half, so they sort by arrival. */
+		int[] firstStart;
+		int[] firstCount;
+		long[] firstFlights;
+		int[] firstPorts;
+		int numOfFirstPorts;
+
+		/* The last flights leaving airport n are lastFlights[lastStart[n]] on, lastCount[n] of them, by departure */
+		int[] lastStart;
+		int[] lastCount;
+		int[] lastFlights;
+		int[] lastPorts;
+		int numOfLastPorts;
+
+		SearchState(int numOfAirports, int maxDepartures, int maxArrivals) {
+			this.firstStart = new int[numOfAirports];
+			this.firstCount = new int[numOfAirports];
+			this.firstFlights = new long[maxDepartures];
+			this.firstPorts = new int[maxDepartures];
+			this.lastStart = new int[numOfAirports];
+			this.lastCount = new int[numOfAirports];
+			this.lastFlights = new int[maxArrivals];
+			this.lastPorts = new int[maxArrivals];
+		}
+
+		/* One flight forward: the direct flights are routes, the others are grouped by where they land */
+		void addFirstFlights(int origin, int dest, boolean filterDir, int[] seats, ArrayList<int[]> found) {
+
+			int start = graph.firstFlight[origin];
+			int end = graph.firstFlight[origin + 1];
+
+			/* Count the flights landing at each airport */
+			for (int flight = start; flight < end; flight++){
+
+				int port = getFirstPort(flight, origin, dest, filterDir, seats);
+
+				if (port == dest){
+					found.add(new int[] {flight});
+				}
+				else if (port >= 0 && firstCount[port]++ == 0){
+					firstPorts[numOfFirstPorts++] = port;
+				}
+			}
+
+			startGroups(firstPorts, numOfFirstPorts, firstStart, firstCount);
+
+			for (int flight = start; flight < end; flight++){
+
+				int port = getFirstPort(flight, origin, dest, filterDir, seats);
+
+				if (port >= 0 && port != dest){
+					firstFlights[firstStart[port] + firstCount[port]++] = ((long) graph.arrMinutes[flight] << 32) | flight;
+				}
+			}
+
+			for (int i = 0; i < numOfFirstPorts; i++){
+				int port = firstPorts[i];
+				Arrays.sort(firstFlights, firstStart[port], firstStart[port] + firstCount[port]);
+			}
+		}
+
+		/* Where a 1st flight lands, -1 if no route can start with it */
+		int getFirstPort(int flight, int origin, int dest, boolean filterDir, int[] seats) {
+
+			int port = graph.arrPorts[flight];
+
+			if (port == origin){
+				return -1;
+			}
+
+			if (filterDir){
+
+				if (seats[flight] <= 0){
+					return -1;
+				}
+
+				/* A connection is only made after a flight towards the destination */
+				if (port != dest && !graph.isRightDir(origin, dest, origin, port)){
+					return -1;
+				}
+			}
+
+			return port;
+		}
+
+		/* One flight backward: the flights landing at the destination, grouped by where they leave from */
+		void addLastFlights(int origin, int dest, boolean filterDir, int[] seats) {
+
+			int start = firstInFlight[dest];
+			int end = firstInFlight[dest + 1];
+
+			for (int i = start; i < end; i++){
+
+				int flight = inFlights[i];
+				int port = graph.depPorts[flight];
+
+				/* The direct flights were found going forward */
+				if (port == origin || (filterDir && seats[flight] <= 0)){
+					continue;
+				}
+
+				if (lastCount[port]++ == 0){
+					lastPorts[numOfLastPorts++] = port;
+				}
+			}
+
+			startGroups(lastPorts, numOfLastPorts, lastStart, lastCount);
+
+			for (int i = start; i < end; i++){
+
+				int flight = inFlights[i];
+				int port = graph.depPorts[flight];
+
+				if (port == origin || (filterDir && seats[flight] <= 0)){
+					continue;
+				}
+
+				lastFlights[lastStart[port] + lastCount[port]++] = flight;
+			}
+
+			/* The flights leaving an airport are numbered in departure order */
+			for (int i = 0; i < numOfLastPorts; i++){
+				int port = lastPorts[i];
+				Arrays.sort(lastFlights, lastStart[port], lastStart[port] + lastCount[port]);
+			}
+		}
+
+		/* Routes of 2 flights: at each airport in between, merge the landings with the departures */
+		void joinTwoFlights(ArrayList<int[]> found) {
+
+			for (int i = 0; i < numOfFirstPorts; i++){
+
+				int port = firstPorts[i];
+
+				if (lastCount[port] == 0){
+					continue;
+				}
+
+				int firstStartPos = firstStart[port];
+				int firstEnd = firstStartPos + firstCount[port];
+				int caught = firstStartPos;
+
+				for (int last = lastStart[port]; last < lastStart[port] + lastCount[port]; last++){
+
+					int lastFlight = lastFlights[last];
+
+					/* The 1st flights that land before this one leaves, more of them as it leaves later */
+					while (caught < firstEnd && getMinute(firstFlights[caught]) < graph.depMinutes[lastFlight]){
+						caught++;
+					}
+
+					for (int first = firstStartPos; first < caught; first++){
+						found.add(new int[] {getFlight(firstFlights[first]), lastFlight});
+					}
+				}
+			}
+		}
+
+		/* Routes of 3 flights: from each airport in between, the middle flights
+		 * that land where a last flight leaves */
+		void joinThreeFlights(int origin, int dest, boolean filterDir, int[] seats, ArrayList<int[]> found) {
+
+			for (int i = 0; i < numOfFirstPorts; i++){
+
+				int port = firstPorts[i];
+				int firstStartPos = firstStart[port];
+				int firstEnd = firstStartPos + firstCount[port];
+
+				/* No middle flight can leave before the earliest landing */
+				int earliest = getMinute(firstFlights[firstStartPos]);
+
+				for (int middle = graph.firstDepartureAfter(port, earliest); middle < graph.firstFlight[port + 1]; middle++){
+
+					int nextPort = graph.arrPorts[middle];
+
+					if (nextPort == origin || nextPort == dest || lastCount[nextPort] == 0){
+						continue;
+					}
+
+					if (filterDir && (seats[middle] <= 0 || !graph.isRightDir(origin, dest, port, nextPort))){
+						continue;
+					}
+
+					/* The last flights that leave after the middle one lands */
+					int lastEnd = lastStart[nextPort] + lastCount[nextPort];
+					int lastFirst = firstLastAfter(lastStart[nextPort], lastEnd, graph.arrMinutes[middle]);
+
+					if (lastFirst == lastEnd){
+						continue;
+					}
+
+					/* The 1st flights that land before the middle one leaves */
+					int caught = firstLandingFrom(firstStartPos, firstEnd, graph.depMinutes[middle]);
+
+					for (int first = firstStartPos; first < caught; first++){
+						for (int last = lastFirst; last < lastEnd; last++){
+							found.add(new int[] {getFlight(firstFlights[first]), middle, lastFlights[last]});
+						}
+					}
+				}
+			}
+		}
+
+		/* The 1st of the last flights from start to end - 1 that leaves after a minute */
+		int firstLastAfter(int start, int end, int minute) {
+
+			int low = start;
+			int high = end;
+
+			while (low < high){
+
+				int mid = (low + high) >>> 1;
+
+				if (graph.depMinutes[lastFlights[mid]] <= minute){
+					low = mid + 1;
+				}
+				else {
+					high = mid;
+				}
+			}
+
+			return low;
+		}
+
+		/* The 1st of the 1st flights from start to end - 1 that lands at or after a minute */
+		int firstLandingFrom(int start, int end, int minute) {
+
+			int low = start;
+			int high = end;
+
+			while (low < high){
+
+				int mid = (low + high) >>> 1;
+
+				if (getMinute(firstFlights[mid]) < minute){
+					low = mid + 1;
+				}
+				else {
+					high = mid;
+				}
+			}
+
+			return low;
+		}
+
+		/* Gives each airport's group its place, and starts its count again for filling it */
+		void startGroups(int[] ports, int numOfPorts, int[] starts, int[] counts) {
+
+			int start = 0;
+
+			for (int i = 0; i < numOfPorts; i++){
+				starts[ports[i]] = start;
+				start += counts[ports[i]];
+				counts[ports[i]] = 0;
+			}
+		}
+
+		/* Only the airports that were used are cleared, ready for the next search */
+		void clear() {
+
+			for (int i = 0; i < numOfFirstPorts; i++){
+				firstCount[firstPorts[i]] = 0;
+			}
+
+			for (int i = 0; i < numOfLastPorts; i++){
+				lastCount[lastPorts[i]] = 0;
+			}
+
+			numOfFirstPorts = 0;
+			numOfLastPorts = 0;
+		}
+	}
+
+	private static int getMinute(long timedFlight) {
+		return (int) (timedFlight >> 32);
+	}
+
+	private static int getFlight(long timedFlight) {
+		return (int) timedFlight;
+	}
+
+	@Override
+	public String toString() {
+		return "MeetInMiddleEngine over " + graph;
+	}
+
+}
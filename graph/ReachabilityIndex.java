@@ -0,0 +1,315 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import flight_system.Airport;
+import flight_system.FlightLeg;
+
+/**
+ * Index of the airports that can be reached from each airport of a flight graph
+ * with 1, 2 or 3 flights.
+ * <p>
+ * A route counts the same way it does for the {@link GraphEngine}: every flight
+ * leaves after the one before it lands, and an airport can't be visited twice.
+ * The seats are not checked, so the index stays right when the seats of the
+ * graph are refreshed. It is worked out once for a graph, after that telling
+ * if there can be a route is a look up of one bit.
+ * <p>
+ * The index is made for each airport by following its flights: the earliest
+ * time each airport can be reached with 1 flight is enough to know where a 2nd
+ * flight can go, and the 2 earliest times each airport can be reached with 2
+ * flights (through 2 different airports) are enough for the 3rd flight. So the
+ * index takes about as long to make as looking at every flight once for each airport.
+ *
+ * @see GraphMaker#getReachabilityIndex()
+ */
+public class ReachabilityIndex {
+
+	/* The most flights the index knows about */
+	public static final int MAX_FLIGHTS = 3;
+
+	/* No time, when an airport can't be reached */
+	private static final int NEVER = Integer.MAX_VALUE;
+
+	/* Airport numbers, by the airport code */
+	private HashMap<String, Integer> airportNums;
+
+	/* reachable[k - 1][n] has the airports that can be reached from airport n with at most k flights */
+	private BitSet[][] reachable;
+
+	/**
+	 * Makes the index for some flights.
+	 * @param flights the flights of the graph, e.g. from the graph maker.
+	 * @see GraphMaker#getFlightLegs()
+	 */
+	public ReachabilityIndex(Collection<FlightLeg> flights) {
+
+		this.airportNums = new HashMap<String, Integer>();
+
+		/* Number the airports the flights leave from or land at */
+		ArrayList<FlightLeg> legs = new ArrayList<FlightLeg>(flights.size());
+
+		for (FlightLeg flight : flights){
+			if (flight != null){
+				getOrAddAirportNum(flight.getDepartureAirport());
+				getOrAddAirportNum(flight.getArrivalAirport());
+				legs.add(flight);
+			}
+		}
+
+		build(legs);
+	}
+
+	/**
+	 * Gets the number of airports in the index.
+	 * @return the number of airports.
+	 */
+	public int getNumOfAirports() {
+		return airportNums.size();
+	}
+
+	/**
+	 * Tells if there can be a route between two airports.
+	 * <p>
+	 * A direct flight is always allowed, even if <code>maxFlights</code> is less than 1.
+	 * The index doesn't know about routes with more than {@link #MAX_FLIGHTS} flights,
+	 * so for those it only tells if the airports have flights at all.
+	 *
+	 * @param depPort the departure airport.
+	 * @param arrPort the arrival airport.
+	 * @param maxFlights the maximum number of flights the route can have.
+	 * @return false if there is no route between the airports.
+	 */
+	public boolean canReach(Airport depPort, Airport arrPort, int maxFlights) {
+
+		int dep = getAirportNum(depPort);
+		int arr = getAirportNum(arrPort);
+
+		if (dep < 0 || arr < 0){
+			return false;
+		}
+
+		if (maxFlights > MAX_FLIGHTS){
+			return dep != arr;
+		}
+
+		return reachable[Math.max(1, maxFlights) - 1][dep].get(arr);
+	}
+
+	/**
+	 * Gets the airports that can be reached from an airport.
+	 * @param depPort the departure airport.
+	 * @param maxFlights the maximum number of flights, from 1 to {@link #MAX_FLIGHTS}.
+	 * @return the codes of the airports that can be reached.
+	 */
+	public ArrayList<String> getReachable(Airport depPort, int maxFlights) {
+
+		ArrayList<String> codes = new ArrayList<String>();
+		int dep = getAirportNum(depPort);
+
+		if (dep < 0){
+			return codes;
+		}
+
+		String[] codeOf = new String[airportNums.size()];
+		for (String code : airportNums.keySet()){
+			codeOf[airportNums.get(code)] = code;
+		}
+
+		BitSet reached = reachable[Math.max(1, Math.min(maxFlights, MAX_FLIGHTS)) - 1][dep];
+
+		for (int arr = reached.nextSetBit(0); arr >= 0; arr = reached.nextSetBit(arr + 1)){
+			codes.add(codeOf[arr]);
+		}
+
+		return codes;
+	}
+
+	/* Works out the airports reachable from every airport */
+	private void build(ArrayList<FlightLeg> legs) {
+
+		final int numOfAirports = airportNums.size();
+		final int numOfFlights = legs.size();
+
+		/* Group the flights by departure airport, sorted by departure time */
+		FlightLeg[] sorted = legs.toArray(new FlightLeg[numOfFlights]);
+
+		Arrays.sort(sorted, new Comparator<FlightLeg>() {
+			public int compare(FlightLeg flight1, FlightLeg flight2) {
+				int port1 = getAirportNum(flight1.getDepartureAirport());
+				int port2 = getAirportNum(flight2.getDepartureAirport());
+				if (port1 != port2){
+					return port1 < port2 ? -1 : 1;
+				}
+				return Integer.compare(flight1.getDepartureEpochMinute(), flight2.getDepartureEpochMinute());
+			}
+		});
+
+		int[] firstFlight = new int[numOfAirports + 1];
+		int[] depMinutes = new int[numOfFlights];
+		int[] arrMinutes = new int[numOfFlights];
+		int[] arrPorts = new int[numOfFlights];
+
+		for (int pos = 0; pos < numOfFlights; pos++){
+			depMinutes[pos] = sorted[pos].getDepartureEpochMinute();
+			arrMinutes[pos] = sorted[pos].getArrivalEpochMinute();
+			arrPorts[pos] = getAirportNum(sorted[pos].getArrivalAirport());
+			firstFlight[getAirportNum(sorted[pos].getDepartureAirport()) + 1]++;
+		}
+
+		for (int n = 0; n < numOfAirports; n++){
+			firstFlight[n + 1] += firstFlight[n];
+		}
+
+		this.reachable = new BitSet[MAX_FLIGHTS][numOfAirports];
+
+		/* Earliest arrival with 1 flight, and the 2 earliest with 2 flights through different airports */
+		int[] arrival1 = new int[numOfAirports];
+		int[] arrival2 = new int[numOfAirports];
+		int[] via2 = new int[numOfAirports];
+		int[] nextArrival2 = new int[numOfAirports];
+		int[] nextVia2 = new int[numOfAirports];
+
+		for (int origin = 0; origin < numOfAirports; origin++){
+
+			BitSet reach1 = new BitSet(numOfAirports);
+			BitSet reach2 = new BitSet(numOfAirports);
+			BitSet reach3 = new BitSet(numOfAirports);
+
+			Arrays.fill(arrival1, NEVER);
+			Arrays.fill(arrival2, NEVER);
+			Arrays.fill(via2, -1);
+			Arrays.fill(nextArrival2, NEVER);
+			Arrays.fill(nextVia2, -1);
+
+			/* 1 flight */
+			for (int flight = firstFlight[origin]; flight < firstFlight[origin + 1]; flight++){
+
+				int to = arrPorts[flight];
+
+				if (to != origin){
+					reach1.set(to);
+					arrival1[to] = Math.min(arrival1[to], arrMinutes[flight]);
+				}
+			}
+
+			/* 2 flights, leaving after the earliest landing at the 1st airport */
+			for (int port = reach1.nextSetBit(0); port >= 0; port = reach1.nextSetBit(port + 1)){
+
+				int end = firstFlight[port + 1];
+
+				for (int flight = firstDepartureAfter(depMinutes, firstFlight[port], end, arrival1[port]); flight < end; flight++){
+
+					int to = arrPorts[flight];
+
+					if (to == origin){
+						continue;
+					}
+
+					reach2.set(to);
+
+					/* Keep the 2 earliest landings that came through different airports */
+					int arrival = arrMinutes[flight];
+
+					if (port == via2[to]){
+						arrival2[to] = Math.min(arrival2[to], arrival);
+					}
+					else if (arrival < arrival2[to]){
+						nextArrival2[to] = arrival2[to];
+						nextVia2[to] = via2[to];
+						arrival2[to] = arrival;
+						via2[to] = port;
+					}
+					else if (arrival < nextArrival2[to]){
+						nextArrival2[to] = arrival;
+						nextVia2[to] = port;
+					}
+				}
+			}
+
+			/* 3 flights, not landing back where the 1st flight landed */
+			for (int port = reach2.nextSetBit(0); port >= 0; port = reach2.nextSetBit(port + 1)){
+
+				int end = firstFlight[port + 1];
+
+				for (int flight = firstDepartureAfter(depMinutes, firstFlight[port], end, arrival2[port]); flight < end; flight++){
+
+					int to = arrPorts[flight];
+
+					if (to == origin){
+						continue;
+					}
+
+					if (to != via2[port] || depMinutes[flight] > nextArrival2[port]){
+						reach3.set(to);
+					}
+				}
+			}
+
+			/* At most k flights */
+			reach2.or(reach1);
+			reach3.or(reach2);
+
+			reachable[0][origin] = reach1;
+			reachable[1][origin] = reach2;
+			reachable[2][origin] = reach3;
+		}
+
+	}
+
+	/* The 1st flight from start to end - 1 that leaves after a time, like FlightLeg.connectsTo */
+	private static int firstDepartureAfter(int[] depMinutes, int start, int end, int time) {
+
+		int low = start;
+		int high = end;
+
+		while (low < high){
+
+			int mid = (low + high) >>> 1;
+
+			if (depMinutes[mid] > time){
+				high = mid;
+			}
+			else {
+				low = mid + 1;
+			}
+		}
+
+		return low;
+	}
+
+	private int getOrAddAirportNum(Airport airport) {
+
+		String code = airport.getCode().toUpperCase();
+		Integer num = airportNums.get(code);
+
+		if (num == null){
+			num = airportNums.size();
+			airportNums.put(code, num);
+		}
+
+		return num;
+	}
+
+	private int getAirportNum(Airport airport) {
+
+		if (airport == null){
+			return -1;
+		}
+
+		Integer num = airportNums.get(airport.getCode().toUpperCase());
+
+		return (num == null) ? -1 : num;
+	}
+
+	@Override
+	public String toString() {
+		return "ReachabilityIndex has " + getNumOfAirports() + " airports, up to " + MAX_FLIGHTS + " flights";
+	}
+
+}
@@ -0,0 +1,265 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Graph;
+import org.graphstream.graph.implementations.MultiGraph;
+
+import flight_system.Airplane;
+import flight_system.Airport;
+import flight_system.Date;
+import flight_system.FlightLeg;
+import flight_system.Location;
+import flight_system.Month;
+import flight_system.Time;
+
+/**
+ * A made up flight network, used to benchmark the search engines on the same
+ * inputs without downloading anything.
+ * <p>
+ * The network is either hub-and-spoke, where most flights go between a small
+ * airport and its hub and the hubs are linked to each other, or a mesh, where
+ * any airport can have a flight to any other. All the flights leave on the
+ * same day, and the same seed always gives the same network.
+ * <p>
+ * The airports are made without looking up their time zones.
+ *
+ * @see GraphBenchmark
+ */
+public class SyntheticNetwork {
+
+	/**
+	 * The layout of the network.
+	 */
+	public enum Shape {
+		/** Small airports fly to their hub, and the hubs fly to each other */
+		HUB_AND_SPOKE,
+		/** Any airport can fly to any other */
+		MESH;
+	}
+
+	/* One airport in this many is a hub */
+	private static final int SPOKES_PER_HUB = 25;
+
+	/* Share of the hub-and-spoke flights that go between two hubs, in percent */
+	private static final int HUB_TO_HUB = 30;
+
+	/* Cruising speed used for the flight times, in km per hour */
+	private static final double SPEED = 800;
+
+	private Shape shape;
+	private long seed;
+	private Date date;
+	private ArrayList<Airport> airports;
+	private ArrayList<FlightLeg> flightLegs;
+
+	/**
+	 * Makes a made up network of flights on May 10, 2015.
+	 *
+	 * @param shape the layout of the network.
+	 * @param numOfAirports the number of airports, at least 2.
+	 * @param numOfFlights the number of flights leaving on the day.
+	 * @param seed the seed used to make the airports and flights.
+	 */
+	public SyntheticNetwork(Shape shape, int numOfAirports, int numOfFlights, long seed) {
+
+		this.shape = shape;
+		this.seed = seed;
+		this.date = new Date(Month.May, 10, 2015);
+
+		Random random = new Random(seed);
+
+		makeAirports(Math.max(2, numOfAirports), random);
+		makeFlights(Math.max(0, numOfFlights), random);
+	}
+
+	/**
+	 * Gets the layout of the network.
+	 * @return the shape.
+	 */
+	public Shape getShape() {
+		return shape;
+	}
+
+	/**
+	 * Gets the day the flights leave.
+	 * @return the date.
+	 */
+	public Date getDate() {
+		return date;
+	}
+
+	/**
+	 * Gets the airports, the hubs are the first ones.
+	 * @return the airports.
+	 */
+	public ArrayList<Airport> getAirports() {
+		return airports;
+	}
+
+	/**
+	 * Gets the flights.
+	 * @return the flights.
+	 */
+	public ArrayList<FlightLeg> getFlightLegs() {
+		return flightLegs;
+	}
+
+	/**
+	 * Gets the number of hubs, 0 for a mesh.
+	 * @return the number of hubs.
+	 */
+	public int getNumOfHubs() {
+		return (shape == Shape.HUB_AND_SPOKE) ? numOfHubs(airports.size()) : 0;
+	}
+
+	/**
+	 * Makes a flight graph of the network, laid out the same way as the
+	 * graphs made by the {@link GraphMaker}.
+	 * @return a new flight graph.
+	 */
+	public Graph makeGraph() {
+
+		Graph graph = new MultiGraph(shape + "_" + airports.size() + "_" + flightLegs.size());
+		graph.setAutoCreate(true);
+
+		for (Airport airport : airports){
+			graph.addNode(airport.getCode());
+		}
+
+		for (FlightLeg flight : flightLegs){
+
+			graph.addEdge(Integer.toString(flight.getFlightNum()), flight.getDepartureAirport().getCode(),
+					flight.getArrivalAirport().getCode(), true);
+
+			Edge edge = graph.getEdge(Integer.toString(flight.getFlightNum()));
+			edge.addAttribute("fltInfo", flight);
+		}
+
+		return graph;
+	}
+
+	/**
+	 * Makes a compact flight graph of the network.
+	 * @return a new compact flight graph.
+	 */
+	public CompactFlightGraph makeCompactGraph() {
+		return new CompactFlightGraph(airports, flightLegs);
+	}
+
+	/**
+	 * Picks random pairs of different airports to search between.
+	 * @param numOfQueries the number of pairs.
+	 * @return the pairs, each one is the departure and the arrival airport.
+	 */
+	public ArrayList<Airport[]> makeQueries(int numOfQueries) {
+
+		Random random = new Random(seed * 31 + 7);
+		ArrayList<Airport[]> queries = new ArrayList<Airport[]>(numOfQueries);
+
+		for (int i = 0; i < numOfQueries; i++){
+			int from = random.nextInt(airports.size());
+			int to = (from + 1 + random.nextInt(airports.size() - 1)) % airports.size();
+			queries.add(new Airport[] {airports.get(from), airports.get(to)});
+		}
+
+		return queries;
+	}
+
+	private static int numOfHubs(int numOfAirports) {
+		return Math.max(1, numOfAirports / SPOKES_PER_HUB);
+	}
+
+	/* Makes the airports, spread over the continental US */
+	private void makeAirports(int numOfAirports, Random random) {
+
+		this.airports = new ArrayList<Airport>(numOfAirports);
+
+		for (int i = 0; i < numOfAirports; i++){
+
+			char[] code = {(char) ('A' + (i / 676) % 26), (char) ('A' + (i / 26) % 26), (char) ('A' + i % 26)};
+
+			Location location = new Location(25 + random.nextInt(2400) / 100.0, -124 + random.nextInt(5700) / 100.0, false);
+			airports.add(new Airport(new String(code), new String(code) + " Airport", location));
+		}
+	}
+
+	/* Makes the flights, with random times, prices and seats taken */
+	private void makeFlights(int numOfFlights, Random random) {
+
+		Airplane[] airplanes = {
+			new Airplane("A320", "Airbus", 12, 124),
+			new Airplane("737", "Boeing", 16, 126),
+			new Airplane("767", "Boeing", 20, 198),
+			new Airplane("777", "Boeing", 36, 300)
+		};
+
+		Date nextDate = new Date(Month.May, 11, 2015);
+		int numOfHubs = numOfHubs(airports.size());
+
+		this.flightLegs = new ArrayList<FlightLeg>(numOfFlights);
+
+		for (int i = 0; i < numOfFlights; i++){
+
+			int from;
+			int to;
+
+			if (shape == Shape.HUB_AND_SPOKE && (numOfHubs < 2 || random.nextInt(100) >= HUB_TO_HUB)){
+
+				/* Between a small airport and its hub, either way */
+				int spoke = numOfHubs + random.nextInt(airports.size() - numOfHubs);
+				int hub = spoke % numOfHubs;
+
+				boolean outbound = random.nextBoolean();
+				from = outbound ? hub : spoke;
+				to = outbound ? spoke : hub;
+			}
+			else{
+				int range = (shape == Shape.HUB_AND_SPOKE) ? numOfHubs : airports.size();
+				from = random.nextInt(range);
+				to = (from + 1 + random.nextInt(range - 1)) % range;
+			}
+
+			Airport depPort = airports.get(from);
+			Airport arrPort = airports.get(to);
+			Airplane airplane = airplanes[random.nextInt(airplanes.length)];
+
+			double distance = distance(depPort.getLocation(), arrPort.getLocation());
+			int duration = 30 + (int) (distance / SPEED * 60);
+			int depMinutes = random.nextInt(24 * 60);
+			int arrMinutes = depMinutes + duration;
+
+			/* Some flights land the next day */
+			Date arrDate = (arrMinutes >= 24 * 60) ? nextDate : date;
+			arrMinutes %= 24 * 60;
+
+			flightLegs.add(new FlightLeg(airplane, 1000 + i, duration,
+					new Time(depMinutes / 60, depMinutes % 60), date, depPort,
+					new Time(arrMinutes / 60, arrMinutes % 60), arrDate, arrPort,
+					Math.round(200 + distance * 0.4), random.nextInt(airplane.getFirstClassSeats() + 1),
+					Math.round(60 + distance * 0.12), random.nextInt(airplane.getCoachSeats() + 1)));
+		}
+	}
+
+	/* Great circle distance between two locations, in km */
+	private static double distance(Location from, Location to) {
+
+		double lat1 = Math.toRadians(from.getLatitude());
+		double lat2 = Math.toRadians(to.getLatitude());
+		double dLat = lat2 - lat1;
+		double dLong = Math.toRadians(to.getLongitude() - from.getLongitude());
+
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLong / 2) * Math.sin(dLong / 2);
+
+		return 6371 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+	}
+
+	@Override
+	public String toString() {
+		return "SyntheticNetwork " + shape + " with " + airports.size() + " airports and " + flightLegs.size() + " flights";
+	}
+
+}
@@ -1,9 +1,12 @@
 package parsers;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.ListIterator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -25,6 +28,8 @@ import flight_system.Airplane;
  * as any point in time. The parser object also allows a client to get a copy of 
  * a list that contains of the airplanes that were parsed. Also, the
  * object provides a method for getting an airplane based on its model.  
+ * <p>
+ * It can be used from many threads, the same way as the {@link AirportParser}.
  *
  * @author Kun Huang
  * @see parsers.XMLGetter#getAirplaneXML() 
@@ -33,13 +38,17 @@ import flight_system.Airplane;
 public class AirplaneParser {
 	
 	/* List to hold the airplanes parsed from the XML */
-	private ArrayList<Airplane> airplaneList; 
+	private volatile ArrayList<Airplane> airplaneList; 
+	
+	/* The same airplanes, keyed by their upper case model */
+	private volatile HashMap<String, Airplane> airplaneIndex;
 	
 	private static AirplaneParser firstInstance = null;
 	
 	/* The private constructor makes a list of the Airplanes */
 	private AirplaneParser(){
 		this.airplaneList = new ArrayList<Airplane>();
+		this.airplaneIndex = new HashMap<String, Airplane>();
 	};
 	
 	/** 
@@ -47,7 +56,7 @@ public class AirplaneParser {
 	 * @return the only instance of the Airplane Parser.
 	 */
 	/* Method to get the only instance of the class */
-	public static AirplaneParser getInstance(){
+	public static synchronized AirplaneParser getInstance(){
 		if(firstInstance == null){
 			firstInstance = new AirplaneParser();
 		}
@@ -82,32 +91,13 @@ public class AirplaneParser {
 	/* Return the airplane from the list that corresponds with the model number */
 	public Airplane getAirplane(String model){
 
-		boolean notFound = true;  // used determine if an airplane was found 
-		Airplane airplane = null; // holds the airplane that matches the code
-
-		/* Iterator object for the airplane list */
-		ListIterator<Airplane> airplaneIterator = airplaneList.listIterator();
-
-		/* Search this list until the airplane with the model is found */
-		do {
-
-			try {
-				airplane = airplaneIterator.next(); // get the next Airport in the list
-				/* If the model matches, set the notFound flag to false */
-				if (airplane.getModel().equalsIgnoreCase(model)) {
-					notFound = false; 
-				}
-			} catch (Exception e) {
-				/* No such element (Airplane) found */
-				airplane = null;
-				notFound = false; 
-			}
-
-
-		} while (notFound); // end while loop
-
-		return airplane; // Return the airplane that matches the code
-						 // Will return null if there's no match
+		/* There is no airplane without a model */
+		if (model == null){
+			return null;
+		}
+		
+		/* Will return null if there's no match */
+		return airplaneIndex.get(model.toUpperCase(Locale.ENGLISH));
 
 	}
 	
@@ -134,6 +124,40 @@ public class AirplaneParser {
 		
 	}
 	
+	/** 
+	 * Gets the airplanes from the server and parses them, unless they were 
+	 * already parsed. Only one thread gets them if many ask at once.
+	 * @see parsers.XMLGetter#openAirplaneStream()
+	 */
+	public synchronized void loadAirplaneList() {
+		if (!hasAirplaneList()){
+			parseAirplaneXML(XMLGetter.getInstance().openAirplaneStream());
+		}
+	}
+	
+	/** 
+	 * Adds airplanes that were loaded some other way, e.g. from a graph snapshot, 
+	 * so they don't have to be downloaded. An airplane whose model is already 
+	 * known is skipped.
+	 * @param airplanes the airplanes to add.
+	 * @see graph.GraphSnapshot
+	 */
+	public synchronized void addAirplanes(Collection<Airplane> airplanes) {
+		
+		/* Add to copies, like a parse does */
+		ArrayList<Airplane> newList = new ArrayList<Airplane>(airplaneList);
+		HashMap<String, Airplane> newIndex = new HashMap<String, Airplane>(airplaneIndex);
+		
+		for (Airplane airplane : airplanes){
+			if (!newIndex.containsKey(airplane.getModel().toUpperCase(Locale.ENGLISH))){
+				addAirplane(newList, newIndex, airplane);
+			}
+		}
+		
+		this.airplaneIndex = newIndex;
+		this.airplaneList = newList;
+	}
+	
 	/** 
 	 * Parses the airplane data from the XML that is provided to it. Stores the parsed 
 	 * airplane data in a list within the object.
@@ -143,6 +167,46 @@ public class AirplaneParser {
 	 */
 	/* Static Method used to parse the airplane XML */
 	public void parseAirplaneXML(String xmlSource) {
+		parseAirplaneXML(new InputSource(new StringReader(xmlSource)));
+	}
+	
+	/** 
+	 * Parses the airplane data straight from a stream of the XML, without copying
+	 * it into a String first. Stores the parsed airplane data in a list within the object.
+	 * <p>
+	 * The stream is closed once it has been read.
+	 * 			
+	 * @param xmlStream the stream of the XML that contains the airplane information, 
+	 * 		  nothing is parsed if it is null.
+	 * @see parsers.XMLGetter#openAirplaneStream()
+	 */
+	public void parseAirplaneXML(InputStream xmlStream) {
+		
+		/* The stream could not be opened */
+		if (xmlStream == null){
+			return;
+		}
+		
+		try {
+			parseAirplaneXML(new InputSource(xmlStream));
+		}
+		finally {
+			try {
+				xmlStream.close();
+			} catch (IOException e) {
+				// Nothing else to do
+			}
+		}
+		
+	}
+	
+	/* Parses the airplane XML from either a String or a stream */
+	private synchronized void parseAirplaneXML(InputSource xmlSource) {
+
+		/* Parse into copies, readers keep using the old list until it's done */
+		ArrayList<Airplane> newList = new ArrayList<Airplane>(airplaneList);
+		HashMap<String, Airplane> newIndex = new HashMap<String, Airplane>(airplaneIndex);
+
 
 		/* DOM Factory Builder */
 		DocumentBuilderFactory dom_fac = DocumentBuilderFactory.newInstance();
@@ -151,7 +215,7 @@ public class AirplaneParser {
 			/* Builds the doc object that contains the 
 			 * tree structure of the XML file */
 			DocumentBuilder builder = dom_fac.newDocumentBuilder();
-			Document doc = builder.parse(new InputSource(new StringReader(xmlSource))); // This is the root node
+			Document doc = builder.parse(xmlSource); // This is the root node
 			
 			/* Contains a list of all the airplanes from the Airplanes XML */
 			NodeList airplaneNodeList = doc.getElementsByTagName("Airplane");
@@ -178,7 +242,7 @@ public class AirplaneParser {
 				String coachSeats = airplaneNodeChildren.item(1).getTextContent();
 				
 				/* Adds the parsed airplane to the airplane list */
-				airplaneList.add(new Airplane(model, 
+				addAirplane(newList, newIndex, new Airplane(model, 
 						manufacturer, 
 						Integer.parseInt(firstClassSeats), 
 						Integer.parseInt(coachSeats)
@@ -196,10 +260,27 @@ public class AirplaneParser {
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
+		} finally {
+			/* Swap in the new airplanes, even if only some were parsed */
+			this.airplaneIndex = newIndex;
+			this.airplaneList = newList;
 		}
 
 	}
 
+	/* Adds an airplane to the list and the index, if a model is listed 
+	 * twice the 1st airplane is the one that is found */
+	private static void addAirplane(ArrayList<Airplane> list, HashMap<String, Airplane> index, Airplane airplane){
+		
+		list.add(airplane);
+		
+		String key = airplane.getModel().toUpperCase(Locale.ENGLISH);
+		
+		if (!index.containsKey(key)){
+			index.put(key, airplane);
+		}
+	}
+
 	/** 
 	 * Provides a string representation of the Airplane parser.			
 	 * @return a string representation of the Airplane parser object.
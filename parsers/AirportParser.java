@@ -1,9 +1,12 @@
 package parsers;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.ListIterator;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Locale;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -11,7 +14,6 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
-import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -25,6 +27,10 @@ import flight_system.*;
  * as any point in time. The parser object also allows a client to get a copy of 
  * a list that contains all the airports that were parsed. Also, the parser 
  * object provides a method for getting an airport based on its 3-digit code.  
+ * <p>
+ * It can be used from many threads. A parse fills copies of the list and the
+ * index and swaps them in when it's done, so a list that was handed out is
+ * never changed while someone reads it.
  * 
  * @author Kun Huang
  * @see parsers.XMLGetter#getAirportsXML() 
@@ -33,13 +39,17 @@ import flight_system.*;
 public class AirportParser {
 	
 	/* List to hold the airplanes parsed from the XML */
-	private ArrayList<Airport> airportList; 
+	private volatile ArrayList<Airport> airportList; 
+	
+	/* The same airports, keyed by their upper case code */
+	private volatile HashMap<String, Airport> airportIndex;
 	
 	private static AirportParser firstInstance = null;
 	
 	/* The private constructor makes a list of the Airplanes */
 	private AirportParser(){
 		this.airportList = new ArrayList<Airport>();
+		this.airportIndex = new HashMap<String, Airport>();
 	};
 	
 	/** 
@@ -47,7 +57,7 @@ public class AirportParser {
 	 * @return the only instance of the Airport Parser.
 	 */
 	/* Method to get the only instance of the class */
-	public static AirportParser getInstance(){
+	public static synchronized AirportParser getInstance(){
 		if(firstInstance == null){
 			firstInstance = new AirportParser();
 		}
@@ -82,32 +92,13 @@ public class AirportParser {
 	/* Return the airport from the list that corresponds with the code */
 	public Airport getAirport(String code){
 
-		boolean notFound = true;  // used determine if an airport was found 
-		Airport airport = null; // holds the airport that matches the code
-
-		/* Iterator object for the airport list */
-		ListIterator<Airport> airportIterator = airportList.listIterator();
-
-		/* Search this list until the airport with the code is found */
-		do {
-
-			try {
-				airport = airportIterator.next(); // get the next Airport in the list
-				/* If the model matches, set the notFound flag to false */
-				if (airport.getCode().equalsIgnoreCase(code)) {
-					notFound = false; 
-				}
-			} catch (Exception e) {
-				/* No such element (Airport) found */
-				airport = null;
-				notFound = false; 
-			}
-
-
-		} while (notFound); // end while loop
-
-		return airport; // Return the airport that matches the code
-						// Will return null if there's no match
+		/* There is no airport without a code */
+		if (code == null){
+			return null;
+		}
+		
+		/* Will return null if there's no match */
+		return airportIndex.get(code.toUpperCase(Locale.ENGLISH));
 
 	}
 	
@@ -134,6 +125,40 @@ public class AirportParser {
 		
 	}
 	
+	/** 
+	 * Gets the airports from the server and parses them, unless they were 
+	 * already parsed. Only one thread gets them if many ask at once.
+	 * @see parsers.XMLGetter#openAirportsStream()
+	 */
+	public synchronized void loadAirportList() {
+		if (!hasAirportList()){
+			parseAirportXML(XMLGetter.getInstance().openAirportsStream());
+		}
+	}
+	
+	/** 
+	 * Adds airports that were loaded some other way, e.g. from a graph snapshot, 
+	 * so they don't have to be downloaded. An airport whose code is already 
+	 * known is skipped.
+	 * @param airports the airports to add.
+	 * @see graph.GraphSnapshot
+	 */
+	public synchronized void addAirports(Collection<Airport> airports) {
+		
+		/* Add to copies, like a parse does */
+		ArrayList<Airport> newList = new ArrayList<Airport>(airportList);
+		HashMap<String, Airport> newIndex = new HashMap<String, Airport>(airportIndex);
+		
+		for (Airport airport : airports){
+			if (!newIndex.containsKey(airport.getCode().toUpperCase(Locale.ENGLISH))){
+				addAirport(newList, newIndex, airport);
+			}
+		}
+		
+		this.airportIndex = newIndex;
+		this.airportList = newList;
+	}
+	
 	/** 
 	 * Parses the airport data from the XML that is provided to it. Stores the parsed 
 	 * airport data in a list within the object.
@@ -143,45 +168,97 @@ public class AirportParser {
 	 */
 	/* Static Method used to parse the airplane XML */
 	public void parseAirportXML(String xmlSource) {
+		parseAirportXML(new InputSource(new StringReader(xmlSource)));
+	}
+	
+	/** 
+	 * Parses the airport data straight from a stream of the XML, without copying
+	 * it into a String first. Stores the parsed airport data in a list within the object.
+	 * <p>
+	 * The stream is closed once it has been read.
+	 * 			
+	 * @param xmlStream the stream of the XML that contains the airport information, 
+	 * 		  nothing is parsed if it is null.
+	 * @see parsers.XMLGetter#openAirportsStream()
+	 */
+	public void parseAirportXML(InputStream xmlStream) {
+		
+		/* The stream could not be opened */
+		if (xmlStream == null){
+			return;
+		}
+		
+		try {
+			parseAirportXML(new InputSource(xmlStream));
+		}
+		finally {
+			try {
+				xmlStream.close();
+			} catch (IOException e) {
+				// Nothing else to do
+			}
+		}
+		
+	}
+	
+	/* Parses the airport XML from either a String or a stream */
+	private synchronized void parseAirportXML(InputSource xmlSource) {
+
+		/* Parse into copies, readers keep using the old list until it's done */
+		ArrayList<Airport> newList = new ArrayList<Airport>(airportList);
+		HashMap<String, Airport> newIndex = new HashMap<String, Airport>(airportIndex);
+
 
 		/* DOM Factory Builder */
 		DocumentBuilderFactory dom_fac = DocumentBuilderFactory.newInstance();
+		
+		/* Every airport looks up its time zone, so only write 
+		 * the time zone cache once all of them are done */
+		TimeZoneCache zoneCache = TimeZoneCache.getInstance();
+		zoneCache.holdWrites();
 
 		try {
 			/* Builds the doc object that contains the 
 			 * tree structure of the XML file */
 			DocumentBuilder builder = dom_fac.newDocumentBuilder();
-			Document doc = builder.parse(new InputSource(new StringReader(xmlSource))); // This is the root node
+			Document doc = builder.parse(xmlSource); // This is the root node
 
 			/* Contains a list of all the airplanes from the Airplanes XML */
 			NodeList airportNodeList = doc.getElementsByTagName("Airport");
 
-			/* Iterate through all the airplanes in the airplane list */
+			double[] latitudes = new double[airportNodeList.getLength()];
+			double[] longitudes = new double[airportNodeList.getLength()];
+
+			/* Get the coordinates of all the airports first */
 			for (int i = 0; i < airportNodeList.getLength(); i++) {
 
-				Node airportNode = airportNodeList.item(i); // Airport Node
+				/* Contains the Latitude & Longitude nodes */
+				NodeList airportNodeChildren = airportNodeList.item(i).getChildNodes();
+
+				/* 1st child is the Latitude Node */
+				latitudes[i] = Double.parseDouble(airportNodeChildren.item(0).getTextContent());
+				
+				/* 2nd child is the Longitude Node */
+				longitudes[i] = Double.parseDouble(airportNodeChildren.item(1).getTextContent());
+			}
+
+			/* Then their time zones, in one go, only the ones that aren't cached touch the network */
+			double[] rawOffsets = zoneCache.preload(latitudes, longitudes);
+
+			/* Iterate through all the airports in the airport list */
+			for (int i = 0; i < airportNodeList.getLength(); i++) {
 
 				/* I know this node is an element, so can cast it as such */
-				Element airport = (Element) airportNode;
+				Element airport = (Element) airportNodeList.item(i);
 
-				/* Get the Airplane Manufacturer and Model */
+				/* Get the Airport Code and Name */
 				String code = airport.getAttribute("Code");
 				String name = airport.getAttribute("Name");
 				
-				/* Contains the 1st Class & Coach seat nodes */
-				NodeList airportNodeChildren = airportNode.getChildNodes();
-
-				/* 2nd child is the Latitude Node */
-				String latitude = airportNodeChildren.item(0).getTextContent();
-				
-				/* 4th child is the Longitude Node */
-				String longitude = airportNodeChildren.item(1).getTextContent();
+				Location location = new Location(latitudes[i], longitudes[i], rawOffsets[i]);
 				
-				Location location = new Location(Double.parseDouble(latitude),
-												 Double.parseDouble(longitude));
-				
-				/* Adds the parsed airplane to the airplane list */
-				airportList.add(new Airport(code, name, location));
+				/* Adds the parsed airport to the airport list */
+				addAirport(newList, newIndex, new Airport(code, name, location));
 			}
 
 		/* Exceptions required by the Parser */	
@@ -195,10 +272,30 @@ public class AirportParser {
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
+		} finally {
+			/* Swap in the new airports, even if only some were parsed */
+			this.airportIndex = newIndex;
+			this.airportList = newList;
+			
+			/* Save all the new time zones to disk */
+			zoneCache.releaseWrites();
 		}
 
 	}
 
+	/* Adds an airport to the list and the index, if a code is listed 
+	 * twice the 1st airport is the one that is found */
+	private static void addAirport(ArrayList<Airport> list, HashMap<String, Airport> index, Airport airport){
+		
+		list.add(airport);
+		
+		String key = airport.getCode().toUpperCase(Locale.ENGLISH);
+		
+		if (!index.containsKey(key)){
+			index.put(key, airport);
+		}
+	}
+
 	/** 
 	 * Provides a string representation of the Airport parser.			
 	 * @return a string representation of the Airport parser object.
@@ -1,13 +1,17 @@
 package parsers;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.ListIterator;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -19,7 +23,13 @@ import org.xml.sax.SAXException;
 import flight_system.*;
 
 /** 
- * Creates a DOM that parses an Flight XML file from the flight database. 
+ * Parses a Flight XML file from the flight database. 
+ * <p>
+ * The XML can either be read into a DOM, or streamed straight into the
+ * flight legs without building a DOM, see {@link ParseMode}. Both modes make
+ * the same flight legs from the same XML. New parsers use the DOM, unless
+ * {@link #setDefaultParseMode(ParseMode)} or the "flight.parser" system
+ * property (dom or stream) say otherwise.
  * <p>
  * The parser object also allows a client to get a copy of 
  * a list that contains the flights that were parsed. Also, the
@@ -31,6 +41,20 @@ import flight_system.*;
 
 public class FlightParser {
 	
+	/**
+	 * The ways a Flight Parser can read the XML.
+	 */
+	public enum ParseMode {
+		/** Builds a DOM of the whole XML, then walks it */
+		DOM,
+		/** Reads the XML as a stream and makes each flight leg as soon as it is read */
+		STREAM;
+	}
+	
+	/* The mode new parsers start in, DOM unless the "flight.parser" system property is "stream" */
+	private static ParseMode defaultMode = 
+			"stream".equalsIgnoreCase(System.getProperty("flight.parser")) ? ParseMode.STREAM : ParseMode.DOM;
+	
 	/* List to hold the flights parsed from the XML */
 	private ArrayList<FlightLeg> flightLegList;
 	
@@ -40,6 +64,19 @@ public class FlightParser {
 	/* Used hold the airports that were parsed from the XML */
 	private AirportParser airports;
 	
+	/* The way this parser reads the XML */
+	private ParseMode mode = defaultMode;
+	
+	/* Made the first time the XML is streamed */
+	private XMLInputFactory inputFactory;
+	
+	/* Reused while streaming, the departure and arrival of the current flight */
+	private Endpoint departure = new Endpoint();
+	private Endpoint arrival = new Endpoint();
+	
+	/* Reused while streaming, to clean up the prices */
+	private StringBuilder priceBuilder = new StringBuilder();
+	
 	/**
 	 * Makes a Flight Parser.
 	 * @param planeXML the XML string that contains info about airplanes.
@@ -69,10 +106,52 @@ public class FlightParser {
 	}
 	/**
 	 * Makes a Flight Parser with an empty flight leg list.
+	 * <p>
+	 * The airplanes and airports are looked up in the parsers that 
+	 * already exist, so those must have parsed their XML before 
+	 * any flights are parsed.
 	 */
 	public FlightParser(){
 		/* Make an empty list to store the extracted flight legs */
 		 this.flightLegList = new ArrayList<FlightLeg>();
+		 
+		 /* Use the airplanes and airports that were already parsed */
+		 this.airplanes = AirplaneParser.getInstance();
+		 this.airports = AirportParser.getInstance();
+	}
+	
+	/**
+	 * Gets the way this parser reads the XML.
+	 * @return the parse mode.
+	 */
+	public ParseMode getParseMode() {
+		return mode;
+	}
+	
+	/**
+	 * Sets the way this parser reads the XML.
+	 * @param mode the parse mode.
+	 */
+	public void setParseMode(ParseMode mode) {
+		this.mode = mode;
+	}
+	
+	/**
+	 * Sets the way new Flight Parsers read the XML.
+	 * <p>
+	 * Parsers that were already made keep their mode.
+	 * @param mode the parse mode.
+	 */
+	public static synchronized void setDefaultParseMode(ParseMode mode) {
+		defaultMode = mode;
+	}
+	
+	/**
+	 * Gets the way new Flight Parsers read the XML.
+	 * @return the parse mode.
+	 */
+	public static synchronized ParseMode getDefaultParseMode() {
+		return defaultMode;
 	}
 	
 	/**
@@ -111,32 +190,14 @@ public class FlightParser {
 	/* Return the flight from the list that corresponds with the flight number */
 	public FlightLeg getFlight(int flightNum){
 
-		boolean notFound = true;  // used determine if a flight was found 
-		FlightLeg flight = null; // holds the flight that matches the number
-
-		/* Iterator object for the airplane list */
-		ListIterator<FlightLeg> flightIterator = flightLegList.listIterator();
-
-		/* Search this list until the airplane with the model is found */
-		do {
-
-			try {
-				flight = flightIterator.next(); // get the next flight in the list
-				/* If the flight number matches, set the notFound flag to false */
-				if (flight.getFlightNum() == flightNum) {
-					notFound = false; 
-				}
-			} catch (Exception e) {
-				/* No such element (Flight) found */
-				flight = null;
-				notFound = false; 
+		/* Search this list until the flight with the number is found */
+		for (FlightLeg flight : flightLegList){
+			if (flight.getFlightNum() == flightNum) {
+				return flight;
 			}
+		}
 
-
-		} while (notFound); // end while loop
-
-		return flight; // Return the flight that matches the number
-						// Will return null if there's no match
+		return null; // Will return null if there's no match
 
 	}
 	
@@ -155,11 +216,63 @@ public class FlightParser {
 
 	/**
 	 * Used to parse a flight XML into Flight Leg objects.
+	 * <p>
+	 * The XML is read with this parser's {@link ParseMode}.
 	 * @param xmlSource the XML string that needs to be parsed.
 	 * @see flight_system.FlightLeg
 	 */
 	/* Method used to parse the flight XML */
 	public void parseFlightXML(String xmlSource) {
+		
+		parseFlightXML(new InputSource(new StringReader(xmlSource)));
+		
+	}
+	
+	/**
+	 * Used to parse a flight XML into Flight Leg objects straight from a stream,
+	 * without copying it into a String first.
+	 * <p>
+	 * The XML is read with this parser's {@link ParseMode}, and the stream 
+	 * is closed once it has been read.
+	 * @param xmlStream the stream of the XML that needs to be parsed,
+	 * 		  nothing is parsed if it is null.
+	 * @see parsers.XMLGetter#openFlightsStream(boolean, Airport, Date)
+	 * @see flight_system.FlightLeg
+	 */
+	public void parseFlightXML(InputStream xmlStream) {
+		
+		/* The stream could not be opened */
+		if (xmlStream == null){
+			return;
+		}
+		
+		try {
+			parseFlightXML(new InputSource(xmlStream));
+		}
+		finally {
+			try {
+				xmlStream.close();
+			} catch (IOException e) {
+				// Nothing else to do
+			}
+		}
+		
+	}
+	
+	/* Parses the flight XML from either a String or a stream */
+	private void parseFlightXML(InputSource xmlSource) {
+		
+		if (mode == ParseMode.STREAM){
+			parseFlightStream(xmlSource);
+		}
+		else{
+			parseFlightDOM(xmlSource);
+		}
+		
+	}
+	
+	/* Parses the flight XML by building a DOM */
+	private void parseFlightDOM(InputSource xmlSource) {
 
 		/* DOM Factory Builder */
 		DocumentBuilderFactory dom_fac = DocumentBuilderFactory.newInstance();
@@ -170,7 +283,7 @@ public class FlightParser {
 			DocumentBuilder builder = dom_fac.newDocumentBuilder();
 			
 			/* This is the root node */
-			Document doc = builder.parse(new InputSource(new StringReader(xmlSource))); 
+			Document doc = builder.parse(xmlSource); 
 
 			/* Contains a list of all the flights from the Flight XML */
 			NodeList flightNodeList = doc.getElementsByTagName("Flight");
@@ -219,7 +332,7 @@ public class FlightParser {
 				int dDay = Integer.parseInt(depTimeNodeData[2]);
 				
 				/* Make the departure date object */
-				Date depDate = new Date(dMonth, dDay, dYear);
+				Date depDate = Date.valueOf(dMonth, dDay, dYear);
 				
 				/* Array to hold the delimited departure time data */
 				String[] timeDep = depTimeNodeData[3].split(":");
@@ -227,7 +340,7 @@ public class FlightParser {
 				int dMins = Integer.parseInt(timeDep[1]);
 				
 				/* Make the departure Time object */
-				  Time depTime = new Time(dHour, dMins);
+				  Time depTime = Time.valueOf(dHour, dMins);
 				
 				/* -------------------- */
 				
@@ -252,7 +365,7 @@ public class FlightParser {
 				int arDay = Integer.parseInt(arrTimeNodeData[2]);
 				
 				/* Making the arrival date object */
-				Date arrDate = new Date(arMonth, arDay, arYear);
+				Date arrDate = Date.valueOf(arMonth, arDay, arYear);
 				
 				/* Array to hold the delimited departure time data */
 				String[] timeArr = arrTimeNodeData[3].split(":");
@@ -260,7 +373,7 @@ public class FlightParser {
 				int aMins = Integer.parseInt(timeArr[1]);
 				
 				/* Make the arrival Time object */
-				Time arrTime = new Time(aHour, aMins);
+				Time arrTime = Time.valueOf(aHour, aMins);
 
 				/* ------------------ */ 
 	
@@ -323,6 +436,218 @@ public class FlightParser {
 
 	}
 	
+	/* Parses the flight XML as a stream, making each flight leg as it's read.
+	 * The children are read by their position, the same as the DOM parser does. */
+	private void parseFlightStream(InputSource xmlSource) {
+		
+		/* Only keep the flights if the whole XML could be read, like the DOM parser */
+		ArrayList<FlightLeg> parsedFlights = new ArrayList<FlightLeg>();
+		XMLStreamReader reader = null;
+		
+		try {
+			/* Let the reader work out the encoding of a byte stream */
+			if (xmlSource.getByteStream() != null){
+				reader = getInputFactory().createXMLStreamReader(xmlSource.getByteStream());
+			}
+			else{
+				reader = getInputFactory().createXMLStreamReader(xmlSource.getCharacterStream());
+			}
+			
+			while (reader.hasNext()){
+				
+				/* Every Flight element is a flight leg */
+				if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("Flight")){
+					parsedFlights.add(readFlight(reader));
+				}
+				
+			}
+			
+			flightLegList.addAll(parsedFlights);
+			
+		} catch (XMLStreamException e) {
+			e.printStackTrace();
+		} finally {
+			if (reader != null){
+				try {
+					reader.close();
+				} catch (XMLStreamException e) {
+					// Nothing else to do
+				}
+			}
+		}
+		
+	}
+	
+	/* Reads a Flight element, the reader is on its start tag */
+	private FlightLeg readFlight(XMLStreamReader reader) throws XMLStreamException {
+		
+		/* Get the Flight's Airplane, duration and number */
+		Airplane airplane = airplanes.getAirplane(reader.getAttributeValue(null, "Airplane"));
+		int flightDur = Integer.parseInt(reader.getAttributeValue(null, "FlightTime"));
+		int fgtNum = Integer.parseInt(reader.getAttributeValue(null, "Number"));
+		
+		/* Forget the last flight's departure and arrival */
+		departure.clear();
+		arrival.clear();
+		
+		double firstPrice = 0;
+		int firstClassAvail = 0;
+		double coachPrice = 0;
+		int coachClassAvail = 0;
+		
+		/* 1st child is the departure, 2nd the arrival and 3rd the seating */
+		int child = 0;
+		
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT){
+			
+			if (child == 0){
+				readEndpoint(reader, departure);
+			}
+			else if (child == 1){
+				readEndpoint(reader, arrival);
+			}
+			else if (child == 2){
+				
+				/* 1st child is First Class, 2nd is Coach */
+				int seat = 0;
+				
+				while (reader.nextTag() == XMLStreamConstants.START_ELEMENT){
+					
+					if (seat == 0){
+						firstPrice = parsePrice(reader.getAttributeValue(null, "Price"));
+						firstClassAvail = Integer.parseInt(reader.getElementText());
+					}
+					else if (seat == 1){
+						coachPrice = parsePrice(reader.getAttributeValue(null, "Price"));
+						coachClassAvail = Integer.parseInt(reader.getElementText());
+					}
+					else{
+						skipElement(reader);
+					}
+					
+					seat++;
+				}
+				
+			}
+			else{
+				skipElement(reader);
+			}
+			
+			child++;
+		}
+		
+		/* Makes the FlightLeg Object */
+		return new FlightLeg(airplane, fgtNum, flightDur, 
+							 departure.time, departure.date, departure.airport, 
+							 arrival.time, arrival.date, arrival.airport, 
+							 firstPrice, firstClassAvail, 
+							 coachPrice, coachClassAvail);
+	}
+	
+	/* Reads a Departure or Arrival element, the 1st child is 
+	 * the airport code and the 2nd is the date and time */
+	private void readEndpoint(XMLStreamReader reader, Endpoint endpoint) throws XMLStreamException {
+		
+		int child = 0;
+		
+		while (reader.nextTag() == XMLStreamConstants.START_ELEMENT){
+			
+			if (child == 0){
+				endpoint.airport = airports.getAirport(reader.getElementText());
+			}
+			else if (child == 1){
+				parseDateTime(reader.getElementText(), endpoint);
+			}
+			else{
+				skipElement(reader);
+			}
+			
+			child++;
+		}
+		
+	}
+	
+	/* Skips an element and everything in it, the reader ends on its end tag */
+	private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+		
+		int depth = 1;
+		
+		while (depth > 0){
+			int event = reader.next();
+			
+			if (event == XMLStreamConstants.START_ELEMENT){
+				depth++;
+			}
+			else if (event == XMLStreamConstants.END_ELEMENT){
+				depth--;
+			}
+		}
+		
+	}
+	
+	/* Reads a date and time like "2015 May 10 00:03 GMT" without splitting it */
+	private void parseDateTime(String text, Endpoint endpoint) {
+		
+		int yearEnd = text.indexOf(' ');
+		int monthEnd = text.indexOf(' ', yearEnd + 1);
+		int dayEnd = text.indexOf(' ', monthEnd + 1);
+		int colon = text.indexOf(':', dayEnd + 1);
+		int minsEnd = text.indexOf(' ', colon + 1);
+		
+		/* Nothing after the time */
+		if (minsEnd < 0){
+			minsEnd = text.length();
+		}
+		
+		int year = Integer.parseInt(text.substring(0, yearEnd));
+		Month month = Month.valueOf(text.substring(yearEnd + 1, monthEnd));
+		int day = Integer.parseInt(text.substring(monthEnd + 1, dayEnd));
+		
+		endpoint.date = Date.valueOf(month, day, year);
+		endpoint.time = Time.valueOf(Integer.parseInt(text.substring(dayEnd + 1, colon)), Integer.parseInt(text.substring(colon + 1, minsEnd)));
+		
+	}
+	
+	/* Reads a price like "$1,234.56", dropping the $ sign and any , */
+	private double parsePrice(String price) {
+		
+		priceBuilder.setLength(0);
+		
+		for (int i = 1; i < price.length(); i++){
+			char c = price.charAt(i);
+			if (c != ','){
+				priceBuilder.append(c);
+			}
+		}
+		
+		return Double.parseDouble(priceBuilder.toString());
+	}
+	
+	/* Makes the StAX factory the first time it's needed */
+	private XMLInputFactory getInputFactory() {
+		
+		if (inputFactory == null){
+			inputFactory = XMLInputFactory.newInstance();
+			inputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+			inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		}
+		
+		return inputFactory;
+	}
+	
+	/* The airport, date and time of a departure or an arrival */
+	private static class Endpoint {
+		Airport airport;
+		Date date;
+		Time time;
+		
+		void clear() {
+			airport = null;
+			date = null;
+			time = null;
+		}
+	}
+	
 	/* Prints the Flight information as String Data */
 	@SuppressWarnings("unused")
 	private void printFlights(String airplaneModel, String flightTime,
@@ -0,0 +1,77 @@
+package parsers;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/** 
+ * Sends the requests over HTTP with a new connection for each request.
+ * <p>
+ * This is how the XML getter and putter used to talk to the server. It doesn't
+ * read the bodies of failed requests, so their connections aren't kept. The
+ * {@link PooledHttpTransport} does, and has timeouts and gzip.
+ * 
+ * @see XMLGetter#setTransport(IServerTransport)
+ * @see XMLPutter#setTransport(IServerTransport)
+ */
+public class HttpTransport implements IServerTransport {
+	
+	/**
+	 * Sends a GET request.
+	 * @param address the full URL, including the query.
+	 * @return the server's response, with a body only if it was successful.
+	 * @throws IOException if the server could not be reached.
+	 */
+	public ServerResponse get(String address) throws IOException {
+		
+		/* Open Connection and send GET request */
+		HttpURLConnection connection = (HttpURLConnection) new URL(address).openConnection();
+		connection.setRequestMethod("GET");
+		
+		return makeResponse(connection);
+	}
+	
+	/**
+	 * Sends a POST request with a form body.
+	 * @param address the full URL.
+	 * @param body the body of the request.
+	 * @return the server's response, with a body only if it was successful.
+	 * @throws IOException if the server could not be reached.
+	 */
+	public ServerResponse post(String address, String body) throws IOException {
+		
+		/* Open Connection and send POST request */
+		HttpURLConnection connection = (HttpURLConnection) new URL(address).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setDoInput(true);
+		
+		DataOutputStream writer = new DataOutputStream(connection.getOutputStream());
+		writer.writeBytes(body);
+		writer.flush();
+		writer.close();
+		
+		return makeResponse(connection);
+	}
+	
+	/* Gets the response code, and the body if the request was successful */
+	private ServerResponse makeResponse(HttpURLConnection connection) throws IOException {
+		
+		int responseCode = connection.getResponseCode();
+		InputStream body = null;
+		
+		if ((responseCode >= 200) && (responseCode <= 299)){
+			body = connection.getInputStream();
+		}
+		
+		return new ServerResponse(responseCode, body);
+	}
+
+	@Override
+	public String toString() {
+		return "HttpTransport";
+	}
+
+}
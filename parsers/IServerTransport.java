@@ -0,0 +1,35 @@
+package parsers;
+
+import java.io.IOException;
+
+/** 
+ * Interface used to specify how the XML getter and putter talk to a server.
+ * <p>
+ * Used to abstract the reservation system (and the time zone service) away from 
+ * how the requests are actually sent, so the same code can run against the real 
+ * server, a local stand-in, or responses that were recorded to disk.
+ * 
+ * @see HttpTransport
+ * @see ReplayTransport
+ * @see MockReservationServer
+ */
+public interface IServerTransport {
+	
+	/**
+	 * Sends a GET request.
+	 * @param address the full URL, including the query.
+	 * @return the server's response, the caller has to close it.
+	 * @throws IOException if the server could not be reached.
+	 */
+	public ServerResponse get(String address) throws IOException;
+	
+	/**
+	 * Sends a POST request with a form body.
+	 * @param address the full URL.
+	 * @param body the body of the request, e.g. "team=TeamYeYing&amp;action=lockDB".
+	 * @return the server's response, the caller has to close it.
+	 * @throws IOException if the server could not be reached.
+	 */
+	public ServerResponse post(String address, String body) throws IOException;
+
+}
@@ -0,0 +1,678 @@
+package parsers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import flight_system.Month;
+
+/**
+ * A local stand-in for the reservation server and the time zone service,
+ * running in the same process on a port of the loopback address.
+ * <p>
+ * It answers the same requests as the real server, with made up airports,
+ * airplanes and flights: listing airports, airplanes, and the flights departing
+ * or arriving at an airport on a day, locking and unlocking the database,
+ * buying tickets and resetting the database. The flights of a day are made from
+ * the seed, so the same seed always gives the same flights. Every request can be
+ * delayed by a random time, to act like a server on the other side of a network.
+ * <p>
+ * The time zone service answers like Google's, with the offset worked out from the longitude.
+ * <p>
+ * Usage: <code>java parsers.MockReservationServer [port] [airports] [flights per airport] [min ms] [max ms]</code>
+ *
+ * @see #connect()
+ * @see ReplayTransport
+ */
+public class MockReservationServer {
+
+	/* Path of the reservation system, and of the time zone service */
+	public static final String SERVER_PATH = "/CS509.server/ReservationSystem";
+	public static final String TIME_ZONE_PATH = "/maps/api/timezone/xml";
+
+	/* Default size of the made up flight database */
+	public static final int DEFAULT_AIRPORTS = 50;
+	public static final int DEFAULT_FLIGHTS_PER_AIRPORT = 12;
+
+	/* Model, manufacturer, first class seats and coach seats of the airplanes */
+	private static final String[][] AIRPLANES = {
+		{"A310", "Airbus", "24", "190"},
+		{"A320", "Airbus", "12", "124"},
+		{"A340", "Airbus", "30", "250"},
+		{"717", "Boeing", "8", "98"},
+		{"737", "Boeing", "16", "126"},
+		{"747", "Boeing", "48", "380"},
+		{"767", "Boeing", "20", "198"},
+		{"777", "Boeing", "36", "300"},
+		{"DC-10", "McDonnell Douglas", "20", "240"}
+	};
+
+	/* Cruising speed used for the flight times, in km per hour */
+	private static final double SPEED = 800;
+
+	private static final TimeZone GMT = TimeZone.getTimeZone("GMT");
+
+	private HttpServer server;
+	private ExecutorService executor;
+
+	private long seed;
+	private int flightsPerAirport;
+
+	/* The made up airports */
+	private String[] codes;
+	private double[] latitudes;
+	private double[] longitudes;
+
+	/* The flights of each day that was asked for, and all of them by number */
+	private HashMap<Integer, ArrayList<MockFlight>> days = new HashMap<Integer, ArrayList<MockFlight>>();
+	private HashMap<Integer, MockFlight> flightsByNum = new HashMap<Integer, MockFlight>();
+
+	/* The team that has the database locked, null if it's unlocked */
+	private String lockOwner;
+
+	/* Random delay added to every request, in milliseconds */
+	private volatile long minLatency;
+	private volatile long maxLatency;
+
+	private AtomicInteger numRequests = new AtomicInteger();
+	private AtomicInteger ticketsSold = new AtomicInteger();
+
+	/**
+	 * Makes a server with the default number of airports and flights, on any free port.
+	 * @throws IOException if the server could not be started.
+	 */
+	public MockReservationServer() throws IOException {
+		this(0, DEFAULT_AIRPORTS, DEFAULT_FLIGHTS_PER_AIRPORT, 509);
+	}
+
+	/**
+	 * Makes and starts a server.
+	 * @param port the port to listen on, 0 picks any free port.
+	 * @param numOfAirports the number of airports in the database.
+	 * @param flightsPerAirport the number of flights leaving each airport every day.
+	 * @param seed the seed used to make the airports and flights.
+	 * @throws IOException if the server could not be started.
+	 */
+	public MockReservationServer(int port, int numOfAirports, int flightsPerAirport, long seed) throws IOException {
+
+		this.seed = seed;
+		this.flightsPerAirport = flightsPerAirport;
+
+		makeAirports(Math.max(2, numOfAirports));
+
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.server.createContext(SERVER_PATH, new ReservationHandler());
+		this.server.createContext(TIME_ZONE_PATH, new TimeZoneHandler());
+
+		/* Enough threads for the graph maker to fetch airports at the same time */
+		this.executor = Executors.newFixedThreadPool(16);
+		this.server.setExecutor(executor);
+		this.server.start();
+	}
+
+	/**
+	 * Gets the address of the reservation system.
+	 * @return the URL of the reservation system.
+	 */
+	public String getServerAddress() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + SERVER_PATH;
+	}
+
+	/**
+	 * Gets the address of the time zone service.
+	 * @return the URL of the time zone service.
+	 */
+	public String getTimeZoneAddress() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + TIME_ZONE_PATH;
+	}
+
+	/**
+	 * Points the XML getter and putter at this server.
+	 * @see XMLGetter#setServerAddress(String)
+	 * @see XMLGetter#setTimeZoneAddress(String)
+	 * @see XMLPutter#setServerAddress(String)
+	 */
+	public void connect() {
+		XMLGetter.getInstance().setServerAddress(getServerAddress());
+		XMLGetter.getInstance().setTimeZoneAddress(getTimeZoneAddress());
+		XMLPutter.getInstance().setServerAddress(getServerAddress());
+	}
+
+	/**
+	 * Sets the random delay added to every request.
+	 * @param minLatency the shortest delay in milliseconds.
+	 * @param maxLatency the longest delay in milliseconds.
+	 */
+	public void setLatency(long minLatency, long maxLatency) {
+		this.minLatency = Math.max(0, minLatency);
+		this.maxLatency = Math.max(this.minLatency, maxLatency);
+	}
+
+	/**
+	 * Gets the number of requests that were answered.
+	 * @return the number of requests.
+	 */
+	public int getNumRequests() {
+		return numRequests.get();
+	}
+
+	/**
+	 * Gets the number of seats that were bought.
+	 * @return the number of seats sold.
+	 */
+	public int getTicketsSold() {
+		return ticketsSold.get();
+	}
+
+	/**
+	 * Stops the server.
+	 */
+	public void stop() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/* Makes the airports, spread over the continental US */
+	private void makeAirports(int numOfAirports) {
+
+		Random random = new Random(seed);
+
+		this.codes = new String[numOfAirports];
+		this.latitudes = new double[numOfAirports];
+		this.longitudes = new double[numOfAirports];
+
+		for (int i = 0; i < numOfAirports; i++){
+			char[] code = {(char) ('A' + (i / 676) % 26), (char) ('A' + (i / 26) % 26), (char) ('A' + i % 26)};
+			codes[i] = new String(code);
+			latitudes[i] = 25 + random.nextInt(2400) / 100.0;
+			longitudes[i] = -124 + random.nextInt(5700) / 100.0;
+		}
+	}
+
+	/* The flights leaving every airport on a day, made the first time the day is asked for */
+	private synchronized ArrayList<MockFlight> getFlights(int year, int month, int day) {
+
+		int dayKey = (year * 12 + month) * 31 + day;
+		ArrayList<MockFlight> flights = days.get(dayKey);
+
+		if (flights != null){
+			return flights;
+		}
+
+		flights = new ArrayList<MockFlight>();
+
+		/* Numbers are unique across days */
+		int firstNum = 1000 + (dayKey % 4000) * codes.length * flightsPerAirport;
+
+		for (int from = 0; from < codes.length; from++){
+
+			Random random = new Random(seed * 31 + dayKey * 1009L + from);
+
+			for (int i = 0; i < flightsPerAirport; i++){
+
+				int to = (from + 1 + random.nextInt(codes.length - 1)) % codes.length;
+				String[] airplane = AIRPLANES[random.nextInt(AIRPLANES.length)];
+				double distance = distance(from, to);
+
+				MockFlight flight = new MockFlight();
+				flight.number = firstNum + from * flightsPerAirport + i;
+				flight.airplane = airplane[0];
+				flight.from = from;
+				flight.to = to;
+				flight.duration = 30 + (int) (distance / SPEED * 60);
+				flight.departure = new GregorianCalendar(GMT, Locale.US);
+				flight.departure.clear();
+				flight.departure.set(year, month, day, 0, random.nextInt(24 * 60));
+				flight.arrival = (Calendar) flight.departure.clone();
+				flight.arrival.add(Calendar.MINUTE, flight.duration);
+				flight.firstPrice = Math.round(200 + distance * 0.4) + random.nextInt(100) / 100.0;
+				flight.coachPrice = Math.round(60 + distance * 0.12) + random.nextInt(100) / 100.0;
+				flight.firstSeats = Integer.parseInt(airplane[2]);
+				flight.coachSeats = Integer.parseInt(airplane[3]);
+				flight.firstOccupied = random.nextInt(flight.firstSeats + 1);
+				flight.coachOccupied = random.nextInt(flight.coachSeats + 1);
+
+				flights.add(flight);
+				flightsByNum.put(flight.number, flight);
+			}
+		}
+
+		days.put(dayKey, flights);
+
+		return flights;
+	}
+
+	/* Great circle distance between two airports, in km */
+	private double distance(int from, int to) {
+
+		double lat1 = Math.toRadians(latitudes[from]);
+		double lat2 = Math.toRadians(latitudes[to]);
+		double dLat = lat2 - lat1;
+		double dLong = Math.toRadians(longitudes[to] - longitudes[from]);
+
+		double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+				+ Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLong / 2) * Math.sin(dLong / 2);
+
+		return 6371 * 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+	}
+
+	private String makeAirportsXML() {
+
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Airports>");
+
+		for (int i = 0; i < codes.length; i++){
+			xml.append("<Airport Code=\"").append(codes[i]).append("\" Name=\"").append(codes[i]).append(" Airport\">")
+			   .append("<Latitude>").append(latitudes[i]).append("</Latitude>")
+			   .append("<Longitude>").append(longitudes[i]).append("</Longitude></Airport>");
+		}
+
+		return xml.append("</Airports>").toString();
+	}
+
+	private String makeAirplanesXML() {
+
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Airplanes>");
+
+		for (String[] airplane : AIRPLANES){
+			xml.append("<Airplane Manufacturer=\"").append(airplane[1]).append("\" Model=\"").append(airplane[0]).append("\">")
+			   .append("<FirstClassSeats>").append(airplane[2]).append("</FirstClassSeats>")
+			   .append("<CoachSeats>").append(airplane[3]).append("</CoachSeats></Airplane>");
+		}
+
+		return xml.append("</Airplanes>").toString();
+	}
+
+	/* The flights departing from, or arriving at, an airport on a day */
+	private String makeFlightsXML(boolean depart, String code, int year, int month, int day) {
+
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><Flights>");
+
+		ArrayList<MockFlight> flights = new ArrayList<MockFlight>(getFlights(year, month, day));
+
+		/* Flights that left the day before can land on this day */
+		if (!depart){
+			Calendar before = new GregorianCalendar(GMT, Locale.US);
+			before.clear();
+			before.set(year, month, day);
+			before.add(Calendar.DAY_OF_MONTH, -1);
+			flights.addAll(getFlights(before.get(Calendar.YEAR), before.get(Calendar.MONTH), before.get(Calendar.DAY_OF_MONTH)));
+		}
+
+		synchronized (this){
+			for (MockFlight flight : flights){
+
+				if (depart && flight.from < codes.length && codes[flight.from].equalsIgnoreCase(code)){
+					flight.appendXML(xml, codes);
+				}
+				else if (!depart && codes[flight.to].equalsIgnoreCase(code)
+						&& flight.arrival.get(Calendar.YEAR) == year
+						&& flight.arrival.get(Calendar.MONTH) == month
+						&& flight.arrival.get(Calendar.DAY_OF_MONTH) == day){
+					flight.appendXML(xml, codes);
+				}
+			}
+		}
+
+		return xml.append("</Flights>").toString();
+	}
+
+	/* Buys the seats on a ticket, either all of them or none */
+	private synchronized int buyTickets(String team, String flightData) {
+
+		if (lockOwner == null || !lockOwner.equals(team)){
+			return 412;
+		}
+
+		ArrayList<MockFlight> flights = new ArrayList<MockFlight>();
+		ArrayList<Boolean> firstClass = new ArrayList<Boolean>();
+
+		try {
+			Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+					.parse(new ByteArrayInputStream(flightData.getBytes("UTF-8")));
+			NodeList tickets = doc.getElementsByTagName("Flight");
+
+			for (int i = 0; i < tickets.getLength(); i++){
+				Element ticket = (Element) tickets.item(i);
+				flights.add(flightsByNum.get(Integer.parseInt(ticket.getAttribute("number"))));
+				firstClass.add(ticket.getAttribute("seating").equalsIgnoreCase("FirstClass"));
+			}
+
+		} catch (Exception e) {
+			return 400;
+		}
+
+		/* Check every seat before taking any of them */
+		for (int i = 0; i < flights.size(); i++){
+			MockFlight flight = flights.get(i);
+			if (flight == null || !flight.hasSeat(firstClass.get(i))){
+				return 304;
+			}
+		}
+
+		for (int i = 0; i < flights.size(); i++){
+			flights.get(i).takeSeat(firstClass.get(i));
+			ticketsSold.incrementAndGet();
+		}
+
+		return 200;
+	}
+
+	/* Forgets all the bought seats and the lock */
+	private synchronized void resetDB() {
+		days.clear();
+		flightsByNum.clear();
+		lockOwner = null;
+	}
+
+	/* Sleeps for the latency */
+	private void delay() {
+
+		long min = minLatency;
+		long max = maxLatency;
+
+		if (max <= 0){
+			return;
+		}
+
+		try {
+			Thread.sleep(min + (long) (Math.random() * (max - min + 1)));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* Reads "a=1&b=2" into a map */
+	private static HashMap<String, String> parseParams(String query) throws UnsupportedEncodingException {
+
+		HashMap<String, String> params = new HashMap<String, String>();
+
+		if (query == null){
+			return params;
+		}
+
+		int start = 0;
+
+		while (start < query.length()){
+
+			int end = query.indexOf('&', start);
+
+			if (end < 0){
+				end = query.length();
+			}
+
+			int equals = query.indexOf('=', start);
+
+			if (equals > start && equals < end){
+				params.put(query.substring(start, equals), URLDecoder.decode(query.substring(equals + 1, end), "UTF-8"));
+			}
+
+			start = end + 1;
+		}
+
+		return params;
+	}
+
+	private static String readAll(InputStream in) throws IOException {
+
+		StringBuilder text = new StringBuilder();
+		byte[] buffer = new byte[4096];
+		int read;
+
+		while ((read = in.read(buffer)) != -1){
+			text.append(new String(buffer, 0, read, "UTF-8"));
+		}
+
+		in.close();
+
+		return text.toString();
+	}
+
+	private static void send(HttpExchange exchange, int responseCode, String body) throws IOException {
+
+		if (body == null){
+			exchange.sendResponseHeaders(responseCode, -1);
+		}
+		else{
+			byte[] bytes = body.getBytes("UTF-8");
+			exchange.getResponseHeaders().set("Content-Type", "text/xml; charset=utf-8");
+
+			/* Gzip the bigger responses for clients that ask for it */
+			String encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+
+			if (encoding != null && encoding.contains("gzip") && bytes.length > 1024){
+				ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+				GZIPOutputStream gzip = new GZIPOutputStream(zipped);
+				gzip.write(bytes);
+				gzip.close();
+
+				bytes = zipped.toByteArray();
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+			}
+
+			exchange.sendResponseHeaders(responseCode, bytes.length);
+
+			OutputStream out = exchange.getResponseBody();
+			out.write(bytes);
+			out.close();
+		}
+
+		exchange.close();
+	}
+
+	/* Answers the reservation system requests */
+	private class ReservationHandler implements HttpHandler {
+
+		public void handle(HttpExchange exchange) throws IOException {
+
+			numRequests.incrementAndGet();
+			delay();
+
+			try {
+				HashMap<String, String> params = parseParams(exchange.getRequestURI().getRawQuery());
+
+				if (exchange.getRequestMethod().equalsIgnoreCase("POST")){
+					params.putAll(parseParams(readAll(exchange.getRequestBody())));
+				}
+
+				String team = params.get("team");
+				String action = params.get("action");
+
+				if (team == null || team.isEmpty()){
+					send(exchange, 403, null);
+				}
+				else if ("list".equals(action)){
+					list(exchange, params);
+				}
+				else if ("lockDB".equals(action)){
+					synchronized (MockReservationServer.this){
+						if (lockOwner != null && !lockOwner.equals(team)){
+							send(exchange, 412, null);
+							return;
+						}
+						lockOwner = team;
+					}
+					send(exchange, 200, "Locked the database for " + team);
+				}
+				else if ("unlockDB".equals(action)){
+					synchronized (MockReservationServer.this){
+						if (lockOwner != null && !lockOwner.equals(team)){
+							send(exchange, 412, null);
+							return;
+						}
+						lockOwner = null;
+					}
+					send(exchange, 200, "Unlocked the database");
+				}
+				else if ("buyTickets".equals(action)){
+					int responseCode = buyTickets(team, params.get("flightData"));
+					send(exchange, responseCode, (responseCode == 200) ? "Bought the tickets" : null);
+				}
+				else if ("resetDB".equals(action)){
+					resetDB();
+					send(exchange, 200, "Reset the database");
+				}
+				else{
+					send(exchange, 400, null);
+				}
+
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+				send(exchange, 400, null);
+			}
+		}
+
+		/* Answers the list requests */
+		private void list(HttpExchange exchange, HashMap<String, String> params) throws IOException {
+
+			String type = params.get("list_type");
+
+			if ("airports".equals(type)){
+				send(exchange, 200, makeAirportsXML());
+			}
+			else if ("airplanes".equals(type)){
+				send(exchange, 200, makeAirplanesXML());
+			}
+			else if (("departing".equals(type) || "arriving".equals(type)) && params.containsKey("airport") && params.containsKey("day")){
+
+				/* The day looks like 2015_5_10 */
+				String[] day = params.get("day").split("_");
+
+				send(exchange, 200, makeFlightsXML("departing".equals(type), params.get("airport"),
+						Integer.parseInt(day[0]), Integer.parseInt(day[1]) - 1, Integer.parseInt(day[2])));
+			}
+			else{
+				send(exchange, 400, null);
+			}
+		}
+	}
+
+	/* Answers like Google's time zone service, one hour for every 15 degrees of longitude */
+	private class TimeZoneHandler implements HttpHandler {
+
+		public void handle(HttpExchange exchange) throws IOException {
+
+			numRequests.incrementAndGet();
+			delay();
+
+			String location = parseParams(exchange.getRequestURI().getRawQuery()).get("location");
+
+			if (location == null || location.indexOf(',') < 0){
+				send(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><TimeZoneResponse><status>INVALID_REQUEST</status></TimeZoneResponse>");
+				return;
+			}
+
+			double longitude = Double.parseDouble(location.substring(location.indexOf(',') + 1));
+			long hours = Math.round(longitude / 15);
+
+			send(exchange, 200, "<?xml version=\"1.0\" encoding=\"UTF-8\"?><TimeZoneResponse><status>OK</status>"
+					+ "<raw_offset>" + (hours * 3600) + ".0000000</raw_offset><dst_offset>0.0000000</dst_offset>"
+					+ "<time_zone_id>Etc/GMT" + (hours <= 0 ? "+" : "-") + Math.abs(hours) + "</time_zone_id>"
+					+ "<time_zone_name>GMT" + (hours < 0 ? "-" : "+") + Math.abs(hours) + "</time_zone_name></TimeZoneResponse>");
+		}
+	}
+
+	/* A made up flight */
+	private static class MockFlight {
+
+		int number;
+		String airplane;
+		int from;
+		int to;
+		int duration;
+		Calendar departure;
+		Calendar arrival;
+		double firstPrice;
+		double coachPrice;
+		int firstSeats;
+		int coachSeats;
+		int firstOccupied;
+		int coachOccupied;
+
+		boolean hasSeat(boolean isFirstClass) {
+			return isFirstClass ? (firstOccupied < firstSeats) : (coachOccupied < coachSeats);
+		}
+
+		void takeSeat(boolean isFirstClass) {
+			if (isFirstClass){
+				firstOccupied++;
+			}
+			else{
+				coachOccupied++;
+			}
+		}
+
+		/* Same layout as the real server */
+		void appendXML(StringBuilder xml, String[] codes) {
+			xml.append("<Flight Airplane=\"").append(airplane).append("\" FlightTime=\"").append(duration)
+			   .append("\" Number=\"").append(number).append("\">")
+			   .append("<Departure><Code>").append(codes[from]).append("</Code><Time>").append(formatTime(departure)).append("</Time></Departure>")
+			   .append("<Arrival><Code>").append(codes[to]).append("</Code><Time>").append(formatTime(arrival)).append("</Time></Arrival>")
+			   .append("<Seating><FirstClass Price=\"").append(String.format(Locale.US, "$%,.2f", firstPrice)).append("\">")
+			   .append(firstOccupied).append("</FirstClass>")
+			   .append("<Coach Price=\"").append(String.format(Locale.US, "$%,.2f", coachPrice)).append("\">")
+			   .append(coachOccupied).append("</Coach></Seating></Flight>");
+		}
+
+		/* Looks like "2015 May 10 00:03 GMT" */
+		static String formatTime(Calendar time) {
+			return String.format(Locale.US, "%d %s %d %02d:%02d GMT", time.get(Calendar.YEAR),
+					Month.values()[time.get(Calendar.MONTH)], time.get(Calendar.DAY_OF_MONTH),
+					time.get(Calendar.HOUR_OF_DAY), time.get(Calendar.MINUTE));
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "MockReservationServer at " + getServerAddress() + " with " + codes.length + " airports and "
+				+ flightsPerAirport + " flights per airport, " + getNumRequests() + " request(s) answered";
+	}
+
+	/**
+	 * Runs a server until the process is stopped.
+	 * @param args the port, airports, flights per airport, and the shortest and longest delay in milliseconds.
+	 * @throws IOException if the server could not be started.
+	 */
+	public static void main(String[] args) throws IOException {
+
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : 8181;
+		int airports = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_AIRPORTS;
+		int flights = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_FLIGHTS_PER_AIRPORT;
+
+		MockReservationServer mock = new MockReservationServer(port, airports, flights, 509);
+
+		if (args.length > 4){
+			mock.setLatency(Long.parseLong(args[3]), Long.parseLong(args[4]));
+		}
+
+		System.out.println(mock);
+		System.out.println("Time zones at " + mock.getTimeZoneAddress());
+	}
+
+}
@@ -0,0 +1,252 @@
+package parsers;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+import flight_system.Airplane;
+import flight_system.Airport;
+
+/**
+ * Measures how long it takes to parse flights, with the airports and airplanes
+ * found through the hash indexes compared to the old scan through the lists.
+ * <p>
+ * The airport, airplane and flight XML is made up, so nothing is downloaded.
+ * The time zones of the made up airports are put in a temporary time zone
+ * cache, so no time zones are looked up either.
+ * <p>
+ * Usage: <code>java parsers.ParserBenchmark [airports] [flights] [rounds]</code>
+ *
+ * @see AirportParser#getAirport(String)
+ * @see AirplaneParser#getAirplane(String)
+ */
+public class ParserBenchmark {
+
+	/* Keeps the JIT from throwing the lookups away */
+	private static int sink;
+
+	public static void main(String[] args) throws IOException {
+
+		int numOfAirports = (args.length > 0) ? Integer.parseInt(args[0]) : 500;
+		int numOfFlights = (args.length > 1) ? Integer.parseInt(args[1]) : 20000;
+		int rounds = (args.length > 2) ? Integer.parseInt(args[2]) : 10;
+
+		Random random = new Random(509);
+
+		/* Use a throw away time zone cache, must be set before the cache is first used */
+		File zoneFile = File.createTempFile("benchmark", ".cache");
+		zoneFile.deleteOnExit();
+		System.setProperty("flight.tzcache", zoneFile.getPath());
+
+		/* The made up time zones must never get into a real cache */
+		if (!TimeZoneCache.getInstance().getCacheFile().equals(zoneFile)){
+			throw new IllegalStateException("The time zone cache was used before the benchmark, it is " 
+					+ TimeZoneCache.getInstance().getCacheFile());
+		}
+
+		ArrayList<String> codes = makeCodes(numOfAirports);
+		String portXML = makeAirportXML(codes, random);
+		String planeXML = makeAirplaneXML(20);
+		String flightXML = makeFlightXML(codes, 20, numOfFlights, random);
+
+		AirportParser portParser = AirportParser.getInstance();
+		AirplaneParser planeParser = AirplaneParser.getInstance();
+
+		if (!planeParser.hasAirplaneList()){
+			planeParser.parseAirplaneXML(planeXML);
+		}
+		if (!portParser.hasAirportList()){
+			portParser.parseAirportXML(portXML);
+		}
+
+		System.out.println("Parsing " + numOfFlights + " flights between " + portParser.getNumOfAirports() + " airports, "
+				+ rounds + " rounds\n");
+
+		/* The codes each flight looks up, 2 airports and 1 airplane */
+		ArrayList<String> lookups = new ArrayList<String>(numOfFlights * 3);
+		FlightParser fParser = new FlightParser();
+		fParser.parseFlightXML(flightXML);
+
+		for (int i = 0; i < fParser.getNumOfFlights(); i++){
+			lookups.add(fParser.getFlightList().get(i).getDepartureAirport().getCode().toLowerCase(Locale.ENGLISH));
+			lookups.add(fParser.getFlightList().get(i).getArrivalAirport().getCode().toLowerCase(Locale.ENGLISH));
+			lookups.add(fParser.getFlightList().get(i).getAirplane().getModel());
+		}
+
+		for (FlightParser.ParseMode mode : FlightParser.ParseMode.values()){
+
+			long best = Long.MAX_VALUE;
+
+			for (int round = 0; round < rounds; round++){
+
+				fParser = new FlightParser();
+				fParser.setParseMode(mode);
+
+				long start = System.nanoTime();
+				fParser.parseFlightXML(flightXML);
+				best = Math.min(best, System.nanoTime() - start);
+
+				sink += fParser.getNumOfFlights();
+			}
+
+			System.out.println("Parse (" + mode + ", indexed lookups):  " + millis(best) + " ms");
+		}
+
+		long bestIndexed = Long.MAX_VALUE;
+		long bestScan = Long.MAX_VALUE;
+
+		for (int round = 0; round < rounds; round++){
+
+			long start = System.nanoTime();
+			lookUpIndexed(lookups, portParser, planeParser);
+			bestIndexed = Math.min(bestIndexed, System.nanoTime() - start);
+
+			start = System.nanoTime();
+			lookUpScan(lookups, portParser, planeParser);
+			bestScan = Math.min(bestScan, System.nanoTime() - start);
+		}
+
+		System.out.println("\nThe " + lookups.size() + " lookups of one parse:");
+		System.out.println("  hash index:    " + millis(bestIndexed) + " ms");
+		System.out.println("  list scan:     " + millis(bestScan) + " ms");
+		System.out.println("\nA parse that scans the lists takes about " + millis(bestScan - bestIndexed)
+				+ " ms longer (" + sink % 2 + ")");
+
+	}
+
+	/* Looks up every airport and airplane with the parsers' indexes */
+	private static void lookUpIndexed(ArrayList<String> lookups, AirportParser portParser, AirplaneParser planeParser) {
+
+		for (int i = 0; i < lookups.size(); i += 3){
+			sink += portParser.getAirport(lookups.get(i)).hashCode();
+			sink += portParser.getAirport(lookups.get(i + 1)).hashCode();
+			sink += planeParser.getAirplane(lookups.get(i + 2)).hashCode();
+		}
+	}
+
+	/* Looks up every airport and airplane the way the parsers used to, scanning the lists */
+	private static void lookUpScan(ArrayList<String> lookups, AirportParser portParser, AirplaneParser planeParser) {
+
+		for (int i = 0; i < lookups.size(); i += 3){
+			sink += scanAirports(portParser.getAirportList(), lookups.get(i)).hashCode();
+			sink += scanAirports(portParser.getAirportList(), lookups.get(i + 1)).hashCode();
+			sink += scanAirplanes(planeParser.getAirplaneList(), lookups.get(i + 2)).hashCode();
+		}
+	}
+
+	/* The old airport lookup */
+	private static Airport scanAirports(ArrayList<Airport> airports, String code) {
+		for (Airport airport : airports){
+			if (airport.getCode().equalsIgnoreCase(code)){
+				return airport;
+			}
+		}
+		return null;
+	}
+
+	/* The old airplane lookup */
+	private static Airplane scanAirplanes(ArrayList<Airplane> airplanes, String model) {
+		for (Airplane airplane : airplanes){
+			if (airplane.getModel().equalsIgnoreCase(model)){
+				return airplane;
+			}
+		}
+		return null;
+	}
+
+	/* Makes the codes AAA, AAB, ... */
+	private static ArrayList<String> makeCodes(int numOfAirports) {
+
+		ArrayList<String> codes = new ArrayList<String>(numOfAirports);
+
+		for (int i = 0; i < numOfAirports; i++){
+			char[] code = {(char) ('A' + (i / 676) % 26), (char) ('A' + (i / 26) % 26), (char) ('A' + i % 26)};
+			codes.add(new String(code));
+		}
+
+		return codes;
+	}
+
+	/* Makes the airport XML, and puts each airport's time zone in the throw away cache */
+	private static String makeAirportXML(ArrayList<String> codes, Random random) {
+
+		/* Written to the cache file once, at the end */
+		TimeZoneCache zoneCache = TimeZoneCache.getInstance();
+		zoneCache.holdWrites();
+
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><Airports>");
+
+		try {
+			for (String code : codes){
+
+				double latitude = 25 + random.nextInt(2300) / 100.0;
+				double longitude = -70 - random.nextInt(5000) / 100.0;
+
+				zoneCache.putOffset(latitude, longitude, -18000);
+
+				xml.append("<Airport Code=\"").append(code).append("\" Name=\"").append(code).append(" Airport\">")
+				   .append("<Latitude>").append(latitude).append("</Latitude>")
+				   .append("<Longitude>").append(longitude).append("</Longitude></Airport>");
+			}
+		}
+		finally {
+			zoneCache.releaseWrites();
+		}
+
+		return xml.append("</Airports>").toString();
+	}
+
+	/* Makes the airplane XML */
+	private static String makeAirplaneXML(int numOfAirplanes) {
+
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><Airplanes>");
+
+		for (int i = 0; i < numOfAirplanes; i++){
+			xml.append("<Airplane Manufacturer=\"Boeing\" Model=\"B7").append(i).append("\">")
+			   .append("<FirstClassSeats>").append(10 + i).append("</FirstClassSeats>")
+			   .append("<CoachSeats>").append(100 + i).append("</CoachSeats></Airplane>");
+		}
+
+		return xml.append("</Airplanes>").toString();
+	}
+
+	/* Makes the flight XML in the same layout the server sends */
+	private static String makeFlightXML(ArrayList<String> codes, int numOfAirplanes, int numOfFlights, Random random) {
+
+		StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?><Flights>");
+
+		for (int i = 0; i < numOfFlights; i++){
+
+			int dep = random.nextInt(codes.size());
+			int arr = (dep + 1 + random.nextInt(codes.size() - 1)) % codes.size();
+			int depMins = random.nextInt(20 * 60);
+			int duration = 30 + random.nextInt(200);
+			int arrMins = depMins + duration;
+
+			xml.append("<Flight Airplane=\"B7").append(random.nextInt(numOfAirplanes))
+			   .append("\" FlightTime=\"").append(duration).append("\" Number=\"").append(1000 + i).append("\">")
+			   .append("<Departure><Code>").append(codes.get(dep)).append("</Code>")
+			   .append("<Time>2015 ").append("May 10 ").append(clock(depMins)).append(" GMT</Time></Departure>")
+			   .append("<Arrival><Code>").append(codes.get(arr)).append("</Code>")
+			   .append("<Time>2015 ").append("May 10 ").append(clock(arrMins)).append(" GMT</Time></Arrival>")
+			   .append("<Seating><FirstClass Price=\"$1,").append(100 + random.nextInt(900)).append(".00\">").append(random.nextInt(10)).append("</FirstClass>")
+			   .append("<Coach Price=\"$").append(50 + random.nextInt(400)).append(".50\">").append(random.nextInt(100)).append("</Coach></Seating>")
+			   .append("</Flight>");
+		}
+
+		return xml.append("</Flights>").toString();
+	}
+
+	/* Minutes as hh:mm */
+	private static String clock(int minutes) {
+		return String.format(Locale.US, "%02d:%02d", minutes / 60, minutes % 60);
+	}
+
+	/* Nanoseconds as milliseconds */
+	private static String millis(long nanos) {
+		return String.format(Locale.US, "%.2f", nanos / 1e6);
+	}
+
+}
@@ -0,0 +1,319 @@
+package parsers;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sends the requests over HTTP with the JDK's {@link HttpURLConnection}, so
+ * its connections are kept alive and used again.
+ * <p>
+ * The JDK keeps a connection open for the next request to the same server once
+ * the body of its response has been read to the end and closed. This transport
+ * makes sure that happens for every response: the body is read straight off the
+ * connection while the parser reads it, and whatever the parser didn't read is
+ * skipped when the body is closed. The bodies of failed requests are skipped as
+ * well. So locking the database, buying a ticket and unlocking it again only pay
+ * for one TCP setup. A body with too much left to skip drops its connection instead.
+ * <p>
+ * It asks for gzip responses and decodes them, times out connecting and reading
+ * after the set times, and counts the requests, the responses that left their
+ * connection to be used again and the gzipped responses. Proxies, redirects and
+ * https are handled by the JDK, and the number of idle connections kept for each
+ * server is set with its <code>http.maxConnections</code> system property.
+ * <p>
+ * A POST is sent with a fixed length body, so the JDK never sends it again on its
+ * own if the connection breaks, which could buy a ticket twice.
+ * <p>
+ * This class uses the Singleton Pattern for the transport that the XML getter
+ * and putter share, more can be made with the public constructor.
+ *
+ * @see XMLGetter#setTransport(IServerTransport)
+ * @see XMLPutter#setTransport(IServerTransport)
+ */
+public class PooledHttpTransport implements IServerTransport {
+
+	/* Defaults */
+	public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+	public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+	/* The most bytes skipped to keep a connection whose body was closed before its end */
+	private static final int MAX_DRAIN = 64 * 1024;
+
+	private static PooledHttpTransport firstInstance = null;
+
+	private volatile int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+	private volatile int readTimeout = DEFAULT_READ_TIMEOUT;
+
+	/* Metrics */
+	private AtomicLong requests = new AtomicLong();
+	private AtomicLong reusableResponses = new AtomicLong();
+	private AtomicLong droppedConnections = new AtomicLong();
+	private AtomicLong gzipResponses = new AtomicLong();
+
+	/**
+	 * Makes a transport with the default timeouts.
+	 */
+	public PooledHttpTransport() {
+	}
+
+	/**
+	 * Gets the shared transport.
+	 * @return the only shared instance of the transport.
+	 */
+	public static synchronized PooledHttpTransport getInstance(){
+		if(firstInstance == null){
+			firstInstance = new PooledHttpTransport();
+		}
+
+		return firstInstance;
+	}
+
+	/**
+	 * Sends a GET request.
+	 * @param address the full URL, including the query.
+	 * @return the server's response, with a body only if it was successful.
+	 * @throws IOException if the server could not be reached.
+	 */
+	public ServerResponse get(String address) throws IOException {
+
+		HttpURLConnection connection = open(address);
+		connection.setRequestMethod("GET");
+
+		return makeResponse(connection);
+	}
+
+	/**
+	 * Sends a POST request with a form body.
+	 * @param address the full URL.
+	 * @param body the body of the request.
+	 * @return the server's response, with a body only if it was successful.
+	 * @throws IOException if the server could not be reached.
+	 */
+	public ServerResponse post(String address, String body) throws IOException {
+
+		byte[] bytes = body.getBytes("ISO-8859-1");
+
+		HttpURLConnection connection = open(address);
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+
+		/* With a fixed length the JDK can't send the request again by itself */
+		connection.setFixedLengthStreamingMode(bytes.length);
+
+		OutputStream out = connection.getOutputStream();
+		try {
+			out.write(bytes);
+		}
+		finally {
+			out.close();
+		}
+
+		return makeResponse(connection);
+	}
+
+	/* Getters and setters */
+
+	/**
+	 * Sets the connect timeout.
+	 * @param connectTimeout the timeout in milliseconds, 0 waits forever.
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = Math.max(0, connectTimeout);
+	}
+
+	/**
+	 * Gets the connect timeout.
+	 * @return the timeout in milliseconds.
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Sets the read timeout.
+	 * @param readTimeout the timeout in milliseconds, 0 waits forever.
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = Math.max(0, readTimeout);
+	}
+
+	/**
+	 * Gets the read timeout.
+	 * @return the timeout in milliseconds.
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	/* Metrics */
+
+	/**
+	 * Gets the number of requests that got a response.
+	 * @return the number of requests.
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Gets the number of responses that were read to their end and closed,
+	 * which leaves their connection to the JDK for the next request.
+	 * @return the number of reusable responses.
+	 */
+	public long getReusableResponses() {
+		return reusableResponses.get();
+	}
+
+	/**
+	 * Gets the number of responses whose connection was dropped, because too much
+	 * of the body was left when it was closed or it could not be read.
+	 * @return the number of dropped connections.
+	 */
+	public long getDroppedConnections() {
+		return droppedConnections.get();
+	}
+
+	/**
+	 * Gets the number of responses that came back gzipped.
+	 * @return the number of gzipped responses.
+	 */
+	public long getGzipResponses() {
+		return gzipResponses.get();
+	}
+
+	/**
+	 * Gets the share of the finished responses that left their connection to be used again.
+	 * @return the reuse ratio, from 0 to 1.
+	 */
+	public double getReuseRatio() {
+		long done = reusableResponses.get() + droppedConnections.get();
+		return (done == 0) ? 0 : reusableResponses.get() / (double) done;
+	}
+
+	/* Opens a connection with the timeouts, asking for gzip */
+	private HttpURLConnection open(String address) throws IOException {
+
+		HttpURLConnection connection = (HttpURLConnection) new URL(address).openConnection();
+		connection.setConnectTimeout(connectTimeout);
+		connection.setReadTimeout(readTimeout);
+		connection.setUseCaches(false);
+		connection.setRequestProperty("Accept-Encoding", "gzip");
+
+		return connection;
+	}
+
+	/* Gets the response code, and the body if the request was successful, otherwise skips the body */
+	private ServerResponse makeResponse(HttpURLConnection connection) throws IOException {
+
+		int responseCode;
+
+		try {
+			responseCode = connection.getResponseCode();
+		} catch (IOException e) {
+			droppedConnections.incrementAndGet();
+			connection.disconnect();
+			throw e;
+		}
+
+		requests.incrementAndGet();
+
+		if ((responseCode >= 200) && (responseCode <= 299)){
+
+			InputStream raw = connection.getInputStream();
+			Body body = new Body(connection, raw);
+
+			if ("gzip".equalsIgnoreCase(connection.getContentEncoding())){
+				gzipResponses.incrementAndGet();
+				try {
+					return new ServerResponse(responseCode, new GZIPInputStream(body));
+				} catch (IOException e) {
+					body.close();
+					throw e;
+				}
+			}
+
+			return new ServerResponse(responseCode, body);
+		}
+
+		/* The body of an error still has to be read for the connection to be kept */
+		InputStream error = connection.getErrorStream();
+		if (error != null){
+			new Body(connection, error).close();
+		}
+		/* The JDK closes the connection of an error without a body by itself */
+		else if (responseCode >= 400){
+			droppedConnections.incrementAndGet();
+		}
+		else {
+			reusableResponses.incrementAndGet();
+		}
+
+		return new ServerResponse(responseCode, null);
+	}
+
+	/*
+	 * The body of a response, read straight off the connection. Closing it skips
+	 * what wasn't read, so the JDK keeps the connection for the next request.
+	 */
+	private class Body extends FilterInputStream {
+
+		private HttpURLConnection connection;
+		private boolean closed;
+
+		Body(HttpURLConnection connection, InputStream raw) {
+			super(raw);
+			this.connection = connection;
+		}
+
+		@Override
+		public void close() {
+
+			if (closed){
+				return;
+			}
+			closed = true;
+
+			boolean drained = false;
+
+			try {
+				byte[] buffer = new byte[4096];
+				int skipped = 0;
+				int read = 0;
+
+				while (skipped <= MAX_DRAIN && (read = in.read(buffer)) != -1){
+					skipped += read;
+				}
+
+				drained = (read == -1);
+				in.close();
+			} catch (IOException e) {
+				drained = false;
+			}
+
+			if (drained){
+				reusableResponses.incrementAndGet();
+			}
+			else {
+				/* Too much left, or the connection broke, so it can't be used again */
+				droppedConnections.incrementAndGet();
+				connection.disconnect();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format(Locale.US, "PooledHttpTransport: %d request(s), %d left reusable (%.0f%%), "
+				+ "%d dropped, %d gzipped", getRequests(), getReusableResponses(),
+				getReuseRatio() * 100, getDroppedConnections(), getGzipResponses());
+	}
+
+}
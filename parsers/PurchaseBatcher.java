@@ -0,0 +1,309 @@
+package parsers;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers the tickets bought from many threads at about the same time, and buys
+ * them together with one lock and unlock of the database.
+ * <p>
+ * The first ticket that comes in waits for the batch window, and every ticket
+ * that comes in meanwhile joins it. A daemon thread of the batcher then buys
+ * the whole batch while the callers wait for their results. If more tickets
+ * came in while the batch was being bought, the same thread buys them next,
+ * and it stops once no tickets are left waiting. A caller only ever waits for
+ * the batch its own ticket is in.
+ * <p>
+ * The tickets of a batch are merged into as few requests as possible. If the server
+ * turns one down because a seat is gone, its tickets are bought one at a time in
+ * the same lock, so every ticket still gets its own result. A ticket whose purchase
+ * can't be told, e.g. because the connection broke or its caller stopped waiting,
+ * gets {@link XMLPutter#UNKNOWN_RESULT}, and must not simply be bought again.
+ *
+ * @see XMLPutter#getBatcher()
+ * @see XMLPutter#purchaseAll(java.util.List)
+ */
+public class PurchaseBatcher {
+
+	/* Defaults */
+	public static final long DEFAULT_WINDOW = 20;
+	public static final int DEFAULT_MAX_BATCH = 50;
+
+	private XMLPutter putter;
+
+	/* Milliseconds the 1st ticket of a batch waits for others */
+	private volatile long window;
+	private volatile int maxBatch;
+
+	/* The tickets waiting for a batch, oldest first */
+	private LinkedList<Ticket> pending = new LinkedList<Ticket>();
+
+	/* True while the buyer thread is buying batches */
+	private boolean buying;
+	private int buyerCount;
+
+	/* Metrics */
+	private int batches;
+	private int tickets;
+
+	/**
+	 * Makes a batcher that buys through a putter.
+	 * @param putter the putter used to buy the tickets.
+	 */
+	public PurchaseBatcher(XMLPutter putter) {
+		this.putter = putter;
+		this.window = DEFAULT_WINDOW;
+		this.maxBatch = DEFAULT_MAX_BATCH;
+	}
+
+	/**
+	 * Buys a ticket along with any others bought at about the same time,
+	 * waiting until it is done.
+	 * @param ticket the ticket made by {@link XMLPutter#makeTicket(flight_system.Flight, boolean)}.
+	 * @return the response code for this ticket, 2xx if it was bought,
+	 * 		   {@link XMLPutter#UNKNOWN_RESULT} if it isn't known.
+	 */
+	public int buy(String ticket) {
+		return submit(ticket).getResult();
+	}
+
+	/**
+	 * Adds a ticket to the next batch, without waiting for it to be bought.
+	 * <p>
+	 * If no batch is being bought, a buyer thread is started for it.
+	 * @param ticket the ticket made by {@link XMLPutter#makeTicket(flight_system.Flight, boolean)}.
+	 * @return the ticket, which will have its result once its batch has been bought.
+	 */
+	public Ticket submit(String ticket) {
+
+		Ticket pendingTicket = new Ticket(ticket);
+
+		synchronized (this){
+
+			pending.add(pendingTicket);
+
+			if (!buying){
+				startBuyer();
+			}
+			/* A full batch doesn't wait for the end of the window */
+			else if (pending.size() >= maxBatch){
+				notifyAll();
+			}
+		}
+
+		return pendingTicket;
+	}
+
+	/**
+	 * Sets how long the 1st ticket of a batch waits for others.
+	 * @param window the time in milliseconds, 0 buys whatever is waiting right away.
+	 */
+	public void setWindow(long window) {
+		this.window = Math.max(0, window);
+	}
+
+	/**
+	 * Gets how long the 1st ticket of a batch waits for others.
+	 * @return the time in milliseconds.
+	 */
+	public long getWindow() {
+		return window;
+	}
+
+	/**
+	 * Sets the most tickets bought in one batch.
+	 * @param maxBatch the maximum number of tickets, at least 1.
+	 */
+	public void setMaxBatch(int maxBatch) {
+		this.maxBatch = Math.max(1, maxBatch);
+	}
+
+	/**
+	 * Gets the number of batches that were bought.
+	 * @return the number of batches.
+	 */
+	public synchronized int getBatches() {
+		return batches;
+	}
+
+	/**
+	 * Gets the number of tickets that were bought in batches, whether or not they went through.
+	 * @return the number of tickets.
+	 */
+	public synchronized int getTickets() {
+		return tickets;
+	}
+
+	/* Starts a daemon thread that buys the waiting tickets, must hold the lock of the batcher */
+	private void startBuyer() {
+
+		Thread buyer = new Thread(new Runnable() {
+			public void run() {
+				buyBatches();
+			}
+		}, "purchase-batcher-" + (++buyerCount));
+
+		buyer.setDaemon(true);
+		buyer.start();
+
+		buying = true;
+	}
+
+	/* Buys batches until no tickets are left waiting */
+	private void buyBatches() {
+
+		try {
+			while (buyBatch()){
+				/* Keep buying */
+			}
+		}
+		finally {
+			synchronized (this){
+				buying = false;
+
+				/* If the thread died on an error, the tickets that came in meanwhile still get bought */
+				if (!pending.isEmpty()){
+					startBuyer();
+				}
+			}
+		}
+	}
+
+	/* Waits for a batch and buys it, returns false once no tickets are left waiting */
+	private boolean buyBatch() {
+
+		ArrayList<Ticket> batch = new ArrayList<Ticket>();
+
+		synchronized (this){
+
+			if (pending.isEmpty()){
+				return false;
+			}
+
+			/* Wait for the window of the oldest ticket to end, or for a full batch */
+			long deadline = pending.getFirst().created + window;
+			long wait;
+
+			while (pending.size() < maxBatch && (wait = deadline - System.currentTimeMillis()) > 0){
+				try {
+					wait(wait);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+
+			while (!pending.isEmpty() && batch.size() < maxBatch){
+				batch.add(pending.removeFirst());
+			}
+
+			batches++;
+			tickets += batch.size();
+		}
+
+		buy(batch);
+
+		return true;
+	}
+
+	/* Buys a batch and hands out the results */
+	private void buy(ArrayList<Ticket> batch) {
+
+		ArrayList<String> flightData = new ArrayList<String>(batch.size());
+
+		for (Ticket ticket : batch){
+			flightData.add(ticket.flightData);
+		}
+
+		int[] results = null;
+
+		try {
+			results = putter.purchaseAll(flightData);
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+		finally {
+			/* The callers are never left waiting, even if buying threw an error,
+			 * some of the tickets may have been bought before it did */
+			for (int i = 0; i < batch.size(); i++){
+				batch.get(i).setResult((results == null) ? XMLPutter.UNKNOWN_RESULT : results[i]);
+			}
+		}
+	}
+
+	/**
+	 * A ticket waiting to be bought.
+	 */
+	public static class Ticket {
+
+		private String flightData;
+		private long created;
+		private volatile int result;
+		private CountDownLatch done = new CountDownLatch(1);
+
+		Ticket(String flightData) {
+			this.flightData = flightData;
+			this.created = System.currentTimeMillis();
+		}
+
+		/**
+		 * Tells if the ticket's batch has been bought.
+		 * @return true if the result is ready.
+		 */
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		/**
+		 * Waits for the ticket's batch to be bought.
+		 * <p>
+		 * If the wait is interrupted the ticket is still bought with its batch,
+		 * so the result isn't known yet.
+		 * @return the response code for this ticket, 2xx if it was bought,
+		 * 		   {@link XMLPutter#UNKNOWN_RESULT} if it isn't known or the wait was interrupted.
+		 */
+		public int getResult() {
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return XMLPutter.UNKNOWN_RESULT;
+			}
+			return result;
+		}
+
+		/**
+		 * Waits a limited time for the ticket's batch to be bought.
+		 * <p>
+		 * A ticket that isn't done in time is still bought with its batch later,
+		 * {@link #isDone()} tells when its result is ready.
+		 * @param timeout the longest time to wait, in milliseconds.
+		 * @return the response code for this ticket, or {@link XMLPutter#UNKNOWN_RESULT}
+		 * 		   if it isn't known, wasn't done in time or the wait was interrupted.
+		 */
+		public int getResult(long timeout) {
+			try {
+				if (!done.await(timeout, TimeUnit.MILLISECONDS)){
+					return XMLPutter.UNKNOWN_RESULT;
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return XMLPutter.UNKNOWN_RESULT;
+			}
+			return result;
+		}
+
+		void setResult(int result) {
+			this.result = result;
+			done.countDown();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PurchaseBatcher with a " + window + " ms window, " + getTickets() + " ticket(s) in " + getBatches() + " batch(es)";
+	}
+
+}
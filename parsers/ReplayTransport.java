@@ -0,0 +1,272 @@
+package parsers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Transport that records the server's responses to a directory,
+ * or plays them back from that directory without any network.
+ * <p>
+ * In {@link Mode#RECORD} mode every request is sent with another transport, and
+ * the response is saved before it is returned. In {@link Mode#REPLAY} mode the
+ * saved response is returned instead, so graph builds and searches can be timed
+ * on exactly the same data every run. A request that was never recorded gets
+ * a 404 response.
+ * <p>
+ * Each response is saved in its own file, named after a hash of the
+ * method, the path and query of the URL, and the body of the request. The host
+ * is left out, so responses recorded from a local server on one port can be
+ * played back on another.
+ *
+ * @see XMLGetter#setTransport(IServerTransport)
+ * @see XMLPutter#setTransport(IServerTransport)
+ */
+public class ReplayTransport implements IServerTransport {
+
+	/**
+	 * What the transport does with the requests.
+	 */
+	public enum Mode {
+		/** Sends the requests and saves the responses */
+		RECORD,
+		/** Only returns the saved responses */
+		REPLAY;
+	}
+
+	/* Response code for requests that weren't recorded */
+	private static final int NOT_RECORDED = 404;
+
+	private File directory;
+	private Mode mode;
+	private IServerTransport server;
+
+	/* Number of requests that were played back, or were missing */
+	private int replayed;
+	private int missed;
+
+	/**
+	 * Makes a transport that plays back the responses saved in a directory.
+	 * @param directory the directory the responses were recorded to.
+	 */
+	public ReplayTransport(File directory) {
+		this(directory, Mode.REPLAY, null);
+	}
+
+	/**
+	 * Makes a recording or replaying transport.
+	 * @param directory the directory the responses are saved in.
+	 * @param mode whether to record or replay.
+	 * @param server the transport used to send the requests while recording,
+	 * 		  not used when replaying.
+	 */
+	public ReplayTransport(File directory, Mode mode, IServerTransport server) {
+
+		if (mode == Mode.RECORD && server == null){
+			throw new IllegalArgumentException("Recording needs a transport to send the requests");
+		}
+
+		this.directory = directory;
+		this.mode = mode;
+		this.server = server;
+
+		if (mode == Mode.RECORD){
+			directory.mkdirs();
+		}
+	}
+
+	/**
+	 * Sends or plays back a GET request.
+	 * @param address the full URL, including the query.
+	 * @return the server's response.
+	 * @throws IOException if the request could not be sent or the recording could not be read.
+	 */
+	public ServerResponse get(String address) throws IOException {
+
+		File file = getFile("GET", address, "");
+
+		if (mode == Mode.REPLAY){
+			return replay(file);
+		}
+
+		return record(file, server.get(address));
+	}
+
+	/**
+	 * Sends or plays back a POST request.
+	 * @param address the full URL.
+	 * @param body the body of the request.
+	 * @return the server's response.
+	 * @throws IOException if the request could not be sent or the recording could not be read.
+	 */
+	public ServerResponse post(String address, String body) throws IOException {
+
+		File file = getFile("POST", address, body);
+
+		if (mode == Mode.REPLAY){
+			return replay(file);
+		}
+
+		return record(file, server.post(address, body));
+	}
+
+	/**
+	 * Gets the mode of the transport.
+	 * @return the mode.
+	 */
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Gets the number of requests that were played back.
+	 * @return the number of responses found on disk.
+	 */
+	public synchronized int getReplayed() {
+		return replayed;
+	}
+
+	/**
+	 * Gets the number of requests that had no recording.
+	 * @return the number of responses that were missing.
+	 */
+	public synchronized int getMissed() {
+		return missed;
+	}
+
+	/* Reads a saved response: the response code, whether there is a body, then the body */
+	private ServerResponse replay(File file) throws IOException {
+
+		DataInputStream in;
+
+		try {
+			in = new DataInputStream(new FileInputStream(file));
+		} catch (FileNotFoundException e) {
+			countReplay(false);
+			return new ServerResponse(NOT_RECORDED, null);
+		}
+
+		try {
+			int responseCode = in.readInt();
+			boolean hasBody = in.readBoolean();
+			byte[] body = new byte[in.readInt()];
+			in.readFully(body);
+
+			countReplay(true);
+
+			return new ServerResponse(responseCode, hasBody ? new ByteArrayInputStream(body) : null);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/* Saves a response, and returns a copy of it */
+	private ServerResponse record(File file, ServerResponse response) throws IOException {
+
+		byte[] body = readBytes(response.getBody());
+
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+
+		try {
+			out.writeInt(response.getResponseCode());
+			out.writeBoolean(response.getBody() != null);
+			out.writeInt(body.length);
+			out.write(body);
+		}
+		finally {
+			out.close();
+		}
+
+		return new ServerResponse(response.getResponseCode(),
+				response.getBody() == null ? null : new ByteArrayInputStream(body));
+	}
+
+	private synchronized void countReplay(boolean found) {
+		if (found){
+			replayed++;
+		}
+		else{
+			missed++;
+		}
+	}
+
+	/* The file a request is saved in */
+	private File getFile(String method, String address, String body) {
+		return new File(directory, hash(method + " " + stripHost(address) + "\n" + body) + ".response");
+	}
+
+	/* Drops the scheme, host and port from a URL */
+	private static String stripHost(String address) {
+
+		int hostStart = address.indexOf("://");
+
+		if (hostStart < 0){
+			return address;
+		}
+
+		int pathStart = address.indexOf('/', hostStart + 3);
+
+		return (pathStart < 0) ? "/" : address.substring(pathStart);
+	}
+
+	/* Reads a whole stream and closes it, an empty array if there's no stream */
+	private static byte[] readBytes(InputStream in) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		if (in == null){
+			return bytes.toByteArray();
+		}
+
+		try {
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ((read = in.read(buffer)) != -1){
+				bytes.write(buffer, 0, read);
+			}
+		}
+		finally {
+			in.close();
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/* SHA-1 of a request, as hex */
+	private static String hash(String request) {
+
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(request.getBytes("UTF-8"));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+
+			for (byte b : digest){
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+				hex.append(Character.forDigit(b & 0xF, 16));
+			}
+
+			return hex.toString();
+
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 is not available", e);
+		} catch (IOException e) {
+			throw new IllegalStateException("UTF-8 is not available", e);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ReplayTransport " + mode + " in " + directory + " (" + replayed + " replayed, " + missed + " missing)";
+	}
+
+}
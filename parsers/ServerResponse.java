@@ -0,0 +1,101 @@
+package parsers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+/** 
+ * A response from the server, the response code and the body as a stream.
+ * <p>
+ * The body is only read when it is asked for, so it can be handed
+ * straight to a parser. 
+ * 
+ * @see IServerTransport
+ */
+public class ServerResponse {
+	
+	private int responseCode;
+	private InputStream body;
+	
+	/**
+	 * Makes a server response.
+	 * @param responseCode the HTTP response code.
+	 * @param body the body of the response, or null if there is none.
+	 */
+	public ServerResponse(int responseCode, InputStream body) {
+		this.responseCode = responseCode;
+		this.body = body;
+	}
+	
+	/**
+	 * Gets the HTTP response code.
+	 * @return the response code.
+	 */
+	public int getResponseCode() {
+		return responseCode;
+	}
+	
+	/**
+	 * Tells if the request was successful.
+	 * @return true if the response code is 2xx.
+	 */
+	public boolean isSuccessful() {
+		return (responseCode >= 200) && (responseCode <= 299);
+	}
+	
+	/**
+	 * Gets the body of the response. Whoever reads it has to close it.
+	 * @return the body as a stream, or null if there is none.
+	 */
+	public InputStream getBody() {
+		return body;
+	}
+	
+	/**
+	 * Reads the whole body line by line into a String, then closes it.
+	 * @return the body without its line breaks, or an empty String if there is no body.
+	 * @throws IOException if the body could not be read.
+	 */
+	public String readBody() throws IOException {
+		
+		StringBuilder result = new StringBuilder();
+		
+		if (body == null){
+			return result.toString();
+		}
+		
+		BufferedReader reader = new BufferedReader(new InputStreamReader(body));
+		String line;
+		
+		try {
+			while ((line = reader.readLine()) != null){
+				result.append(line);
+			}
+		}
+		finally {
+			reader.close();
+		}
+		
+		return result.toString();
+	}
+	
+	/**
+	 * Closes the body, if there is one.
+	 */
+	public void close() {
+		if (body != null){
+			try {
+				body.close();
+			} catch (IOException e) {
+				// Nothing else to do
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ServerResponse with response code " + responseCode;
+	}
+
+}
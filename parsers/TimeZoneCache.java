@@ -0,0 +1,407 @@
+package parsers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Properties;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import flight_system.Location;
+
+/**
+ * Keeps the time zone offsets of locations in a file on disk, so that the
+ * Google Time Zone API only has to be asked about a location once.
+ * <p>
+ * This class uses the Singleton Pattern, thus, only one instance of it is allowed
+ * as any point in time. The cache file is loaded the first time the instance is
+ * requested, and every miss that gets resolved is written back to the file,
+ * unless the writes are held, see {@link #holdWrites()}.
+ * <p>
+ * The airport parser preloads the time zones of all the airports before it makes
+ * them, so once the cache file has them a restart doesn't touch the network.
+ * <p>
+ * A location whose time zone could not be looked up gets NaN instead of an offset,
+ * so it can't be mistaken for a location in GMT. It isn't cached, so it is
+ * looked up again the next time.
+ * <p>
+ * Locations are keyed by their latitude and longitude rounded to
+ * two decimal places (about 1 km), which is far finer than any time zone border.
+ *
+ * @see flight_system.Location
+ * @see parsers.XMLGetter#getTimeZoneXML(Location)
+ */
+public class TimeZoneCache {
+
+	/* Default file that holds the cached offsets */
+	public static final String DEFAULT_CACHE_FILE = "timezones.cache";
+
+	/* The offsets that are known, keyed by the rounded coordinates */
+	private Properties offsets;
+
+	/* The file the offsets are stored in */
+	private File cacheFile;
+
+	/* While above 0, misses are only stored in memory until the last hold is released */
+	private int writeHolds;
+
+	/* True if there are offsets that weren't written to the file yet */
+	private boolean unsaved;
+
+	/* Number of lookups that were answered from the cache */
+	private int hits;
+
+	/* Number of lookups that had to go to the network */
+	private int misses;
+
+	/* Number of lookups that the network could not answer */
+	private int failures;
+
+	private static TimeZoneCache firstInstance = null;
+
+	/* The private constructor loads the cache file */
+	private TimeZoneCache(File cacheFile){
+		this.offsets = new Properties();
+		this.cacheFile = cacheFile;
+		load();
+	};
+
+	/**
+	 * Gets the only instance of the class.
+	 * <p>
+	 * The offsets are loaded from {@link #DEFAULT_CACHE_FILE} in the working
+	 * directory, unless the "flight.tzcache" system property names another file.
+	 * @return the only instance of the Time Zone Cache.
+	 */
+	/* Method to get the only instance of the class */
+	public static synchronized TimeZoneCache getInstance(){
+		if(firstInstance == null){
+			firstInstance = new TimeZoneCache(new File(System.getProperty("flight.tzcache", DEFAULT_CACHE_FILE)));
+		}
+
+		return firstInstance;
+	}
+
+	/**
+	 * Gets the cached time zone offset of a location.
+	 * @param latitude the latitude of the location.
+	 * @param longitude the longitude of the location.
+	 * @return the raw offset in seconds, or null if the location is not cached.
+	 */
+	public synchronized Double getOffset(double latitude, double longitude){
+
+		String value = offsets.getProperty(makeKey(latitude, longitude));
+
+		/* Not in the cache */
+		if (value == null){
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return Double.valueOf(value);
+	}
+
+	/**
+	 * Gets the time zone offset of a location from the cache, or asks Google
+	 * about it and stores the answer in the cache.
+	 * <p>
+	 * Each call counts as one hit or one miss.
+	 * @param latitude the latitude of the location.
+	 * @param longitude the longitude of the location.
+	 * @return the raw offset in seconds, or NaN if Google could not be asked.
+	 * @see parsers.XMLGetter#getTimeZoneXML(Location)
+	 * @see flight_system.Location#hasTimeZone()
+	 */
+	public double resolveOffset(double latitude, double longitude){
+
+		Double cachedOffset = getOffset(latitude, longitude);
+
+		if (cachedOffset != null){
+			return cachedOffset;
+		}
+
+		/* Not locked while asking Google, so other locations can still be read */
+		Double rawOffset = lookUpOffset(latitude, longitude);
+
+		if (rawOffset == null){
+			countFailure(latitude, longitude);
+			return Double.NaN;
+		}
+
+		/* Remember it, so we don't have to ask Google again */
+		putOffset(latitude, longitude, rawOffset);
+
+		return rawOffset;
+	}
+
+	/**
+	 * Stores the time zone offset of a location. Unless the writes are held,
+	 * the file on disk is updated right away.
+	 * @param latitude the latitude of the location.
+	 * @param longitude the longitude of the location.
+	 * @param rawOffset the raw offset in seconds.
+	 */
+	public synchronized void putOffset(double latitude, double longitude, double rawOffset){
+
+		offsets.setProperty(makeKey(latitude, longitude), Double.toString(rawOffset));
+		unsaved = true;
+
+		if (writeHolds == 0){
+			save();
+		}
+	}
+
+	/**
+	 * Gets the time zone offsets of many locations at once, e.g. of every airport
+	 * before the airport list is parsed, then writes the cache to disk once.
+	 * <p>
+	 * Only the locations that aren't cached are looked up, so once the cache file
+	 * has all of them this never touches the network.
+	 * @param latitudes the latitudes of the locations.
+	 * @param longitudes the longitudes of the locations, in the same order.
+	 * @return the raw offsets in seconds, in the same order, NaN for the ones Google could not be asked about.
+	 * @see #resolveOffset(double, double)
+	 */
+	public double[] preload(double[] latitudes, double[] longitudes){
+
+		double[] rawOffsets = new double[latitudes.length];
+
+		/* Hold the writes until the end, so the file is only written once */
+		holdWrites();
+
+		try {
+			for (int i = 0; i < latitudes.length; i++){
+				rawOffsets[i] = resolveOffset(latitudes[i], longitudes[i]);
+			}
+		}
+		finally {
+			releaseWrites();
+		}
+
+		return rawOffsets;
+	}
+
+	/**
+	 * Holds the writes of new offsets to disk, until {@link #releaseWrites()} is called.
+	 * <p>
+	 * Use it while a lot of locations are being resolved at once, e.g. while
+	 * parsing the airport list. Holds can be nested, the cache is only saved
+	 * once every hold is released.
+	 */
+	public synchronized void holdWrites(){
+		writeHolds++;
+	}
+
+	/**
+	 * Releases a hold of {@link #holdWrites()}. Releasing the last hold saves the
+	 * cache, if any offsets were added meanwhile.
+	 */
+	public synchronized void releaseWrites(){
+
+		if (writeHolds > 0){
+			writeHolds--;
+		}
+
+		if (writeHolds == 0 && unsaved){
+			save();
+		}
+	}
+
+	/**
+	 * Writes the cached offsets to the cache file.
+	 * <p>
+	 * They are written to a temporary file next to it first, which then replaces
+	 * the cache file, so a crash while saving never leaves half a cache behind.
+	 */
+	public synchronized void save(){
+
+		File tempFile = null;
+		OutputStream out = null;
+
+		try {
+			File dir = cacheFile.getAbsoluteFile().getParentFile();
+			tempFile = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+
+			out = new FileOutputStream(tempFile);
+			offsets.store(out, "Time zone raw offsets (seconds) keyed by latitude,longitude");
+			out.close();
+			out = null;
+
+			try {
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+
+			unsaved = false;
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			closeQuietly(out);
+			if (tempFile != null){
+				tempFile.delete();
+			}
+		}
+	}
+
+	/**
+	 * Gets the file the offsets are stored in.
+	 * @return the cache file.
+	 */
+	public File getCacheFile(){
+		return cacheFile;
+	}
+
+	/**
+	 * Gets the number of cached locations.
+	 * @return the number of cached locations.
+	 */
+	public synchronized int size(){
+		return offsets.size();
+	}
+
+	/**
+	 * Gets the number of lookups that were found in the cache.
+	 * @return the number of cache hits.
+	 */
+	public synchronized int getHits(){
+		return hits;
+	}
+
+	/**
+	 * Gets the number of lookups that were not found in the cache.
+	 * @return the number of cache misses.
+	 */
+	public synchronized int getMisses(){
+		return misses;
+	}
+
+	/**
+	 * Gets the number of lookups that Google could not answer.
+	 * @return the number of failed lookups.
+	 */
+	public synchronized int getFailures(){
+		return failures;
+	}
+
+	/* Counts a failed lookup, and says so, the location is left without a time zone */
+	private synchronized void countFailure(double latitude, double longitude){
+		failures++;
+		System.err.println("Could not get the time zone at " + makeKey(latitude, longitude) + ", it is left unknown.");
+	}
+
+	/* Reads the cache file, if there is one */
+	private void load(){
+
+		if (!cacheFile.exists()){
+			return;
+		}
+
+		InputStream in = null;
+
+		try {
+			in = new FileInputStream(cacheFile);
+			offsets.load(in);
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			closeQuietly(in);
+		}
+	}
+
+	/* Asks Google for the time zone of a location, returns null if it could not be found */
+	private static Double lookUpOffset(double latitude, double longitude){
+
+		/* Have to sleep in order to avoid the Google API Limit */
+		try {
+			Thread.sleep(200);
+		} catch (InterruptedException e) {
+			e.printStackTrace();
+		}
+
+		//Getting information
+		XMLGetter getter = XMLGetter.getInstance();
+		String xmlSource = getter.getTimeZoneXML(new Location(latitude, longitude, false));
+
+		if (xmlSource == null){
+			return null;
+		}
+
+		//Parsing info
+		DocumentBuilderFactory dom_fac = DocumentBuilderFactory.newInstance();
+
+		try {
+			/* Builds the doc object that contains the 
+			 * tree structure of the XML file */
+			DocumentBuilder builder = dom_fac.newDocumentBuilder();
+			Document doc = builder.parse(new InputSource(new StringReader(xmlSource))); // This is the root node
+
+			NodeList childNodes = doc.getElementsByTagName("raw_offset");
+			Node rawOffsetNode =  childNodes.item(0);
+
+			/* e.g. the request was turned down */
+			if (rawOffsetNode == null){
+				return null;
+			}
+
+			return Double.parseDouble(rawOffsetNode.getTextContent());
+
+		/* Exceptions required by the Parser */	
+
+		} catch (ParserConfigurationException e) {
+			e.printStackTrace();
+		} catch (SAXException e) {
+			e.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (NumberFormatException e) {
+			e.printStackTrace();
+		}
+
+		return null;
+	}
+
+	/* Key used for a location, the coordinates rounded to 2 decimal places */
+	private static String makeKey(double latitude, double longitude){
+		return String.format(Locale.US, "%.2f,%.2f", latitude, longitude);
+	}
+
+	/* Closes a stream, ignoring any errors */
+	private static void closeQuietly(Closeable stream){
+		if (stream != null){
+			try {
+				stream.close();
+			} catch (IOException e) {
+				// Nothing else to do
+			}
+		}
+	}
+
+	/**
+	 * Provides a string representation of the Time Zone Cache.
+	 * @return a string representation of the Time Zone Cache object.
+	 */
+	@Override
+	public String toString() {
+		return "TimeZoneCache has " + size() + " location(s) in " + cacheFile + " (" + hits + " hits, " + misses + " misses, " + failures + " failed)";
+	}
+}
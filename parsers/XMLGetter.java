@@ -8,12 +8,8 @@
 
 package parsers;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
 
 import flight_system.Airport;
 import flight_system.Date;
@@ -25,13 +21,21 @@ import flight_system.Month;
  * <p>
  * This class uses the Singleton Pattern, thus, only one instance of it is allowed
  * All the information that we need on the server get from here.
+ * <p>
+ * The requests are sent with an {@link IServerTransport}, the shared 
+ * {@link PooledHttpTransport} unless another transport is set, and the addresses of the server and the time zone 
+ * service can be changed, e.g. to point at a {@link MockReservationServer}.
  * 
  * @author Kun Huang
  * */
 public class XMLGetter {
 	private String teamName = "TeamYeYing"; // Team Name
 	private int numXML; // Number of XMLs 
-	private String urlAddress = "http://cs509.cs.wpi.edu:8181/CS509.server/ReservationSystem";
+	private volatile String urlAddress = "http://cs509.cs.wpi.edu:8181/CS509.server/ReservationSystem";
+	private volatile String timeZoneAddress = "https://maps.googleapis.com/maps/api/timezone/xml";
+	
+	/* How the requests are sent */
+	private volatile IServerTransport transport = PooledHttpTransport.getInstance();
 	
 	private static XMLGetter firstInstance = null;
 	
@@ -47,7 +51,7 @@ public class XMLGetter {
 	 * @return the only instance 
 	 */
 	/* Method to get the only instance of the class */
-	public static XMLGetter getInstance(){
+	public static synchronized XMLGetter getInstance(){
 		if(firstInstance == null){
 			firstInstance = new XMLGetter();
 		}
@@ -69,145 +73,69 @@ public class XMLGetter {
 	 * @return the number of XML file
 	 */
 
-	public int getNumXML() {
+	public synchronized int getNumXML() {
 		return numXML;
 	}
 	
+	/**
+	 * Get the transport the requests are sent with
+	 * @return the transport
+	 */
+	public IServerTransport getTransport() {
+		return transport;
+	}
+	
+	/**
+	 * Set the transport the requests are sent with, e.g. a {@link ReplayTransport} 
+	 * to work from responses recorded to disk
+	 * @param transport the transport, null goes back to the shared connection pool
+	 */
+	public void setTransport(IServerTransport transport) {
+		this.transport = (transport == null) ? PooledHttpTransport.getInstance() : transport;
+	}
+	
+	/**
+	 * Get the address of the reservation system
+	 * @return the URL of the reservation system
+	 */
+	public String getServerAddress() {
+		return urlAddress;
+	}
+	
+	/**
+	 * Set the address of the reservation system
+	 * @param urlAddress the URL of the reservation system
+	 */
+	public void setServerAddress(String urlAddress) {
+		this.urlAddress = urlAddress;
+	}
+	
+	/**
+	 * Set the address of the time zone service
+	 * @param timeZoneAddress the URL of the time zone service, without the query
+	 */
+	public void setTimeZoneAddress(String timeZoneAddress) {
+		this.timeZoneAddress = timeZoneAddress;
+	}
+	
 	/**
 	 * An method that can get all the XML information about airport from the server.
 	 * @return the XML information about airport on the server.
+	 * @see #openAirportsStream()
 	 */
 	/* Returns the XML for the Airports */
 	public String getAirportsXML (){
-		URL url;
-		HttpURLConnection connection;
-		BufferedReader reader;
-		String line;
-		StringBuffer result = new StringBuffer();
-		
-		try{
-			url = new URL(urlAddress + "?team="+teamName+"&action=list&list_type=airports");
-				
-			/* Open Connection and send GET request */
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("GET");
-			
-			/* The response code given by the server*/
-			int responseCode = connection.getResponseCode(); 
-			//System.out.println("\nThe Response Code is: " + responseCode);
-			
-			/* If The connection was successful */
-			if((responseCode >= 200) && (responseCode <= 299)){
-				
-				/* Shows successful connection */
-				//System.out.println("Getting Airport Info...");
-				
-				/* Setup the input stream */
-				InputStream inputStream = connection.getInputStream();
-				String encoding = connection.getContentEncoding();
-				encoding = (encoding == null ? "URF-8" : encoding);
-				
-				/* This code just copies the String from the Server */
-				reader = new BufferedReader(new InputStreamReader(inputStream));
-				while ((line = reader.readLine()) != null){
-					result.append(line);
-				}
-				reader.close();
-				
-				/* Increment XML Count by one */
-				this.numXML++; 
-				
-			}
-			/* Else the response was not valid */
-			else if (responseCode == 403){
-				System.out.println("Invalid team name!");
-			}
-			else if (responseCode == 400){
-				System.out.println("Missing or Invalid action");
-			}
-			else{
-				System.out.println("Unknown connection error");
-			}
-		}	
-			
-			/* Needs to catch these exceptions */
-			catch(IOException e){
-				e.printStackTrace();
-			}
-			catch(Exception e){
-				e.printStackTrace();
-			}
-			
-			
-			return result.toString();
+		return readAll(openAirportsStream());
 	}
 	
 	/**
 	 * An method that can get all the XML information about airplane from the server.
 	 * @return the XML information about airplane on the server.
+	 * @see #openAirplaneStream()
 	 */
 
 	public  String getAirplaneXML (){
-		URL url;
-		HttpURLConnection connection;
-		BufferedReader reader;
-		String line;
-		StringBuffer result = new StringBuffer();
-		
-		try{
-			url = new URL(urlAddress + "?team="+ teamName + "&action=list&list_type=airplanes");
-				
-			/* Open Connection and send GET request */
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("GET");
-			
-			/* The response code given by the server*/
-			int responseCode = connection.getResponseCode(); 
-			//System.out.println("\nThe Response Code is: " + responseCode);
-			
-			/* If The connection was successful */
-			if((responseCode >= 200) && (responseCode <= 299)){
-				
-				//System.out.println("Getting Airplane Info..."); 
-				
-				/* Setup the input stream */
-				InputStream inputStream = connection.getInputStream();
-				String encoding = connection.getContentEncoding();
-				encoding = (encoding == null ? "URF-8" : encoding);
-				
-				/* This code just copies the String from the Server */
-				reader = new BufferedReader(new InputStreamReader(inputStream));
-				while ((line = reader.readLine()) != null){
-					result.append(line);
-				}
-				reader.close();
-				
-				/* Increment XML Count by one */
-				this.numXML++; 
-				
-			}
-			/* Else the response was not valid */
-			else if (responseCode == 403){
-				System.out.println("Invalid team name!");
-			}
-			else if (responseCode == 400){
-				System.out.println("Missing or Invalid action");
-			}
-			else{
-				System.out.println("Unknown connection error");
-			}
-		}	
-			
-			/* Needs to catch these exceptions */
-			catch(IOException e){
-				e.printStackTrace();
-			}
-			catch(Exception e){
-				e.printStackTrace();
-			}
-			
-			
-			return result.toString();
+		return readAll(openAirplaneStream());
 	}
 	
 	/**
@@ -216,14 +144,49 @@ public class XMLGetter {
 	 * @param airport the airport this flight would depart or arrive
 	 * @param date the date this flight would depart or arrive
 	 * @return the XML information about flight on the server
+	 * @see #openFlightsStream(boolean, Airport, Date)
 	 */
 
 	public  String getFlightsXML (boolean depart, Airport airport, Date date){
-		URL url;
-		HttpURLConnection connection;
-		BufferedReader reader;
-		String line;
-		StringBuffer result = new StringBuffer();
+		return readAll(openFlightsStream(depart, airport, date));
+	}
+	
+	/**
+	 * Opens the airport XML from the server as a stream, so it can be handed 
+	 * straight to a parser without copying it into a String first.
+	 * <p>
+	 * The caller has to close the stream.
+	 * @return the stream of the airport XML, or null if the server could not be reached.
+	 * @see parsers.AirportParser#parseAirportXML(InputStream)
+	 */
+	public InputStream openAirportsStream (){
+		return openStream(urlAddress + "?team="+teamName+"&action=list&list_type=airports");
+	}
+	
+	/**
+	 * Opens the airplane XML from the server as a stream, so it can be handed 
+	 * straight to a parser without copying it into a String first.
+	 * <p>
+	 * The caller has to close the stream.
+	 * @return the stream of the airplane XML, or null if the server could not be reached.
+	 * @see parsers.AirplaneParser#parseAirplaneXML(InputStream)
+	 */
+	public InputStream openAirplaneStream (){
+		return openStream(urlAddress + "?team="+ teamName + "&action=list&list_type=airplanes");
+	}
+	
+	/**
+	 * Opens the flight XML from the server as a stream, so it can be handed 
+	 * straight to a parser without copying it into a String first.
+	 * <p>
+	 * The caller has to close the stream.
+	 * @param depart select whether the departure information or the arrival information is needed
+	 * @param airport the airport this flight would depart or arrive
+	 * @param date the date this flight would depart or arrive
+	 * @return the stream of the flight XML, or null if the server could not be reached.
+	 * @see parsers.FlightParser#parseFlightXML(InputStream)
+	 */
+	public InputStream openFlightsStream (boolean depart, Airport airport, Date date){
 		
 		/* Variables used in the URL address */
 		String code = airport.getCode();
@@ -238,40 +201,32 @@ public class XMLGetter {
 			type = "arriving";
 		}
 		
+		return openStream(urlAddress + "?team="+ teamName + "&action=list&list_type="+ type +"&airport=" + code + "&day=" + year + "_" + month + "_" + day);
+	}
+	
+	/* Sends a GET request to the server, returns the response body or null if it failed */
+	private InputStream openStream(String address){
+		
 		try{
-			url = new URL(urlAddress + "?team="+ teamName + "&action=list&list_type="+ type +"&airport=" + code + "&day=" + year + "_" + month + "_" + day);
-				
-			/* Open Connection and send GET request */
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("GET");
+			/* Send GET request */
+			ServerResponse response = transport.get(address);
 			
 			/* The response code given by the server*/
-			int responseCode = connection.getResponseCode(); 
-			//System.out.println("\nThe Response Code is: " + responseCode);
+			int responseCode = response.getResponseCode(); 
 			
 			/* If The connection was successful */
-			if((responseCode >= 200) && (responseCode <= 299)){
-				
-				//System.out.println("Getting Flight Info..."); 
-				
-				/* Setup the input stream */
-				InputStream inputStream = connection.getInputStream();
-				String encoding = connection.getContentEncoding();
-				encoding = (encoding == null ? "URF-8" : encoding);
-				
-				/* This code just copies the String from the Server */
-				reader = new BufferedReader(new InputStreamReader(inputStream));
-				while ((line = reader.readLine()) != null){
-					result.append(line);
-				}
-				reader.close();
+			if(response.isSuccessful()){
 				
 				/* Increment XML Count by one */
-				this.numXML++; 
+				countXML(); 
 				
+				return response.getBody();
 			}
+			
+			response.close();
+			
 			/* Else the response was not valid */
-			else if (responseCode == 403){
+			if (responseCode == 403){
 				System.out.println("Invalid team name!");
 			}
 			else if (responseCode == 400){
@@ -289,8 +244,23 @@ public class XMLGetter {
 			catch(Exception e){
 				e.printStackTrace();
 			}
-
-			return result.toString();
+		
+		return null;
+	}
+	
+	/* Copies a stream into a String line by line, then closes it. 
+	 * Returns an empty String if there is no stream. */
+	private String readAll(InputStream inputStream){
+		
+		try{
+			/* This code just copies the String from the Server */
+			return new ServerResponse(200, inputStream).readBody();
+		}
+		catch(IOException e){
+			e.printStackTrace();
+		}
+		
+		return "";
 	}
 	
 	/**
@@ -300,19 +270,15 @@ public class XMLGetter {
 	
 	/* Resets the Database */
 	public boolean resetDB(){
-		URL url;
-		HttpURLConnection connection;
 		boolean wasReset = false; // Returns true if successful reset
 
 		try{
-			url = new URL(urlAddress + "?team=TeamYeYing&action=resetDB");
-
-			/* Open Connection and send GET request */
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("GET");
+			/* Send GET request */
+			ServerResponse response = transport.get(urlAddress + "?team=TeamYeYing&action=resetDB");
+			response.close();
 
 			/* The response code given by the server*/
-			int responseCode = connection.getResponseCode(); 
+			int responseCode = response.getResponseCode(); 
 //			System.out.println("\nThe Response Code is: " + responseCode);
 
 			/* If The connection was successful */
@@ -349,54 +315,34 @@ public class XMLGetter {
 	 * @return XML string which include time zone information for input location.
 	 */
 	public String getTimeZoneXML (Location location){
-		URL url;
 		
 		/* Data needed by the Google API */
 		double latitude = location.getLatitude();
 		double longitude = location.getLongitude();
 		int timeStamp = 1431043200; //This is the date of May 8th 2015 at 00:00 GMT
 		
-		HttpURLConnection connection;
-		BufferedReader reader;
-		String line;
-		StringBuffer result = new StringBuffer();
+		String result = "";
 		
 		try{
 			
 			/* Google's TimeZone API */
-			url = new URL("https://maps.googleapis.com/maps/api/timezone/xml?location="+latitude+","+longitude+"&timestamp="+timeStamp);
-				
-			/* Open Connection and send GET request */
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("GET");
-			
-			/* The response code given by the server*/
-			int responseCode = connection.getResponseCode(); 
-			//System.out.println("\nThe Response Code is: " + responseCode);
+			ServerResponse response = transport.get(timeZoneAddress + "?location="+latitude+","+longitude+"&timestamp="+timeStamp);
 			
 			/* If The connection was successful */
-			if((responseCode >= 200) && (responseCode <= 299)){
+			if(response.isSuccessful()){
 				
 				//System.out.println("Getting TimeZone Info..."); 
 				
-				/* Setup the input stream */
-				InputStream inputStream = connection.getInputStream();
-				String encoding = connection.getContentEncoding();
-				encoding = (encoding == null ? "URF-8" : encoding);
-				
 				/* This code just copies the String from the Server */
-				reader = new BufferedReader(new InputStreamReader(inputStream));
-				while ((line = reader.readLine()) != null){
-					result.append(line);
-				}
-				reader.close();
+				result = response.readBody();
 				
 				/* Increment XML Count by one */
-				this.numXML++; 
+				countXML(); 
 				
 			}
 			/* Else the response was not valid */
 			else{
+				response.close();
 				System.out.println("Some error occured");
 			}
 		}	
@@ -410,7 +356,12 @@ public class XMLGetter {
 			}
 			
 			
-			return result.toString();
+			return result;
+	}
+	
+	/* Increments the XML count, the getters can be called from many threads */
+	private synchronized void countXML(){
+		this.numXML++;
 	}
 	
 	/**
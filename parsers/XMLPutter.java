@@ -1,10 +1,11 @@
 package parsers;
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.DataOutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import flight_system.Flight;
 import flight_system.FlightLeg;
@@ -14,17 +15,40 @@ import flight_system.FlightLeg;
  * <p>
  * This class uses the Singleton Pattern, thus, only one instance of it is allowed
  * All the information that we need on the server get from here.
+ * <p>
+ * Like the {@link XMLGetter}, the requests are sent with an {@link IServerTransport}
+ * and the address of the server can be changed. It can be used from many threads.
  * 
  * @author Kun Huang
  * */
 public class XMLPutter {
+	
+	/**
+	 * The result of a ticket when it isn't known whether it was bought, e.g. the
+	 * connection broke after the request was sent. Buying it again could buy it twice,
+	 * the seats of the flight have to be checked first.
+	 */
+	public static final int UNKNOWN_RESULT = -1;
+	
 	private String teamName = "TeamYeYing"; // Team Name
 	private int numXML; // Number of XMLs 
-	private String urlAddress = "http://cs509.cs.wpi.edu:8181/CS509.server/ReservationSystem";
+	private volatile String urlAddress = "http://cs509.cs.wpi.edu:8181/CS509.server/ReservationSystem";
 	private int ticketsBought;
 	
+	/* How the requests are sent */
+	private volatile IServerTransport transport = PooledHttpTransport.getInstance();
+	
 	private static XMLPutter firstInstance = null;
 	
+	/* Only one purchase at a time can hold the team's lock on the database */
+	private final Object purchaseLock = new Object();
+	
+	/* Buys the tickets of many threads with one lock, made when it is first needed */
+	private PurchaseBatcher batcher;
+	
+	/* The flight numbers in a ticket */
+	private static final Pattern FLIGHT_NUM = Pattern.compile("number=\"(\\d+)\"");
+	
 	
 	/* The private constructor */
 	private XMLPutter(){};
@@ -34,7 +58,7 @@ public class XMLPutter {
 	 * @return the only instance 
 	 */
 	/* Method to get the only instance of the class */
-	public static XMLPutter getInstance(){
+	public static synchronized XMLPutter getInstance(){
 		if(firstInstance == null){
 			firstInstance = new XMLPutter();
 		}
@@ -59,52 +83,64 @@ public class XMLPutter {
 		return numXML;
 	}
 	
-	public int getTicketsBought() {
+	public synchronized int getTicketsBought() {
 		return ticketsBought;
 	}	
 	
+	/**
+	 * Get the transport the requests are sent with
+	 * @return the transport
+	 */
+	public IServerTransport getTransport() {
+		return transport;
+	}
+	
+	/**
+	 * Set the transport the requests are sent with
+	 * @param transport the transport, null goes back to the shared connection pool
+	 */
+	public void setTransport(IServerTransport transport) {
+		this.transport = (transport == null) ? PooledHttpTransport.getInstance() : transport;
+	}
+	
+	/**
+	 * Get the address of the reservation system
+	 * @return the URL of the reservation system
+	 */
+	public String getServerAddress() {
+		return urlAddress;
+	}
+	
+	/**
+	 * Set the address of the reservation system
+	 * @param urlAddress the URL of the reservation system
+	 */
+	public void setServerAddress(String urlAddress) {
+		this.urlAddress = urlAddress;
+	}
+	
 	/**Lock the Database
 	 * 
 	 * @return true if lock the DB successful else false
 	 */
 	public boolean lockDB(){
-		URL url;
-		HttpURLConnection connection;
 		
 		try{
-			/* Open Connection and send POST request */
-			url = new URL(urlAddress);
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("POST");
-			connection.setDoOutput(true);
-			connection.setDoInput(true);
-			
 			/* Give the lockDB action to the sever*/
-			DataOutputStream writer=new DataOutputStream(connection.getOutputStream());
-			writer.writeBytes("team="+teamName+"&action=lockDB");
-			writer.flush();
-			writer.close();
+			ServerResponse response = transport.post(urlAddress, "team="+teamName+"&action=lockDB");
 			
 			/* Print POST to show the connection is begin*/
-			int responseCode=connection.getResponseCode();
+			int responseCode=response.getResponseCode();
 //			System.out.println("\nSending 'POST' to lock database");
 //			System.out.println("\nResponse Code:"+ responseCode);
 			
 			/*if the connection was success*/
 			if((responseCode>=200)&&(responseCode<=299)){
 //				System.out.println("Locked the Database successfully!");
-				BufferedReader in=new BufferedReader(new InputStreamReader(connection.getInputStream()));
-				String line;
-				StringBuffer response=new StringBuffer();
-				
-				while((line=in.readLine())!=null){
-					response.append(line);
-				}
-				in.close();
-				
-				System.out.println(response.toString());
+				System.out.println(response.readBody());
 				return true;
 			}
+			response.close();
 		}
 		/*catch the exception*/
 		catch(IOException ex){
@@ -123,42 +159,22 @@ public class XMLPutter {
 	 * @return true if  unlock DB successful else false
 	 */
 	public boolean unlockDB(){
-		URL url;
-		HttpURLConnection connection;
 		
 		try{
-			/* Open Connection and send POST request */
-			url = new URL(urlAddress);
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("POST");
-			connection.setDoOutput(true);
-			connection.setDoInput(true);
-			
-			DataOutputStream writer=new DataOutputStream(connection.getOutputStream());
-			writer.writeBytes("team="+teamName+"&action=unlockDB");
-			writer.flush();
-			writer.close();
+			ServerResponse response = transport.post(urlAddress, "team="+teamName+"&action=unlockDB");
 			
 			/* The response code given by the server*/
-			int responseCode=connection.getResponseCode();
+			int responseCode=response.getResponseCode();
 //			System.out.println("\nSending 'POST' to unlock database");
 //			System.out.println("\nResponse Code:"+ responseCode);
 			
 			/* if the connection was successful*/
 			if((responseCode>=200)&&(responseCode<=299)){
 //				System.out.println("Unlocked the Database successfully!");
-				BufferedReader in=new BufferedReader(new InputStreamReader(connection.getInputStream()));
-				String line;
-				StringBuffer response=new StringBuffer();
-				
-				while((line=in.readLine())!=null){
-					response.append(line);
-				}
-				in.close();
-				
-				System.out.println(response.toString());
+				System.out.println(response.readBody());
 				return true;
 			}
+			response.close();
 		}
 		
 		/*catch the exceptions*/
@@ -227,48 +243,29 @@ public class XMLPutter {
 	 */
 	/* Buying a ticket */
 	public int buyTicket(String ticket){
-		URL url;
-		HttpURLConnection connection;
 		
 		try{
-			url = new URL(urlAddress);
-			
-			/* Open Connection and send POST request */
-			connection = (HttpURLConnection) url.openConnection();
-			connection.setRequestMethod("POST");
-			connection.setDoOutput(true);
-			connection.setDoInput(true);
-			
-			DataOutputStream writer = new DataOutputStream(connection.getOutputStream());
-			writer.writeBytes("team="+teamName+"&action=buyTickets&flightData="+ticket);
-			writer.flush();
-			writer.close();
+			ServerResponse response = transport.post(urlAddress, "team="+teamName+"&action=buyTickets&flightData="+ticket);
 			
 			/* The response code given by the server*/
-			int responseCode=connection.getResponseCode();
+			int responseCode=response.getResponseCode();
 			//System.out.println("\nResponse Code: "+ responseCode);
 			
 			/* If the connection was successful*/
 			if((responseCode>=200)&&(responseCode<=299)){
 //				System.out.println("The ticket was bought.");
-				BufferedReader in=new BufferedReader(new InputStreamReader(connection.getInputStream()));
-				String line;
-				StringBuffer response=new StringBuffer();
+				System.out.println(response.readBody());
 				
-				while((line=in.readLine())!=null){
-					response.append(line);
-				}
-				in.close();
-				
-				System.out.println(response.toString());
-				
-				ticketsBought++;
+				countTicket();
 				
 				/* Successful */ 
 				return responseCode;
 			}
+			
+			response.close();
+			
 			/* Else the response was not valid */
-			else if (responseCode == 304){
+			if (responseCode == 304){
 				//System.out.println("Unsuccessful: Did not update the Database.");
 				return responseCode;
 			}
@@ -299,6 +296,186 @@ public class XMLPutter {
 		
 	}
 
+	/**
+	 * Locks the database, buys a ticket and unlocks the database again.
+	 * <p>
+	 * The lock on the server belongs to the whole team, so the purchases made
+	 * from this program wait for each other, otherwise one purchase could 
+	 * unlock the database while another one is still buying.
+	 * @param ticket the ticket for the flight that will be purchased.
+	 * @return the response code of buying the ticket, 200 if it was bought, 412 if the database could not be locked.
+	 * @see #buyTicket(String)
+	 */
+	public int purchase(String ticket){
+		
+		synchronized (purchaseLock){
+			
+			/* Lock the database, without the lock nothing is bought and there's nothing to unlock */
+			if (!lockDB()){
+				return 412;
+			}
+			
+			try {
+				return buyTicket(ticket);
+			}
+			finally {
+				/* Unlock the database */
+				unlockDB();
+			}
+		}
+	}
+	
+	/**
+	 * Locks the database once, buys many tickets and unlocks the database again.
+	 * <p>
+	 * The tickets are merged into as few requests as possible, but a flight is never
+	 * in the same request twice, so tickets that share a flight are sent in different
+	 * requests. If the server doesn't update the database, which happens when any of
+	 * the seats is gone, nothing in that request was bought, so its tickets are bought
+	 * one at a time in the same lock to find out which of them can still be bought.
+	 * <p>
+	 * If a merged request fails any other way, e.g. the connection broke after it was
+	 * sent, the server may or may not have bought its tickets. They all get
+	 * {@link #UNKNOWN_RESULT} and are not bought again.
+	 * @param tickets the tickets made by {@link #makeTicket(Flight, boolean)}.
+	 * @return the response code of each ticket, in the same order, 2xx if it was bought,
+	 * 		   412 for all of them if the database could not be locked, {@link #UNKNOWN_RESULT}
+	 * 		   if it isn't known whether it was bought.
+	 * @see PurchaseBatcher
+	 */
+	public int[] purchaseAll(List<String> tickets){
+
+		int[] results = new int[tickets.size()];
+
+		if (tickets.isEmpty()){
+			return results;
+		}
+
+		synchronized (purchaseLock){
+
+			/* Lock the database, without the lock nothing is bought and there's nothing to unlock */
+			if (!lockDB()){
+				for (int i = 0; i < results.length; i++){
+					results[i] = 412;
+				}
+				return results;
+			}
+
+			try {
+
+				if (tickets.size() == 1){
+					results[0] = buyTicket(tickets.get(0));
+					return results;
+				}
+
+				/* Each ticket goes in the first request that doesn't have any of its flights yet */
+				ArrayList<ArrayList<Integer>> requests = new ArrayList<ArrayList<Integer>>();
+				ArrayList<HashSet<String>> requestFlights = new ArrayList<HashSet<String>>();
+
+				for (int i = 0; i < tickets.size(); i++){
+
+					ArrayList<String> flightNums = getFlightNums(tickets.get(i));
+
+					int request = 0;
+					while (request < requests.size() && !Collections.disjoint(requestFlights.get(request), flightNums)){
+						request++;
+					}
+
+					if (request == requests.size()){
+						requests.add(new ArrayList<Integer>());
+						requestFlights.add(new HashSet<String>());
+					}
+
+					requests.get(request).add(i);
+					requestFlights.get(request).addAll(flightNums);
+				}
+
+				for (ArrayList<Integer> request : requests){
+					buyMerged(tickets, request, results);
+				}
+
+				return results;
+			}
+			finally {
+				/* Unlock the database */
+				unlockDB();
+			}
+		}
+	}
+
+	/* Buys some of the tickets in one request, must hold the purchase lock and the database lock */
+	private void buyMerged(List<String> tickets, ArrayList<Integer> request, int[] results){
+
+		if (request.size() == 1){
+			results[request.get(0)] = buyTicket(tickets.get(request.get(0)));
+			return;
+		}
+
+		/* One request with the flights of all the tickets */
+		String merged = "<Flights>";
+		for (int ticket : request){
+			merged = merged + tickets.get(ticket).replace("<Flights>", "").replace("</Flights>", "");
+		}
+		merged = merged + "</Flights>";
+
+		int responseCode = buyTicket(merged);
+
+		/* Nothing was bought, find out which tickets can still be bought */
+		if (responseCode == 304 || responseCode == 400){
+			for (int ticket : request){
+				results[ticket] = buyTicket(tickets.get(ticket));
+			}
+			return;
+		}
+
+		if ((responseCode>=200)&&(responseCode<=299)){
+			/* buyTicket counted the merged request as 1 ticket */
+			countTickets(request.size() - 1);
+		}
+		/* The server told us nothing was bought, e.g. the lock was lost */
+		else if (responseCode != 412){
+			responseCode = UNKNOWN_RESULT;
+		}
+
+		for (int ticket : request){
+			results[ticket] = responseCode;
+		}
+	}
+
+	/* Gets the flight numbers in a ticket made by makeTicket */
+	private static ArrayList<String> getFlightNums(String ticket){
+
+		ArrayList<String> flightNums = new ArrayList<String>();
+		Matcher matcher = FLIGHT_NUM.matcher(ticket);
+
+		while (matcher.find()){
+			flightNums.add(matcher.group(1));
+		}
+
+		return flightNums;
+	}
+
+	/**
+	 * Get the batcher that buys the tickets of many threads together,
+	 * with one lock of the database.
+	 * @return the batcher of this putter
+	 */
+	public synchronized PurchaseBatcher getBatcher(){
+		if (batcher == null){
+			batcher = new PurchaseBatcher(this);
+		}
+		return batcher;
+	}
+
+	/* Counts a bought ticket, the putter can be used from many threads */
+	private synchronized void countTicket(){
+		this.ticketsBought++;
+	}
+
+	private synchronized void countTickets(int tickets){
+		this.ticketsBought += tickets;
+	}
+
 	/**
 	 * String representation of the XMLPutter object.
 	 * <p>
@@ -182,6 +182,17 @@ public interface IUserInterface {
 	 * Tells the user that you're searching for flights.
 	 */
 	public void searchFlights();
+	
+	/**
+	 * Tells the user how far the search for flights has got.
+	 * <p>
+	 * The legs of a trip are searched at the same time, so this can be 
+	 * called from several threads.
+	 * @param stepsDone the number of steps that are done.
+	 * @param numOfSteps the number of steps of the whole search.
+	 * @param step what was just done.
+	 */
+	public void searchProgress(int stepsDone, int numOfSteps, String step);
 
 	/**
 	 * Ask's the user if they want to book a round trip.
@@ -212,6 +212,11 @@ public class TextInterface implements IUserInterface {
 	public void searchFlights() {
 		System.out.println("Searching for flights...");		
 	}
+	
+	@Override
+	public synchronized void searchProgress(int stepsDone, int numOfSteps, String step) {
+		System.out.println("  [" + stepsDone + "/" + numOfSteps + "] " + step);
+	}
 
 	@Override
 	public String wantRoundTrip() {